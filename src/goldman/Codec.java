@@ -0,0 +1,81 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+/**
+ * The <code>Codec</code> interface is used by data structures that store their
+ * elements outside of the Java heap, such as in a file, to convert each element to
+ * and from a sequence of bytes.  Codecs for the common element types are provided.
+**/
+
+public interface Codec<E> {
+
+/**
+ * @param value the element to encode
+ * @return the number of bytes needed to encode <code>value</code>
+**/
+
+	public int getEncodedSize(E value);
+
+/**
+ * Writes the encoding of <code>value</code> at the current position of
+ * <code>buffer</code>, advancing its position by the encoded size.
+ * @param value the element to encode
+ * @param buffer the buffer to write
+**/
+
+	public void encode(E value, ByteBuffer buffer);
+
+/**
+ * Reads an element from the current position of <code>buffer</code>, advancing
+ * its position by <code>length</code>.
+ * @param buffer the buffer to read
+ * @param length the number of bytes in the encoding
+ * @return the decoded element
+**/
+
+	public E decode(ByteBuffer buffer, int length);
+
+
+	public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+		public int getEncodedSize(Integer value) {
+			return 4;
+		}
+		public void encode(Integer value, ByteBuffer buffer) {
+			buffer.putInt(value);
+		}
+		public Integer decode(ByteBuffer buffer, int length) {
+			return buffer.getInt();
+		}
+	};
+
+	public static final Codec<Long> LONG = new Codec<Long>() {
+		public int getEncodedSize(Long value) {
+			return 8;
+		}
+		public void encode(Long value, ByteBuffer buffer) {
+			buffer.putLong(value);
+		}
+		public Long decode(ByteBuffer buffer, int length) {
+			return buffer.getLong();
+		}
+	};
+
+	public static final Codec<String> STRING = new Codec<String>() {  //UTF-8
+		public int getEncodedSize(String value) {
+			return value.getBytes(StandardCharsets.UTF_8).length;
+		}
+		public void encode(String value, ByteBuffer buffer) {
+			buffer.put(value.getBytes(StandardCharsets.UTF_8));
+		}
+		public String decode(ByteBuffer buffer, int length) {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+}
@@ -4,44 +4,302 @@
 // Use subject to license agreement.
 
 package goldman;
-import goldman.collection.positional.Stack;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * The abstract Pool class provides a way to reuse object to reduce
  * the overhead of performing garbage collection by supporting a reusable pool
- * of objects.
+ * of objects.  The pool is thread-safe.  Each thread has a small local cache
+ * of available objects that is used without any synchronization.  When a
+ * local cache overflows, half of it is moved as a batch (a magazine) onto a
+ * shared lock-free stack, and when a local cache is empty a batch is taken
+ * from a shared stack.  To reduce contention, the shared stack is striped, with
+ * each thread using the stripe selected by its id before checking the others.
+ * At most <code>maxRetained</code> objects are kept in the shared stripes, and
+ * each thread additionally caches at most <code>localCapacity</code> objects.
+ * Objects released beyond these bounds are discarded for the garbage collector.
 **/
 
 public abstract class Pool<T> {
-	Stack<T> available = new Stack<T>();
+
+	public static final int DEFAULT_MAX_RETAINED = 1024;  //default bound for shared stripes
+	public static final int DEFAULT_LOCAL_CAPACITY = 16;  //default bound per thread
+	static final int STRIPES = stripeCount(); //number of shared stripes (a power of 2)
+
+	final int maxRetained;     //maximum number of objects held in the shared stripes
+	final int localCapacity;   //maximum number of objects cached by each thread
+	final AtomicReferenceArray<Magazine> stripes =  //top magazine of each stripe
+		new AtomicReferenceArray<Magazine>(STRIPES);
+	final AtomicInteger shared = new AtomicInteger(0); //objects held in the stripes
+	final ThreadLocal<LocalCache> local = new ThreadLocal<LocalCache>() {
+		protected LocalCache initialValue() {
+			return new LocalCache();
+		}
+	};
+	final LongAdder hits = new LongAdder();      //allocations satisfied by the pool
+	final LongAdder misses = new LongAdder();    //allocations that found the pool empty
+	final LongAdder creates = new LongAdder();   //calls made to create
+	final LongAdder discards = new LongAdder();  //released objects that were not retained
+
+/**
+ * @return the number of stripes to use, which is the smallest power of 2
+ * that is at least the number of available processors (and at most 64)
+**/
+
+	static int stripeCount() {
+		int n = 1;
+		int processors = Runtime.getRuntime().availableProcessors();
+		while (n < processors && n < 64)
+			n <<= 1;
+		return n;
+	}
+
+/**
+ * A magazine is an immutable batch of available objects that is pushed
+ * onto, and popped from, a shared stripe as a unit.  A magazine is never
+ * pushed twice, which avoids the ABA problem for the lock-free stack.
+**/
+
+	static final class Magazine {
+		final Object[] items;  //the available objects
+		Magazine next;         //the magazine below this one in its stripe
+
+		Magazine(Object[] items) {
+			this.items = items;
+		}
+	}
+
+/**
+ * The local cache for a single thread.
+**/
+
+	final class LocalCache {
+		final Object[] items = new Object[localCapacity];  //available objects
+		int count = 0;                                     //number of available objects
+		final int home =                                   //preferred stripe
+			(int) Thread.currentThread().getId() & (STRIPES - 1);
+	}
+
+/**
+ * Creates a pool with the default bounds.
+**/
+
+	public Pool() {
+		this(DEFAULT_MAX_RETAINED, DEFAULT_LOCAL_CAPACITY);
+	}
+
+/**
+ * Creates a pool that retains at most <code>maxRetained</code> objects
+ * in its shared stripes.
+ * @param maxRetained the maximum number of objects kept in the shared stripes
+**/
+
+	public Pool(int maxRetained) {
+		this(maxRetained, Math.min(maxRetained, DEFAULT_LOCAL_CAPACITY));
+	}
+
+/**
+ * @param maxRetained the maximum number of objects kept in the shared stripes
+ * @param localCapacity the maximum number of objects cached by each thread
+ * @throws IllegalArgumentException either bound is negative
+**/
+
+	public Pool(int maxRetained, int localCapacity) {
+		if (maxRetained < 0 || localCapacity < 0)
+			throw new IllegalArgumentException();
+		this.maxRetained = maxRetained;
+		this.localCapacity = localCapacity;
+	}
 
 /**
  * Returns an available object from the pool, or creates one if the pool is empty.
 **/
 
+	@SuppressWarnings("unchecked")
+
 	public T allocate() {
-		if (available.isEmpty())
+		LocalCache cache = local.get();
+		if (cache.count > 0) {   //fast path, using only the local cache
+			hits.increment();
+			T x = (T) cache.items[--cache.count];
+			cache.items[cache.count] = null;  //don't retain a reference for the user
+			return x;
+		}
+		Object[] items = take(cache.home);
+		if (items == null) {     //the pool is empty
+			misses.increment();
+			creates.increment();
 			return create();
-		else
-			return available.pop();
+		}
+		hits.increment();
+		cache.count = items.length - 1;  //keep the rest of the magazine locally
+		System.arraycopy(items, 1, cache.items, 0, cache.count);
+		return (T) items[0];
 	}
 
 /**
  * Moves the given object to the pool of available objects for
- * reuse.
+ * reuse.  The <code>reset</code> hook is applied to <code>x</code> before
+ * it is made available.
  * @param x an object that is no longer needed
- * <BR> 
- * REQUIRES: 
+ * <BR>
+ * REQUIRES:
  *  the user does not retain a reference to the object released
 **/
 
 	public void release(T x) {
-		available.push(x);
-	}	
+		reset(x);
+		LocalCache cache = local.get();
+		if (cache.count == localCapacity)
+			spill(cache, x);
+		else
+			cache.items[cache.count++] = x;
+	}
+
+/**
+ * Creates up to <code>n</code> objects, placing them in the shared stripes, so that
+ * later allocations (from any thread) can be satisfied without calling <code>create</code>.
+ * @param n the number of objects to create
+**/
+
+	public void reserve(int n) {
+		while (n > 0) {
+			int batch = Math.min(n, Math.max(1, localCapacity));
+			Object[] items = new Object[batch];
+			for (int i = 0; i < batch; i++) {
+				creates.increment();
+				items[i] = create();
+			}
+			if (!push(items))
+				return;
+			n -= batch;
+		}
+	}
+
+/**
+ * Moves half of the local cache (or just <code>x</code> when the local capacity is
+ * below 2) to a shared stripe, and then caches <code>x</code> locally.
+ * @param cache the local cache of the calling thread, which is full
+ * @param x the object being released
+**/
+
+	private void spill(LocalCache cache, T x) {
+		int batch = localCapacity / 2;
+		if (batch == 0) {
+			push(new Object[] {x});
+			return;
+		}
+		Object[] items = new Object[batch];
+		cache.count -= batch;
+		System.arraycopy(cache.items, cache.count, items, 0, batch);
+		Arrays.fill(cache.items, cache.count, cache.count + batch, null);
+		push(items);
+		cache.items[cache.count++] = x;
+	}
+
+/**
+ * Places the given objects on the stripe of the calling thread, or discards
+ * them if the shared stripes would then hold more than <code>maxRetained</code> objects.
+ * @param items the objects to make available
+ * @return true  if and only if the objects were retained
+**/
+
+	private boolean push(Object[] items) {
+		int n = items.length;
+		int current;
+		do {
+			current = shared.get();
+			if (current + n > maxRetained) {
+				discards.add(n);
+				return false;
+			}
+		} while (!shared.compareAndSet(current, current + n));
+		Magazine m = new Magazine(items);
+		int stripe = local.get().home;
+		Magazine top;
+		do {
+			top = stripes.get(stripe);
+			m.next = top;
+		} while (!stripes.compareAndSet(stripe, top, m));
+		return true;
+	}
+
+/**
+ * Removes a magazine from a shared stripe, checking the given stripe first.
+ * @param home the preferred stripe of the calling thread
+ * @return the objects in the magazine that was removed, or null if all
+ * stripes are empty
+**/
+
+	private Object[] take(int home) {
+		for (int i = 0; i < STRIPES; i++) {
+			int stripe = (home + i) & (STRIPES - 1);
+			Magazine top;
+			while ((top = stripes.get(stripe)) != null) {
+				if (stripes.compareAndSet(stripe, top, top.next)) {
+					shared.addAndGet(-top.items.length);
+					return top.items;
+				}
+			}
+		}
+		return null;
+	}
 
 /**
  * @return a newly allocated object of type T
 **/
 
 	protected abstract T create();
-}
 
+/**
+ * A hook applied to each object when it is released, so that
+ * it can be returned to its initial state.  By default it does nothing.
+ * @param x the object being released
+**/
+
+	protected void reset(T x) { }
+
+/**
+ * @return the number of allocations that were satisfied from the pool
+**/
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+/**
+ * @return the number of allocations that found the pool empty
+**/
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+/**
+ * @return the number of objects created by this pool
+**/
+
+	public long getCreateCount() {
+		return creates.sum();
+	}
+
+/**
+ * @return the number of released objects that were not retained
+ * since the pool was at its maximum retained size
+**/
+
+	public long getDiscardCount() {
+		return discards.sum();
+	}
+
+/**
+ * @return the number of objects currently held in the shared stripes
+ * (objects in the local caches of threads are not included)
+**/
+
+	public int getSharedCount() {
+		return shared.get();
+	}
+}
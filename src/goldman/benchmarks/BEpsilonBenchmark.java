@@ -0,0 +1,85 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import java.util.Random;
+import goldman.Objects;
+import goldman.collection.ordered.BEpsilonTree;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.BTree;
+import goldman.collection.ordered.OrderedCollection;
+/**
+ * Compares a <code>BEpsilonTree</code> with a <code>BTree</code> and a
+ * <code>BPlusTree</code> on insert-heavy mixes of operations.  Each collection
+ * starts with n random keys, and then performs n operations of which the given
+ * percentage are additions of random keys and the rest are, in equal numbers,
+ * <code>contains</code> and <code>remove</code> of random keys that were
+ * added.  The B<sup>&epsilon;</sup>-trees use nodes of 1024 entries with
+ * &epsilon; of 0.5 and 0.3, and the B-trees have order 32.
+ * Usage: <code>BEpsilonBenchmark [n [percentage ...]]</code>
+**/
+
+public class BEpsilonBenchmark {
+
+	static final String[] NAMES = {"BEpsilonTree(1024, 0.5)", "BEpsilonTree(1024, 0.3)", "BTree(32)",
+		"BPlusTree(32)"};
+
+	static OrderedCollection<Integer> create(String name) {
+		if (name.equals("BEpsilonTree(1024, 0.5)"))
+			return new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 1024, 0.5);
+		else if (name.equals("BEpsilonTree(1024, 0.3)"))
+			return new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 1024, 0.3);
+		else if (name.equals("BTree(32)"))
+			return new BTree<Integer>(32);
+		else
+			return new BPlusTree<Integer>(32);
+	}
+
+	public static void main(String[] args) {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		int[] percentages = {100, 90, 50};
+		if (args.length > 1) {
+			percentages = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++)
+				percentages[i-1] = Integer.parseInt(args[i]);
+		}
+		final int[] keys = OrderStatisticBenchmark.randomKeys(2 * n);
+		for (int percentage : percentages) {
+			final int[] kinds = new int[n];  //0 for add, 1 for contains, 2 for remove
+			final int[] targets = new int[n];
+			Random random = new Random(11);
+			int added = n;
+			for (int i = 0; i < n; i++) {
+				if (random.nextInt(100) < percentage) {
+					kinds[i] = 0;
+					targets[i] = keys[added++];
+				} else {
+					kinds[i] = 1 + random.nextInt(2);
+					targets[i] = keys[random.nextInt(added)];
+				}
+			}
+			String suffix = " (n=" + n + ", " + percentage + "% add)";
+			for (final String name : NAMES)
+				Benchmark.measure(name + suffix, n, new Benchmark.Workload() {
+					OrderedCollection<Integer> c;
+					public void setUp() {
+						c = create(name);
+						for (int i = 0; i < n; i++)
+							c.add(keys[i]);
+					}
+					public void run() {
+						int found = 0;
+						for (int i = 0; i < n; i++)
+							if (kinds[i] == 0)
+								c.add(targets[i]);
+							else if (kinds[i] == 1 ? c.contains(targets[i]) : c.remove(targets[i]))
+								found++;
+						Benchmark.sink = found;
+					}
+				});
+		}
+	}
+}
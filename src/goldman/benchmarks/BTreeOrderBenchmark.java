@@ -0,0 +1,89 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.Objects;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.BTree;
+/**
+ * Measures how the order t of a B-tree and a B+-tree affects the time for
+ * <code>contains</code> and <code>add</code>, for cheap elements
+ * (<code>Integer</code>) and for elements that are costly to compare
+ * (strings that share a long common prefix).  A larger t gives a shallower
+ * tree, so fewer nodes are reached, but each insertion moves more elements,
+ * and with costly elements each comparison, rather than reaching a node,
+ * dominates the time.
+ * Usage: <code>BTreeOrderBenchmark [n]</code>
+**/
+
+public class BTreeOrderBenchmark {
+
+	static final int[] ORDERS = {2, 4, 8, 16, 32, 64, 128, 256};
+
+	static final String PREFIX = "element-with-a-shared-prefix-";
+
+/**
+ * @param n the number of elements
+ * @param strings true for string elements, and false for integers
+ * @return n distinct elements in random order
+**/
+
+	static Object[] elements(int n, boolean strings) {
+		int[] keys = OrderStatisticBenchmark.randomKeys(n);
+		Object[] elements = new Object[n];
+		for (int i = 0; i < n; i++)
+			elements[i] = strings ? (Object) (PREFIX + keys[i]) : (Object) keys[i];
+		return elements;
+	}
+
+/**
+ * @param t the order
+ * @param plus true for a B+-tree, and false for a B-tree
+ * @return a new empty tree
+**/
+
+	static BTree<Object> create(int t, boolean plus) {
+		return plus ? new BPlusTree<Object>(Objects.DEFAULT_COMPARATOR, t)
+			: new BTree<Object>(Objects.DEFAULT_COMPARATOR, t);
+	}
+
+	public static void main(String[] args) {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+		for (boolean strings : new boolean[] {false, true}) {
+			final Object[] elements = elements(n, strings);
+			for (boolean plus : new boolean[] {false, true}) {
+				for (final int t : ORDERS) {
+					final boolean bPlus = plus;
+					String label = (plus ? "BPlusTree" : "BTree") + " " +
+						(strings ? "String" : "Integer") + " t=" + t;
+					Benchmark.measure(label + " add", n, new Benchmark.Workload() {
+						public void run() {
+							BTree<Object> tree = create(t, bPlus);
+							for (Object x : elements)
+								tree.add(x);
+							Benchmark.sink = tree;
+						}
+					});
+					Benchmark.measure(label + " contains", n, new Benchmark.Workload() {
+						BTree<Object> tree;
+						public void setUp() {
+							tree = create(t, bPlus);
+							for (Object x : elements)
+								tree.add(x);
+						}
+						public void run() {
+							int found = 0;
+							for (Object x : elements)
+								if (tree.contains(x))
+									found++;
+							Benchmark.sink = found;
+						}
+					});
+				}
+			}
+		}
+	}
+}
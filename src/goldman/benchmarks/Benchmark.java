@@ -0,0 +1,60 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import java.util.Arrays;
+/**
+ * A minimal timing harness for comparing data structures.  Each workload is
+ * first run several times so that the just-in-time compiler has optimized it, and
+ * then timed over several more runs.  The median and best times per operation are
+ * reported.  Results computed by a workload should be stored in <code>sink</code>
+ * so that the compiler cannot eliminate the work as dead code.
+**/
+
+public class Benchmark {
+
+	public static final int WARMUP_RUNS = 3;    //untimed runs of each workload
+	public static final int MEASURED_RUNS = 5;  //timed runs of each workload
+	public static volatile Object sink;         //consumes results of the workloads
+
+/**
+ * A workload creates its own input in <code>setUp</code>, which is not timed,
+ * and performs the timed work in <code>run</code>.
+**/
+
+	public static abstract class Workload {
+		public void setUp() { }
+		public abstract void run();
+	}
+
+/**
+ * Runs the workload and prints a line with the given label and the median and
+ * best times per operation in nanoseconds.
+ * @param label the name of the workload to print
+ * @param operations the number of operations performed by each run
+ * @param w the workload
+ * @return the median time per operation in nanoseconds
+**/
+
+	public static double measure(String label, long operations, Workload w) {
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			w.setUp();
+			w.run();
+		}
+		long[] times = new long[MEASURED_RUNS];
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			w.setUp();
+			long start = System.nanoTime();
+			w.run();
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		double median = (double) times[MEASURED_RUNS/2] / operations;
+		double best = (double) times[0] / operations;
+		System.out.printf("%-48s %12.1f ns/op (best %.1f)%n", label, median, best);
+		return median;
+	}
+}
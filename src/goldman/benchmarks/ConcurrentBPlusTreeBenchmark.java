@@ -0,0 +1,143 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.Objects;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.ConcurrentBPlusTree;
+import goldman.collection.ordered.ConcurrentSkipList;
+import goldman.collection.ordered.OrderedCollection;
+
+import java.util.concurrent.ThreadLocalRandom;
+/**
+ * Measures the throughput of a shared B+-tree, run by an increasing number of
+ * threads, under a read-only mix of <code>contains</code> and a read-mostly mix
+ * (90% <code>contains</code>, 5% <code>add</code> and 5% <code>remove</code>).
+ * A <code>BPlusTree</code> guarded by a single lock is compared with the
+ * <code>ConcurrentBPlusTree</code> and the <code>ConcurrentSkipList</code>.
+ * The reported time is the wall-clock time divided by the total number of
+ * operations over all threads, so it falls as the throughput scales, which
+ * requires at least as many processors as threads.
+ * Usage: <code>ConcurrentBPlusTreeBenchmark [threads ...]</code>
+**/
+
+public class ConcurrentBPlusTreeBenchmark {
+
+	static final int N = 1000000;            //number of elements held
+	static final int OPS_PER_THREAD = 500000;
+
+	static final int LOCKED = 0;
+	static final int OLC = 1;
+	static final int SKIP_LIST = 2;
+	static final String[] NAMES = {"LockedBPlusTree", "ConcurrentBPlusTree", "ConcurrentSkipList"};
+
+/**
+ * A <code>BPlusTree</code> in which every method used by the benchmark
+ * holds the lock on the tree.
+**/
+
+	static class LockedBPlusTree extends BPlusTree<Integer> {
+		LockedBPlusTree() {
+			super(Objects.DEFAULT_COMPARATOR, ConcurrentBPlusTree.DEFAULT_ORDER);
+		}
+		public synchronized void add(Integer x) { super.add(x); }
+		public synchronized boolean remove(Integer x) { return super.remove(x); }
+		public synchronized boolean contains(Integer x) { return super.contains(x); }
+	}
+
+/**
+ * A workload in which <code>threads</code> threads each perform
+ * <code>OPS_PER_THREAD</code> operations on a collection of about <code>N</code>
+ * elements, where <code>readPercent</code> percent of them are
+ * <code>contains</code> and the rest are split between <code>add</code> and
+ * <code>remove</code>.  The collection is built once and shared by the runs,
+ * which leave its size unchanged on average.
+**/
+
+	static class MixedWorkload extends Benchmark.Workload {
+		final OrderedCollection<Integer> c;
+		final int threads;
+		final int readPercent;
+
+		MixedWorkload(OrderedCollection<Integer> c, int threads, int readPercent) {
+			this.c = c;
+			this.threads = threads;
+			this.readPercent = readPercent;
+		}
+
+		public void run() {
+			Thread[] t = new Thread[threads];
+			final long[] hits = new long[threads];
+			for (int i = 0; i < threads; i++) {
+				final int id = i;
+				t[i] = new Thread() {
+					public void run() {
+						ThreadLocalRandom random = ThreadLocalRandom.current();
+						long found = 0;
+						for (int j = 0; j < OPS_PER_THREAD; j++) {
+							int x = random.nextInt(2 * N);
+							int op = random.nextInt(100);
+							if (op < readPercent) {
+								if (c.contains(x))
+									found++;
+							} else if ((op & 1) == 0)
+								c.add(x);
+							else
+								c.remove(x);
+						}
+						hits[id] = found;
+					}
+				};
+				t[i].start();
+			}
+			try {
+				for (int i = 0; i < threads; i++)
+					t[i].join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			Benchmark.sink = hits;
+		}
+	}
+
+/**
+ * @param kind one of <code>LOCKED</code>, <code>OLC</code> and
+ * <code>SKIP_LIST</code>
+ * @return a collection holding the even integers less than 2N
+**/
+
+	static OrderedCollection<Integer> create(int kind) {
+		OrderedCollection<Integer> c;
+		if (kind == LOCKED)
+			c = new LockedBPlusTree();
+		else if (kind == OLC)
+			c = new ConcurrentBPlusTree<Integer>();
+		else
+			c = new ConcurrentSkipList<Integer>();
+		for (int i = 0; i < N; i++)
+			c.add(2 * i);
+		return c;
+	}
+
+	public static void main(String[] args) {
+		int[] threadCounts = {1, 2, 4, 8, 16};
+		if (args.length > 0) {
+			threadCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				threadCounts[i] = Integer.parseInt(args[i]);
+		}
+		int[] readPercents = {100, 90};
+		for (int kind = 0; kind < NAMES.length; kind++) {
+			OrderedCollection<Integer> c = create(kind);
+			for (int readPercent : readPercents)
+				for (int threads : threadCounts) {
+					long ops = (long) threads * OPS_PER_THREAD;
+					String mix = " reads=" + readPercent + "% threads=" + threads;
+					Benchmark.measure(NAMES[kind] + mix, ops, new MixedWorkload(c, threads, readPercent));
+				}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.collection.ordered.ConcurrentSkipList;
+import goldman.collection.ordered.OrderedCollection;
+import goldman.collection.ordered.SkipList;
+
+import java.util.concurrent.ThreadLocalRandom;
+/**
+ * Measures the throughput of a shared ordered collection under a read-mostly
+ * mix of operations (90% <code>contains</code>, 5% <code>add</code> and 5%
+ * <code>remove</code>) and an update-heavy mix (50% of each update), run
+ * by an increasing number of threads.  A <code>SkipList</code> guarded by a
+ * single lock is compared with the lock-free <code>ConcurrentSkipList</code>.
+ * The reported time is the wall-clock time divided by the total number of
+ * operations over all threads, so it falls as the throughput scales.
+ * Usage: <code>ConcurrentSkipListBenchmark [threads ...]</code>
+**/
+
+public class ConcurrentSkipListBenchmark {
+
+	static final int N = 100000;             //number of elements held
+	static final int OPS_PER_THREAD = 200000;
+
+/**
+ * A <code>SkipList</code> in which every method used by the benchmark
+ * holds the lock on the skip list.
+**/
+
+	static class LockedSkipList extends SkipList<Integer> {
+		public synchronized void add(Integer x) { super.add(x); }
+		public synchronized boolean remove(Integer x) { return super.remove(x); }
+		public synchronized boolean contains(Integer x) { return super.contains(x); }
+	}
+
+/**
+ * A workload in which <code>threads</code> threads each perform
+ * <code>OPS_PER_THREAD</code> operations on a collection of about <code>N</code>
+ * elements, where <code>readPercent</code> percent of them are
+ * <code>contains</code> and the rest are split between <code>add</code> and
+ * <code>remove</code>.
+**/
+
+	static class MixedWorkload extends Benchmark.Workload {
+		final boolean concurrent;
+		final int threads;
+		final int readPercent;
+		OrderedCollection<Integer> c;
+
+		MixedWorkload(boolean concurrent, int threads, int readPercent) {
+			this.concurrent = concurrent;
+			this.threads = threads;
+			this.readPercent = readPercent;
+		}
+
+		public void setUp() {
+			c = concurrent ? new ConcurrentSkipList<Integer>() : new LockedSkipList();
+			for (int i = 0; i < N; i++)
+				c.add(2 * i);
+		}
+
+		public void run() {
+			Thread[] t = new Thread[threads];
+			final long[] hits = new long[threads];
+			for (int i = 0; i < threads; i++) {
+				final int id = i;
+				t[i] = new Thread() {
+					public void run() {
+						ThreadLocalRandom random = ThreadLocalRandom.current();
+						long found = 0;
+						for (int j = 0; j < OPS_PER_THREAD; j++) {
+							int x = random.nextInt(2 * N);
+							int op = random.nextInt(100);
+							if (op < readPercent) {
+								if (c.contains(x))
+									found++;
+							} else if ((op & 1) == 0)
+								c.add(x);
+							else
+								c.remove(x);
+						}
+						hits[id] = found;
+					}
+				};
+				t[i].start();
+			}
+			try {
+				for (int i = 0; i < threads; i++)
+					t[i].join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			Benchmark.sink = hits;
+		}
+	}
+
+	public static void main(String[] args) {
+		int[] threadCounts = {1, 2, 4, 8};
+		if (args.length > 0) {
+			threadCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				threadCounts[i] = Integer.parseInt(args[i]);
+		}
+		int[] readPercents = {90, 0};
+		for (int readPercent : readPercents)
+			for (int threads : threadCounts) {
+				long ops = (long) threads * OPS_PER_THREAD;
+				String mix = " reads=" + readPercent + "% threads=" + threads;
+				Benchmark.measure("LockedSkipList" + mix, ops, new MixedWorkload(false, threads, readPercent));
+				Benchmark.measure("ConcurrentSkipList" + mix, ops, new MixedWorkload(true, threads, readPercent));
+			}
+	}
+}
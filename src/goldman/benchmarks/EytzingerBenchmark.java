@@ -0,0 +1,104 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import java.util.NoSuchElementException;
+import goldman.collection.ordered.EytzingerArray;
+import goldman.collection.ordered.LongEytzingerArray;
+import goldman.collection.ordered.OrderedCollection;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SortedArray;
+/**
+ * Compares searches of a read-only lookup table of n random keys held in a
+ * <code>SortedArray</code>, a <code>RedBlackTree</code>, an
+ * <code>EytzingerArray</code> frozen from the sorted array, and a
+ * <code>LongEytzingerArray</code>.  Each workload performs
+ * <code>contains</code> or <code>successor</code> for a fixed sequence of
+ * random targets, half of which are in the table.  The differences grow
+ * with n, as the table outgrows the processor caches.
+ * Usage: <code>EytzingerBenchmark [n ...]</code>
+**/
+
+public class EytzingerBenchmark {
+
+	public static void main(String[] args) {
+		int[] sizes = {1000, 100000, 1000000};
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		final int queries = 1000000;
+		for (int n : sizes) {
+			final int[] keys = OrderStatisticBenchmark.randomKeys(n + queries / 2);
+			final int[] targets = new int[queries];
+			for (int i = 0; i < queries; i++)  //alternately present and absent
+				targets[i] = (i % 2 == 0) ? keys[(int) ((long) i * 7919 % n)] : keys[n + i / 2];
+			SortedArray<Integer> sorted = new SortedArray<Integer>(n);
+			RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+			long[] values = new long[n];
+			for (int i = 0; i < n; i++) {
+				sorted.add(keys[i]);
+				tree.add(keys[i]);
+				values[i] = keys[i];
+			}
+			EytzingerArray<Integer> frozen = EytzingerArray.freeze(sorted);
+			final LongEytzingerArray longs = new LongEytzingerArray(values);
+			String suffix = " (n=" + n + ")";
+			measure("SortedArray" + suffix, sorted, targets);
+			measure("RedBlackTree" + suffix, tree, targets);
+			measure("EytzingerArray" + suffix, frozen, targets);
+			Benchmark.measure("LongEytzingerArray contains" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					int found = 0;
+					for (int x : targets)
+						if (longs.contains(x))
+							found++;
+					Benchmark.sink = found;
+				}
+			});
+			Benchmark.measure("LongEytzingerArray successor" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					long total = 0;
+					for (int x : targets)
+						try {
+							total += longs.successor((long) x);
+						} catch (NoSuchElementException e) {}
+					Benchmark.sink = total;
+				}
+			});
+		}
+	}
+
+/**
+ * Times <code>contains</code> and <code>successor</code> on the given collection.
+ * @param label the name of the collection
+ * @param c the collection to search
+ * @param targets the targets
+**/
+
+	static void measure(String label, final OrderedCollection<Integer> c, final int[] targets) {
+		Benchmark.measure(label + " contains", targets.length, new Benchmark.Workload() {
+			public void run() {
+				int found = 0;
+				for (int x : targets)
+					if (c.contains(x))
+						found++;
+				Benchmark.sink = found;
+			}
+		});
+		Benchmark.measure(label + " successor", targets.length, new Benchmark.Workload() {
+			public void run() {
+				long total = 0;
+				for (int x : targets)
+					try {
+						total += c.successor(x);
+					} catch (NoSuchElementException e) {}
+				Benchmark.sink = total;
+			}
+		});
+	}
+}
@@ -0,0 +1,100 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import java.util.Random;
+import goldman.collection.Locator;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.OrderedCollection;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SkipList;
+/**
+ * Compares <code>searchFrom</code>, with each search using the locator
+ * returned by the previous one as its finger, against searching from the root
+ * (or head) with <code>getEquivalentElement</code>.  The collections hold the
+ * even keys from 0 to 2n-2, and each sequence of targets is a random walk whose
+ * steps move up to d positions in either direction, so that d controls the
+ * distance between consecutive searches.
+ * Usage: <code>FingerSearchBenchmark [n [d ...]]</code>
+**/
+
+public class FingerSearchBenchmark {
+
+	public static void main(String[] args) {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		int[] distances = {1, 100, 10000};
+		if (args.length > 1) {
+			distances = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++)
+				distances[i-1] = Integer.parseInt(args[i]);
+		}
+		final RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		final SkipList<Integer> list = new SkipList<Integer>();
+		final BPlusTree<Integer> bplus = new BPlusTree<Integer>(32);
+		for (int i = 0; i < n; i++) {
+			tree.add(2 * i);
+			list.add(2 * i);
+			bplus.add(2 * i);
+		}
+		final int queries = 1000000;
+		for (int d : distances) {
+			final int[] targets = new int[queries];
+			Random random = new Random(3);
+			int position = n / 2;
+			for (int i = 0; i < queries; i++) {
+				position = Math.max(0, Math.min(n - 1, position + random.nextInt(2 * d + 1) - d));
+				targets[i] = 2 * position;
+			}
+			String suffix = " (n=" + n + ", d=" + d + ")";
+			measure("RedBlackTree", suffix, tree, targets);
+			Benchmark.measure("RedBlackTree searchFrom" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					Locator<Integer> finger = tree.iterator();
+					for (int x : targets)
+						finger = tree.searchFrom(finger, x);
+					Benchmark.sink = finger;
+				}
+			});
+			measure("SkipList", suffix, list, targets);
+			Benchmark.measure("SkipList searchFrom" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					Locator<Integer> finger = list.iterator();
+					for (int x : targets)
+						finger = list.searchFrom(finger, x);
+					Benchmark.sink = finger;
+				}
+			});
+			measure("BPlusTree", suffix, bplus, targets);
+			Benchmark.measure("BPlusTree searchFrom" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					Locator<Integer> finger = bplus.iterator();
+					for (int x : targets)
+						finger = bplus.searchFrom(finger, x);
+					Benchmark.sink = finger;
+				}
+			});
+		}
+	}
+
+/**
+ * Times searching for each target from the root.
+ * @param label the name of the collection
+ * @param suffix the description of the parameters
+ * @param c the collection to search
+ * @param targets the targets
+**/
+
+	static void measure(String label, String suffix, final OrderedCollection<Integer> c, final int[] targets) {
+		Benchmark.measure(label + " from the root" + suffix, targets.length, new Benchmark.Workload() {
+			public void run() {
+				long total = 0;
+				for (int x : targets)
+					total += c.getEquivalentElement(x);
+				Benchmark.sink = total;
+			}
+		});
+	}
+}
@@ -0,0 +1,93 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import java.util.Random;
+import goldman.collection.Interval;
+import goldman.collection.Visitor;
+import goldman.collection.ordered.IntervalTree;
+/**
+ * Compares finding the intervals that overlap a point or a range with an
+ * <code>IntervalTree</code> against scanning an array of the intervals.  The
+ * n intervals start at random times in [0, 10<sup>9</sup>) and have random
+ * lengths of up to 10<sup>9</sup>/n times the given factor, so that a point
+ * overlaps about half that many intervals on average.
+ * Usage: <code>IntervalTreeBenchmark [n [factor]]</code>
+**/
+
+public class IntervalTreeBenchmark {
+
+	static final class Lease implements Interval<Long> {
+		final Long start, end;
+
+		Lease(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		public Long getMin() {
+			return start;
+		}
+
+		public Long getMax() {
+			return end;
+		}
+	}
+
+
+	static final class Counter implements Visitor<Lease> {
+		long count;
+
+		public void visit(Lease lease) {
+			count++;
+		}
+	}
+
+	public static void main(String[] args) {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		int factor = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		final long span = 1000000000L;
+		Random random = new Random(13);
+		final Lease[] leases = new Lease[n];
+		final IntervalTree<Lease> tree = new IntervalTree<Lease>();
+		for (int i = 0; i < n; i++) {
+			long start = (long) (random.nextDouble() * span);
+			leases[i] = new Lease(start, start + (long) (random.nextDouble() * factor * span / n));
+			tree.add(leases[i]);
+		}
+		final int queries = 1000;
+		for (final long width : new long[] {0, span / n * factor, span / 1000}) {
+			final Lease[] lo = new Lease[queries];
+			final Lease[] hi = new Lease[queries];
+			for (int q = 0; q < queries; q++) {
+				long start = (long) (random.nextDouble() * span);
+				lo[q] = new Lease(start, start);
+				hi[q] = new Lease(start + width, start + width);
+			}
+			String suffix = " (n=" + n + ", width=" + width + ")";
+			Benchmark.measure("IntervalTree overlapping" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					Counter counter = new Counter();
+					for (int q = 0; q < queries; q++)
+						tree.overlapping(lo[q], hi[q], counter);
+					Benchmark.sink = counter.count;
+				}
+			});
+			Benchmark.measure("array scan" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					long count = 0;
+					for (int q = 0; q < queries; q++) {
+						long a = lo[q].start, b = hi[q].end;
+						for (Lease lease : leases)
+							if (lease.start <= b && lease.end >= a)
+								count++;
+					}
+					Benchmark.sink = count;
+				}
+			});
+		}
+	}
+}
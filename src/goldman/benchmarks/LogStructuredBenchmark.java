@@ -0,0 +1,115 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.Objects;
+import goldman.collection.ordered.LogStructuredMergeTree;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SortedArray;
+import goldman.collection.positional.Array;
+import goldman.collection.positional.DynamicArray;
+/**
+ * Compares ways of adding many elements to a large ordered collection.  The
+ * first part adds batches of elements to a large <code>SortedArray</code>,
+ * whose <code>addAll</code> sorts each batch and merges it in, against
+ * appending each batch and sorting the whole array.  The second part adds
+ * random elements to a <code>LogStructuredMergeTree</code> and to a
+ * <code>RedBlackTree</code>, and then times membership queries on each.
+ * Usage: <code>LogStructuredBenchmark [n [batch]]</code>
+**/
+
+public class LogStructuredBenchmark {
+
+	public static void main(String[] args) throws InterruptedException {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		final int batch = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+		final int batches = 10;
+		final int[] keys = OrderStatisticBenchmark.randomKeys(n + batches * batch);
+		final Array<Integer> initial = new Array<Integer>(n);
+		for (int i = 0; i < n; i++)
+			initial.add(keys[i]);
+		@SuppressWarnings("unchecked")  //a generic array must be created from its erasure
+		final Array<Integer>[] added = (Array<Integer>[]) new Array<?>[batches];
+		for (int b = 0; b < batches; b++) {
+			added[b] = new Array<Integer>(batch);
+			for (int i = 0; i < batch; i++)
+				added[b].add(keys[n + b * batch + i]);
+		}
+		Benchmark.measure("SortedArray addAll (merge)", batches * batch, new Benchmark.Workload() {
+			SortedArray<Integer> s;
+			public void setUp() {
+				s = new SortedArray<Integer>();
+				s.addAll(initial);
+			}
+			public void run() {
+				for (Array<Integer> a : added)
+					s.addAll(a);
+				Benchmark.sink = s;
+			}
+		});
+		Benchmark.measure("append and quicksort all", batches * batch, new Benchmark.Workload() {
+			DynamicArray<Integer> s;
+			public void setUp() {
+				s = new DynamicArray<Integer>();
+				s.addAll(initial);
+				s.quicksort();
+			}
+			public void run() {
+				for (Array<Integer> a : added) {
+					s.addAll(a);
+					s.quicksort();
+				}
+				Benchmark.sink = s;
+			}
+		});
+		Benchmark.measure("LogStructuredMergeTree add", n, new Benchmark.Workload() {
+			public void run() {
+				LogStructuredMergeTree<Integer> t = new LogStructuredMergeTree<Integer>();
+				for (int i = 0; i < n; i++)
+					t.add(keys[i]);
+				try {
+					t.awaitCompaction();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				Benchmark.sink = t;
+			}
+		});
+		Benchmark.measure("RedBlackTree add", n, new Benchmark.Workload() {
+			public void run() {
+				RedBlackTree<Integer> t = new RedBlackTree<Integer>();
+				for (int i = 0; i < n; i++)
+					t.add(keys[i]);
+				Benchmark.sink = t;
+			}
+		});
+		final LogStructuredMergeTree<Integer> lsm = new LogStructuredMergeTree<Integer>();
+		final RedBlackTree<Integer> tree = new RedBlackTree<Integer>(Objects.DEFAULT_COMPARATOR);
+		for (int i = 0; i < n; i++) {
+			lsm.add(keys[i]);
+			tree.add(keys[i]);
+		}
+		lsm.awaitCompaction();
+		Benchmark.measure("LogStructuredMergeTree contains", n, new Benchmark.Workload() {
+			public void run() {
+				int found = 0;
+				for (int i = 0; i < n; i++)
+					if (lsm.contains(keys[i]))
+						found++;
+				Benchmark.sink = found;
+			}
+		});
+		Benchmark.measure("RedBlackTree contains", n, new Benchmark.Workload() {
+			public void run() {
+				int found = 0;
+				for (int i = 0; i < n; i++)
+					if (tree.contains(keys[i]))
+						found++;
+				Benchmark.sink = found;
+			}
+		});
+	}
+}
@@ -0,0 +1,105 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.Objects;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.tagged.ordered.LongBPlusTree;
+import goldman.collection.tagged.ordered.TaggedBPlusTree;
+
+import java.util.Random;
+/**
+ * Compares the <code>LongBPlusTree</code>, which holds primitive tags,
+ * with a <code>TaggedBPlusTree</code> with <code>Long</code> tags and a
+ * <code>BPlusTree&lt;Long&gt;</code>, all of the same order, by timing
+ * <code>put</code>, lookups of tags in the collection, and
+ * <code>successor</code> of tags that are not in the collection.
+ * Usage: <code>LongBPlusTreeBenchmark [n [t]]</code>
+**/
+
+public class LongBPlusTreeBenchmark {
+
+	public static void main(String[] args) {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		final int t = (args.length > 1) ? Integer.parseInt(args[1]) : LongBPlusTree.DEFAULT_ORDER;
+		final long[] tags = new long[n];
+		final Long[] boxed = new Long[n];
+		Random random = new Random(3);
+		for (int i = 0; i < n; i++) {
+			tags[i] = 2 * (random.nextLong() >> 2);   //even, so tags[i]+1 is not a tag
+			boxed[i] = tags[i];
+		}
+		final LongBPlusTree<Integer> primitive = new LongBPlusTree<Integer>(t);
+		final TaggedBPlusTree<Long,Integer> tagged =
+			new TaggedBPlusTree<Long,Integer>(Objects.DEFAULT_COMPARATOR, t);
+		final BPlusTree<Long> tree = new BPlusTree<Long>(Objects.DEFAULT_COMPARATOR, t);
+		for (int i = 0; i < n; i++) {
+			primitive.putLong(tags[i], i);
+			tagged.put(boxed[i], i);
+			tree.add(boxed[i]);
+		}
+		final long max = primitive.maxTag();
+		Benchmark.measure("LongBPlusTree put", n, new Benchmark.Workload() {
+			public void run() {
+				LongBPlusTree<Integer> s = new LongBPlusTree<Integer>(t);
+				for (int i = 0; i < n; i++)
+					s.putLong(tags[i], i);
+				Benchmark.sink = s;
+			}
+		});
+		Benchmark.measure("TaggedBPlusTree put", n, new Benchmark.Workload() {
+			public void run() {
+				TaggedBPlusTree<Long,Integer> s = new TaggedBPlusTree<Long,Integer>(Objects.DEFAULT_COMPARATOR, t);
+				for (int i = 0; i < n; i++)
+					s.put(boxed[i], i);
+				Benchmark.sink = s;
+			}
+		});
+		Benchmark.measure("LongBPlusTree get", n, new Benchmark.Workload() {
+			public void run() {
+				long sum = 0;
+				for (long tag : tags)
+					sum += primitive.get(tag);
+				Benchmark.sink = sum;
+			}
+		});
+		Benchmark.measure("TaggedBPlusTree get", n, new Benchmark.Workload() {
+			public void run() {
+				long sum = 0;
+				for (Long tag : boxed)
+					sum += tagged.get(tag);
+				Benchmark.sink = sum;
+			}
+		});
+		Benchmark.measure("BPlusTree<Long> contains", n, new Benchmark.Workload() {
+			public void run() {
+				int found = 0;
+				for (Long tag : boxed)
+					if (tree.contains(tag))
+						found++;
+				Benchmark.sink = found;
+			}
+		});
+		Benchmark.measure("LongBPlusTree successor", n, new Benchmark.Workload() {
+			public void run() {
+				long sum = 0;
+				for (long tag : tags)
+					if (tag != max)
+						sum += primitive.successor(tag + 1);
+				Benchmark.sink = sum;
+			}
+		});
+		Benchmark.measure("BPlusTree<Long> successor", n, new Benchmark.Workload() {
+			public void run() {
+				long sum = 0;
+				for (long tag : tags)
+					if (tag != max)
+						sum += tree.successor(tag + 1);
+				Benchmark.sink = sum;
+			}
+		});
+	}
+}
@@ -0,0 +1,140 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.collection.Locator;
+import goldman.collection.ordered.BinarySearchTree;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SplayTree;
+
+import java.util.Random;
+/**
+ * Measures the cost of maintaining subtree sizes in the binary search trees,
+ * by timing <code>add</code> and <code>remove</code>, and the benefit, by timing
+ * <code>get(r)</code>, <code>rankOf</code> and <code>countInRange</code>.  For
+ * comparison, a rank query is also answered by advancing a locator r times, which
+ * is what <code>get(r)</code> cost without the subtree sizes.
+ * Usage: <code>OrderStatisticBenchmark [n ...]</code>
+**/
+
+public class OrderStatisticBenchmark {
+
+	static final String[] NAMES = {"BinarySearchTree", "RedBlackTree", "SplayTree"};
+
+	static BinarySearchTree<Integer> create(String name) {
+		if (name.equals("RedBlackTree"))
+			return new RedBlackTree<Integer>();
+		else if (name.equals("SplayTree"))
+			return new SplayTree<Integer>();
+		else
+			return new BinarySearchTree<Integer>();
+	}
+
+	static int[] randomKeys(int n) {
+		Random random = new Random(5);
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = random.nextInt();
+		return keys;
+	}
+
+/**
+ * A workload that holds a tree of <code>n</code> random keys, built in
+ * <code>setUp</code> unless <code>empty</code> is true.
+**/
+
+	static abstract class TreeWorkload extends Benchmark.Workload {
+		final String name;
+		final int n;
+		final boolean empty;
+		BinarySearchTree<Integer> t;
+		int[] keys;
+
+		TreeWorkload(String name, int n, boolean empty) {
+			this.name = name;
+			this.n = n;
+			this.empty = empty;
+		}
+
+		public void setUp() {
+			keys = randomKeys(n);
+			t = create(name);
+			if (!empty)
+				for (int k : keys)
+					t.add(k);
+		}
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = {100000, 1000000};
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		for (final int n : sizes) {
+			final int queries = 100000;
+			final int walks = Math.max(10, 10000000/n);
+			for (String name : NAMES) {
+				Benchmark.measure(name + " add n=" + n, n, new TreeWorkload(name, n, true) {
+					public void run() {
+						for (int k : keys)
+							t.add(k);
+						Benchmark.sink = t;
+					}
+				});
+				Benchmark.measure(name + " remove n=" + n, n, new TreeWorkload(name, n, false) {
+					public void run() {
+						for (int k : keys)
+							t.remove(k);
+						Benchmark.sink = t;
+					}
+				});
+				Benchmark.measure(name + " get(r) n=" + n, queries, new TreeWorkload(name, n, false) {
+					public void run() {
+						Random random = new Random(9);
+						long sum = 0;
+						for (int i = 0; i < queries; i++)
+							sum += t.get(random.nextInt(n));
+						Benchmark.sink = sum;
+					}
+				});
+				Benchmark.measure(name + " locator walk to r n=" + n, walks, new TreeWorkload(name, n, false) {
+					public void run() {
+						Random random = new Random(9);
+						long sum = 0;
+						for (int i = 0; i < walks; i++) {
+							int r = random.nextInt(n);
+							Locator<Integer> loc = t.iterator();
+							for (int j = 0; j <= r; j++)
+								loc.advance();
+							sum += loc.get();
+						}
+						Benchmark.sink = sum;
+					}
+				});
+				Benchmark.measure(name + " rankOf n=" + n, queries, new TreeWorkload(name, n, false) {
+					public void run() {
+						long sum = 0;
+						for (int i = 0; i < queries; i++)
+							sum += t.rankOf(keys[i % n]);
+						Benchmark.sink = sum;
+					}
+				});
+				Benchmark.measure(name + " countInRange n=" + n, queries, new TreeWorkload(name, n, false) {
+					public void run() {
+						long sum = 0;
+						for (int i = 0; i < queries; i++) {
+							int lo = keys[i % n];
+							sum += t.countInRange(lo, lo + (1 << 24));
+						}
+						Benchmark.sink = sum;
+					}
+				});
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.collection.positional.BTreeList;
+import goldman.collection.positional.DoublyLinkedList;
+import goldman.collection.positional.DynamicArray;
+import goldman.collection.positional.GapBuffer;
+import goldman.collection.positional.PositionalCollection;
+import goldman.collection.positional.TrackedArray;
+import goldman.collection.positional.TrackedTreeList;
+
+import java.util.Random;
+/**
+ * Compares the gap buffer and B-tree list with a dynamic array and a doubly linked
+ * list, and the tracked tree list with a tracked array, for two editing workloads
+ * on a collection of n elements.  For cursor-local
+ * edits, the position of each insertion or removal is within a few positions of the
+ * previous one, as when typing in an editor.  For random edits, each position is
+ * chosen uniformly at random.  Usage: <code>PositionalEditBenchmark [n ...]</code>
+**/
+
+public class PositionalEditBenchmark {
+
+	static final String[] NAMES = {"DynamicArray", "DoublyLinkedList", "GapBuffer", "BTreeList",
+		"TrackedArray", "TrackedTreeList"};
+
+	static PositionalCollection<Integer> create(String name) {
+		if (name.equals("DynamicArray"))
+			return new DynamicArray<Integer>();
+		else if (name.equals("DoublyLinkedList"))
+			return new DoublyLinkedList<Integer>();
+		else if (name.equals("GapBuffer"))
+			return new GapBuffer<Integer>();
+		else if (name.equals("TrackedArray"))
+			return new TrackedArray<Integer>();
+		else if (name.equals("TrackedTreeList"))
+			return new TrackedTreeList<Integer>();
+		else
+			return new BTreeList<Integer>();
+	}
+
+/**
+ * A workload that performs <code>ops</code> edits, two thirds of which are insertions,
+ * on a collection that initially holds <code>n</code> elements.
+**/
+
+	static class EditWorkload extends Benchmark.Workload {
+		final String name;
+		final int n, ops;
+		final boolean local;  //true for cursor-local edits, false for random edits
+		PositionalCollection<Integer> c;
+		Random random;
+
+		EditWorkload(String name, int n, int ops, boolean local) {
+			this.name = name;
+			this.n = n;
+			this.ops = ops;
+			this.local = local;
+		}
+
+		public void setUp() {
+			c = create(name);
+			for (int i = 0; i < n; i++)
+				c.add(i);
+			random = new Random(17);
+		}
+
+		public void run() {
+			int cursor = n/2;
+			for (int i = 0; i < ops; i++) {
+				int size = c.getSize();
+				if (local)
+					cursor = Math.max(0, Math.min(size - 1, cursor + random.nextInt(9) - 4));
+				else
+					cursor = random.nextInt(size);
+				if (random.nextInt(3) == 0)
+					Benchmark.sink = c.remove(cursor);
+				else
+					c.add(cursor, i);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = {10000, 100000};
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		for (int n : sizes) {
+			int ops = Math.max(1000, 1000000/n * 100);
+			for (String name : NAMES) {
+				Benchmark.measure(name + " cursor-local n=" + n, ops,
+						new EditWorkload(name, n, ops, true));
+				Benchmark.measure(name + " random n=" + n, ops,
+						new EditWorkload(name, n, ops, false));
+			}
+		}
+	}
+}
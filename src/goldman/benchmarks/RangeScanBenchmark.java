@@ -0,0 +1,95 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.Objects;
+import goldman.collection.Visitor;
+import goldman.collection.ordered.BPlusTree;
+/**
+ * Compares ways of reading the elements of a range of a B+-tree: repeated
+ * calls to <code>successor</code>, which search from the root for each element,
+ * a reused <code>RangeCursor</code>, which walks the leaf chain, and
+ * <code>countRange</code>, which adds the sizes of the leaves in the range.
+ * Usage: <code>RangeScanBenchmark [n [k]]</code> for a tree of n elements and
+ * ranges of k elements.
+**/
+
+public class RangeScanBenchmark {
+
+	public static void main(String[] args) {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		final int k = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+		final int ranges = 1000;
+		Integer[] sorted = new Integer[n];
+		for (int i = 0; i < n; i++)
+			sorted[i] = 2*i;
+		final BPlusTree<Integer> tree = BPlusTree.bulkLoad(Objects.DEFAULT_COMPARATOR, 32, sorted, 0.7);
+		final int[] starts = new int[ranges];
+		java.util.Random random = new java.util.Random(3);
+		for (int i = 0; i < ranges; i++)
+			starts[i] = 2*random.nextInt(n - k);
+		Benchmark.measure("successor scan k=" + k, (long) ranges * k, new Benchmark.Workload() {
+			public void run() {
+				long sum = 0;
+				for (int lo : starts) {
+					Integer x = lo;
+					sum += x;
+					for (int j = 1; j < k; j++) {
+						x = tree.successor(x);
+						sum += x;
+					}
+				}
+				Benchmark.sink = sum;
+			}
+		});
+		Benchmark.measure("range cursor k=" + k, (long) ranges * k, new Benchmark.Workload() {
+			public void run() {
+				long sum = 0;
+				BPlusTree<Integer>.RangeCursor cursor = tree.rangeCursor(null, true, null, true);
+				for (int lo : starts) {
+					cursor.seek(lo, true, lo + 2*(k-1), true);
+					while (cursor.hasNext())
+						sum += cursor.next();
+				}
+				Benchmark.sink = sum;
+			}
+		});
+		Benchmark.measure("reverse range cursor k=" + k, (long) ranges * k, new Benchmark.Workload() {
+			public void run() {
+				long sum = 0;
+				BPlusTree<Integer>.RangeCursor cursor = tree.reverseRangeCursor(null, true, null, true);
+				for (int lo : starts) {
+					cursor.seek(lo, true, lo + 2*(k-1), true);
+					while (cursor.hasNext())
+						sum += cursor.next();
+				}
+				Benchmark.sink = sum;
+			}
+		});
+		Benchmark.measure("forEachInRange k=" + k, (long) ranges * k, new Benchmark.Workload() {
+			long sum;
+			final Visitor<Integer> add = new Visitor<Integer>() {
+				public void visit(Integer x) {
+					sum += x;
+				}
+			};
+			public void run() {
+				sum = 0;
+				for (int lo : starts)
+					tree.forEachInRange(lo, true, lo + 2*(k-1), true, add);
+				Benchmark.sink = sum;
+			}
+		});
+		Benchmark.measure("countRange k=" + k, ranges, new Benchmark.Workload() {
+			public void run() {
+				long sum = 0;
+				for (int lo : starts)
+					sum += tree.countRange(lo, true, lo + 2*(k-1), true);
+				Benchmark.sink = sum;
+			}
+		});
+	}
+}
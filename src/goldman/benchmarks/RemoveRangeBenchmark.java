@@ -0,0 +1,102 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import java.util.Random;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.BTree;
+import goldman.collection.ordered.OrderedCollection;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SkipList;
+import goldman.collection.ordered.SortedArray;
+/**
+ * Compares removing all elements in a range with <code>removeRange</code>
+ * against removing them one at a time with <code>remove</code>.  Each
+ * collection holds the keys 0 to n-1, added in random order, and the middle
+ * n/d of them are removed, for each given divisor d.  The times are reported
+ * per element removed.
+ * Usage: <code>RemoveRangeBenchmark [n [d ...]]</code>
+**/
+
+public class RemoveRangeBenchmark {
+
+	static final String[] NAMES = {"RedBlackTree", "BTree(32)", "BPlusTree(32)", "SkipList", "SortedArray"};
+
+	static OrderedCollection<Integer> create(String name) {
+		if (name.equals("RedBlackTree"))
+			return new RedBlackTree<Integer>();
+		else if (name.equals("BTree(32)"))
+			return new BTree<Integer>(32);
+		else if (name.equals("BPlusTree(32)"))
+			return new BPlusTree<Integer>(32);
+		else if (name.equals("SkipList"))
+			return new SkipList<Integer>();
+		else
+			return new SortedArray<Integer>();
+	}
+
+	static int removeRange(OrderedCollection<Integer> c, Integer lo, Integer hi) {
+		if (c instanceof RedBlackTree)
+			return ((RedBlackTree<Integer>) c).removeRange(lo, hi);
+		else if (c instanceof BTree)
+			return ((BTree<Integer>) c).removeRange(lo, hi);
+		else if (c instanceof SkipList)
+			return ((SkipList<Integer>) c).removeRange(lo, hi);
+		else
+			return ((SortedArray<Integer>) c).removeRange(lo, hi);
+	}
+
+	public static void main(String[] args) {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		int[] divisors = {1000, 10, 2};
+		if (args.length > 1) {
+			divisors = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++)
+				divisors[i-1] = Integer.parseInt(args[i]);
+		}
+		final int[] keys = new int[n];
+		Random random = new Random(5);
+		for (int i = 0; i < n; i++) {
+			int j = random.nextInt(i + 1);
+			keys[i] = keys[j];
+			keys[j] = i;
+		}
+		for (int d : divisors) {
+			final int width = Math.max(1, n / d);
+			final int lo = (n - width) / 2;
+			final int hi = lo + width - 1;
+			String suffix = " (n=" + n + ", width=" + width + ")";
+			for (final String name : NAMES) {
+				Benchmark.measure(name + " removeRange" + suffix, width, new Benchmark.Workload() {
+					OrderedCollection<Integer> c;
+					public void setUp() {
+						c = create(name);
+						for (int key : keys)
+							c.add(key);
+					}
+					public void run() {
+						Benchmark.sink = removeRange(c, lo, hi);
+					}
+				});
+				Benchmark.measure(name + " remove loop" + suffix, width, new Benchmark.Workload() {
+					OrderedCollection<Integer> c;
+					public void setUp() {
+						c = create(name);
+						for (int key : keys)
+							c.add(key);
+					}
+					public void run() {
+						int removed = 0;
+						for (int x = lo; x <= hi; x++)
+							if (c.remove(x))
+								removed++;
+						Benchmark.sink = removed;
+					}
+				});
+			}
+		}
+	}
+}
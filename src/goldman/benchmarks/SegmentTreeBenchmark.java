@@ -0,0 +1,109 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import java.util.Random;
+import goldman.collection.positional.Array;
+import goldman.collection.positional.LongSegmentTree;
+/**
+ * Compares range sums, range minimums, and range additions on a
+ * <code>LongSegmentTree</code> against loops over the positions of an
+ * <code>Array</code> of <code>Long</code> values, for random ranges of up to
+ * the given width, along with building the segment tree serially and in
+ * parallel from n values.
+ * Usage: <code>SegmentTreeBenchmark [n [width ...]]</code>
+**/
+
+public class SegmentTreeBenchmark {
+
+	public static void main(String[] args) {
+		final int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		int[] widths = {100, 10000, n};
+		if (args.length > 1) {
+			widths = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++)
+				widths[i-1] = Integer.parseInt(args[i]);
+		}
+		Random random = new Random(3);
+		final long[] values = new long[n];
+		final Array<Long> array = new Array<Long>(n);
+		for (int i = 0; i < n; i++) {
+			values[i] = random.nextInt(1000000);
+			array.add(values[i]);
+		}
+		final LongSegmentTree tree = LongSegmentTree.bulkLoad(values);
+		final int queries = 1000;
+		for (int width : widths) {
+			final int[] lo = new int[queries];
+			final int[] hi = new int[queries];
+			for (int q = 0; q < queries; q++) {
+				lo[q] = random.nextInt(n);
+				hi[q] = Math.min(n - 1, lo[q] + random.nextInt(Math.min(width, n)));
+			}
+			String suffix = " (n=" + n + ", width<=" + width + ")";
+			Benchmark.measure("LongSegmentTree rangeSum" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					long total = 0;
+					for (int q = 0; q < queries; q++)
+						total += tree.rangeSum(lo[q], hi[q]);
+					Benchmark.sink = total;
+				}
+			});
+			Benchmark.measure("Array sum loop" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					long total = 0;
+					for (int q = 0; q < queries; q++)
+						for (int p = lo[q]; p <= hi[q]; p++)
+							total += array.get(p);
+					Benchmark.sink = total;
+				}
+			});
+			Benchmark.measure("LongSegmentTree rangeMin" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					long total = 0;
+					for (int q = 0; q < queries; q++)
+						total += tree.rangeMin(lo[q], hi[q]);
+					Benchmark.sink = total;
+				}
+			});
+			Benchmark.measure("Array min loop" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					long total = 0;
+					for (int q = 0; q < queries; q++) {
+						long min = Long.MAX_VALUE;
+						for (int p = lo[q]; p <= hi[q]; p++)
+							min = Math.min(min, array.get(p));
+						total += min;
+					}
+					Benchmark.sink = total;
+				}
+			});
+			Benchmark.measure("LongSegmentTree rangeAdd" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					for (int q = 0; q < queries; q++)
+						tree.rangeAdd(lo[q], hi[q], (q & 1) == 0 ? 1 : -1);
+				}
+			});
+			Benchmark.measure("Array add loop" + suffix, queries, new Benchmark.Workload() {
+				public void run() {
+					for (int q = 0; q < queries; q++)
+						for (int p = lo[q]; p <= hi[q]; p++)
+							array.set(p, array.get(p) + ((q & 1) == 0 ? 1 : -1));
+				}
+			});
+		}
+		Benchmark.measure("LongSegmentTree bulkLoad (n=" + n + ")", n, new Benchmark.Workload() {
+			public void run() {
+				Benchmark.sink = LongSegmentTree.bulkLoad(values);
+			}
+		});
+		Benchmark.measure("LongSegmentTree parallelBulkLoad (n=" + n + ")", n, new Benchmark.Workload() {
+			public void run() {
+				Benchmark.sink = LongSegmentTree.parallelBulkLoad(values);
+			}
+		});
+	}
+}
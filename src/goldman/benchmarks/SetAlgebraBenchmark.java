@@ -0,0 +1,139 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.collection.ordered.BTree;
+import goldman.collection.ordered.RedBlackTree;
+/**
+ * Compares <code>union</code> and <code>difference</code>, which split and
+ * join trees, with combining trees one element at a time by iterating over the
+ * smaller tree and calling <code>contains</code> and <code>add</code> (or
+ * <code>remove</code>) on the larger one.  The larger tree holds n random
+ * elements and the smaller one holds m random elements, half of which are
+ * also in the larger tree.
+ * Usage: <code>SetAlgebraBenchmark [n [m ...]]</code>
+**/
+
+public class SetAlgebraBenchmark {
+
+	public static void main(String[] args) {
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 500000;
+		int[] sizes = {1000, 50000, n};
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++)
+				sizes[i-1] = Integer.parseInt(args[i]);
+		}
+		final int[] keys = OrderStatisticBenchmark.randomKeys(n + n/2);
+		for (final int m : sizes) {
+			final RedBlackTree<Integer> small = new RedBlackTree<Integer>();
+			final BTree<Integer> smallB = new BTree<Integer>(16);
+			for (int i = 0; i < m; i++) {  //half from the large tree, and half new
+				int k = (i % 2 == 0) ? keys[i % n] : keys[n + i % (n/2)];
+				small.add(k);
+				smallB.add(k);
+			}
+			final int large = n;
+			String suffix = " (n=" + n + ", m=" + m + ")";
+			Benchmark.measure("RedBlackTree union" + suffix, m, new RedBlackWorkload(keys, large) {
+				public void run() {
+					t.union(small);
+					Benchmark.sink = t;
+				}
+			});
+			Benchmark.measure("RedBlackTree add loop" + suffix, m, new RedBlackWorkload(keys, large) {
+				public void run() {
+					for (Integer x : small)
+						if (!t.contains(x))
+							t.add(x);
+					Benchmark.sink = t;
+				}
+			});
+			Benchmark.measure("RedBlackTree difference" + suffix, m, new RedBlackWorkload(keys, large) {
+				public void run() {
+					t.difference(small);
+					Benchmark.sink = t;
+				}
+			});
+			Benchmark.measure("RedBlackTree remove loop" + suffix, m, new RedBlackWorkload(keys, large) {
+				public void run() {
+					for (Integer x : small)
+						while (t.remove(x));
+					Benchmark.sink = t;
+				}
+			});
+			Benchmark.measure("BTree union" + suffix, m, new BTreeWorkload(keys, large) {
+				public void run() {
+					t.union(smallB);
+					Benchmark.sink = t;
+				}
+			});
+			Benchmark.measure("BTree add loop" + suffix, m, new BTreeWorkload(keys, large) {
+				public void run() {
+					for (Integer x : smallB)
+						if (!t.contains(x))
+							t.add(x);
+					Benchmark.sink = t;
+				}
+			});
+			Benchmark.measure("BTree difference" + suffix, m, new BTreeWorkload(keys, large) {
+				public void run() {
+					t.difference(smallB);
+					Benchmark.sink = t;
+				}
+			});
+			Benchmark.measure("BTree remove loop" + suffix, m, new BTreeWorkload(keys, large) {
+				public void run() {
+					for (Integer x : smallB)
+						while (t.remove(x));
+					Benchmark.sink = t;
+				}
+			});
+		}
+	}
+
+/**
+ * A workload that builds a red-black tree of the first n keys in <code>setUp</code>.
+**/
+
+	static abstract class RedBlackWorkload extends Benchmark.Workload {
+		final int[] keys;
+		final int n;
+		RedBlackTree<Integer> t;
+
+		RedBlackWorkload(int[] keys, int n) {
+			this.keys = keys;
+			this.n = n;
+		}
+
+		public void setUp() {
+			t = new RedBlackTree<Integer>();
+			for (int i = 0; i < n; i++)
+				t.add(keys[i]);
+		}
+	}
+
+/**
+ * A workload that builds a B-tree of the first n keys in <code>setUp</code>.
+**/
+
+	static abstract class BTreeWorkload extends Benchmark.Workload {
+		final int[] keys;
+		final int n;
+		BTree<Integer> t;
+
+		BTreeWorkload(int[] keys, int n) {
+			this.keys = keys;
+			this.n = n;
+		}
+
+		public void setUp() {
+			t = new BTree<Integer>(16);
+			for (int i = 0; i < n; i++)
+				t.add(keys[i]);
+		}
+	}
+}
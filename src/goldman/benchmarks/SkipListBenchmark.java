@@ -0,0 +1,129 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import goldman.Objects;
+import goldman.collection.Locator;
+import goldman.collection.ordered.SkipList;
+
+import java.util.Random;
+/**
+ * Measures the skip list with <code>java.util.Random</code> and with
+ * <code>SkipList.XorShiftRandom</code> selecting the tower heights, by timing
+ * <code>add</code>, <code>remove</code>, <code>get(r)</code>, <code>rankOf</code>
+ * and skipping forward from a tracker.  For comparison, a rank query is also
+ * answered by advancing a locator r times.
+ * Usage: <code>SkipListBenchmark [n ...]</code>
+**/
+
+public class SkipListBenchmark {
+
+	static final String[] NAMES = {"Random", "XorShiftRandom"};
+
+	static SkipList<Integer> create(String name) {
+		Random random = name.equals("Random") ? new Random(3) : new SkipList.XorShiftRandom(3);
+		return new SkipList<Integer>(2, Objects.DEFAULT_COMPARATOR, random);
+	}
+
+/**
+ * A workload that holds a skip list of <code>n</code> random keys, built in
+ * <code>setUp</code> unless <code>empty</code> is true.
+**/
+
+	static abstract class SkipListWorkload extends Benchmark.Workload {
+		final String name;
+		final int n;
+		final boolean empty;
+		SkipList<Integer> s;
+		int[] keys;
+
+		SkipListWorkload(String name, int n, boolean empty) {
+			this.name = name;
+			this.n = n;
+			this.empty = empty;
+		}
+
+		public void setUp() {
+			keys = OrderStatisticBenchmark.randomKeys(n);
+			s = create(name);
+			if (!empty)
+				for (int k : keys)
+					s.add(k);
+		}
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = {100000, 1000000};
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		for (final int n : sizes) {
+			final int queries = 100000;
+			final int walks = Math.max(10, 10000000/n);
+			for (String name : NAMES) {
+				Benchmark.measure("SkipList(" + name + ") add n=" + n, n, new SkipListWorkload(name, n, true) {
+					public void run() {
+						for (int k : keys)
+							s.add(k);
+						Benchmark.sink = s;
+					}
+				});
+				Benchmark.measure("SkipList(" + name + ") remove n=" + n, n, new SkipListWorkload(name, n, false) {
+					public void run() {
+						for (int k : keys)
+							s.remove(k);
+						Benchmark.sink = s;
+					}
+				});
+				Benchmark.measure("SkipList(" + name + ") get(r) n=" + n, queries, new SkipListWorkload(name, n, false) {
+					public void run() {
+						Random random = new Random(9);
+						long sum = 0;
+						for (int i = 0; i < queries; i++)
+							sum += s.get(random.nextInt(n));
+						Benchmark.sink = sum;
+					}
+				});
+				Benchmark.measure("SkipList(" + name + ") locator walk to r n=" + n, walks, new SkipListWorkload(name, n, false) {
+					public void run() {
+						Random random = new Random(9);
+						long sum = 0;
+						for (int i = 0; i < walks; i++) {
+							int r = random.nextInt(n);
+							Locator<Integer> loc = s.iterator();
+							for (int j = 0; j <= r; j++)
+								loc.advance();
+							sum += loc.get();
+						}
+						Benchmark.sink = sum;
+					}
+				});
+				Benchmark.measure("SkipList(" + name + ") skip(k) n=" + n, queries, new SkipListWorkload(name, n, false) {
+					public void run() {
+						Random random = new Random(9);
+						long sum = 0;
+						for (int i = 0; i < queries; i++) {
+							SkipList<Integer>.Tracker t = s.getLocator(keys[i % n]);
+							if (t.skip(random.nextInt(n)))
+								sum += t.get();
+						}
+						Benchmark.sink = sum;
+					}
+				});
+				Benchmark.measure("SkipList(" + name + ") rankOf n=" + n, queries, new SkipListWorkload(name, n, false) {
+					public void run() {
+						long sum = 0;
+						for (int i = 0; i < queries; i++)
+							sum += s.rankOf(keys[i % n]);
+						Benchmark.sink = sum;
+					}
+				});
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.benchmarks;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import goldman.collection.ordered.OrderedCollection;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SkipList;
+import goldman.collection.ordered.VanEmdeBoasTree;
+/**
+ * Compares a <code>VanEmdeBoasTree</code> with a <code>RedBlackTree</code> and
+ * a <code>SkipList</code> on n integer keys, timing <code>add</code> of all n
+ * keys, and then <code>successor</code>, <code>predecessor</code> and
+ * <code>contains</code> for n random targets.  The keys are dense (a random
+ * permutation of 0 to n-1) or sparse (random 32-bit values), and for the van
+ * Emde Boas tree the queries are also timed through the methods that take an
+ * <code>int</code>.
+ * Usage: <code>VanEmdeBoasBenchmark [n ...]</code>
+**/
+
+public class VanEmdeBoasBenchmark {
+
+	static final String[] NAMES = {"VanEmdeBoasTree", "RedBlackTree", "SkipList"};
+
+	static OrderedCollection<Integer> create(String name) {
+		if (name.equals("VanEmdeBoasTree"))
+			return new VanEmdeBoasTree();
+		else if (name.equals("RedBlackTree"))
+			return new RedBlackTree<Integer>();
+		else
+			return new SkipList<Integer>();
+	}
+
+/**
+ * @param n the number of keys
+ * @return a random permutation of 0 to n-1
+**/
+
+	static int[] denseKeys(int n) {
+		Random random = new Random(5);
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			int j = random.nextInt(i + 1);
+			keys[i] = keys[j];
+			keys[j] = i;
+		}
+		return keys;
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = {1000000};
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		for (final int n : sizes)
+			for (final boolean dense : new boolean[] {true, false}) {
+				final int[] keys = dense ? denseKeys(n) : OrderStatisticBenchmark.randomKeys(n);
+				final int[] targets = new int[n];
+				Random random = new Random(7);
+				for (int i = 0; i < n; i++)
+					targets[i] = dense ? random.nextInt(n) : random.nextInt();
+				String suffix = " (n=" + n + (dense ? ", dense)" : ", sparse)");
+				for (final String name : NAMES) {
+					Benchmark.measure(name + " add" + suffix, n, new Benchmark.Workload() {
+						OrderedCollection<Integer> c;
+						public void setUp() {
+							c = create(name);
+						}
+						public void run() {
+							for (int x : keys)
+								c.add(x);
+							Benchmark.sink = c;
+						}
+					});
+					final OrderedCollection<Integer> c = create(name);
+					for (int x : keys)
+						c.add(x);
+					Benchmark.measure(name + " successor" + suffix, n, new Benchmark.Workload() {
+						public void run() {
+							long total = 0;
+							for (int x : targets)
+								try {
+									total += c.successor(x);
+								} catch (NoSuchElementException e) {}
+							Benchmark.sink = total;
+						}
+					});
+					Benchmark.measure(name + " predecessor" + suffix, n, new Benchmark.Workload() {
+						public void run() {
+							long total = 0;
+							for (int x : targets)
+								try {
+									total += c.predecessor(x);
+								} catch (NoSuchElementException e) {}
+							Benchmark.sink = total;
+						}
+					});
+					Benchmark.measure(name + " contains" + suffix, n, new Benchmark.Workload() {
+						public void run() {
+							int found = 0;
+							for (int x : targets)
+								if (c.contains(x))
+									found++;
+							Benchmark.sink = found;
+						}
+					});
+					if (c instanceof VanEmdeBoasTree) {
+						final VanEmdeBoasTree v = (VanEmdeBoasTree) c;
+						Benchmark.measure(name + " successor(int)" + suffix, n, new Benchmark.Workload() {
+							public void run() {
+								long total = 0;
+								for (int x : targets)
+									try {
+										total += v.successor(x);
+									} catch (NoSuchElementException e) {}
+								Benchmark.sink = total;
+							}
+						});
+					}
+				}
+			}
+	}
+}
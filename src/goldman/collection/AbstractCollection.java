@@ -4,12 +4,19 @@
 // Use subject to license agreement.
 
 package goldman.collection;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import goldman.Objects;
 import goldman.collection.ordered.OrderedCollection;
 import goldman.collection.positional.Array;
+import goldman.collection.positional.PositionalCollection;
 /**
  * The AbstractCollection class implements methods that can be shared by all
  * data structures that implement a collection.  Some of these methods involve
@@ -224,6 +231,310 @@ public abstract class AbstractCollection<E> implements Collection<E> {
 			v.visit(e);
 	}
 
+/**
+ * @return the characteristics of a spliterator for this collection.  The
+ * elements of a positional collection or an ordered collection are ordered, and
+ * those of an ordered collection are also sorted when the default comparator
+ * is used.
+**/
+
+	protected int spliteratorCharacteristics() {
+		if (this instanceof OrderedCollection)
+			return Spliterator.ORDERED |
+				(comp == Objects.DEFAULT_COMPARATOR ? Spliterator.SORTED : 0);
+		if (this instanceof PositionalCollection)
+			return Spliterator.ORDERED;
+		return 0;
+	}
+
+/**
+ * By default, the spliterator is driven by a locator, and it
+ * splits by copying a batch of elements into an array.  Data structures
+ * that can divide their elements without traversing them override this method.
+ * @return a spliterator over the elements of this collection
+**/
+
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), getSize(), spliteratorCharacteristics());
+	}
+
+/**
+ * @return a sequential stream of the elements in this collection
+**/
+
+	public Stream<E> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+/**
+ * @return a possibly parallel stream of the elements in this collection
+**/
+
+	public Stream<E> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+/**
+ * The AbstractSpliterator class is the base class for the spliterators
+ * that divide a data structure without traversing it.  Like a locator,
+ * it records the modification count when it is created.
+**/
+
+	protected abstract class AbstractSpliterator implements Spliterator<E> {
+
+		protected int versionNumber = version.getCount();  //modification count when created
+		protected int characteristics;  //characteristics reported by this spliterator
+
+		protected AbstractSpliterator(int characteristics) {
+			this.characteristics = characteristics;
+		}
+
+/**
+ * @throws ConcurrentModificationException the collection has been
+ * modified since this spliterator was created
+**/
+
+		protected void checkValidity() {
+			version.check(versionNumber);
+		}
+
+		public int characteristics() {
+			return characteristics;
+		}
+
+/**
+ * @return null if the elements are sorted by the default comparator, which
+ * is their natural order, and otherwise the comparator of the collection
+ * @throws IllegalStateException the spliterator does not report SORTED
+**/
+
+		public Comparator<? super E> getComparator() {
+			if (!hasCharacteristics(SORTED))
+				throw new IllegalStateException();
+			return (comp == Objects.DEFAULT_COMPARATOR) ? null : comp;
+		}
+	}
+
+/**
+ * An index spliterator traverses the elements with indices
+ * <code>index</code>, ..., <code>fence</code>-1 of a data structure that
+ * supports constant time access by index.  It splits at the middle index,
+ * so both halves have a known size.
+**/
+
+	protected abstract class IndexSpliterator extends AbstractSpliterator {
+
+		protected int index;  //index of the next element
+		protected int fence;  //one past the index of the last element
+
+/**
+ * @param origin the index of the first element
+ * @param fence one more than the index of the last element
+ * @param characteristics the characteristics other than SIZED and SUBSIZED
+**/
+
+		protected IndexSpliterator(int origin, int fence, int characteristics) {
+			super(characteristics | SIZED | SUBSIZED);
+			index = origin;
+			this.fence = fence;
+		}
+
+/**
+ * @param i a valid index
+ * @return the element at index <code>i</code>
+**/
+
+		protected abstract E elementAt(int i);
+
+/**
+ * @param origin the index of the first element
+ * @param fence one more than the index of the last element
+ * @return a new spliterator of the same type for the given range
+**/
+
+		protected abstract IndexSpliterator create(int origin, int fence);
+
+		public boolean tryAdvance(Consumer<? super E> action) {
+			checkValidity();
+			if (index >= fence)
+				return false;
+			action.accept(elementAt(index++));
+			return true;
+		}
+
+		public void forEachRemaining(Consumer<? super E> action) {
+			for (; index < fence; index++)
+				action.accept(elementAt(index));
+			checkValidity();
+		}
+
+		public IndexSpliterator trySplit() {
+			int mid = (index + fence) >>> 1;
+			if (mid <= index)
+				return null;
+			IndexSpliterator prefix = create(index, mid);
+			prefix.versionNumber = versionNumber;
+			index = mid;
+			return prefix;
+		}
+
+		public long estimateSize() {
+			return fence - index;
+		}
+	}
+
+/**
+ * A subtree spliterator traverses a tree-based data structure.  It holds
+ * a stack of pieces that together cover the remaining elements in the
+ * iteration order, where each piece is either a single element within
+ * a node, or an entire subtree.  When the next piece is a subtree, it is replaced
+ * by its children and its elements, so the stack grows to at most the height
+ * of the tree times the number of pieces in a node.  A split hands the first
+ * half of the pieces to the new spliterator, after replacing a lone subtree by
+ * its pieces.  When the tree records the size of each subtree, the size of every
+ * split is exact.  Otherwise the size is only exact before the first split, and
+ * after that it is estimated as half of the previous estimate.
+**/
+
+	protected abstract class SubtreeSpliterator<N> extends AbstractSpliterator {
+
+		protected static final int SUBTREE = -1;  //index for a piece that is a subtree
+
+		Object[] nodes = new Object[16];  //the node for each piece
+		int[] indices = new int[16];      //SUBTREE, or the index of the element in the node
+		int top = 0;                      //number of pieces, with the next one on top
+		long estimate;                    //estimated number of remaining elements
+
+/**
+ * @param root the root of the tree, which is
+ * pushed as the only piece unless it is null
+ * @param characteristics the characteristics before any split
+**/
+
+		protected SubtreeSpliterator(N root, int characteristics) {
+			super(characteristics | SIZED);
+			estimate = getSize();
+			if (root != null && !isEmpty()) {
+				push(root, SUBTREE);
+				if (subtreeSize(root) >= 0)
+					this.characteristics |= SUBSIZED;
+			}
+		}
+
+/**
+ * Pushes a piece on the stack.  When pushing
+ * the pieces of a subtree, they must be pushed from last to first.
+ * @param node a node of the tree
+ * @param index the index of an element within <code>node</code>, or
+ * SUBTREE for the subtree rooted at <code>node</code>
+**/
+
+		protected final void push(N node, int index) {
+			if (top == nodes.length) {
+				nodes = Arrays.copyOf(nodes, 2*top);
+				indices = Arrays.copyOf(indices, 2*top);
+			}
+			nodes[top] = node;
+			indices[top++] = index;
+		}
+
+/**
+ * Pushes the pieces of the subtree rooted at <code>node</code>,
+ * from last to first in the iteration order.
+ * @param node the root of a non-empty subtree
+**/
+
+		protected abstract void expand(N node);
+
+/**
+ * @param node a node of the tree
+ * @param index the index of an element in that node
+ * @return the element
+**/
+
+		protected abstract E elementAt(N node, int index);
+
+/**
+ * @return a new empty spliterator of the same type
+**/
+
+		protected abstract SubtreeSpliterator<N> create();
+
+/**
+ * @param node the root of a subtree
+ * @return the number of elements in the subtree, or -1 if it is not known
+**/
+
+		protected int subtreeSize(N node) {
+			return -1;
+		}
+
+/**
+ * @param i the index of a piece on the stack
+ * @return the number of elements in the piece
+**/
+
+		@SuppressWarnings("unchecked")
+
+		final long weight(int i) {
+			return (indices[i] == SUBTREE) ? subtreeSize((N) nodes[i]) : 1;
+		}
+
+		@SuppressWarnings("unchecked")
+
+		public boolean tryAdvance(Consumer<? super E> action) {
+			checkValidity();
+			while (top > 0) {
+				N node = (N) nodes[--top];
+				if (indices[top] == SUBTREE)
+					expand(node);
+				else {
+					if ((characteristics & SUBSIZED) != 0)
+						estimate--;
+					action.accept(elementAt(node, indices[top]));
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public void forEachRemaining(Consumer<? super E> action) {
+			while (tryAdvance(action));
+		}
+
+		@SuppressWarnings("unchecked")
+
+		public SubtreeSpliterator<N> trySplit() {
+			checkValidity();
+			if (top == 1 && indices[0] == SUBTREE)  //replace a lone subtree by its pieces
+				expand((N) nodes[--top]);
+			if (top < 2)
+				return null;
+			int num = (top + 1)/2;  //number of pieces for the prefix
+			SubtreeSpliterator<N> prefix = create();
+			prefix.versionNumber = versionNumber;
+			if ((characteristics & SUBSIZED) != 0) {
+				prefix.estimate = 0;
+				for (int i = top - num; i < top; i++)
+					prefix.estimate += weight(i);
+			} else {
+				characteristics &= ~SIZED;
+				prefix.estimate = estimate >>> 1;
+			}
+			prefix.characteristics = characteristics;
+			for (int i = top - num; i < top; i++)
+				prefix.push((N) nodes[i], indices[i]);
+			Arrays.fill(nodes, top - num, top, null);
+			top -= num;
+			estimate -= prefix.estimate;
+			return prefix;
+		}
+
+		public long estimateSize() {
+			return estimate;
+		}
+	}
+
 /**
  * This is a non-mutating method.
  * @param coll the collection to use
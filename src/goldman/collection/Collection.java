@@ -5,6 +5,8 @@
 
 package goldman.collection;
 import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.stream.Stream;
 
 /**
  * The <code>Collection</code> interface contains the operations that must
@@ -117,6 +119,28 @@ public interface Collection<E> extends Iterable<E>{
 **/
 
 	public boolean remove(E target);
+/**
+ * Returns a spliterator over the elements in
+ * this collection, in the iteration order.  A spliterator can be split
+ * so that disjoint parts of the collection are traversed in parallel.
+ * Like a locator, it throws a <code>ConcurrentModificationException</code>
+ * if the collection is mutated during the traversal.
+**/
+
+	public Spliterator<E> spliterator();
+/**
+ * Returns a sequential stream of the
+ * elements in this collection.
+**/
+
+	public Stream<E> stream();
+/**
+ * Returns a possibly parallel stream
+ * of the elements in this collection.  The collection is split using its
+ * spliterator.
+**/
+
+	public Stream<E> parallelStream();
 /**
  * Removes from this collection all
  * elements for which there is no equivalent element in <code>c</code>. Thus, the elements that
@@ -13,6 +13,13 @@ import goldman.collection.Visitor;
 /**
  * The AbstractSearchTree class is an abstract class that includes
  * the methods that are shared by all search trees.
+ * <p>
+ * A search tree can be given an <code>Aggregator</code>, in which case each
+ * node also holds the aggregate of the elements in its subtree.  The binary
+ * search trees and the B-trees keep these aggregates correct as elements are
+ * added and removed, and as the tree is restructured, so that
+ * <code>aggregate(lo,hi)</code> combines the elements in a range in
+ * logarithmic time for a balanced tree, instead of visiting each of them.
 **/
 
 public abstract class AbstractSearchTree<E> extends AbstractCollection<E> {
@@ -69,12 +76,42 @@ public abstract class AbstractSearchTree<E> extends AbstractCollection<E> {
 
 		protected abstract boolean isFrontier();
 
+		Object aggregate;  //the aggregate of the elements in T(this), when there is an aggregator
 
+/**
+ * @return true  if and only if the elements held in this node are part of
+ * the collection, as opposed to copies used only for navigation
+**/
+
+		boolean holdsElements() {
+			return true;
+		}
+
+/**
+ * Recomputes the aggregate of this node from the elements it holds and the
+ * aggregates of its children.
+ * <BR>
+ * REQUIRES:
+ *  the aggregates of the children are correct
+**/
+
+		void updateAggregate() {
+			boolean elements = holdsElements();
+			Object a = child(0).aggregate;
+			for (int i = 0; i < size(); i++) {
+				if (elements)
+					a = aggregator.combine(a, aggregator.lift(data(i)));
+				a = aggregator.combine(a, child(i+1).aggregate);
+			}
+			aggregate = a;
+		}
 
 	}
 
 	protected TreeNode root;
 
+	protected Aggregator<? super E, Object> aggregator;  //null unless aggregates are maintained
+
 
 	public AbstractSearchTree() { 
 		this(Objects.DEFAULT_COMPARATOR);
@@ -220,6 +257,102 @@ public abstract class AbstractSearchTree<E> extends AbstractCollection<E> {
 		}
 	}
 
+/**
+ * Sets the aggregator whose aggregate is kept for each subtree, and computes
+ * the aggregates of all nodes in linear time.  The aggregates are then
+ * maintained through every insertion, deletion and restructuring of the tree.
+ * @param aggregator the aggregator to use, or null to stop maintaining
+ * aggregates
+ * @throws UnsupportedOperationException this search tree does not
+ * maintain aggregates
+**/
+
+	@SuppressWarnings("unchecked")
+	public <A> void setAggregator(Aggregator<? super E, A> aggregator) {
+		this.aggregator = (Aggregator<? super E, Object>) aggregator;
+		if (aggregator != null)
+			resetAggregates();
+	}
+
+/**
+ * Sets the aggregate of each frontier node to the identity, and recomputes the
+ * aggregate of every other node.
+ * @throws UnsupportedOperationException this search tree does not
+ * maintain aggregates
+**/
+
+	void resetAggregates() {
+		aggregator = null;
+		throw new UnsupportedOperationException();
+	}
+
+/**
+ * @param x a reference to a tree node other than a frontier node
+ * <BR>
+ * REQUIRES:
+ *  the aggregate of each frontier node is the identity
+**/
+
+	void computeAggregates(TreeNode x) {
+		for (int i = 0; i <= x.size(); i++)
+			if (!x.child(i).isFrontier())
+				computeAggregates(x.child(i));
+		x.updateAggregate();
+	}
+
+/**
+ * Descends only into the subtrees that hold elements on both sides of
+ * <code>lo</code> or of <code>hi</code>, and uses the aggregate of every
+ * other subtree that is reached, so it takes logarithmic time in a
+ * balanced search tree.
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @return the aggregate of the elements e in the collection with
+ * <code>lo</code> &le; e &le; <code>hi</code>, combined in sorted order
+ * @throws IllegalStateException no aggregator has been set
+**/
+
+	@SuppressWarnings("unchecked")
+	public <A> A aggregate(E lo, E hi) {
+		if (aggregator == null)
+			throw new IllegalStateException("no aggregator has been set");
+		return (A) aggregate(root, lo, hi, false, false);
+	}
+
+/**
+ * The elements of the child left of each element of a node are at most that
+ * element, and those of the child to its right are at least that element.
+ * @param x a reference to a tree node
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @param atLeastLo true if every element in T(x) is known to be at least
+ * <code>lo</code>
+ * @param atMostHi true if every element in T(x) is known to be at most
+ * <code>hi</code>
+ * @return the aggregate of the elements in T(x) that are in the range
+**/
+
+	Object aggregate(TreeNode x, E lo, E hi, boolean atLeastLo, boolean atMostHi) {
+		if ((atLeastLo && atMostHi) || x.isFrontier())
+			return x.aggregate;
+		boolean elements = x.holdsElements();
+		Object a = aggregator.identity();
+		boolean leftAtLeastLo = atLeastLo;  //the element left of child i is at least lo
+		for (int i = 0; i < x.size(); i++) {
+			E e = x.data(i);
+			boolean geLo = atLeastLo || comp.compare(e, lo) >= 0;
+			boolean leHi = atMostHi || comp.compare(e, hi) <= 0;
+			if (geLo)                       //otherwise child i is entirely below lo
+				a = aggregator.combine(a, aggregate(x.child(i), lo, hi, leftAtLeastLo, leHi));
+			if (!leHi)                      //the rest is entirely above hi
+				return a;
+			if (geLo && elements)
+				a = aggregator.combine(a, aggregator.lift(e));
+			leftAtLeastLo = geLo;
+		}
+		return aggregator.combine(a, aggregate(x.child(x.size()), lo, hi, leftAtLeastLo, atMostHi));
+	}
+
 /**
  * Any exception thrown by the visitor propagates to the calling method.
  * @param v the visitor
@@ -0,0 +1,41 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+/**
+ * The <code>Aggregator</code> interface allows an application program to
+ * provide an associative operation, with an identity, over values computed
+ * from the elements of a search tree.  A search tree given an aggregator keeps
+ * the aggregate of the elements in each subtree, so that the aggregate of the
+ * elements in any range is found in logarithmic time.  For example, an
+ * aggregator whose values are sums gives range sums, one whose values are
+ * maxima gives range maxima, and one that lifts each element to 1 gives range
+ * counts.  The operation need not be commutative, since values are always
+ * combined in the sorted order of the elements they came from.
+**/
+
+public interface Aggregator<E,A> {
+
+/**
+ * Returns the identity value, which is the aggregate of no elements.
+**/
+
+	public A identity();
+
+/**
+ * Returns the aggregate of the single element <code>x</code>.
+**/
+
+	public A lift(E x);
+
+/**
+ * Returns the aggregate of the elements aggregated in <code>left</code> followed
+ * by those aggregated in <code>right</code>.  It must be associative, and
+ * must return the other value when either one is the identity.
+**/
+
+	public A combine(A left, A right);
+}
@@ -0,0 +1,1065 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import goldman.Objects;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Visitor;
+/**
+ * A B<sup>&epsilon;</sup>-tree is a write-optimized variant of the B+-tree.
+ * All of the elements are held in the leaves, but each internal node also has a
+ * buffer of elements that have been added and not yet moved down to the leaves.
+ * For a node size B and a parameter 0 &lt; &epsilon; &le; 1, an internal node
+ * has at most B<sup>&epsilon;</sup> children, and the rest of its space,
+ * B - B<sup>&epsilon;</sup> entries, is used for the buffer.  The buffer is kept
+ * as one sorted array per child.
+ * <p>
+ * An addition is placed in the buffer of the root.  When a buffer is full, it is
+ * flushed: the pending elements for the child that has the most of them are
+ * merged, in one batch, into that child's buffers (or into the child itself if it
+ * is a leaf), which may in turn cause the child to be flushed.  Since each flush
+ * moves at least B<sup>1-&epsilon;</sup> elements down one level, an addition
+ * takes O((log<sub>B</sub> n)/(&epsilon;B<sup>1-&epsilon;</sup>)) amortized
+ * node transfers, as opposed to the O(log<sub>B</sub> n) of a B-tree.  A node
+ * that gets too large is split into as many nodes as needed, and when the root
+ * splits the tree grows a level.  With &epsilon; = 1 the buffers hold a single
+ * element and the tree behaves like a B+-tree, and smaller values of &epsilon;
+ * favor additions over searches.
+ * <p>
+ * Every search accounts for the pending elements.  It checks the buffer for the
+ * child it descends to at each level, in addition to the leaf, so it takes
+ * O((log<sub>B</sub> n)/&epsilon;) node transfers.  Since <code>remove</code>
+ * must report whether an element was removed, it must search in any case, so it
+ * removes the element that it finds, either from a buffer or from a leaf, rather
+ * than adding a message that cancels it.  A leaf that becomes empty is removed,
+ * but nodes are not otherwise merged.
+ * <p>
+ * Elements equivalent to a pivot are always in the child to its left, so that
+ * all of the equivalent elements are on one root-to-leaf path.  As a result, a
+ * leaf holding many equivalent elements may exceed B elements.
+ * <p>
+ * Locators are markers.  A marker records an element and the number of
+ * equivalent elements before it, and is relocated by searching for that element,
+ * so markers never throw a <code>ConcurrentModificationException</code>.
+**/
+
+public class BEpsilonTree<E> extends AbstractCollection<E> implements OrderedCollection<E> {
+
+	public static final int DEFAULT_NODE_SIZE = 1024;
+	public static final double DEFAULT_EPSILON = 0.5;
+
+	static final Object[] EMPTY = new Object[0];
+
+
+	static final class Node {
+		Object[] keys;        //a leaf's elements, or an internal node's pivots, in sorted order
+		int numKeys;          //the number of elements or pivots
+		Node[] children;      //null for a leaf, and otherwise numKeys+1 children
+		Object[][] buffers;   //buffers[i] holds the sorted elements pending for children[i]
+		int[] numBuffered;    //numBuffered[i] is the number of elements in buffers[i]
+		int buffered;         //the total number of pending elements in the node
+
+/**
+ * Creates a leaf.
+ * @param keys the sorted elements of the leaf
+ * @param numKeys the number of elements
+**/
+
+		Node(Object[] keys, int numKeys) {
+			this.keys = keys;
+			this.numKeys = numKeys;
+		}
+
+/**
+ * Creates an internal node with empty buffers.
+ * @param keys the pivots
+ * @param numKeys the number of pivots
+ * @param children the children
+**/
+
+		Node(Object[] keys, int numKeys, Node[] children) {
+			this(keys, numKeys);
+			this.children = children;
+			buffers = new Object[children.length][];
+			Arrays.fill(buffers, EMPTY);
+			numBuffered = new int[children.length];
+		}
+
+		boolean isLeaf() {
+			return children == null;
+		}
+	}
+
+
+	final int nodeSize;        //B, the maximum number of elements in a leaf
+	final int fanout;          //B^epsilon, the maximum number of children of an internal node
+	final int bufferCapacity;  //B - B^epsilon, the pending elements that cause a flush
+	Node root = new Node(new Object[4], 0);
+
+/**
+ * Creates an empty B<sup>&epsilon;</sup>-tree that uses the default comparator.
+**/
+
+	public BEpsilonTree() {
+		this(Objects.DEFAULT_COMPARATOR);
+	}
+
+/**
+ * Creates an empty B<sup>&epsilon;</sup>-tree that uses the provided comparator.
+ * @param comp the comparator that defines an ordering
+ * among the elements
+**/
+
+	public BEpsilonTree(Comparator<? super E> comp) {
+		this(comp, DEFAULT_NODE_SIZE, DEFAULT_EPSILON);
+	}
+
+/**
+ * @param comp the comparator that defines an ordering
+ * among the elements
+ * @param nodeSize the number of entries B that a node holds
+ * @param epsilon the fraction of a node, on a logarithmic scale, used for
+ * children, so that an internal node has B<sup>&epsilon;</sup> children
+ * (but at least 2) and a buffer of B - B<sup>&epsilon;</sup> elements (but
+ * at least 1)
+ * @throws IllegalArgumentException <code>nodeSize</code> &lt; 2, or
+ * <code>epsilon</code> is not in (0,1]
+**/
+
+	public BEpsilonTree(Comparator<? super E> comp, int nodeSize, double epsilon) {
+		super(comp);
+		if (nodeSize < 2)
+			throw new IllegalArgumentException("nodeSize must be at least 2");
+		if (!(epsilon > 0 && epsilon <= 1))
+			throw new IllegalArgumentException("epsilon must be in (0,1]");
+		this.nodeSize = nodeSize;
+		fanout = Math.max(2, (int) Math.round(Math.pow(nodeSize, epsilon)));
+		bufferCapacity = Math.max(1, nodeSize - fanout);
+	}
+
+/**
+ * @return the maximum number of children of an internal node
+**/
+
+	public int getFanout() {
+		return fanout;
+	}
+
+/**
+ * @return the number of pending elements in an internal node that causes
+ * it to be flushed
+**/
+
+	public int getBufferCapacity() {
+		return bufferCapacity;
+	}
+
+/**
+ * @return the number of levels in the tree, which is 1 when the root is a leaf
+**/
+
+	public int getHeight() {
+		int height = 1;
+		for (Node node = root; !node.isLeaf(); node = node.children[0])
+			height++;
+		return height;
+	}
+
+/**
+ * @param a a sorted array
+ * @param from the first index to search
+ * @param to one more than the last index to search
+ * @param x the target
+ * @return the first index in [from,to) holding an element that is at least x,
+ * or <code>to</code> if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	final int lowerBound(Object[] a, int from, int to, E x) {
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (comp.compare((E) a[mid], x) < 0)
+				from = mid + 1;
+			else
+				to = mid;
+		}
+		return from;
+	}
+
+/**
+ * @param a a sorted array
+ * @param from the first index to search
+ * @param to one more than the last index to search
+ * @param x the target
+ * @return the first index in [from,to) holding an element greater than x,
+ * or <code>to</code> if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	final int upperBound(Object[] a, int from, int to, E x) {
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (comp.compare((E) a[mid], x) <= 0)
+				from = mid + 1;
+			else
+				to = mid;
+		}
+		return from;
+	}
+
+/**
+ * @param node an internal node
+ * @param x an element
+ * @return the index of the child whose subtree holds the elements
+ * equivalent to x
+**/
+
+	final int childIndex(Node node, E x) {
+		return lowerBound(node.keys, 0, node.numKeys, x);
+	}
+
+/**
+ * @param a a sorted array
+ * @param na the number of elements of a to merge
+ * @param b a sorted array
+ * @param from the index of the first element of b to merge
+ * @param to one more than the index of the last element of b to merge
+ * @return a sorted array holding the first na elements of a followed, among
+ * equivalent elements, by b[from], ..., b[to-1]
+**/
+
+	@SuppressWarnings("unchecked")
+	final Object[] merge(Object[] a, int na, Object[] b, int from, int to) {
+		Object[] result = new Object[na + to - from];
+		int i = 0, j = from, k = 0;
+		while (i < na && j < to)
+			result[k++] = (comp.compare((E) b[j], (E) a[i]) < 0) ? b[j++] : a[i++];
+		System.arraycopy(a, i, result, k, na - i);
+		System.arraycopy(b, j, result, k + na - i, to - j);
+		return result;
+	}
+
+/**
+ * @param node a node
+ * @return true  if and only if the node holds more than it may
+**/
+
+	final boolean overflows(Node node) {
+		return node.isLeaf() ? node.numKeys > nodeSize : node.numKeys >= fanout;
+	}
+
+/**
+ * Inserts <code>element</code> into the buffer of the root, or into the root
+ * if it is a leaf, flushes the root while its buffer is full, and splits the
+ * root if it has become too large.
+ * @param element the element to add
+**/
+
+	public void add(E element) {
+		if (root.isLeaf()) {
+			int j = upperBound(root.keys, 0, root.numKeys, element);
+			root.keys = insert(root.keys, root.numKeys++, j, element);
+		} else {
+			int i = childIndex(root, element);
+			int j = upperBound(root.buffers[i], 0, root.numBuffered[i], element);
+			root.buffers[i] = insert(root.buffers[i], root.numBuffered[i]++, j, element);
+			root.buffered++;
+			while (root.buffered > bufferCapacity)
+				flush(root);
+		}
+		while (overflows(root)) {
+			Node newRoot = new Node(new Object[4], 0, new Node[] {root, null, null, null});
+			split(newRoot, 0);
+			root = newRoot;
+		}
+		size++;
+		version.increment();
+	}
+
+/**
+ * @param a an array
+ * @param n the number of elements in a
+ * @param i the index at which to insert
+ * @param x the element to insert
+ * @return the array, or a larger copy of it, with x at index i and the
+ * elements from index i on moved one to the right
+**/
+
+	static Object[] insert(Object[] a, int n, int i, Object x) {
+		if (n == a.length)
+			a = Arrays.copyOf(a, Math.max(4, 2 * n));
+		System.arraycopy(a, i, a, i + 1, n - i);
+		a[i] = x;
+		return a;
+	}
+
+/**
+ * Moves the pending elements for the child of <code>node</code> with the most
+ * of them down into that child, and splits the child if it becomes too large.
+ * @param node an internal node with a nonempty buffer
+**/
+
+	@SuppressWarnings("unchecked")
+	final void flush(Node node) {
+		int i = 0;
+		for (int c = 1; c <= node.numKeys; c++)
+			if (node.numBuffered[c] > node.numBuffered[i])
+				i = c;
+		Object[] batch = node.buffers[i];
+		int count = node.numBuffered[i];
+		node.buffers[i] = EMPTY;
+		node.numBuffered[i] = 0;
+		node.buffered -= count;
+		Node child = node.children[i];
+		if (child.isLeaf()) {
+			child.keys = merge(child.keys, child.numKeys, batch, 0, count);
+			child.numKeys += count;
+		} else {
+			int from = 0;
+			for (int c = 0; c <= child.numKeys && from < count; c++) {
+				int to = (c == child.numKeys) ? count : upperBound(batch, from, count, (E) child.keys[c]);
+				if (to > from) {
+					child.buffers[c] = merge(child.buffers[c], child.numBuffered[c], batch, from, to);
+					child.numBuffered[c] += to - from;
+					from = to;
+				}
+			}
+			child.buffered += count;
+			while (child.buffered > bufferCapacity)
+				flush(child);
+		}
+		if (overflows(child))
+			split(node, i);
+	}
+
+/**
+ * Splits a child that is too large into the fewest nodes that are not,
+ * dividing its elements or children evenly, and replaces it by them.
+ * The buffer for the child is empty, since it has just been flushed or
+ * <code>node</code> has just been created.
+ * @param node an internal node
+ * @param i the index of the child to split
+**/
+
+	final void split(Node node, int i) {
+		Node child = node.children[i];
+		ArrayList<Node> pieces = new ArrayList<Node>();
+		ArrayList<Object> pivots = new ArrayList<Object>();
+		if (child.isLeaf()) {
+			int n = child.numKeys;
+			int k = (n + nodeSize - 1) / nodeSize;
+			int start = 0;
+			for (int p = 1; p <= k; p++) {
+				int cut = (p == k) ? n : cutPoint(child.keys, start, (int) ((long) p * n / k), n);
+				if (cut > start && cut < n || p == k) {
+					pieces.add(new Node(Arrays.copyOfRange(child.keys, start, cut), cut - start));
+					if (p < k)
+						pivots.add(child.keys[cut - 1]);
+					start = cut;
+				}
+			}
+		} else {
+			int n = child.numKeys + 1;
+			int k = (n + fanout - 1) / fanout;
+			int start = 0;
+			for (int p = 1; p <= k; p++) {
+				int cut = (int) ((long) p * n / k);
+				Node piece = new Node(Arrays.copyOfRange(child.keys, start, Math.max(start + 4, cut - 1)),
+						cut - 1 - start, Arrays.copyOfRange(child.children, start, cut));
+				for (int c = start; c < cut; c++) {
+					piece.buffers[c - start] = child.buffers[c];
+					piece.numBuffered[c - start] = child.numBuffered[c];
+					piece.buffered += child.numBuffered[c];
+				}
+				pieces.add(piece);
+				if (p < k)
+					pivots.add(child.keys[cut - 1]);
+				start = cut;
+			}
+		}
+		int extra = pieces.size() - 1;
+		int numChildren = node.numKeys + 1;
+		if (numChildren + extra > node.children.length) {
+			int capacity = Math.max(2 * node.children.length, numChildren + extra);
+			node.keys = Arrays.copyOf(node.keys, capacity);
+			node.children = Arrays.copyOf(node.children, capacity);
+			node.buffers = Arrays.copyOf(node.buffers, capacity);
+			node.numBuffered = Arrays.copyOf(node.numBuffered, capacity);
+		}
+		System.arraycopy(node.keys, i, node.keys, i + extra, node.numKeys - i);
+		System.arraycopy(node.children, i + 1, node.children, i + 1 + extra, numChildren - i - 1);
+		System.arraycopy(node.buffers, i + 1, node.buffers, i + 1 + extra, numChildren - i - 1);
+		System.arraycopy(node.numBuffered, i + 1, node.numBuffered, i + 1 + extra, numChildren - i - 1);
+		for (int p = 0; p <= extra; p++) {
+			node.children[i + p] = pieces.get(p);
+			node.buffers[i + p] = EMPTY;
+			node.numBuffered[i + p] = 0;
+			if (p < extra)
+				node.keys[i + p] = pivots.get(p);
+		}
+		node.numKeys += extra;
+	}
+
+/**
+ * @param a a sorted array
+ * @param start the index where the current piece starts
+ * @param target the desired end of the current piece
+ * @param n the number of elements in a
+ * @return the index nearest <code>target</code>, after it if possible, that
+ * is not between two equivalent elements, or <code>start</code> if there
+ * is none in (start, n)
+**/
+
+	@SuppressWarnings("unchecked")
+	final int cutPoint(Object[] a, int start, int target, int n) {
+		int cut = Math.max(target, start + 1);
+		while (cut < n && comp.compare((E) a[cut - 1], (E) a[cut]) == 0)
+			cut++;
+		if (cut < n)
+			return cut;
+		cut = Math.min(target, n - 1);
+		while (cut > start && comp.compare((E) a[cut - 1], (E) a[cut]) == 0)
+			cut--;
+		return cut;
+	}
+
+/**
+ * Removes from the collection an arbitrary element (if any)
+ * equivalent to <code>element</code>.  The buffers on the path to the leaf
+ * are checked from the root down, so the most recently added equivalent
+ * element is the one removed.  A leaf that becomes empty is removed from its
+ * parent unless it is the only child or elements are pending for it.
+ * @param element the element to remove
+ * @return true  if an element was removed, and false otherwise.
+**/
+
+	@SuppressWarnings("unchecked")
+	public boolean remove(E element) {
+		Node node = root;
+		Node parent = null;
+		int index = 0;
+		while (!node.isLeaf()) {
+			int i = childIndex(node, element);
+			int j = lowerBound(node.buffers[i], 0, node.numBuffered[i], element);
+			if (j < node.numBuffered[i] && comp.compare((E) node.buffers[i][j], element) == 0) {
+				Object[] buffer = node.buffers[i];
+				System.arraycopy(buffer, j + 1, buffer, j, --node.numBuffered[i] - j);
+				buffer[node.numBuffered[i]] = null;
+				node.buffered--;
+				size--;
+				version.increment();
+				return true;
+			}
+			parent = node;
+			index = i;
+			node = node.children[i];
+		}
+		int j = lowerBound(node.keys, 0, node.numKeys, element);
+		if (j == node.numKeys || comp.compare((E) node.keys[j], element) != 0)
+			return false;
+		System.arraycopy(node.keys, j + 1, node.keys, j, --node.numKeys - j);
+		node.keys[node.numKeys] = null;
+		if (node.numKeys == 0 && parent != null && parent.numKeys > 0 && parent.numBuffered[index] == 0)
+			removeChild(parent, index);
+		size--;
+		version.increment();
+		return true;
+	}
+
+/**
+ * Removes an empty child, along with the pivot that bounds it on the right,
+ * or on the left if it is the last child.
+ * @param node an internal node with at least two children
+ * @param i the index of the child to remove
+**/
+
+	final void removeChild(Node node, int i) {
+		int numChildren = node.numKeys + 1;
+		int k = (i == node.numKeys) ? i - 1 : i;
+		System.arraycopy(node.keys, k + 1, node.keys, k, node.numKeys - k - 1);
+		System.arraycopy(node.children, i + 1, node.children, i, numChildren - i - 1);
+		System.arraycopy(node.buffers, i + 1, node.buffers, i, numChildren - i - 1);
+		System.arraycopy(node.numBuffered, i + 1, node.numBuffered, i, numChildren - i - 1);
+		node.numKeys--;
+		node.keys[node.numKeys] = null;
+		node.children[numChildren - 1] = null;
+		node.buffers[numChildren - 1] = null;
+	}
+
+/**
+ * Removes all elements from the collection.
+**/
+
+	public void clear() {
+		root = new Node(new Object[4], 0);
+		size = 0;
+		version.increment();
+	}
+
+/**
+ * @param target the target element
+ * @return an equivalent element that is in the collection, or null if there
+ * is none
+**/
+
+	@SuppressWarnings("unchecked")
+	final E find(E target) {
+		Node node = root;
+		while (!node.isLeaf()) {
+			int i = childIndex(node, target);
+			int j = lowerBound(node.buffers[i], 0, node.numBuffered[i], target);
+			if (j < node.numBuffered[i] && comp.compare((E) node.buffers[i][j], target) == 0)
+				return (E) node.buffers[i][j];
+			node = node.children[i];
+		}
+		int j = lowerBound(node.keys, 0, node.numKeys, target);
+		if (j < node.numKeys && comp.compare((E) node.keys[j], target) == 0)
+			return (E) node.keys[j];
+		return null;
+	}
+
+/**
+ * @param target an element
+ * @return the elements equivalent to <code>target</code>, from the buffers
+ * on its path, from the root down, and then from its leaf
+**/
+
+	@SuppressWarnings("unchecked")
+	final ArrayList<E> group(E target) {
+		ArrayList<E> group = new ArrayList<E>();
+		Node node = root;
+		while (!node.isLeaf()) {
+			int i = childIndex(node, target);
+			Object[] buffer = node.buffers[i];
+			for (int j = lowerBound(buffer, 0, node.numBuffered[i], target);
+					j < node.numBuffered[i] && comp.compare((E) buffer[j], target) == 0; j++)
+				group.add((E) buffer[j]);
+			node = node.children[i];
+		}
+		for (int j = lowerBound(node.keys, 0, node.numKeys, target);
+				j < node.numKeys && comp.compare((E) node.keys[j], target) == 0; j++)
+			group.add((E) node.keys[j]);
+		return group;
+	}
+
+/**
+ * @param node the root of a subtree
+ * @param x an element, or null to find the least element
+ * @param after true to find an element greater than x, and false to find one
+ * at least x
+ * @return the least element in the subtree, including its pending elements,
+ * that is greater than (or, if <code>after</code> is false, at least) x, or
+ * null if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	final E nextKey(Node node, E x, boolean after) {
+		if (node.isLeaf()) {
+			int r = (x == null) ? 0 : after ? upperBound(node.keys, 0, node.numKeys, x) :
+				lowerBound(node.keys, 0, node.numKeys, x);
+			return (r < node.numKeys) ? (E) node.keys[r] : null;
+		}
+		for (int i = (x == null) ? 0 : childIndex(node, x); i <= node.numKeys; i++) {
+			E best = nextKey(node.children[i], x, after);
+			Object[] buffer = node.buffers[i];
+			int n = node.numBuffered[i];
+			int r = (x == null) ? 0 : after ? upperBound(buffer, 0, n, x) : lowerBound(buffer, 0, n, x);
+			if (r < n && (best == null || comp.compare((E) buffer[r], best) < 0))
+				best = (E) buffer[r];
+			if (best != null)
+				return best;
+			x = null;  //each element of a later child is greater than x
+		}
+		return null;
+	}
+
+/**
+ * @param node the root of a subtree
+ * @param x an element, or null to find the greatest element
+ * @return the greatest element in the subtree, including its pending
+ * elements, that is less than x, or null if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	final E previousKey(Node node, E x) {
+		if (node.isLeaf()) {
+			int r = (x == null) ? node.numKeys : lowerBound(node.keys, 0, node.numKeys, x);
+			return (r > 0) ? (E) node.keys[r - 1] : null;
+		}
+		for (int i = (x == null) ? node.numKeys : childIndex(node, x); i >= 0; i--) {
+			E best = previousKey(node.children[i], x);
+			Object[] buffer = node.buffers[i];
+			int r = (x == null) ? node.numBuffered[i] : lowerBound(buffer, 0, node.numBuffered[i], x);
+			if (r > 0 && (best == null || comp.compare((E) buffer[r - 1], best) > 0))
+				best = (E) buffer[r - 1];
+			if (best != null)
+				return best;
+			x = null;  //each element of an earlier child is less than x
+		}
+		return null;
+	}
+
+/**
+ * @param x an element, or null to find the first group
+ * @param after true to find the group after x, and false to find the group
+ * of the least element at least x
+ * @return the elements of the next group, or null if there is none
+**/
+
+	final ArrayList<E> nextGroup(E x, boolean after) {
+		E key = nextKey(root, x, after);
+		return (key == null) ? null : group(key);
+	}
+
+/**
+ * @param x an element, or null to find the last group
+ * @return the elements of the group before x, or null if there is none
+**/
+
+	final ArrayList<E> previousGroup(E x) {
+		E key = previousKey(root, x);
+		return (key == null) ? null : group(key);
+	}
+
+/**
+ * @param target the element being tested for membership in the collection
+ * @return true  if and only if an equivalent value exists in the collection
+**/
+
+	public boolean contains(E target) {
+		return find(target) != null;
+	}
+
+/**
+ * @param target the target element
+ * @return an equivalent element that is in the collection
+ * @throws NoSuchElementException there is no equivalent element in the
+ * collection.
+**/
+
+	public E getEquivalentElement(E target) {
+		E e = find(target);
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+/**
+ * This method takes linear time, since it visits the groups up to rank r.
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the sorted order, where
+ * r = 0 is the minimum.
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public E get(int r) {
+		if (r < 0 || r >= size)
+			throw new IllegalArgumentException();
+		for (ArrayList<E> group = nextGroup(null, false); ; group = nextGroup(group.get(0), true)) {
+			if (r < group.size())
+				return group.get(r);
+			r -= group.size();
+		}
+	}
+
+/**
+ * @return a least element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E min() {
+		E e = nextKey(root, null, false);
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+/**
+ * @return a greatest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E max() {
+		E e = previousKey(root, null);
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the predecessor
+ * @return the largest
+ * element in the ordered collection that is less than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is smaller than <code>target</code>
+**/
+
+	public E predecessor(E target) {
+		E e = previousKey(root, target);
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the successor
+ * @return the smallest
+ * element in the ordered collection that is greater than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is greater than <code>target</code>
+**/
+
+	public E successor(E target) {
+		E e = nextKey(root, target, true);
+		if (e == null)
+			throw new NoSuchElementException();
+		return e;
+	}
+
+/**
+ * Moves every pending element down to the leaves, so that the tree holds
+ * the same elements as a B+-tree would.
+**/
+
+	public void flushAll() {
+		flushAll(root);
+		while (overflows(root)) {
+			Node newRoot = new Node(new Object[4], 0, new Node[] {root, null, null, null});
+			split(newRoot, 0);
+			root = newRoot;
+		}
+	}
+
+/**
+ * Empties the buffers of each node in a subtree, from the top down, splitting
+ * each child that becomes too large.
+ * @param node the root of the subtree
+**/
+
+	final void flushAll(Node node) {
+		if (node.isLeaf())
+			return;
+		while (node.buffered > 0)
+			flush(node);
+		for (int i = 0; i <= node.numKeys; i++) {
+			Node child = node.children[i];
+			flushAll(child);
+			if (overflows(child)) {
+				int numKeys = node.numKeys;
+				split(node, i);
+				i += node.numKeys - numKeys;  //skip the pieces, which have been flushed
+			}
+		}
+	}
+
+/**
+ * Traverses the collection applying v to each element
+ * @param v a visitor
+**/
+
+	protected void traverseForVisitor(Visitor<? super E> v) throws Exception {
+		for (ArrayList<E> group = nextGroup(null, false); group != null;
+				group = nextGroup(group.get(0), true))
+			for (E e : group)
+				v.visit(e);
+	}
+
+/**
+ * @return a Java primitive array that holds
+ * each element of the collection in sorted order
+**/
+
+	public Object[] toArray() {
+		final ArrayList<E> elements = new ArrayList<E>(size);
+		accept(new Visitor<E>() {
+			public void visit(E e) {
+				elements.add(e);
+			}
+		});
+		return elements.toArray();
+	}
+
+/**
+ * Creates a new marker at FORE.
+**/
+
+	public Marker iterator() {
+		return new Marker(null, 0, false);
+	}
+
+/**
+ * Creates a new marker at AFT.
+**/
+
+	public Marker iteratorAtEnd() {
+		return new Marker(null, 0, true);
+	}
+
+/**
+ * @param element an element to locate
+ * @return a marker at an element equivalent to <code>element</code>
+ * @throws NoSuchElementException there is no equivalent element
+ * in the ordered collection.
+**/
+
+	public Marker getLocator(E element) {
+		return new Marker(getEquivalentElement(element), 0, false);
+	}
+
+/**
+ * Verifies that the leaves are all at the same depth, that the elements and
+ * the pending elements of each subtree are sorted and lie between the pivots
+ * that bound it, that no internal node has too many children or pending
+ * elements, and that the size is the number of elements held.
+ * @throws IllegalStateException the structure is inconsistent
+**/
+
+	public void checkRep() {
+		int held = checkRep(root, null, null, getHeight());
+		if (held != size)
+			throw new IllegalStateException("size is " + size + " but " + held + " elements are held");
+	}
+
+/**
+ * @param node the root of a subtree
+ * @param lo every element of the subtree must be greater than lo, unless it is null
+ * @param hi every element of the subtree must be at most hi, unless it is null
+ * @param height the expected number of levels in the subtree
+ * @return the number of elements held in the subtree, including pending ones
+ * @throws IllegalStateException the subtree is inconsistent
+**/
+
+	@SuppressWarnings("unchecked")
+	final int checkRep(Node node, E lo, E hi, int height) {
+		checkSorted(node.keys, node.numKeys, lo, hi, !node.isLeaf());
+		if (node.isLeaf()) {
+			if (height != 1)
+				throw new IllegalStateException("leaves are at different depths");
+			return node.numKeys;
+		}
+		if (node.numKeys >= fanout)
+			throw new IllegalStateException("a node has " + (node.numKeys + 1) + " children");
+		if (node.buffered > bufferCapacity)
+			throw new IllegalStateException("a node has " + node.buffered + " pending elements");
+		int held = 0, buffered = 0;
+		for (int i = 0; i <= node.numKeys; i++) {
+			E left = (i == 0) ? lo : (E) node.keys[i - 1];
+			E right = (i == node.numKeys) ? hi : (E) node.keys[i];
+			checkSorted(node.buffers[i], node.numBuffered[i], left, right, false);
+			buffered += node.numBuffered[i];
+			held += checkRep(node.children[i], left, right, height - 1);
+		}
+		if (buffered != node.buffered)
+			throw new IllegalStateException("a node records " + node.buffered + " pending elements but has " +
+					buffered);
+		return held + buffered;
+	}
+
+/**
+ * @param a an array
+ * @param n the number of elements in a to check
+ * @param lo each element must be greater than lo, unless it is null
+ * @param hi each element must be at most hi, unless it is null
+ * @param strict true if the elements must be distinct
+ * @throws IllegalStateException the elements are out of order or out of bounds
+**/
+
+	@SuppressWarnings("unchecked")
+	final void checkSorted(Object[] a, int n, E lo, E hi, boolean strict) {
+		for (int i = 0; i < n; i++) {
+			E e = (E) a[i];
+			if (lo != null && comp.compare(e, lo) <= 0 || hi != null && comp.compare(e, hi) > 0)
+				throw new IllegalStateException(e + " is not in (" + lo + "," + hi + "]");
+			if (i > 0) {
+				int c = comp.compare((E) a[i - 1], e);
+				if (c > 0 || strict && c == 0)
+					throw new IllegalStateException("out of order at " + e);
+			}
+		}
+	}
+
+
+	public class Marker extends AbstractCollection<E>.AbstractLocator<E> {
+
+		E element;       //an element equivalent to the marked one, or null at FORE or AFT
+		int k;           //the number of equivalent elements before the marked one
+		boolean atEnd;   //true at AFT, and false at FORE, when element is null
+
+/**
+ * @param element an element equivalent to the one to mark, or null for FORE
+ * or AFT
+ * @param k the number of equivalent elements before the one to mark
+ * @param atEnd true for AFT
+**/
+
+		Marker(E element, int k, boolean atEnd) {
+			this.element = element;
+			this.k = k;
+			this.atEnd = atEnd;
+		}
+
+/**
+ * @return the element at the marked position, or null if there is none
+**/
+
+		E current() {
+			if (element == null)
+				return null;
+			ArrayList<E> group = group(element);
+			return k < group.size() ? group.get(k) : null;
+		}
+
+/**
+ * @return true  if and only if there is an element at the marked
+ * position.
+**/
+
+		public boolean inCollection() {
+			return current() != null;
+		}
+
+/**
+ * @return the marked element
+ * @throws NoSuchElementException the marker is not at an element in
+ * the collection.
+**/
+
+		public E get() {
+			E e = current();
+			if (e == null)
+				throw new NoSuchElementException();
+			return e;
+		}
+
+/**
+ * Moves the marker to the first element of a group, or to AFT when there
+ * is none.
+ * @param group the elements of a group, or null
+ * @return true  if and only if the marker is at an element
+**/
+
+		boolean moveToFirst(ArrayList<E> group) {
+			if (group == null) {
+				element = null;
+				atEnd = true;
+				return false;
+			}
+			element = group.get(0);
+			k = 0;
+			return true;
+		}
+
+/**
+ * Moves the marker to the last element of a group, or to FORE when there
+ * is none.
+ * @param group the elements of a group, or null
+ * @return true  if and only if the marker is at an element
+**/
+
+		boolean moveToLast(ArrayList<E> group) {
+			if (group == null) {
+				element = null;
+				atEnd = false;
+				return false;
+			}
+			k = group.size() - 1;
+			element = group.get(k);
+			return true;
+		}
+
+/**
+ * Moves the marker to the next element in the
+ * iteration order (or AFT if
+ * the last element is currently marked).  If the marked element has
+ * been removed, the marker moves to the element that followed it.
+ * @return true  if and only if after the update, the marker is
+ * at an element of the collection.
+ * @throws AtBoundaryException the marker is at AFT since there is
+ * no place to advance.
+**/
+
+		public boolean advance() {
+			if (element == null && atEnd)
+				throw new AtBoundaryException();
+			if (element == null)
+				return moveToFirst(nextGroup(null, false));
+			ArrayList<E> group = group(element);
+			if (k + 1 < group.size()) {
+				element = group.get(++k);
+				return true;
+			}
+			return moveToFirst(nextGroup(element, true));
+		}
+
+/**
+ * Moves the marker to the previous element in the iteration order
+ * (or FORE if the first element is currently marked).
+ * @return true  if and only if after the update, the marker is at an element of the collection.
+ * @throws AtBoundaryException the marker is at FORE since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() {
+			if (element == null && !atEnd)
+				throw new AtBoundaryException();
+			return moveBack();
+		}
+
+/**
+ * Moves the marker to the position before the marked one.
+ * @return true  if and only if after the update, the marker is at an element of the collection.
+**/
+
+		boolean moveBack() {
+			if (element == null)
+				return moveToLast(previousGroup(null));
+			ArrayList<E> group = group(element);
+			if (k > 0 && !group.isEmpty()) {
+				k = Math.min(k, group.size()) - 1;
+				element = group.get(k);
+				return true;
+			}
+			return moveToLast(previousGroup(element));
+		}
+
+/**
+ * @return true  if there is some element after the current marker position.
+**/
+
+		public boolean hasNext() {
+			if (element == null && atEnd)
+				return false;
+			if (element == null)
+				return nextKey(root, null, false) != null;
+			return k + 1 < group(element).size() || nextKey(root, element, true) != null;
+		}
+
+/**
+ * Removes an element equivalent to the marked one, and moves the marker to the
+ * position before it, so that advancing reaches the element that followed it.
+ * @throws NoSuchElementException the marker is not at an element in the collection
+**/
+
+		public void remove() {
+			if (current() == null || !BEpsilonTree.this.remove(element))
+				throw new NoSuchElementException();
+			moveBack();
+		}
+	}
+}
@@ -5,9 +5,13 @@
 
 package goldman.collection.ordered;
 
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import goldman.Objects;
 import goldman.collection.Locator;
+import goldman.collection.VisitAbortedException;
 import goldman.collection.Visitor;
 /**
  * The B+-tree is variation of a B-tree in which the internal nodes
@@ -24,6 +28,11 @@ import goldman.collection.Visitor;
  * at the end of the leaf list and the rest of the structure can be built later.
  * A B+-tree uses more space than a B-tree since the elements held
  * in the internal nodes are duplicated in the leaves.
+ * <p>
+ * The elements in a range are reached by one search for each end of the range
+ * followed by a walk along the leaf chain, in either direction, so visiting the
+ * k elements in a range takes O(log n + k) time.  A <code>RangeCursor</code>
+ * does this walk without allocating, and can be reused for another range.
 **/
 
 public class BPlusTree<E> extends BTree<E> {
@@ -55,7 +64,7 @@ public class BPlusTree<E> extends BTree<E> {
 			LeafNode right = new LeafNode();    //create new right child
 			move(left,t,right,0,t-1);           //move last t-1 elements to new leaf
 			children[t] = (BTreeNode) FRONTIER; //set child t to FRONTIER
-			E copyUp = data.get(t-1);           //median element, to copy up (don't remove)
+			E copyUp = key(t-1);                //median element, to copy up (don't remove)
 			addToParent(copyUp, right);
 			right.setNext(left.next);           //preserve SortedLeafChain
 			left.setNext(right);
@@ -97,7 +106,7 @@ public class BPlusTree<E> extends BTree<E> {
 **/
 
 		void shiftLeft(BTreeNode parent, int i) {
-			parent.data.set(i,parent.child(i+1).data.get(0));
+			parent.setKey(i,parent.child(i+1).key(0));
 			super.shiftLeft(parent,i);
 		}
 
@@ -110,10 +119,10 @@ public class BPlusTree<E> extends BTree<E> {
 
 		void shiftRight(BTreeNode parent, int i) {
 			BTreeNode left = parent.child(i-1);
-			parent.data.set(i-1,left.data.get(left.size()-1));
+			parent.setKey(i-1,left.key(left.size()-1));
 			super.shiftRight(parent,i);
 			LeafNode leftSibling = (LeafNode) parent.child(i-1);
-			parent.data.set(i-1,leftSibling.data.get(leftSibling.size()-1));	
+			parent.setKey(i-1,leftSibling.key(leftSibling.size()-1));	
 		}
 
 /**
@@ -133,7 +142,7 @@ public class BPlusTree<E> extends BTree<E> {
 					for (BTreeNode ptr = this; ptr != root; ptr = ptr.parent)
 						if (ptr.pIndex < ptr.parent.size() &&
 								comp.compare(ptr.parent.data(ptr.pIndex), removed) == 0) {
-							ptr.parent.data.set(ptr.pIndex, pred);
+							ptr.parent.setKey(ptr.pIndex, pred);
 							return;
 						}
 			}
@@ -179,6 +188,106 @@ public class BPlusTree<E> extends BTree<E> {
 		((LeafNode) FORE).setNext((LeafNode) root);
 	}
 
+/**
+ * Creates a B+-tree holding the given sorted elements, with each
+ * node filled to the given fraction of its capacity, in linear time.
+ * @param comp the function used
+ * to compare two elements
+ * @param t the order of the B+-tree
+ * @param sorted an array of elements in sorted order
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @return a new B+-tree holding the elements of <code>sorted</code>
+ * @throws IllegalArgumentException <code>sorted</code> is not sorted, or
+ * <code>fillFactor</code> is not in (0,1]
+**/
+
+	public static <E> BPlusTree<E> bulkLoad(Comparator<? super E> comp, int t, E[] sorted, double fillFactor) {
+		BPlusTree<E> tree = new BPlusTree<E>(comp, t);
+		tree.load(sorted, sorted.length, fillFactor, false);
+		return tree;
+	}
+
+/**
+ * @param comp the function used
+ * to compare two elements
+ * @param t the order of the B+-tree
+ * @param sorted an iterator over elements in sorted order
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @return a new B+-tree holding the elements of <code>sorted</code>
+ * @throws IllegalArgumentException the elements are not sorted, or
+ * <code>fillFactor</code> is not in (0,1]
+**/
+
+	public static <E> BPlusTree<E> bulkLoad(Comparator<? super E> comp, int t, Iterator<? extends E> sorted,
+			double fillFactor) {
+		Object[] elements = toArray(sorted);
+		BPlusTree<E> tree = new BPlusTree<E>(comp, t);
+		tree.load(elements, elements.length, fillFactor, false);
+		return tree;
+	}
+
+/**
+ * Like <code>bulkLoad</code>, except that the nodes of each level are
+ * built in parallel.
+ * @param comp the function used
+ * to compare two elements
+ * @param t the order of the B+-tree
+ * @param sorted an array of elements in sorted order
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @return a new B+-tree holding the elements of <code>sorted</code>
+ * @throws IllegalArgumentException <code>sorted</code> is not sorted, or
+ * <code>fillFactor</code> is not in (0,1]
+**/
+
+	public static <E> BPlusTree<E> parallelBulkLoad(Comparator<? super E> comp, int t, E[] sorted,
+			double fillFactor) {
+		BPlusTree<E> tree = new BPlusTree<E>(comp, t);
+		tree.load(sorted, sorted.length, fillFactor, true);
+		return tree;
+	}
+
+/**
+ * @return a new empty leaf for bulk loading
+**/
+
+	BTreeNode newLeaf() {
+		return new LeafNode();
+	}
+
+/**
+ * @return 0 since each internal node holds a copy of the last element
+ * in the subtree to the left of it
+**/
+
+	int leafSeparation() {
+		return 0;
+	}
+
+/**
+ * Links the given leaves into the sorted leaf chain between FORE and AFT.
+ * @param leaves the leaves in sorted order
+**/
+
+	void linkLeaves(BTreeNode[] leaves) {
+		LeafNode prev = (LeafNode) FORE;
+		for (BTreeNode x : leaves) {
+			prev.setNext((LeafNode) x);
+			prev = (LeafNode) x;
+		}
+		prev.setNext((LeafNode) AFT);  //preserve SortedLeafChain
+	}
+
+/**
+ * Places <code>right</code> after <code>left</code> in the sorted leaf chain.
+ * @param left the last leaf
+ * @param right a new leaf to follow it
+**/
+
+	void linkLeaf(BTreeNode left, BTreeNode right) {
+		((LeafNode) right).setNext(((LeafNode) left).next);  //preserve SortedLeafChain
+		((LeafNode) left).setNext((LeafNode) right);
+	}
+
 /**
  * @return the
  * leftmost node in the B+-tree
@@ -213,9 +322,9 @@ public class BPlusTree<E> extends BTree<E> {
 	protected BTreeNode find(E target) {
 		BTreeNode ptr = (BTreeNode) root;	     //start at the root
 		while (!ptr.isFrontier()) {				 //until a frontier node is reached
-			curIndex = ptr.data.find(target);	 //look for the target in the node 
+			curIndex = ptr.find(target);	 //look for the target in the node 
 			if (curIndex < ptr.size() && ptr.isLeaf() &&
-						comp.compare(target, ptr.data.get(curIndex)) == 0)
+						comp.compare(target, ptr.key(curIndex)) == 0)
 				return ptr;					      //return the ptr to the current node
 			((BTreeNode) FRONTIER).parent = ptr;  //set frontiers' parent to ptr
 			ptr = ptr.child(curIndex);            //go to the appropriate child
@@ -232,11 +341,23 @@ public class BPlusTree<E> extends BTree<E> {
 **/
 
 	BTreeNode findFirstInsertPosition(E target) {
-		BTreeNode ptr = (BTreeNode) root;			//start at the root
+		return findFirstInsertPosition((BTreeNode) root, target);
+	}
+
+/**
+ * It sets the global variable <code>curIndex</code> to hold the insert
+ * position for the target in the returned node.
+ * @param ptr the node at which to start the search
+ * @param target the target element
+ * @return a reference to the leaf in T(<code>ptr</code>) where the target would
+ * be inserted to precede any equivalent elements in T(<code>ptr</code>)
+**/
+
+	BTreeNode findFirstInsertPosition(BTreeNode ptr, E target) {
 		while (!ptr.isFrontier()) {				    //until a frontier node is reached
-			curIndex = ptr.data.findFirstInsertPosition(0,ptr.size()-1,target);
+			curIndex = ptr.findFirstInsertPosition(target);
 			if (curIndex < ptr.size() && ptr.isLeaf() &&
-					comp.compare(target, ptr.data.get(curIndex)) == 0)
+					comp.compare(target, ptr.key(curIndex)) == 0)
 				return ptr;
 			((BTreeNode) FRONTIER).parent = ptr;    //set frontiers' parent to ptr
 			ptr = ptr.child(curIndex);              //go to the appropriate child
@@ -255,9 +376,9 @@ public class BPlusTree<E> extends BTree<E> {
 	BTreeNode findLastInsertPosition(E target) {
 		BTreeNode ptr = (BTreeNode) root;			//start at the root
 		while (!ptr.isFrontier()) {				    //until a frontier node is reached
-			curIndex = ptr.data.findLastInsertPosition(0,ptr.size()-1,target);
+			curIndex = ptr.findLastInsertPosition(target);
 			if (curIndex < ptr.size() && ptr.isLeaf() &&
-					comp.compare(target, ptr.data.get(curIndex)) == 0)
+					comp.compare(target, ptr.key(curIndex)) == 0)
 				return ptr;
 			((BTreeNode) FRONTIER).parent = ptr;    //set frontiers' parent to ptr
 			ptr = ptr.child(curIndex);				//go to the appropriate child
@@ -306,6 +427,322 @@ public class BPlusTree<E> extends BTree<E> {
 		return x;
 	}
 
+/**
+ * @param x a B-tree node
+ * @return true if <code>x</code> is a leaf, since the elements held in
+ * the internal nodes are copies used only for navigation
+**/
+
+	boolean holdsElements(BTreeNode x) {
+		return x.isLeaf();
+	}
+
+/**
+ * In addition to the properties checked for a B-tree, verifies that the leaf
+ * chain reaches every element in sorted order, and that the <code>prev</code>
+ * references match.
+ * @throws IllegalStateException the tree is inconsistent
+**/
+
+	public void checkRep() {
+		super.checkRep();
+		int n = 0;
+		E last = null;
+		for (LeafNode x = (LeafNode) FORE; x != AFT; x = x.next) {
+			if (x.next.prev != x)
+				throw new IllegalStateException("prev of " + x.next + " is not " + x);
+			if (x == FORE)
+				continue;
+			for (int i = 0; i < x.size(); i++, n++) {
+				if (n > 0 && comp.compare(last, x.key(i)) > 0)
+					throw new IllegalStateException("leaf chain is out of order at " + x);
+				last = x.key(i);
+			}
+		}
+		if (n != size)
+			throw new IllegalStateException("leaf chain holds " + n + " elements but size is " + size);
+	}
+
+//Range methods.  A position is a leaf and an index in it.  Moving forward,
+//    the position after the last element is (AFT, 0), and moving backward, the
+//    position before the first element is (FORE, -1).
+
+/**
+ * This method sets <code>curIndex</code> to the index of the position in the
+ * returned leaf.
+ * @param x the bound, or null for no bound
+ * @param after true if the position is to follow the elements equivalent to
+ * <code>x</code>, and false if it is to precede them
+ * @param upper true if a null bound is an upper bound
+ * @return the leaf of the first position whose element is greater than
+ * <code>x</code> (or at least <code>x</code>), or AFT if there is none
+**/
+
+	LeafNode position(E x, boolean after, boolean upper) {
+		LeafNode leaf;
+		if (x == null || isEmpty()) {
+			leaf = (upper || isEmpty()) ? (LeafNode) AFT : ((LeafNode) FORE).next;
+			curIndex = 0;
+		} else {
+			leaf = (LeafNode) (after ? findLastInsertPosition(x) : findFirstInsertPosition(x));
+			if (curIndex == leaf.size()) {   //the position is at the start of the next leaf
+				leaf = leaf.next;
+				curIndex = 0;
+			}
+		}
+		return leaf;
+	}
+
+/**
+ * @param e an element
+ * @param hi the upper end of a range, or null for no bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return true  if and only if <code>e</code> is within the upper end of the range
+**/
+
+	boolean below(E e, E hi, boolean hiInclusive) {
+		if (hi == null)
+			return true;
+		int c = comp.compare(e, hi);
+		return c < 0 || (hiInclusive && c == 0);
+	}
+
+/**
+ * A range cursor is an iterator over the elements in a range, in sorted order
+ * or in reverse sorted order.  Since it holds the positions of both ends of the
+ * range, it compares no elements once it is placed, and it does not allocate.
+ * Calling <code>seek</code> places it at another range.
+**/
+
+	public class RangeCursor implements Iterator<E> {
+
+		final boolean reverse;  //true to visit the elements in reverse sorted order
+		LeafNode leaf;          //leaf of the next element to return
+		int index;              //index of that element in leaf
+		LeafNode stopLeaf;      //leaf of the position just past the range
+		int stopIndex;          //index of that position in stopLeaf
+		int versionNumber;      //modification count when placed
+
+		RangeCursor(boolean reverse) {
+			this.reverse = reverse;
+		}
+
+/**
+ * Places this cursor at the start of a range, which is the low end when moving
+ * forward and the high end when moving in reverse.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return this cursor
+**/
+
+		public RangeCursor seek(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+			versionNumber = version.getCount();
+			leaf = position(lo, !loInclusive, false);
+			index = curIndex;
+			boolean empty = (leaf == AFT || !below(leaf.key(index), hi, hiInclusive));
+			stopLeaf = empty ? leaf : position(hi, hiInclusive, true);
+			stopIndex = empty ? index : curIndex;
+			if (reverse) {                      //both positions move back by one
+				LeafNode first = leaf;
+				int firstIndex = index;
+				leaf = stopLeaf;
+				index = stopIndex - 1;
+				if (index < 0) {
+					leaf = leaf.prev;
+					index = leaf.size() - 1;
+				}
+				stopLeaf = first;
+				stopIndex = firstIndex - 1;
+				if (stopIndex < 0) {
+					stopLeaf = stopLeaf.prev;
+					stopIndex = stopLeaf.size() - 1;
+				}
+			}
+			return this;
+		}
+
+/**
+ * @return true  if there is another element in the range
+ * @throws ConcurrentModificationException the tree was modified after this
+ * cursor was placed
+**/
+
+		public boolean hasNext() {
+			version.check(versionNumber);
+			return leaf != stopLeaf || index != stopIndex;
+		}
+
+/**
+ * @return the next element in the range
+ * @throws NoSuchElementException there are no more elements in the range
+ * @throws ConcurrentModificationException the tree was modified after this
+ * cursor was placed
+**/
+
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			E e = leaf.key(index);
+			if (reverse) {
+				if (--index < 0) {
+					leaf = leaf.prev;
+					index = leaf.size() - 1;
+				}
+			} else if (++index == leaf.size()) {
+				leaf = leaf.next;
+				index = 0;
+			}
+			return e;
+		}
+	}
+
+/**
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return a cursor over the elements in the range, in sorted order
+**/
+
+	public RangeCursor rangeCursor(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		return new RangeCursor(false).seek(lo, loInclusive, hi, hiInclusive);
+	}
+
+/**
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return a cursor over the elements in the range, in reverse sorted order
+**/
+
+	public RangeCursor reverseRangeCursor(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		return new RangeCursor(true).seek(lo, loInclusive, hi, hiInclusive);
+	}
+
+/**
+ * Finds both ends of the range, and then adds the sizes of the leaves
+ * between them, so it takes O(log n + k/t) time for a range of k elements.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of elements in the range
+**/
+
+	public int countRange(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		LeafNode x = position(lo, !loInclusive, false);
+		int i = curIndex;
+		if (x == AFT || !below(x.key(i), hi, hiInclusive))
+			return 0;
+		LeafNode end = position(hi, hiInclusive, true);
+		int count = 0;
+		for (; x != end; x = x.next, i = 0)
+			count += x.size() - i;
+		return count + curIndex - i;
+	}
+
+/**
+ * Searches for <code>target</code> starting from the leaf of a marker,
+ * instead of from the root.  When the target is beyond the marked leaf, the
+ * search first tries the neighboring leaf in the leaf chain.  Otherwise it
+ * climbs from the marked leaf only until it reaches a node whose subtree must
+ * hold the first element that is at least <code>target</code>, and then
+ * descends within that subtree.  Since the elements of a node separate those
+ * of its children, a node whose last element is at least <code>target</code>
+ * (or, searching backward, whose first element is less than
+ * <code>target</code>) is such a node.  So a run of nearby searches, each
+ * using the marker returned by the previous one as its finger, touches only
+ * the few levels of the tree that separate consecutive targets.
+ * @param finger a marker for this tree, which may be at FORE or AFT
+ * @param target the element to search for
+ * @return a marker at the first element that is at least <code>target</code>,
+ * or at AFT if there is none
+ * @throws IllegalArgumentException <code>finger</code> is not a marker for
+ * this tree
+ * @throws ConcurrentModificationException the tree has changed since
+ * <code>finger</code> was created
+**/
+
+	public Locator<E> searchFrom(Locator<E> finger, E target) {
+		if (!(finger instanceof BTree.Marker) || ((Marker) finger).owner() != this)
+			throw new IllegalArgumentException("the finger is not a marker for this tree");
+		Marker m = (Marker) finger;
+		if (isEmpty())
+			return new Marker((BTreeNode) AFT, -1);
+		BTreeNode x = (BTreeNode) root;
+		if (m.inCollection()) {
+			LeafNode leaf = (LeafNode) m.node;
+			x = leaf;
+			if (comp.compare(leaf.key(m.index), target) < 0) {  //search forward
+				LeafNode next = leaf.next;
+				if (comp.compare(leaf.key(leaf.size()-1), target) < 0 && next != AFT
+						&& comp.compare(next.key(next.size()-1), target) >= 0)
+					x = next;
+				else
+					while (x != root && comp.compare(x.key(x.size()-1), target) < 0)
+						x = x.parent;
+			} else {                                              //search backward
+				LeafNode prev = leaf.prev;
+				if (comp.compare(leaf.key(0), target) >= 0 && prev != FORE
+						&& comp.compare(prev.key(0), target) < 0)
+					x = prev;
+				else
+					while (x != root && comp.compare(x.key(0), target) >= 0)
+						x = x.parent;
+			}
+		}
+		LeafNode leaf = (LeafNode) findFirstInsertPosition(x, target);
+		if (curIndex == leaf.size())  //the position is at the start of the next leaf
+			return (leaf.next == AFT) ? new Marker((BTreeNode) AFT, -1) : new Marker(leaf.next, 0);
+		return new Marker(leaf, curIndex);
+	}
+
+/**
+ * Applies the visitor to the elements in the range in sorted order.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @param v a visitor
+ * @throws VisitAbortedException the traversal is aborted due to an
+ * exception raised by the visitor
+**/
+
+	public void forEachInRange(E lo, boolean loInclusive, E hi, boolean hiInclusive,
+			Visitor<? super E> v) {
+		visitRange(false, lo, loInclusive, hi, hiInclusive, v);
+	}
+
+/**
+ * Applies the visitor to the elements in the range in reverse sorted order.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @param v a visitor
+ * @throws VisitAbortedException the traversal is aborted due to an
+ * exception raised by the visitor
+**/
+
+	public void forEachInRangeReverse(E lo, boolean loInclusive, E hi, boolean hiInclusive,
+			Visitor<? super E> v) {
+		visitRange(true, lo, loInclusive, hi, hiInclusive, v);
+	}
+
+	void visitRange(boolean reverse, E lo, boolean loInclusive, E hi, boolean hiInclusive,
+			Visitor<? super E> v) {
+		RangeCursor cursor = new RangeCursor(reverse).seek(lo, loInclusive, hi, hiInclusive);
+		try {
+			while (cursor.leaf != cursor.stopLeaf || cursor.index != cursor.stopIndex)
+				v.visit(cursor.next());
+		} catch (Throwable cause) {
+			throw new VisitAbortedException(cause);
+		}
+	}
+
 /**
  * Traverses the collection applying v to each element
  * @param v a visitor
@@ -343,6 +780,219 @@ public class BPlusTree<E> extends BTree<E> {
 			 ((LeafNode) FORE).setNext((LeafNode) AFT);
 	}
 
+/**
+ * Removes the elements in a range.  Since the internal nodes hold copies of
+ * elements, the tree cannot be split around an element, so instead the
+ * leaf of the first element removed and the leaf of the first element that
+ * remains are trimmed, every subtree between the two paths from those leaves
+ * to their lowest common ancestor is dropped whole, and then the nodes on the
+ * paths, which may hold too few elements, are repaired from the bottom up by
+ * merging with or borrowing from their siblings.  Since the leaf at the end
+ * of the range keeps its largest element, the only element of an internal
+ * node that can change is the one in the common ancestor that separates the
+ * two paths.  The time is O(t log n) when no node on a path is left without
+ * elements, and O(t log<sup>2</sup> n) in the worst case, plus time
+ * proportional to the number of leaves removed.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of elements removed
+**/
+
+	int removeRange(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		LeafNode first = position(lo, !loInclusive, false);
+		int from = curIndex;
+		if (first == AFT || !below(first.key(from), hi, hiInclusive))
+			return 0;
+		LeafNode last = position(hi, hiInclusive, true);  //leaf of the first element that remains
+		int to = curIndex;
+		if (last == AFT) {  //the range extends to the end
+			last = last.prev;
+			to = last.size();
+		}
+		int count = 0;
+		int i = from;
+		for (LeafNode x = first; x != last; x = x.next, i = 0)
+			count += x.size() - i;
+		count += to - i;
+		if (count == size) {
+			clear();
+			return count;
+		}
+		version.increment();   //invalidate all markers for iteration
+		Object before = null;  //the last element before the range, if any
+		if (from > 0)
+			before = first.key(from - 1);
+		else if (first.prev != FORE)
+			before = first.prev.key(first.prev.size() - 1);
+		BTreeNode x = first;
+		BTreeNode y = last;
+		if (x == y)
+			cut(x, from, to, false);
+		else {
+			cut(x, from, x.size(), false);
+			cut(y, 0, to, true);
+			first.setNext(last);
+			while (x != y) {  //climb the two paths, dropping the subtrees between them
+				BTreeNode px = x.parent;
+				BTreeNode py = y.parent;
+				int ix = indexOf(px, x);
+				int iy = indexOf(py, y);
+				if (px == py) {  //the lowest common ancestor
+					cut(px, ix, iy - 1, false);
+					if (before != null)  //preserve that each element is the maximum of its left subtree
+						px.keys[ix] = before;
+				} else {
+					cut(px, ix, px.size(), false);
+					cut(py, 0, iy, true);
+				}
+				repair(px);
+				if (py != px)
+					repair(py);
+				x = px;
+				y = py;
+			}
+		}
+		for (BTreeNode p = x.parent; p != null; p = p.parent)
+			repair(p);
+		BTreeNode r = (BTreeNode) root;
+		while (r.size() == 0 && !r.isLeaf())  //a root without elements is replaced by its child
+			r = r.children[0];
+		root = r;
+		r.parent = null;
+		repair(r);
+		size -= count;
+		updateAggregates();
+		return count;
+	}
+
+/**
+ * @param x a node
+ * @param child a child of x
+ * @return the index of <code>child</code> in the <code>children</code>
+ * array of x
+**/
+
+	final int indexOf(BTreeNode x, BTreeNode child) {
+		int i = 0;
+		while (x.children[i] != child)
+			i++;
+		return i;
+	}
+
+/**
+ * Removes the elements of x at indices <code>from</code>, ...,
+ * <code>to</code>-1, along with the child before or after each one.
+ * @param x a node
+ * @param from the index of the first element to remove
+ * @param to one more than the index of the last element to remove
+ * @param before true to remove the child before each element removed,
+ * and false to remove the child after it
+**/
+
+	void cut(BTreeNode x, int from, int to, boolean before) {
+		int n = x.numKeys;
+		int k = to - from;
+		int c = before ? from : from + 1;  //the first child removed
+		System.arraycopy(x.keys, to, x.keys, from, n - to);
+		Arrays.fill(x.keys, n - k, n, null);
+		System.arraycopy(x.children, c + k, x.children, c, n + 1 - c - k);
+		Arrays.fill(x.children, n + 1 - k, n + 1, null);
+		x.numKeys = n - k;
+		changed(x);
+	}
+
+/**
+ * Repairs each child of x that holds fewer than t-1 elements, by merging it
+ * with a neighboring sibling, or by dividing their elements evenly when
+ * they do not fit in one node.  A child may hold no elements at all.  When x
+ * itself holds no elements, its only child cannot be repaired here, and is
+ * repaired after x is merged with a sibling of its own.
+ * <BR>
+ * REQUIRES:
+ *  every node of T(x) other than x and the nodes on the paths from x to
+ *  the ends of a removed range satisfies the B-tree properties
+ * @param x a node
+**/
+
+	void repair(BTreeNode x) {
+		if (x.isLeaf())
+			return;
+		int i = 0;
+		while (x.size() > 0 && i <= x.size())
+			if (x.children[i].size() < t-1)
+				i = fixChild(x, i);
+			else
+				i++;
+	}
+
+/**
+ * Merges child i of x with a neighboring sibling, or when their
+ * elements do not fit in one node, divides them evenly between the two,
+ * and then repairs the children of the resulting nodes.
+ * @param x a node that holds at least one element
+ * @param i the index of the child to repair
+ * @return the index of the left one of the two children that were combined
+**/
+
+	@SuppressWarnings("unchecked")
+	int fixChild(BTreeNode x, int i) {
+		int j = (i > 0) ? i - 1 : i;  //children j and j+1 are combined
+		BTreeNode l = x.children[j];
+		BTreeNode r = x.children[j+1];
+		boolean leaf = l.isLeaf();
+		Object[] keys = new Object[4*t];
+		BTreeNode[] children = (BTreeNode[]) new BTree<?>.BTreeNode[4*t+1];
+		int n = gather(l, keys, children, 0);
+		if (!leaf)
+			keys[n++] = x.keys[j];  //the separator moves down between internal nodes
+		n = gather(r, keys, children, n);
+		if (n <= 2*t-1) {
+			fill(l, keys, children, 0, n);
+			if (leaf)
+				((LeafNode) l).setNext(((LeafNode) r).next);  //preserve SortedLeafChain
+			cut(x, j, j + 1, false);
+		} else {
+			int mid = n/2;
+			fill(l, keys, children, 0, mid);
+			if (leaf) {
+				fill(r, keys, children, mid, n - mid);
+				x.keys[j] = keys[mid-1];
+			} else {
+				fill(r, keys, children, mid + 1, n - mid - 1);
+				x.keys[j] = keys[mid];
+			}
+			changed(x);
+			repair(r);
+		}
+		repair(l);
+		return j;
+	}
+
+/**
+ * Replaces the contents of x by <code>n</code> elements and the n+1
+ * children that surround them.
+ * @param x a node
+ * @param keys an array of elements
+ * @param children an array of children
+ * @param from the index of the first element
+ * @param n the number of elements, which is at most 2t-1
+**/
+
+	void fill(BTreeNode x, Object[] keys, BTreeNode[] children, int from, int n) {
+		int old = x.numKeys;
+		System.arraycopy(keys, from, x.keys, 0, n);
+		if (old > n) {
+			Arrays.fill(x.keys, n, old, null);
+			Arrays.fill(x.children, n + 1, old + 1, null);
+		}
+		x.numKeys = n;
+		for (int i = 0; i <= n; i++)
+			link(x, i, children[from + i]);
+		changed(x);
+	}
+
 /**
  * Removes all elements from the collection
 **/
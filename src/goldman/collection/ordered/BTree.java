@@ -6,9 +6,18 @@
 package goldman.collection.ordered;
 import goldman.Objects;
 import goldman.collection.*;
+import goldman.collection.positional.PositionOutOfBoundsException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 /**
  * A B-tree is a balanced binary search tree in which each
  * node can hold between t-1 and 2t-1 elements, where integer t &gt; 1
@@ -18,6 +27,22 @@ import java.util.NoSuchElementException;
  * so large that secondary storage must be used.  The larger node
  * size (chosen with knowledge of the page size) helps minimize the number of
  * disk pages that must be read to locate an element.
+ * <p>
+ * A B-tree can be bulk loaded from sorted input in linear time with
+ * <code>bulkLoad</code>.  The leaves are packed to a given fill factor and then
+ * each internal level is built from the level below it, and <code>append</code>
+ * adds a sorted batch of elements along the right edge of the tree in the same way.
+ * <p>
+ * Two B-trees are combined by <code>union</code>, <code>intersect</code> and
+ * <code>difference</code>, which split this tree around the elements of each
+ * node of the other tree, combine the pieces with the children of that node (in
+ * parallel when they are large), and join the results back together.
+ * <p>
+ * When there is an aggregator, each node whose elements or children change is
+ * recorded, and at the end of each insertion or deletion the aggregates of the
+ * recorded nodes and their ancestors are recomputed from the bottom up.  After
+ * a bulk load or a set operation, all of the aggregates are recomputed in
+ * linear time.
 **/
 
 public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection<E> {
@@ -35,9 +60,17 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 	TreeNode AFT = new BTreeNode();
 
 
+	static final Object STALE = new Object();  //the aggregate of a node that must be recomputed
+
+
+	BTreeNode[] changed;  //nodes whose elements or children changed since the aggregates were updated
+	int numChanged;       //the number of nodes in changed
+
+
 	class BTreeNode extends TreeNode {
 
-		SortedArray<E> data;  //holds elements held in the node
+		Object[] keys;   //keys[0], ..., keys[numKeys-1] hold the elements in sorted order
+		int numKeys;     //the number of elements held in the node
 		BTreeNode[] children;
 		BTreeNode parent;
 
@@ -47,12 +80,19 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 
 		BTreeNode() {
 			children = (BTreeNode[]) new BTree.BTreeNode[2*t];  
-			data = new SortedArray<E>(comp, 2*t-1);
+			keys = new Object[2*t-1];
+			aggregate = STALE;
 		}	
 
 
 		public String toString(){
-			return "" + data;
+			StringBuilder s = new StringBuilder("{");
+			for (int i = 0; i < numKeys; i++) {
+				if (i > 0)
+					s.append(", ");
+				s.append(keys[i]);
+			}
+			return s.append("}").toString();
 		}
 /**
  * @return true  if and only if this node is a frontier node
@@ -75,7 +115,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 **/
 
 		protected int size() {
-			return data.getSize();
+			return numKeys;
 		}
 
 /**
@@ -92,7 +132,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 **/
 
 		final boolean atMaxSize(){
-			return (size() == 2*t-1);
+			return (numKeys == 2*t-1);
 		}
 
 /**
@@ -101,7 +141,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 **/
 
 		final boolean atMinSize(){
-			return (size() == t-1);
+			return (numKeys == t-1);
 		}
 
 /**
@@ -123,7 +163,136 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 		protected E data(int i) {
 			if (this == AFT || this == FORE)
 				throw new NoSuchElementException();
-			return data.get(i);
+			if (i < 0 || i >= numKeys)
+				throw new PositionOutOfBoundsException(i);
+			return key(i);
+		}
+
+/**
+ * Unlike <code>data</code>, this method does no checking, so it
+ * is used on the search paths.
+ * <BR> 
+ * REQUIRES: 
+ *  0 &le; i &lt; <code>size()</code>
+ * @param i the index of
+ * the desired element
+ * @return the element with the given index
+**/
+
+		@SuppressWarnings("unchecked")
+		final E key(int i) {
+			return (E) keys[i];
+		}
+
+/**
+ * @param i the index of
+ * the element to replace
+ * @param element the element to place at index i
+**/
+
+		final void setKey(int i, E element) {
+			keys[i] = element;
+			changed(this);
+		}
+
+/**
+ * Shifts the elements at indices i and above right by one
+ * to make room for the new element.
+ * <BR> 
+ * REQUIRES: 
+ *  this node is not full
+ * @param i the index for the new element
+ * @param element the element to add
+**/
+
+		final void addKey(int i, E element) {
+			System.arraycopy(keys, i, keys, i+1, numKeys-i);
+			keys[i] = element;
+			numKeys++;
+			changed(this);
+		}
+
+/**
+ * @param i the index of
+ * the element to remove
+ * @return the removed element
+**/
+
+		final E removeKey(int i) {
+			E removed = key(i);
+			System.arraycopy(keys, i+1, keys, i, numKeys-i-1);
+			keys[--numKeys] = null;  //allow the element to be garbage collected
+			changed(this);
+			return removed;
+		}
+
+/**
+ * @param target the value to search for
+ * @return the index of an occurrence of the target in this node,
+ * or otherwise its insert position
+**/
+
+		@SuppressWarnings("unchecked")
+		final int find(E target) {
+			Comparator<? super E> comp = BTree.this.comp;
+			Object[] keys = this.keys;
+			int left = 0;
+			int right = numKeys - 1;
+			while (left <= right) {
+				int mid = (left + right) >>> 1;
+				int comparison = comp.compare(target, (E) keys[mid]);
+				if (comparison == 0)
+					return mid;
+				else if (comparison < 0)
+					right = mid - 1;
+				else
+					left = mid + 1;
+			}
+			return left;
+		}
+
+/**
+ * @param target the value to search for
+ * @return the insert position for the target that
+ * precedes any equivalent elements in this node
+**/
+
+		@SuppressWarnings("unchecked")
+		final int findFirstInsertPosition(E target) {
+			Comparator<? super E> comp = BTree.this.comp;
+			Object[] keys = this.keys;
+			int left = 0;
+			int right = numKeys;
+			while (left < right) {  //keys[left-1] < target <= keys[right]
+				int mid = (left + right) >>> 1;
+				if (comp.compare(target, (E) keys[mid]) <= 0)
+					right = mid;
+				else
+					left = mid + 1;
+			}
+			return left;
+		}
+
+/**
+ * @param target the value to search for
+ * @return the insert position for the target that
+ * follows any equivalent elements in this node
+**/
+
+		@SuppressWarnings("unchecked")
+		final int findLastInsertPosition(E target) {
+			Comparator<? super E> comp = BTree.this.comp;
+			Object[] keys = this.keys;
+			int left = 0;
+			int right = numKeys;
+			while (left < right) {  //keys[left-1] <= target < keys[right]
+				int mid = (left + right) >>> 1;
+				if (comp.compare(target, (E) keys[mid]) < 0)
+					right = mid;
+				else
+					left = mid + 1;
+			}
+			return left;
 		}
 
 /**
@@ -140,6 +309,34 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 			return children[i];
 		}
 
+/**
+ * @return true  if and only if the elements held in this node are part of
+ * the collection, as opposed to copies used only for navigation
+**/
+
+		boolean holdsElements() {
+			return BTree.this.holdsElements(this);
+		}
+
+/**
+ * Recomputes the aggregate of this node from the elements it holds and the
+ * aggregates of its children.
+ * <BR>
+ * REQUIRES:
+ *  the aggregates of the children are correct
+**/
+
+		void updateAggregate() {
+			boolean elements = holdsElements();
+			Object a = children[0].aggregate;
+			for (int i = 0; i < numKeys; i++) {
+				if (elements)
+					a = aggregator.combine(a, aggregator.lift(key(i)));
+				a = aggregator.combine(a, children[i+1].aggregate);
+			}
+			aggregate = a;
+		}
+
 /**
  * @param i the index for the
  * new child
@@ -154,6 +351,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 		final void setChild(int i, BTreeNode child) {
 			children[i] = child;
 			child.parent = this;
+			changed(this);
 		}
 
 /**
@@ -192,7 +390,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 			BTreeNode left = this;
 			BTreeNode right = new BTreeNode(); //will hold right half
 			move(left,t,right,0,t-1);  //move last t-1 elements to new node
-			E moveUp = left.data.remove(t-1); //the median element to move up to parent
+			E moveUp = left.removeKey(t-1); //the median element to move up to parent
 			addToParent(moveUp, right); //adjust elements and children of parent
 			return right;			
 		}
@@ -208,9 +406,9 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 
 		void merge(BTreeNode parent, int index) {
 			BTreeNode rightSibling = parent.child(index+1);
-			E moveDown = (E) parent.data.get(index); //element from parent to move down
+			E moveDown = parent.key(index); //element from parent to move down
 			parent.remove(index);                    //remove from parent
-			data.add(t-1,moveDown);	                 //add to this node
+			addKey(t-1,moveDown);	                     //add to this node
 			move(rightSibling, 0, this, t, t-1);     //move over elements in right sibling
 			if (root.size() == 0){
 				root = root.child(0);               //preserve InOrder and Reachable
@@ -232,10 +430,10 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 		void shiftLeft(BTreeNode parent, int i) {
 			BTreeNode left = this;
 			BTreeNode right = parent.child(i+1);  
-			E moveDown = (E) parent.data.get(i);  //element to move down to left
-			left.data.add(size(),moveDown);		//add moveDown to end of left
-			E moveUp = (E) right.data.remove(0);  //element to move up to parent
-			parent.data.set(i,moveUp);	 		//move into parent
+			E moveDown = parent.key(i);  //element to move down to left
+			left.addKey(size(),moveDown);		//add moveDown to end of left
+			E moveUp = right.removeKey(0);  //element to move up to parent
+			parent.setKey(i,moveUp);	 		//move into parent
 			left.setChild(size(),(BTreeNode) right.leftmostChild());  //move subtree and
 			System.arraycopy(right.children,1,right.children,0,right.size()+1); //right's children
 			right.children[right.size()+1] = null;  //reset child in right not in use to null
@@ -256,10 +454,10 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 			BTreeNode left = parent.child(i-1);
 			BTreeNode right = this;
 			BTreeNode moveToRight = (BTreeNode) left.rightmostChild();
-			E moveDown = (E) parent.data.get(i-1);          //element to move down to right
-			right.data.add(0,moveDown);                     //add moveDown to end of left
-			E moveUp = (E) left.data.remove(left.size()-1); //element to move up to parent
-			parent.data.set(i-1,moveUp);                    //move into parent
+			E moveDown = parent.key(i-1);          //element to move down to right
+			right.addKey(0,moveDown);                     //add moveDown to end of left
+			E moveUp = left.removeKey(left.size()-1); //element to move up to parent
+			parent.setKey(i-1,moveUp);                    //move into parent
 			System.arraycopy(right.children,0,right.children,1,right.size()+1); //right's children
 			right.setChild(0,moveToRight); //move subtree from left to right
 			left.children[left.size()+1] = null;    //reset child in left not in use to null
@@ -283,7 +481,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 			}
 			if (x.size()-i > 0)  //need to make room for rightChild
 				System.arraycopy(x.children,i+1,x.children,i+2,x.size()-i);
-			x.data.add(i, element);  //add new element
+			x.addKey(i, element);  //add new element
 			x.setChild(i+1,rightChild); //add new child
 			return x;   //return the node where the new element was placed
 		}
@@ -298,7 +496,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 **/
 
 		void extract(int i) {
-			data.remove(i);
+			removeKey(i);
 		}
 
 /**
@@ -369,6 +567,336 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 		root = new BTreeNode();
 	}
 
+/**
+ * Creates a B-tree holding the given sorted elements, with each
+ * node filled to the given fraction of its capacity, in linear time.
+ * @param comp the function used
+ * to compare two elements
+ * @param t the order of the B-tree
+ * @param sorted an array of elements in sorted order
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @return a new B-tree holding the elements of <code>sorted</code>
+ * @throws IllegalArgumentException <code>sorted</code> is not sorted, or
+ * <code>fillFactor</code> is not in (0,1]
+**/
+
+	public static <E> BTree<E> bulkLoad(Comparator<? super E> comp, int t, E[] sorted, double fillFactor) {
+		BTree<E> tree = new BTree<E>(comp, t);
+		tree.load(sorted, sorted.length, fillFactor, false);
+		return tree;
+	}
+
+/**
+ * @param comp the function used
+ * to compare two elements
+ * @param t the order of the B-tree
+ * @param sorted an iterator over elements in sorted order
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @return a new B-tree holding the elements of <code>sorted</code>
+ * @throws IllegalArgumentException the elements are not sorted, or
+ * <code>fillFactor</code> is not in (0,1]
+**/
+
+	public static <E> BTree<E> bulkLoad(Comparator<? super E> comp, int t, Iterator<? extends E> sorted,
+			double fillFactor) {
+		Object[] elements = toArray(sorted);
+		BTree<E> tree = new BTree<E>(comp, t);
+		tree.load(elements, elements.length, fillFactor, false);
+		return tree;
+	}
+
+/**
+ * Like <code>bulkLoad</code>, except that the nodes of each level are
+ * built in parallel, since each node's range of the input can be computed
+ * directly from its index.
+ * @param comp the function used
+ * to compare two elements
+ * @param t the order of the B-tree
+ * @param sorted an array of elements in sorted order
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @return a new B-tree holding the elements of <code>sorted</code>
+ * @throws IllegalArgumentException <code>sorted</code> is not sorted, or
+ * <code>fillFactor</code> is not in (0,1]
+**/
+
+	public static <E> BTree<E> parallelBulkLoad(Comparator<? super E> comp, int t, E[] sorted,
+			double fillFactor) {
+		BTree<E> tree = new BTree<E>(comp, t);
+		tree.load(sorted, sorted.length, fillFactor, true);
+		return tree;
+	}
+
+/**
+ * @param it an iterator
+ * @return an array holding the elements returned by <code>it</code>
+**/
+
+	static Object[] toArray(Iterator<?> it) {
+		ArrayList<Object> elements = new ArrayList<Object>();
+		while (it.hasNext())
+			elements.add(it.next());
+		return elements.toArray();
+	}
+
+/**
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @return the number of elements to place in each node when bulk loading,
+ * which is never less than the minimum size of a node
+ * @throws IllegalArgumentException <code>fillFactor</code> is not in (0,1]
+**/
+
+	int bulkLoadTarget(double fillFactor) {
+		if (!(fillFactor > 0 && fillFactor <= 1))
+			throw new IllegalArgumentException("fill factor " + fillFactor + " is not in (0,1]");
+		return Math.max((int) Math.ceil(fillFactor * (2*t-1)), t-1);
+	}
+
+/**
+ * Any number of nodes between n/(2t-1) and n/(t-1) (adjusted for the
+ * separators) can hold n items in nodes that are neither too small nor too
+ * large, when the items are divided as evenly as possible.
+ * @param n the number of items to divide among the nodes of a level
+ * @param target the desired number of items per node
+ * @param sep 1 if one item separates consecutive nodes, and 0 if not
+ * @return the number of nodes closest to giving each node <code>target</code>
+ * items, while giving each node at least t-1 items
+**/
+
+	int nodeCount(int n, int target, int sep) {
+		int m = (n + sep + target + sep - 1) / (target + sep);
+		return Math.max(1, Math.min(m, (n + sep) / (t - 1 + sep)));
+	}
+
+/**
+ * @return a new empty leaf for bulk loading
+**/
+
+	BTreeNode newLeaf() {
+		return new BTreeNode();
+	}
+
+/**
+ * @return 1 if consecutive leaves are separated by an element held in
+ * their parent, and 0 if the parent holds copies of elements in the leaves
+**/
+
+	int leafSeparation() {
+		return 1;
+	}
+
+/**
+ * Links the given leaves into a sorted list, for a tree in which the
+ * leaves hold every element.
+ * @param leaves the leaves in sorted order
+**/
+
+	void linkLeaves(BTreeNode[] leaves) { }
+
+/**
+ * Places <code>right</code> after <code>left</code> in a sorted list of the
+ * leaves, for a tree in which the leaves hold every element.
+ * @param left the last leaf
+ * @param right a new leaf to follow it
+**/
+
+	void linkLeaf(BTreeNode left, BTreeNode right) { }
+
+/**
+ * Builds one level of the tree by dividing <code>n</code> items, starting at
+ * <code>items[from]</code>, among nodes as evenly as possible.  When the level
+ * is above the leaves, node i has k items and the k+1 children that follow the
+ * children of the nodes before it.
+ * @param items the items in sorted order
+ * @param from the index of the first item
+ * @param n the number of items
+ * @param children the nodes of the level below, or null to build leaves
+ * @param m the number of nodes to create
+ * @param sep 1 if one item separates consecutive nodes, and 0 if not
+ * @param separators an array of length m-1 to fill with the item that
+ * separates each node from the next, or the last item of the node when
+ * <code>sep</code> is 0
+ * @param parallel true if the nodes should be built in parallel
+ * @return the nodes of the new level, in sorted order
+**/
+
+	BTreeNode[] buildLevel(final Object[] items, final int from, int n, final BTreeNode[] children,
+			final int m, final int sep, final Object[] separators, boolean parallel) {
+		@SuppressWarnings("unchecked")  //a generic array must be created from its erasure
+		final BTreeNode[] level = (BTreeNode[]) new BTree<?>.BTreeNode[m];
+		final int base = (n - sep*(m-1)) / m;   //each node gets base or base+1 items
+		final int extra = (n - sep*(m-1)) % m;  //the first extra nodes get base+1
+		IntConsumer buildNode = new IntConsumer() {
+			@SuppressWarnings("unchecked")
+			public void accept(int i) {
+				int offset = i * (base + sep) + Math.min(i, extra);
+				int k = base + (i < extra ? 1 : 0);
+				BTreeNode x = (children == null) ? newLeaf() : new BTreeNode();
+				System.arraycopy(items, from + offset, x.keys, 0, k);
+				x.numKeys = k;
+				for (int j = 0; j <= k; j++)
+					if (children == null)
+						x.children[j] = (BTreeNode) FRONTIER;
+					else
+						x.setChild(j, children[offset + j]);  //sep is 1 above the leaves
+				if (i < m-1)
+					separators[i] = items[from + offset + k + sep - 1];
+				level[i] = x;
+			}
+		};
+		if (parallel)
+			IntStream.range(0, m).parallel().forEach(buildNode);
+		else
+			for (int i = 0; i < m; i++)
+				buildNode.accept(i);
+		return level;
+	}
+
+/**
+ * Builds the internal levels above the given level, each from the one below
+ * it, until a single root remains.
+ * @param level the nodes of the lowest level, in sorted order
+ * @param separators the items that separate consecutive nodes of
+ * <code>level</code>
+ * @param target the desired number of elements per node
+ * @param parallel true if the nodes of each level should be built in parallel
+ * @return the root
+**/
+
+	BTreeNode buildInternalLevels(BTreeNode[] level, Object[] separators, int target, boolean parallel) {
+		while (level.length > 1) {
+			int m = nodeCount(separators.length, target, 1);
+			Object[] above = new Object[m-1];
+			level = buildLevel(separators, 0, separators.length, level, m, 1, above, parallel);
+			separators = above;
+		}
+		return level[0];
+	}
+
+/**
+ * @param a an array
+ * @param from the index of the first element to check
+ * @param to one more than the index of the last element to check
+ * @throws IllegalArgumentException the elements are not in sorted order
+**/
+
+	@SuppressWarnings("unchecked")
+	void checkSorted(Object[] a, int from, int to) {
+		for (int i = from + 1; i < to; i++)
+			if (comp.compare((E) a[i-1], (E) a[i]) > 0)
+				throw new IllegalArgumentException("element " + a[i] + " at index " + i +
+						" is smaller than its predecessor " + a[i-1]);
+	}
+
+/**
+ * Replaces the contents of this tree by the first n elements of
+ * <code>sorted</code>.  The leaves are filled first, and then each internal
+ * level is built from the level below, so the time is linear.
+ * @param sorted an array of elements in sorted order
+ * @param n the number of elements to use
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @param parallel true if the nodes of each level should be built in parallel
+ * @throws IllegalArgumentException <code>sorted</code> is not sorted, or
+ * <code>fillFactor</code> is not in (0,1]
+**/
+
+	void load(Object[] sorted, int n, double fillFactor, boolean parallel) {
+		int target = bulkLoadTarget(fillFactor);
+		checkSorted(sorted, 0, n);
+		clear();
+		if (n == 0)
+			return;
+		Aggregator<? super E, Object> aggregator = this.aggregator;
+		this.aggregator = null;  //nodes are built in parallel, so all aggregates are computed after
+		int sep = leafSeparation();
+		int m = nodeCount(n, target, sep);
+		Object[] separators = new Object[m-1];
+		BTreeNode[] leaves = buildLevel(sorted, 0, n, null, m, sep, separators, parallel);
+		linkLeaves(leaves);
+		root = buildInternalLevels(leaves, separators, target, parallel);
+		size = n;
+		setAggregator(aggregator);
+	}
+
+/**
+ * Adds the elements of a sorted batch, each of which must be
+ * at least as large as every element already in the collection.  The
+ * rightmost leaf is filled to the given fill factor, and the remaining elements
+ * are packed into new leaves that are attached along the right edge, so the
+ * time is linear in the size of the batch plus the height of the tree for each
+ * new leaf.  Internal nodes on the right edge are split as needed.
+ * @param sorted an iterator over elements in sorted order
+ * @param fillFactor the fraction of the capacity of each node to fill
+ * @throws IllegalArgumentException the elements are not sorted, the first is
+ * less than the maximum element in the collection,
+ * or <code>fillFactor</code> is not in (0,1]
+**/
+
+	@SuppressWarnings("unchecked")
+	public void append(Iterator<? extends E> sorted, double fillFactor) {
+		Object[] a = toArray(sorted);
+		int n = a.length;
+		if (isEmpty()) {
+			load(a, n, fillFactor, false);
+			return;
+		}
+		int target = bulkLoadTarget(fillFactor);
+		checkSorted(a, 0, n);
+		if (n == 0)
+			return;
+		if (comp.compare((E) a[0], max()) < 0)
+			throw new IllegalArgumentException("element " + a[0] + " is less than the maximum " + max());
+		version.increment();   //invalidate all markers for iteration
+		size += n;
+		BTreeNode last = rightmostLeaf();
+		int i = 0;
+		while (i < n && last.size() < target)          //top up the rightmost leaf
+			last.addElement(last.size(), (E) a[i++], (BTreeNode) FRONTIER);
+		int sep = leafSeparation();
+		if (n - i >= sep + t - 1) {                    //enough for at least one new leaf
+			int m = nodeCount(n - i - sep, target, sep);
+			Object[] separators = new Object[m-1];
+			BTreeNode[] leaves = buildLevel(a, i + sep, n - i - sep, null, m, sep, separators, false);
+			attach(last, (E) (sep == 1 ? a[i] : last.data(last.size()-1)), leaves[0]);
+			for (int j = 1; j < m; j++)
+				attach(leaves[j-1], (E) separators[j-1], leaves[j]);
+		} else {                                       //too few for a leaf, so add them one by one
+			for (; i < n; i++) {
+				last = rightmostLeaf();
+				last.addElement(last.size(), (E) a[i], (BTreeNode) FRONTIER);
+			}
+		}
+		updateAggregates();
+	}
+
+/**
+ * @return the rightmost leaf, after setting the <code>pIndex</code> of each
+ * node on the path to it
+**/
+
+	BTreeNode rightmostLeaf() {
+		BTreeNode x = (BTreeNode) root;
+		while (!x.isLeaf())
+			x = x.child(x.size());
+		return x;
+	}
+
+/**
+ * Adds <code>separator</code> and the new leaf <code>right</code> to the parent
+ * of the rightmost leaf <code>left</code>, splitting nodes on the right edge as
+ * needed.
+ * @param left the rightmost leaf
+ * @param separator the element that separates <code>left</code> from
+ * <code>right</code>
+ * @param right a new leaf
+**/
+
+	void attach(BTreeNode left, E separator, BTreeNode right) {
+		left.addToParent(separator, right);
+		linkLeaf(left, right);
+		for (BTreeNode x = right; x != root; x = x.parent)  //each is the rightmost child of its parent
+			x.pIndex = x.parent.size();
+	}
+
 /**
  * This method
  * sets the global variable <code>curIndex</code> to hold the
@@ -385,8 +913,8 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 	protected BTreeNode find(E target) {
 		BTreeNode ptr = (BTreeNode) root;       //start at the root
 		while (!ptr.isFrontier()) {				//until a frontier node is reached
-			curIndex = ptr.data.find(target);	   //find the element in the node
-			if (curIndex < ptr.size() && comp.compare(target, ptr.data.get(curIndex)) == 0)
+			curIndex = ptr.find(target);	   //find the element in the node
+			if (curIndex < ptr.size() && comp.compare(target, ptr.key(curIndex)) == 0)
 				return ptr;						   //return the ptr to the current node
 			((BTreeNode) FRONTIER).parent = ptr;   //set frontiers' parent to ptr
 			ptr = ptr.child(curIndex);			   //go to the appropriate child		   
@@ -419,8 +947,8 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 		BTreeNode returnNode = null;
 		int returnIndex = 0;
 		while (!ptr.isFrontier()) {				   //until a frontier node is reached
-			curIndex = ptr.data.findFirstInsertPosition(0,ptr.size()-1,target);	
-			if (curIndex < ptr.size() && comp.compare(target, ptr.data.get(curIndex)) == 0) {
+			curIndex = ptr.findFirstInsertPosition(target);	
+			if (curIndex < ptr.size() && comp.compare(target, ptr.key(curIndex)) == 0) {
 				returnNode = ptr;                       //remember node and
 				returnIndex = curIndex;                 //index where found
 			}
@@ -446,9 +974,9 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 		BTreeNode returnNode = null;
 		int returnIndex = 0;
 		while (!ptr.isFrontier()) {				 //until a frontier node is reached
-			curIndex = ptr.data.findLastInsertPosition(0,ptr.size()-1,target);	
+			curIndex = ptr.findLastInsertPosition(target);	
 			((BTreeNode) FRONTIER).parent = ptr; //set frontiers' parent to ptr
-			if (curIndex < ptr.size() && comp.compare(target, ptr.data.get(curIndex)) == 0) {
+			if (curIndex < ptr.size() && comp.compare(target, ptr.key(curIndex)) == 0) {
 				returnNode = ptr;
 				returnIndex = curIndex+1;
 				ptr = ptr.child(returnIndex);
@@ -512,6 +1040,8 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 **/
 
 	public E predecessor(E target) { 
+		if (isEmpty())
+			throw new NoSuchElementException();
 		BTreeNode x = findFirstInsertPosition(target); //curIndex is set
 		if (x.isLeaf() && curIndex > 0)            //if insert position not left of first element 
 			return x.data(curIndex-1);
@@ -563,6 +1093,8 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 **/
 
 	public E successor(E target) {
+		if (isEmpty())
+			throw new NoSuchElementException();
 		BTreeNode x = findLastInsertPosition(target);  //curIndex is set
 		if (curIndex < x.size())    //if insert position not after last element
 			return x.data(curIndex);      
@@ -580,12 +1112,16 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 **/
 
 	void move(BTreeNode from, int fromIndex, BTreeNode to, int toIndex, int num){
-		for (int i = 0; i < num; i++){
-			to.data.add(toIndex+i,from.data.remove(fromIndex));			  
-			to.setChild(toIndex+i,from.child(fromIndex+i));
-		}
-		to.setChild(toIndex+num,from.child(fromIndex+num)); //move last child
+		System.arraycopy(to.keys, toIndex, to.keys, toIndex+num, to.numKeys-toIndex);  //make room
+		System.arraycopy(from.keys, fromIndex, to.keys, toIndex, num);
+		to.numKeys += num;
+		System.arraycopy(from.keys, fromIndex+num, from.keys, fromIndex, from.numKeys-fromIndex-num);
+		Arrays.fill(from.keys, from.numKeys-num, from.numKeys, null);  //close the gap
+		from.numKeys -= num;
+		for (int i = 0; i <= num; i++)
+			to.setChild(toIndex+i, from.children[fromIndex+i]);
 		Arrays.fill(from.children, fromIndex, fromIndex+num+1, null);
+		changed(from);
 	}
 
 /**
@@ -596,19 +1132,22 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 	protected TreeNode insert(E element){
 		if (isEmpty()) {
 			createRoot();
-			((BTreeNode) root).data.add(0, element);
+			((BTreeNode) root).addKey(0, element);
 			((BTreeNode) root).children[0] = (BTreeNode) FRONTIER;
 			((BTreeNode) root).children[1] = (BTreeNode) FRONTIER;
+			updateAggregates();
 			return root;
 		} else {
 			BTreeNode ptr = (BTreeNode) root;			//start search at the root
 			while (!ptr.isLeaf()) {				//until a frontier node is reached
-				curIndex = ptr.data.findLastInsertPosition(0,ptr.size()-1,element);
+				curIndex = ptr.findLastInsertPosition(element);
 				ptr = ptr.child(curIndex);						   
 			}
-			curIndex = ptr.data.findLastInsertPosition(0,ptr.size()-1,element);
+			curIndex = ptr.findLastInsertPosition(element);
 			version.increment();   //invalidate all markers for iteration
-			return ptr.addElement(curIndex,element,(BTreeNode) FRONTIER);
+			ptr = ptr.addElement(curIndex,element,(BTreeNode) FRONTIER);
+			updateAggregates();
+			return ptr;
 		}
 	}
 
@@ -624,7 +1163,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 			size--;
 		} else {             //Case 2
 				BTreeNode pred = (BTreeNode) rightmost(x.child(index));
-				x.data.set(index,pred.data(pred.size()-1));
+				x.setKey(index,pred.key(pred.size()-1));
 				remove(pred,pred.size()-1);
 		}
 	}
@@ -639,6 +1178,7 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 	protected void remove(TreeNode x) {
 		remove((BTreeNode) x,curIndex); //curIndex was set by find in public remove
 		version.increment();            //invalidate all markers for iteration
+		updateAggregates();
 	}
 
 /**
@@ -647,10 +1187,858 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 
 	public void clear(){
 		root = FRONTIER;
+		((BTreeNode) FRONTIER).parent = null;  //so that no search reaches the old nodes
 		size = 0;
 		version.increment();   //invalidate all markers for iteration
 	}
 
+/**
+ * Records that the elements or children of <code>x</code> have changed, when
+ * there is an aggregator, so that <code>updateAggregates</code> recomputes
+ * the aggregates of <code>x</code> and its ancestors.
+ * @param x a reference to a B-tree node
+**/
+
+	final void changed(BTreeNode x) {
+		if (aggregator != null) {
+			if (numChanged == changed.length)
+				changed = Arrays.copyOf(changed, 2*numChanged);
+			changed[numChanged++] = x;
+		}
+	}
+
+/**
+ * Marks each node recorded by <code>changed</code>, and all of its ancestors,
+ * as stale, and then recomputes the aggregate of each stale node reachable from
+ * the root, from the bottom up.  A new node is stale when it is created.
+ * Since a node never changes level, following the parent references from a
+ * recorded node that is no longer in the tree still ends, and those nodes are
+ * not recomputed.  The time is O(t) for each stale node in the tree, plus
+ * the height of the tree for each recorded node.
+**/
+
+	final void updateAggregates() {
+		if (aggregator == null)
+			return;
+		for (int i = 0; i < numChanged; i++) {
+			for (BTreeNode x = changed[i]; x != null; x = x.parent)
+				x.aggregate = STALE;
+			changed[i] = null;
+		}
+		numChanged = 0;
+		if (root != FRONTIER)
+			refresh((BTreeNode) root);
+	}
+
+/**
+ * Recomputes the aggregates of the stale nodes in T(x), from the bottom up.
+ * @param x a reference to a B-tree node other than the frontier node
+**/
+
+	void refresh(BTreeNode x) {
+		if (x.aggregate == STALE) {
+			for (int i = 0; i <= x.numKeys; i++)
+				if (x.children[i] != FRONTIER)
+					refresh(x.children[i]);
+			x.updateAggregate();
+		}
+	}
+
+/**
+ * Sets the aggregate of the frontier node to the identity, and recomputes the
+ * aggregate of every other node.
+**/
+
+	@SuppressWarnings("unchecked")  //a generic array must be created from its erasure
+	void resetAggregates() {
+		FRONTIER.aggregate = aggregator.identity();
+		changed = (BTreeNode[]) new BTree<?>.BTreeNode[16];
+		numChanged = 0;
+		if (root != FRONTIER)
+			computeAggregates(root);
+	}
+
+/**
+ * A subtree that is detached from its parent, together with its height, which
+ * is the number of nodes on each path from its root to a frontier node.  Like
+ * the root of the tree, the root of a piece may hold fewer than t-1 elements,
+ * but it holds at least one unless the piece is empty.
+**/
+
+	final class Piece {
+		final BTreeNode root;
+		final int height;
+
+		Piece(BTreeNode root, int height) {
+			this.root = root;
+			this.height = height;
+		}
+
+		final boolean isEmpty() {
+			return root == FRONTIER;
+		}
+	}
+
+/**
+ * The result of combining nodes at the same level, which is either a single
+ * node, or two nodes and the element that separates them when the combined
+ * elements do not fit in one node.
+**/
+
+	final class Joined {
+		final BTreeNode left;
+		final E separator;
+		final BTreeNode right;  //null when there is a single node
+
+		Joined(BTreeNode left, E separator, BTreeNode right) {
+			this.left = left;
+			this.separator = separator;
+			this.right = right;
+		}
+	}
+
+/**
+ * @param x the root of a subtree, possibly of another B-tree
+ * @return the height of T(x)
+**/
+
+	int height(BTreeNode x) {
+		int h = 0;
+		for (; !x.isFrontier(); x = x.children[0])
+			h++;
+		return h;
+	}
+
+/**
+ * @param x the root of a subtree, possibly of another B-tree
+ * @return the number of elements in T(x)
+**/
+
+	int count(BTreeNode x) {
+		if (x.isFrontier())
+			return 0;
+		int n = x.numKeys;
+		if (!x.isLeaf())
+			for (int i = 0; i <= x.numKeys; i++)
+				n += count(x.children[i]);
+		return n;
+	}
+
+/**
+ * Sets a child of x.  Unlike <code>setChild</code>, the parent of the
+ * frontier node is not changed, so pieces can be combined in parallel.
+ * @param x a node
+ * @param i the index for the child
+ * @param child the new child, which may be the frontier node
+**/
+
+	final void link(BTreeNode x, int i, BTreeNode child) {
+		if (child == FRONTIER)
+			x.children[i] = child;
+		else
+			x.setChild(i, child);
+	}
+
+/**
+ * Appends the elements and children of a node to the given arrays, where the
+ * first child of x replaces <code>children[n]</code>.
+ * @param x a node, or the frontier node which has no elements and is its own
+ * only child
+ * @param keys the array of elements
+ * @param children the array of children
+ * @param n the number of elements already in <code>keys</code>
+ * @return the number of elements in <code>keys</code> after the
+ * elements of x are appended
+**/
+
+	int gather(BTreeNode x, Object[] keys, BTreeNode[] children, int n) {
+		if (x == FRONTIER) {
+			children[n] = x;
+			return n;
+		}
+		System.arraycopy(x.keys, 0, keys, n, x.numKeys);
+		System.arraycopy(x.children, 0, children, n, x.numKeys + 1);
+		return n + x.numKeys;
+	}
+
+/**
+ * @param keys an array of elements
+ * @param children an array of children
+ * @param from the index of the first element
+ * @param n the number of elements, which is between 1 and 2t-1
+ * @return a new node holding the n elements starting at <code>keys[from]</code>
+ * and the n+1 children starting at <code>children[from]</code>
+**/
+
+	BTreeNode node(Object[] keys, BTreeNode[] children, int from, int n) {
+		BTreeNode x = new BTreeNode();
+		System.arraycopy(keys, from, x.keys, 0, n);
+		x.numKeys = n;
+		for (int i = 0; i <= n; i++)
+			link(x, i, children[from + i]);
+		return x;
+	}
+
+/**
+ * @param keys an array of elements
+ * @param children an array of children
+ * @param n the number of elements, which is between 1 and 4t-1
+ * @return a single node holding the elements and children when
+ * n &le; 2t-1, and otherwise two nodes of at least t-1 elements each,
+ * separated by the median element
+**/
+
+	@SuppressWarnings("unchecked")
+	Joined pack(Object[] keys, BTreeNode[] children, int n) {
+		if (n <= 2*t-1)
+			return new Joined(node(keys, children, 0, n), null, null);
+		int mid = n/2;
+		return new Joined(node(keys, children, 0, mid), (E) keys[mid],
+				node(keys, children, mid + 1, n - mid - 1));
+	}
+
+/**
+ * Combines two nodes at the same level and the element between them.  When
+ * they fit, the element and the contents of <code>r</code> are moved into
+ * <code>l</code>.
+ * @param l the root of a subtree
+ * @param k an element
+ * @param r the root of a subtree with the same height as T(l)
+ * <BR> 
+ * REQUIRES: 
+ *  T(<code>l</code>) &le; <code>k</code> &le; T(<code>r</code>)
+ * @return the nodes that hold the elements of <code>l</code>, <code>k</code>,
+ * and the elements of <code>r</code>
+**/
+
+	@SuppressWarnings("unchecked")
+	Joined concat(BTreeNode l, E k, BTreeNode r) {
+		if (l != FRONTIER && l.numKeys + 1 + r.numKeys <= 2*t-1) {  //r is not the frontier either
+			int n = l.numKeys;
+			l.keys[n] = k;
+			System.arraycopy(r.keys, 0, l.keys, n + 1, r.numKeys);
+			for (int i = 0; i <= r.numKeys; i++)
+				link(l, n + 1 + i, r.children[i]);
+			l.numKeys = n + 1 + r.numKeys;
+			changed(l);
+			return new Joined(l, null, null);
+		}
+		Object[] keys = new Object[4*t];
+		BTreeNode[] children = (BTreeNode[]) new BTree<?>.BTreeNode[4*t+1];
+		int n = gather(l, keys, children, 0);
+		keys[n++] = k;
+		n = gather(r, keys, children, n);
+		return pack(keys, children, n);
+	}
+
+/**
+ * @param x a node
+ * @param j the nodes that replace the last child of x
+ * @return the nodes that hold the elements of x and <code>j</code>, which is
+ * just x unless it overflows
+**/
+
+	@SuppressWarnings("unchecked")
+	Joined replaceLast(BTreeNode x, Joined j) {
+		int n = x.numKeys;
+		link(x, n, j.left);
+		if (j.right == null)
+			return new Joined(x, null, null);
+		if (n < 2*t-1) {
+			x.keys[n] = j.separator;
+			x.numKeys = n + 1;
+			link(x, n + 1, j.right);
+			changed(x);
+			return new Joined(x, null, null);
+		}
+		Object[] keys = new Object[2*t];
+		BTreeNode[] children = (BTreeNode[]) new BTree<?>.BTreeNode[2*t+1];
+		n = gather(x, keys, children, 0);
+		keys[n++] = j.separator;
+		children[n] = j.right;
+		return pack(keys, children, n);
+	}
+
+/**
+ * @param j the nodes that replace the first child of x
+ * @param x a node
+ * @return the nodes that hold the elements of <code>j</code> and x, which is
+ * just x unless it overflows
+**/
+
+	@SuppressWarnings("unchecked")
+	Joined replaceFirst(Joined j, BTreeNode x) {
+		int n = x.numKeys;
+		link(x, 0, j.left);
+		if (j.right == null)
+			return new Joined(x, null, null);
+		if (n < 2*t-1) {
+			System.arraycopy(x.keys, 0, x.keys, 1, n);
+			System.arraycopy(x.children, 1, x.children, 2, n);
+			x.keys[0] = j.separator;
+			x.numKeys = n + 1;
+			link(x, 1, j.right);
+			changed(x);
+			return new Joined(x, null, null);
+		}
+		Object[] keys = new Object[2*t];
+		BTreeNode[] children = (BTreeNode[]) new BTree<?>.BTreeNode[2*t+1];
+		children[0] = j.left;
+		keys[0] = j.separator;
+		children[1] = j.right;
+		System.arraycopy(x.keys, 0, keys, 1, n);
+		System.arraycopy(x.children, 1, children, 2, n);
+		return pack(keys, children, n + 1);
+	}
+
+/**
+ * Descends the right spine of T(<code>x</code>) to the node whose children
+ * have the height of T(<code>r</code>), and adds <code>k</code> and
+ * <code>r</code> as its last element and child.  When <code>r</code> holds
+ * fewer than t-1 elements, it is first combined with its new left sibling.
+ * Nodes that overflow are split on the way back up.
+ * @param x the root of a subtree of height <code>hx</code>
+ * @param hx the height of T(x)
+ * @param k an element
+ * @param r the root of a subtree of height <code>hr</code> &lt; <code>hx</code>
+ * @param hr the height of T(r)
+ * <BR> 
+ * REQUIRES: 
+ *  T(<code>x</code>) &le; <code>k</code> &le; T(<code>r</code>)
+ * @return the nodes, of height <code>hx</code>, that hold the elements
+**/
+
+	Joined joinRight(BTreeNode x, int hx, E k, BTreeNode r, int hr) {
+		BTreeNode c = x.children[x.numKeys];
+		Joined j;
+		if (hx - 1 > hr)
+			j = joinRight(c, hx - 1, k, r, hr);
+		else if (hr > 0 && r.numKeys < t-1)  //r is too small to be a child
+			j = concat(c, k, r);
+		else
+			j = new Joined(c, k, r);
+		return replaceLast(x, j);
+	}
+
+/**
+ * The mirror image of <code>joinRight</code>.
+ * @param l the root of a subtree of height <code>hl</code> &lt; <code>hx</code>
+ * @param hl the height of T(l)
+ * @param k an element
+ * @param x the root of a subtree of height <code>hx</code>
+ * @param hx the height of T(x)
+ * <BR> 
+ * REQUIRES: 
+ *  T(<code>l</code>) &le; <code>k</code> &le; T(<code>x</code>)
+ * @return the nodes, of height <code>hx</code>, that hold the elements
+**/
+
+	Joined joinLeft(BTreeNode l, int hl, E k, BTreeNode x, int hx) {
+		BTreeNode c = x.children[0];
+		Joined j;
+		if (hx - 1 > hl)
+			j = joinLeft(l, hl, k, c, hx - 1);
+		else if (hl > 0 && l.numKeys < t-1)  //l is too small to be a child
+			j = concat(l, k, c);
+		else
+			j = new Joined(l, k, c);
+		return replaceFirst(j, x);
+	}
+
+/**
+ * Joins two pieces separated by an element, in time proportional to t times
+ * the difference in their heights.  The nodes of the pieces are reused.
+ * @param left a piece
+ * @param k an element
+ * @param right a piece
+ * <BR> 
+ * REQUIRES: 
+ *  the elements of <code>left</code> &le; <code>k</code> &le;
+ *  the elements of <code>right</code>
+ * @return a piece holding the elements of <code>left</code>, <code>k</code>,
+ * and the elements of <code>right</code>
+**/
+
+	Piece join(Piece left, E k, Piece right) {
+		Joined j;
+		int h;
+		if (left.height > right.height) {
+			j = joinRight(left.root, left.height, k, right.root, right.height);
+			h = left.height;
+		} else if (left.height < right.height) {
+			j = joinLeft(left.root, left.height, k, right.root, right.height);
+			h = right.height;
+		} else {
+			j = concat(left.root, k, right.root);
+			h = Math.max(left.height, 1);  //two empty pieces give a leaf
+		}
+		BTreeNode x = j.left;
+		if (j.right != null) {  //grow a new root
+			x = new BTreeNode();
+			x.addKey(0, j.separator);
+			x.setChild(0, j.left);
+			x.setChild(1, j.right);
+			h++;
+		}
+		x.parent = null;
+		return new Piece(x, h);
+	}
+
+/**
+ * Joins two pieces without an element to separate them, by first removing
+ * the last element of <code>left</code>.
+ * @param left a piece
+ * @param right a piece
+ * <BR> 
+ * REQUIRES: 
+ *  the elements of <code>left</code> &le; the elements of <code>right</code>
+ * @return a piece holding the elements of both
+**/
+
+	@SuppressWarnings("unchecked")
+	Piece join(Piece left, Piece right) {
+		if (left.isEmpty())
+			return right;
+		if (right.isEmpty())
+			return left;
+		Object[] last = new Object[1];
+		Piece rest = removeLast(left, last);
+		return join(rest, (E) last[0], right);
+	}
+
+/**
+ * Truncates x to its first n elements and the subtrees before them.
+ * @param x a node of a piece with height h
+ * @param h the height of the piece
+ * @param n the number of elements of x to keep
+ * @return a piece holding the first n elements of x and the subtrees
+ * before them, which is just the first child of x when n is 0
+**/
+
+	Piece prefix(BTreeNode x, int h, int n) {
+		if (n == 0)
+			return new Piece(x.children[0], h - 1);
+		Arrays.fill(x.keys, n, x.numKeys, null);
+		Arrays.fill(x.children, n + 1, x.numKeys + 1, null);
+		x.numKeys = n;
+		changed(x);
+		return new Piece(x, h);
+	}
+
+/**
+ * @param x a node of a piece with height h
+ * @param h the height of the piece
+ * @param from the index of the first element of x to keep
+ * @return a piece holding a copy of the elements of x from index
+ * <code>from</code> on and the subtrees after them, which is just the last
+ * child of x when <code>from</code> is <code>x.size()</code>
+**/
+
+	Piece suffix(BTreeNode x, int h, int from) {
+		if (from == x.numKeys)
+			return new Piece(x.children[from], h - 1);
+		return new Piece(node(x.keys, x.children, from, x.numKeys - from), h);
+	}
+
+/**
+ * @param p a non-empty piece
+ * @param last a one element array in which the last element of p is placed
+ * @return a piece holding the other elements of p
+**/
+
+	Piece removeLast(Piece p, Object[] last) {
+		BTreeNode x = p.root;
+		int n = x.numKeys;
+		if (p.height == 1) {
+			last[0] = x.keys[n-1];
+			return (n == 1) ? new Piece((BTreeNode) FRONTIER, 0) : prefix(x, 1, n-1);
+		}
+		Piece rest = removeLast(new Piece(x.children[n], p.height - 1), last);
+		E k = x.key(n-1);
+		return join(prefix(x, p.height, n-1), k, rest);
+	}
+
+/**
+ * Splits a piece around the given element, in time proportional to t
+ * times its height.  The nodes of the piece are reused.
+ * @param p a piece
+ * @param key the element at which to split
+ * @param inclusive true if elements equivalent to <code>key</code> belong to the
+ * left part, and false if they belong to the right part
+ * @return an array holding the piece of elements less than <code>key</code>
+ * (or at most <code>key</code> when <code>inclusive</code> is true) followed by
+ * the piece of remaining elements
+**/
+
+	@SuppressWarnings("unchecked")
+	Piece[] split(Piece p, E key, boolean inclusive) {
+		if (p.isEmpty())
+			return (Piece[]) new BTree<?>.Piece[] {p, p};
+		BTreeNode x = p.root;
+		int h = p.height;
+		int n = x.numKeys;
+		int i = inclusive ? x.findLastInsertPosition(key) : x.findFirstInsertPosition(key);
+		if (h == 1) {  //the first i elements of the leaf belong to the left part
+			Piece empty = new Piece((BTreeNode) FRONTIER, 0);
+			Piece right = (i == n) ? empty : suffix(x, 1, i);
+			return (Piece[]) new BTree<?>.Piece[] {(i == 0) ? empty : prefix(x, 1, i), right};
+		}
+		Piece[] parts = split(new Piece(x.children[i], h - 1), key, inclusive);
+		if (i < n)
+			parts[1] = join(parts[1], x.key(i), suffix(x, h, i+1));
+		if (i > 0) {
+			E k = x.key(i-1);
+			parts[0] = join(prefix(x, h, i-1), k, parts[0]);
+		}
+		return parts;
+	}
+
+/**
+ * Splits a piece into the elements less than, equivalent to, and greater
+ * than the given element.  When there are no equivalent elements, which is
+ * found by a descent that creates nothing, only one split is needed.
+ * @param p a piece
+ * @param key the element at which to split
+ * @return an array holding the three pieces, in order
+**/
+
+	@SuppressWarnings("unchecked")
+	Piece[] split(Piece p, E key) {
+		Piece[] less = split(p, key, false);
+		Piece rest = less[1];
+		if (rest.isEmpty() || comp.compare(extreme(rest.root, false), key) > 0)
+			return (Piece[]) new BTree<?>.Piece[] {less[0], new Piece((BTreeNode) FRONTIER, 0), rest};
+		Piece[] more = split(rest, key, true);
+		return (Piece[]) new BTree<?>.Piece[] {less[0], more[0], more[1]};
+	}
+
+/**
+ * Builds a piece of new nodes, each filled to COPY_FILL_FACTOR of its capacity
+ * to leave room for later insertions.
+ * @param sorted an array of elements in sorted order
+ * @param n the number of elements to use
+ * @return a piece holding the first n elements of <code>sorted</code>
+**/
+
+	Piece build(Object[] sorted, int n) {
+		if (n == 0)
+			return new Piece((BTreeNode) FRONTIER, 0);
+		int target = bulkLoadTarget(COPY_FILL_FACTOR);
+		int m = nodeCount(n, target, 1);
+		Object[] separators = new Object[m-1];
+		BTreeNode[] leaves = buildLevel(sorted, 0, n, null, m, 1, separators, false);
+		BTreeNode x = buildInternalLevels(leaves, separators, target, false);
+		return new Piece(x, height(x));
+	}
+
+/**
+ * @param x an element
+ * @param bound an element, or null
+ * @return true  if and only if <code>bound</code> is not null and x is
+ * equivalent to it
+**/
+
+	final boolean atBound(E x, E bound) {
+		return bound != null && equivalent(x, bound);
+	}
+
+/**
+ * @param y the root of a subtree of the other tree
+ * @param lo an element, or null
+ * @param hi an element, or null
+ * @param change the net number of elements added to this tree, which
+ * is increased by the number of elements copied
+ * @return a piece of new nodes holding the elements of T(y) that are
+ * not equivalent to <code>lo</code> or <code>hi</code>
+**/
+
+	Piece copy(BTreeNode y, E lo, E hi, AtomicInteger change) {
+		Object[] sorted = new Object[count(y)];
+		int n = collect(y, lo, hi, sorted, 0);
+		change.addAndGet(n);
+		return build(sorted, n);
+	}
+
+/**
+ * @param x the root of a subtree of the other tree
+ * @param lo an element, or null
+ * @param hi an element, or null
+ * @param sorted the array in which to place the elements
+ * @param n the number of elements already placed
+ * @return the number of elements placed, after the elements of T(x)
+ * that are not equivalent to <code>lo</code> or <code>hi</code> are added
+**/
+
+	int collect(BTreeNode x, E lo, E hi, Object[] sorted, int n) {
+		boolean leaf = x.isLeaf();
+		for (int i = 0; i <= x.numKeys; i++) {
+			if (!leaf)
+				n = collect(x.children[i], lo, hi, sorted, n);
+			if (i < x.numKeys && !atBound(x.key(i), lo) && !atBound(x.key(i), hi))
+				sorted[n++] = x.key(i);
+		}
+		return n;
+	}
+
+	static final int UNION = 0;
+	static final int INTERSECTION = 1;
+	static final int DIFFERENCE = 2;
+
+
+	static final double COPY_FILL_FACTOR = 0.75;  //for nodes holding elements copied from the other tree
+	static final int PARALLEL_CUTOFF = 2048;      //fewest elements in a subtree of the other tree to split in parallel
+
+/**
+ * Combines a piece of this tree with a subtree of the other tree by
+ * splitting the piece around each element in the root of the subtree,
+ * combining the parts with the child subtrees (in parallel when the subtree
+ * is large), and joining the results.
+ * For a union, equivalent elements already in this tree must not be added
+ * again.  Since each child subtree is bounded by the elements on either side of it,
+ * an element of the other tree can only be equivalent to an element of a
+ * different piece of this tree if it is equivalent to one of those bounds, so the
+ * bounds whose equivalent elements are to be skipped are passed down.
+ * @param op UNION, INTERSECTION, or DIFFERENCE
+ * @param a a piece of this tree
+ * @param y the root of a subtree of the other tree
+ * @param yh the height of T(y)
+ * @param lo an element, or null
+ * @param hi an element, or null
+ * @param change the net number of elements added to this tree, which
+ * is updated
+ * @return a piece holding the result of the operation on the elements of
+ * <code>a</code> and the elements of T(y), where for a union the
+ * elements of T(y) equivalent to <code>lo</code> or <code>hi</code> are not added
+**/
+
+	@SuppressWarnings("unchecked")
+	Piece combine(int op, Piece a, BTreeNode y, int yh, E lo, E hi, AtomicInteger change) {
+		if (y.isFrontier()) {
+			if (op == INTERSECTION) {
+				change.addAndGet(-count(a.root));
+				return new Piece((BTreeNode) FRONTIER, 0);
+			}
+			return a;
+		}
+		if (a.isEmpty())
+			return (op == UNION) ? copy(y, lo, hi, change) : a;
+		int r = y.numKeys;
+		Piece[] parts = (Piece[]) new BTree<?>.Piece[r+1];
+		Piece[] equal = (Piece[]) new BTree<?>.Piece[r];
+		boolean[] skip = new boolean[r];
+		Object[] bound = new Object[r+2];  //child i is bounded by bound[i] and bound[i+1]
+		bound[0] = lo;
+		bound[r+1] = hi;
+		Piece rest = a;
+		for (int i = 0; i < r; i++) {  //split around each element of y
+			E k = y.key(i);
+			Piece[] split = split(rest, k);
+			parts[i] = split[0];
+			equal[i] = split[1];
+			rest = split[2];
+			skip[i] = op == UNION && (!equal[i].isEmpty() || atBound(k, lo) ||
+					atBound(k, hi) || atBound(k, (E) bound[i]));
+			bound[i+1] = skip[i] ? k : null;
+		}
+		parts[r] = rest;
+		SetOperation[] tasks = null;
+		if (Math.pow(t, yh - 1) >= PARALLEL_CUTOFF) {
+			tasks = (SetOperation[]) new BTree<?>.SetOperation[r+1];
+			for (int i = 1; i <= r; i++) {
+				tasks[i] = new SetOperation(op, parts[i], y.children[i], yh - 1,
+						(E) bound[i], (E) bound[i+1], change);
+				tasks[i].fork();
+			}
+		}
+		Piece result = combine(op, parts[0], y.children[0], yh - 1, lo, (E) bound[1], change);
+		for (int i = 0; i < r; i++) {
+			Piece next = (tasks != null) ? tasks[i+1].join() : combine(op, parts[i+1],
+					y.children[i+1], yh - 1, (E) bound[i+1], (E) bound[i+2], change);
+			if (op == DIFFERENCE)
+				change.addAndGet(-count(equal[i].root));
+			else
+				result = join(result, equal[i]);
+			if (op == UNION && !skip[i]) {
+				change.incrementAndGet();
+				result = join(result, y.key(i), next);
+			} else
+				result = join(result, next);
+		}
+		return result;
+	}
+
+/**
+ * A task that applies <code>combine</code> to its arguments, so that
+ * it can run in parallel with the caller.
+**/
+
+	@SuppressWarnings("serial")  //a task is run in place, never serialized
+	final class SetOperation extends RecursiveTask<Piece> {
+
+		final int op;
+		final Piece a;
+		final BTreeNode y;
+		final int yh;
+		final E lo, hi;
+		final AtomicInteger change;
+
+		SetOperation(int op, Piece a, BTreeNode y, int yh, E lo, E hi, AtomicInteger change) {
+			this.op = op;
+			this.a = a;
+			this.y = y;
+			this.yh = yh;
+			this.lo = lo;
+			this.hi = hi;
+			this.change = change;
+		}
+
+		protected Piece compute() {
+			return combine(op, a, y, yh, lo, hi, change);
+		}
+	}
+
+/**
+ * @param op UNION, INTERSECTION, or DIFFERENCE
+ * @param other a B-tree that uses the same order as this one
+ * @throws UnsupportedOperationException either tree holds copies of its
+ * elements in its internal nodes
+**/
+
+	void combine(int op, BTree<E> other) {
+		if (leafSeparation() != 1 || other.leafSeparation() != 1)
+			throw new UnsupportedOperationException();
+		version.increment();   //invalidate all markers for iteration
+		if (other == this) {
+			if (op == DIFFERENCE)
+				clear();
+			return;
+		}
+		Aggregator<? super E, Object> aggregator = this.aggregator;
+		this.aggregator = null;  //nodes are changed in parallel, so all aggregates are computed after
+		AtomicInteger change = new AtomicInteger();
+		BTreeNode x = (BTreeNode) root;
+		BTreeNode y = (BTreeNode) other.root;
+		Piece result = ForkJoinPool.commonPool().invoke(
+				new SetOperation(op, new Piece(x, height(x)), y, height(y), null, null, change));
+		root = result.root;
+		result.root.parent = null;
+		size += change.get();
+		setAggregator(aggregator);
+	}
+
+/**
+ * Adds to this collection each element of <code>other</code> that is not
+ * equivalent to an element already in this collection.  The collection
+ * <code>other</code> is not changed.  The time is O(t m log(n/m + 1)), where
+ * m and n &ge; m are the sizes of the two collections, plus the time to
+ * copy the added elements into new nodes.
+ * @param other a B-tree that uses the same order as this one
+ * @throws UnsupportedOperationException either tree holds copies of its
+ * elements in its internal nodes
+**/
+
+	public void union(BTree<E> other) {
+		combine(UNION, other);
+	}
+
+/**
+ * Removes from this collection each element that is not equivalent to an
+ * element of <code>other</code>.  The collection
+ * <code>other</code> is not changed.  The time is O(t m log(n/m + 1)), where
+ * m and n &ge; m are the sizes of the two collections, plus time
+ * proportional to the number of elements removed.
+ * @param other a B-tree that uses the same order as this one
+ * @throws UnsupportedOperationException either tree holds copies of its
+ * elements in its internal nodes
+**/
+
+	public void intersect(BTree<E> other) {
+		combine(INTERSECTION, other);
+	}
+
+/**
+ * Removes from this collection each element that is equivalent to an
+ * element of <code>other</code>.  The collection
+ * <code>other</code> is not changed.  The time is O(t m log(n/m + 1)), where
+ * m and n &ge; m are the sizes of the two collections, plus time
+ * proportional to the number of elements removed.
+ * @param other a B-tree that uses the same order as this one
+ * @throws UnsupportedOperationException either tree holds copies of its
+ * elements in its internal nodes
+**/
+
+	public void difference(BTree<E> other) {
+		combine(DIFFERENCE, other);
+	}
+
+/**
+ * Removes every element e with <code>lo</code> &le; e &le; <code>hi</code>.
+ * The nodes that hold only elements in the range are dropped as whole
+ * subtrees, and only the nodes along the two ends of the range are repaired,
+ * so the time is O(t log n) plus the time to count the removed elements,
+ * instead of a search and a repair per element.
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @return the number of elements removed
+**/
+
+	public int removeRange(E lo, E hi) {
+		if (comp.compare(lo, hi) > 0)
+			return 0;
+		return removeRange(lo, true, hi, true);
+	}
+
+/**
+ * Removes every element less than <code>x</code>.
+ * @param x the bound
+ * @return the number of elements removed
+**/
+
+	public int removeLessThan(E x) {
+		return removeRange(null, false, x, false);
+	}
+
+/**
+ * Removes every element greater than <code>x</code>.
+ * @param x the bound
+ * @return the number of elements removed
+**/
+
+	public int removeGreaterThan(E x) {
+		return removeRange(x, false, null, false);
+	}
+
+/**
+ * Removes the elements in a range by splitting the tree at both ends of the
+ * range and joining the outer pieces.  The aggregates of the nodes that the
+ * split and join change are recomputed, so they are kept in time
+ * proportional to the height of the tree.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of elements removed
+**/
+
+	@SuppressWarnings("unchecked")
+	int removeRange(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		version.increment();   //invalidate all markers for iteration
+		BTreeNode x = (BTreeNode) root;
+		Piece whole = new Piece(x, height(x));
+		Piece empty = new Piece((BTreeNode) FRONTIER, 0);
+		Piece[] below = (lo == null) ? (Piece[]) new BTree<?>.Piece[] {empty, whole}
+				: split(whole, lo, !loInclusive);
+		Piece[] above = (hi == null) ? (Piece[]) new BTree<?>.Piece[] {below[1], empty}
+				: split(below[1], hi, hiInclusive);
+		int count = count(above[0].root);
+		Piece result = join(below[0], above[1]);
+		root = result.root;
+		result.root.parent = null;
+		size -= count;
+		updateAggregates();
+		return count;
+	}
+
 /**
  * Creates a new tracker that is at FORE.
 **/
@@ -682,6 +2070,125 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 	}
 
 
+/**
+ * Verifies that every node other than the root holds between t-1 and 2t-1
+ * elements, that every leaf is at the same depth, that the parent references
+ * are correct, that each element of an internal node is at least as large as
+ * every element to its left and no larger than any element to its right, and that
+ * the size is the number of elements.
+ * @throws IllegalStateException the tree is inconsistent
+**/
+
+	public void checkRep() {
+		if (root == FRONTIER) {
+			if (size != 0)
+				throw new IllegalStateException("empty tree has size " + size);
+			return;
+		}
+		int[] leafDepth = {-1};
+		int n = checkSubtree((BTreeNode) root, 0, leafDepth);
+		if (n != size)
+			throw new IllegalStateException("size is " + size + " but the tree holds " + n + " elements");
+	}
+
+/**
+ * @param x the root of a subtree
+ * @param depth the depth of x
+ * @param leafDepth a one element array holding the depth of the leaves,
+ * or -1 if no leaf has been reached
+ * @return the number of elements in the collection held in the subtree
+**/
+
+	int checkSubtree(BTreeNode x, int depth, int[] leafDepth) {
+		if (x.size() > 2*t-1 || (x != root && x.size() < t-1))
+			throw new IllegalStateException("node " + x + " has " + x.size() + " elements");
+		for (int i = 1; i < x.size(); i++)
+			if (comp.compare(x.key(i-1), x.key(i)) > 0)
+				throw new IllegalStateException("node " + x + " is out of order");
+		int n = holdsElements(x) ? x.size() : 0;
+		if (x.children[0] == FRONTIER) {
+			for (int i = 0; i <= x.size(); i++)
+				if (x.children[i] != FRONTIER)
+					throw new IllegalStateException("leaf " + x + " has a child");
+			if (leafDepth[0] == -1)
+				leafDepth[0] = depth;
+			else if (leafDepth[0] != depth)
+				throw new IllegalStateException("leaf " + x + " is at depth " + depth +
+						" but another is at depth " + leafDepth[0]);
+			return n;
+		}
+		for (int i = 0; i <= x.size(); i++) {
+			BTreeNode child = x.children[i];
+			if (child == null || child == FRONTIER || child.parent != x)
+				throw new IllegalStateException("child " + i + " of " + x + " is not linked correctly");
+			if (i < x.size() && comp.compare(extreme(child, true), x.key(i)) > 0)
+				throw new IllegalStateException(x.key(i) + " is less than an element to its left");
+			if (i > 0 && comp.compare(x.key(i-1), extreme(child, false)) > 0)
+				throw new IllegalStateException(x.key(i-1) + " is greater than an element to its right");
+			n += checkSubtree(child, depth + 1, leafDepth);
+		}
+		return n;
+	}
+
+/**
+ * @param x the root of a subtree
+ * @param max true for the maximum, and false for the minimum
+ * @return the maximum or minimum element in the subtree
+**/
+
+	E extreme(BTreeNode x, boolean max) {
+		while (x.children[0] != FRONTIER)
+			x = x.children[max ? x.size() : 0];
+		return x.key(max ? x.size()-1 : 0);
+	}
+
+/**
+ * @param x a B-tree node
+ * @return true if the elements held in <code>x</code> are part
+ * of the collection, as opposed to being copies used only for navigation
+**/
+
+	boolean holdsElements(BTreeNode x) {
+		return true;
+	}
+
+
+	protected class BTreeSpliterator extends SubtreeSpliterator<BTreeNode> {
+
+		BTreeSpliterator(BTreeNode root) {
+			super(root, ORDERED | SORTED);
+		}
+
+		protected void expand(BTreeNode x) {
+			boolean elements = holdsElements(x);
+			for (int i = x.size(); i >= 0; i--) {
+				if (x.children[i] != FRONTIER)
+					push(x.children[i], SUBTREE);
+				if (i > 0 && elements)
+					push(x, i-1);
+			}
+		}
+
+		protected E elementAt(BTreeNode x, int index) {
+			return x.key(index);
+		}
+
+		protected BTreeSpliterator create() {
+			return new BTreeSpliterator(null);
+		}
+	}
+
+/**
+ * The spliterator splits a node into its children and elements, and hands
+ * the first half of them to the prefix.
+ * @return a sorted spliterator over the elements of this collection
+**/
+
+	public Spliterator<E> spliterator() {
+		return new BTreeSpliterator((BTreeNode) root);
+	}
+
+
 	protected class Marker extends AbstractCollection<E>.AbstractLocator<E> {
 
 		BTreeNode node;
@@ -698,6 +2205,14 @@ public class BTree<E> extends AbstractSearchTree<E> implements OrderedCollection
 			this.index = index;
 		}
 
+/**
+ * @return the tree of this marker
+**/
+
+		final BTree<E> owner() {
+			return BTree.this;
+		}
+
 /**
  * @return true  if and only if the tracked element is
  * currently in the collection.
@@ -13,7 +13,8 @@ import goldman.collection.Tracked;
  * A balanced binary search tree uses rotations to maintain balance
  * when one path to a leaf becomes "to much longer" than another.  An interesting
  * property of rotations is that no comparisons are needed, and the relative order
- * for equivalent elements is not changed by a rotation.
+ * for equivalent elements is not changed by a rotation.  A rotation also updates
+ * the subtree sizes of the two nodes whose subtrees change, in constant time.
 **/
 
 public abstract class BalancedBinarySearchTree<E> extends BinarySearchTree<E>
@@ -43,6 +44,9 @@ public abstract class BalancedBinarySearchTree<E> extends BinarySearchTree<E>
 		y.replaceSubtreeBy(z);   // z replaces y
 		y.setRight(z.left);      // y's right child becomes z's old left child
 		z.setLeft(y);            // z's left child is now y
+		z.subtreeSize = y.subtreeSize;  // z is the root of the same elements
+		z.aggregate = y.aggregate;      //   so it has the same aggregate
+		y.updateSize();
 	}
 
 /**
@@ -56,6 +60,9 @@ public abstract class BalancedBinarySearchTree<E> extends BinarySearchTree<E>
 		y.replaceSubtreeBy(x);   // x replaces y
 		y.setLeft(x.right);	     // y's left child becomes x's old right child
 		x.setRight(y);	         // x's right child is now y
+		x.subtreeSize = y.subtreeSize;  // x is the root of the same elements
+		x.aggregate = y.aggregate;      //   so it has the same aggregate
+		y.updateSize();
 	}
 
 /**
@@ -8,6 +8,7 @@ import goldman.Objects;
 import goldman.collection.*;
 import java.util.Comparator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 /**
  * This class implements a standard binary search tree.
  * When elements are inserted into a binary search tree
@@ -24,6 +25,10 @@ import java.util.NoSuchElementException;
  * a binary search tree (red-black tree, B-Tree, B+-Tree)
  * are balanced, meaning that they include
  * methods that reorganize the tree so that the worst-case height is logarithmic.
+ * <p>
+ * Each node records the number of elements in its subtree, so the element of a
+ * given rank, the rank of an element, and the number of elements in a range are
+ * all found in time proportional to the height of the tree.
 **/
 
 public class BinarySearchTree<E> extends AbstractSearchTree<E>
@@ -43,6 +48,7 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 		protected BSTNode parent;             //reference to its parent (null for root)
 		protected BSTNode left = FRONTIER_L;  //reference to its left child
 		protected BSTNode right = FRONTIER_R; //reference to its right child
+		protected int subtreeSize = 1;        //number of elements in T(this), 0 for a frontier node
 
 /**
  * @param data the element to be held in this node
@@ -98,6 +104,28 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 			return left == null;
 		}
 
+/**
+ * Recomputes the subtree size of this node
+ * from the subtree sizes of its children, and
+ * likewise its aggregate when there is an aggregator.
+**/
+
+		final void updateSize() {
+			subtreeSize = 1 + left.subtreeSize + right.subtreeSize;
+			if (aggregator != null)
+				updateAggregate();
+		}
+
+/**
+ * Recomputes the aggregate of this node from its element and the aggregates
+ * of its children.
+**/
+
+		final void updateAggregate() {
+			aggregate = aggregator.combine(aggregator.combine(left.aggregate,
+					aggregator.lift(data)), right.aggregate);
+		}
+
 /**
  * @param index the desired index
  * @return e_{<code>index</code>}
@@ -249,6 +277,8 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 **/
 
 	protected BSTNode deleteAndReplaceBy(BSTNode x) {  
+			for (BSTNode ptr = parent; ptr != null; ptr = ptr.parent)
+				ptr.subtreeSize--;  //preserve SubtreeSize
 			return replaceSubtreeBy(x);
 		}
 
@@ -265,6 +295,8 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 			x = replaceSubtreeBy(x);
 			x.setLeft(left);
 			x.setRight(right);			
+			if (!x.isFrontier())
+				x.subtreeSize = subtreeSize;
 		}
 
 
@@ -282,6 +314,7 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 	public BinarySearchTree(Comparator<? super E> comp) {
 		super(comp);
 		root = FRONTIER_L;
+		FRONTIER_L.subtreeSize = FRONTIER_R.subtreeSize = 0;
 	}
 
 /**
@@ -451,6 +484,77 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 			return ptr.data;
 	}
 
+/**
+ * Uses the subtree sizes to descend directly to the element of the given rank.
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the sorted order, where
+ * r = 0 is the minimum.
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public E get(int r) {
+		if (r < 0 || r >= getSize())
+			throw new IllegalArgumentException();
+		BSTNode ptr = (BSTNode) root;
+		while (true) {
+			int leftSize = ptr.left.subtreeSize;
+			if (r < leftSize)                 //element is in the left subtree
+				ptr = ptr.left;
+			else if (r == leftSize)           //element is at ptr
+				return ptr.data;
+			else {                            //element is in the right subtree
+				r -= leftSize + 1;
+				ptr = ptr.right;
+			}
+		}
+	}
+
+/**
+ * @param target the element to search for
+ * @param inclusive true if the elements equivalent to <code>target</code>
+ * should be counted
+ * @return the number of elements less than <code>target</code>, or less than
+ * or equal to <code>target</code> when <code>inclusive</code> is true
+**/
+
+	int countBelow(E target, boolean inclusive) {
+		int count = 0;
+		BSTNode ptr = (BSTNode) root;
+		while (!ptr.isFrontier()) {
+			int comparison = comp.compare(target, ptr.data);
+			if (comparison < 0 || (comparison == 0 && !inclusive))
+				ptr = ptr.left;
+			else {                            //ptr and its left subtree are counted
+				count += ptr.left.subtreeSize + 1;
+				ptr = ptr.right;
+			}
+		}
+		return count;
+	}
+
+/**
+ * The target need not be in the collection.
+ * @param target the element to search for
+ * @return the number of elements in the collection that are less than
+ * <code>target</code>, which is the rank of the first occurrence of
+ * <code>target</code> when it is in the collection
+**/
+
+	public int rankOf(E target) {
+		return countBelow(target, false);
+	}
+
+/**
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @return the number of elements e in the collection with
+ * <code>lo</code> &le; e &le; <code>hi</code>
+**/
+
+	public int countInRange(E lo, E hi) {
+		return Math.max(0, countBelow(hi, true) - countBelow(lo, false));
+	}
+
 /**
  * @param element the new element
  * @return a
@@ -461,6 +565,9 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 		BSTNode t = createTreeNode(element);              // create a TreeNode t with the given element
 		BSTNode ptr = findLastInsertPosition(element);	   // find frontier node at last insert position
 		ptr.replaceSubtreeBy(t);						   // replace frontier node reached by t
+		for (ptr = t.parent; ptr != null; ptr = ptr.parent)   // preserve SubtreeSize
+			ptr.subtreeSize++;
+		updateAggregates(t);
 		return t;
 	}
 
@@ -486,6 +593,7 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 		if (toRemove.isDeleted())		   // x already removed
 			throw new NoSuchElementException();
 		BSTNode successor = (BSTNode) succ(toRemove);	//needed to update trackers
+		BSTNode changed = lowestChanged(toRemove, successor);
 		if (toRemove.left.isFrontier())				       // Case 1
 			toRemove.deleteAndReplaceBy(toRemove.right);
 		else if (toRemove.right.isFrontier())		       // Case 2
@@ -494,17 +602,74 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 			successor.deleteAndReplaceBy(successor.right);    //remove replacement
 			toRemove.substituteNode(successor);
 		}
+		updateAggregates(changed);
 		toRemove.parent = successor; // preserved RedirectChain
 		toRemove.markDeleted();      // preserves  InUse
 		size--;                      // preserves Size
 	}
 
 
+/**
+ * @param toRemove a reference to the node to be removed
+ * @param successor a reference to its successor
+ * @return a reference to the lowest node that remains in the tree, and whose
+ * subtree loses an element when <code>toRemove</code> is removed, or null if
+ * there is none.  The aggregates of that node and its ancestors are the only
+ * ones that change.
+**/
+
+	BSTNode lowestChanged(BSTNode toRemove, BSTNode successor) {
+		if (toRemove.left.isFrontier() || toRemove.right.isFrontier())
+			return toRemove.parent;
+		else if (successor.parent == toRemove)  //the successor takes the place of toRemove
+			return successor;
+		else
+			return successor.parent;
+	}
+
+/**
+ * Recomputes the aggregates of <code>x</code> and its ancestors, from
+ * the bottom up, when there is an aggregator.  Since a rotation preserves the
+ * aggregate of the subtree it is applied to, the aggregates are correct after
+ * a structural change once this is applied to the lowest changed node.
+ * @param x a reference to a node, or null
+**/
+
+	final void updateAggregates(BSTNode x) {
+		if (aggregator != null)
+			for (; x != null; x = x.parent)
+				x.updateAggregate();
+	}
+
+/**
+ * Sets the aggregate of both frontier nodes to the identity, and recomputes
+ * the aggregate of every other node.
+**/
+
+	void resetAggregates() {
+		FRONTIER_L.aggregate = FRONTIER_R.aggregate = aggregator.identity();
+		if (!root.isFrontier())
+			computeAggregates(root);
+	}
+
+
 	public void clearNodes(BSTNode x){
+		clearNodes(x, AFT);
+	}
+
+/**
+ * Marks each node of T(x) as deleted, with <code>successor</code> as the
+ * next node on its redirect chain, so that a tracker at a removed element
+ * advances to <code>successor</code>.
+ * @param x a reference to a detached subtree
+ * @param successor the node that follows the removed elements, or AFT
+**/
+
+	void clearNodes(BSTNode x, BSTNode successor){
 		if (x != null && !x.isFrontier()){
-			clearNodes(x.left);	
-			clearNodes(x.right);
-			x.parent = AFT;
+			clearNodes(x.left, successor);
+			clearNodes(x.right, successor);
+			x.parent = successor;
 			x.markDeleted(); //done with left child so can reset
 		}
 	}
@@ -519,6 +684,192 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 		size = 0;
 	}
 
+/**
+ * Removes every element e with <code>lo</code> &le; e &le; <code>hi</code>.
+ * The tree is split at both ends of the range, and the two outer parts are
+ * joined, so the time is proportional to the height of the tree plus the
+ * number of elements removed, instead of a search per element.
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @return the number of elements removed
+**/
+
+	public int removeRange(E lo, E hi) {
+		if (comp.compare(lo, hi) > 0)
+			return 0;
+		return removeRange(lo, true, hi, true);
+	}
+
+/**
+ * Removes every element less than <code>x</code>.
+ * @param x the bound
+ * @return the number of elements removed
+**/
+
+	public int removeLessThan(E x) {
+		return removeRange(null, false, x, false);
+	}
+
+/**
+ * Removes every element greater than <code>x</code>.
+ * @param x the bound
+ * @return the number of elements removed
+**/
+
+	public int removeGreaterThan(E x) {
+		return removeRange(x, false, null, false);
+	}
+
+/**
+ * Removes the elements in a range.  A tracker at a removed element
+ * is redirected to the first element that follows the range.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of elements removed
+**/
+
+	@SuppressWarnings("unchecked")
+	int removeRange(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		BSTNode[] below = (lo == null) ? (BSTNode[]) new BinarySearchTree<?>.BSTNode[] {FRONTIER_L, (BSTNode) root}
+				: split((BSTNode) root, lo, !loInclusive);
+		BSTNode[] above = (hi == null) ? (BSTNode[]) new BinarySearchTree<?>.BSTNode[] {below[1], FRONTIER_L}
+				: split(below[1], hi, hiInclusive);
+		BSTNode removed = above[0];
+		if (removed.isFrontier()) {  //put the parts back together
+			install(join(below[0], above[1]));
+			return 0;
+		}
+		BSTNode successor = above[1].isFrontier() ? AFT : (BSTNode) leftmost(above[1]);
+		int count = removed.subtreeSize;
+		clearNodes(removed, successor);
+		install(join(below[0], above[1]));
+		size -= count;
+		return count;
+	}
+
+/**
+ * Splits T(x) along the search path for <code>key</code>, in time
+ * proportional to the length of that path.  The nodes are reused, and the
+ * subtree sizes of the nodes on the path are recomputed.
+ * @param x the root of a subtree
+ * @param key the element at which to split
+ * @param inclusive true if elements equivalent to <code>key</code> belong to the
+ * left part, and false if they belong to the right part
+ * @return an array holding the root of the elements less than <code>key</code>
+ * (or at most <code>key</code> when <code>inclusive</code> is true) followed by
+ * the root of the remaining elements
+**/
+
+	@SuppressWarnings("unchecked")
+	BSTNode[] split(BSTNode x, E key, boolean inclusive) {
+		BSTNode[] parts = (BSTNode[]) new BinarySearchTree<?>.BSTNode[] {FRONTIER_L, FRONTIER_L};
+		BSTNode left = null;   //the last node placed in the left part, whose right child is open
+		BSTNode right = null;  //the last node placed in the right part, whose left child is open
+		while (!x.isFrontier()) {
+			int comparison = comp.compare(x.data, key);
+			if (comparison < 0 || (inclusive && comparison == 0)) {  //x and T(x.left) go left
+				if (left == null)
+					parts[0] = x;
+				else
+					left.setRight(x);
+				left = x;
+				x = x.right;
+			} else {                                                 //x and T(x.right) go right
+				if (right == null)
+					parts[1] = x;
+				else
+					right.setLeft(x);
+				right = x;
+				x = x.left;
+			}
+		}
+		if (left != null)
+			left.setRight(FRONTIER_R);
+		if (right != null)
+			right.setLeft(FRONTIER_L);
+		resize(left, parts[0]);
+		resize(right, parts[1]);
+		return parts;
+	}
+
+/**
+ * Recomputes the subtree sizes, and the aggregates, from x up to
+ * <code>top</code>.
+ * @param x a reference to a node, or null
+ * @param top an ancestor of x
+**/
+
+	final void resize(BSTNode x, BSTNode top) {
+		for (; x != null; x = x.parent) {
+			x.updateSize();
+			if (x == top)
+				return;
+		}
+	}
+
+/**
+ * Joins two subtrees by placing <code>right</code> as the right child of
+ * the last node of <code>left</code>.
+ * @param left the root of a subtree
+ * @param right the root of a subtree
+ * <BR>
+ * REQUIRES:
+ *  the elements of T(<code>left</code>) &le; the elements of
+ *  T(<code>right</code>)
+ * @return the root of the joined subtree
+**/
+
+	BSTNode join(BSTNode left, BSTNode right) {
+		if (left.isFrontier())
+			return right;
+		if (right.isFrontier())
+			return left;
+		BSTNode last = left;
+		while (!last.right.isFrontier())
+			last = last.right;
+		last.setRight(right);
+		resize(last, left);
+		return left;
+	}
+
+/**
+ * Makes T(x) the tree.
+ * @param x the root of a subtree, or a frontier node
+**/
+
+	void install(BSTNode x) {
+		root = x.isFrontier() ? FRONTIER_L : x;
+		((BSTNode) root).parent = null;
+	}
+
+/**
+ * Checks that the subtree size recorded at each node is correct.
+ * @throws RuntimeException a subtree size is incorrect
+**/
+
+	public void checkRep() {
+		if (computeSize((BSTNode) root) != getSize())
+			throw new RuntimeException("Size of root's subtree is not n.");
+	}
+
+/**
+ * @param x a reference to a node
+ * @return the number of elements in T(x)
+ * @throws RuntimeException the subtree size recorded at a node of T(x) is incorrect
+**/
+
+	int computeSize(BSTNode x) {
+		if (x.isFrontier())
+			return 0;
+		int n = 1 + computeSize(x.left) + computeSize(x.right);
+		if (x.subtreeSize != n)
+			throw new RuntimeException("Subtree size of " + x + " is " + x.subtreeSize +
+					" but should be " + n);
+		return n;
+	}
+
 /**
  * Creates a new tracker at FORE.
 **/
@@ -548,6 +899,93 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 		return new Tracker(t);
 	}
 
+/**
+ * Searches for <code>target</code> starting from the node of a tracker,
+ * instead of from the root.  The search climbs from the tracked node only
+ * until it reaches a subtree that must hold the first element that is at
+ * least <code>target</code>, and then descends within that subtree.  So the
+ * time is proportional to the height of the subtree it climbs to, which is
+ * small when the target is near the tracked element, except when the two are
+ * separated by the boundary of a large subtree.  The returned tracker can
+ * serve as the finger for the next search.  The predecessor of
+ * <code>target</code> is found by retreating the returned tracker, and
+ * whether <code>target</code> is in the collection by comparing it with the
+ * tracked element.
+ * @param finger a tracker for this tree, which may be at FORE or AFT.  If its
+ * element has been removed, the search starts from the root.
+ * @param target the element to search for
+ * @return a tracker at the first element that is at least <code>target</code>,
+ * or at AFT if there is none
+ * @throws IllegalArgumentException <code>finger</code> is not a tracker for
+ * this tree
+**/
+
+	public Locator<E> searchFrom(Locator<E> finger, E target) {
+		if (!(finger instanceof BinarySearchTree.Tracker) || ((Tracker) finger).owner() != this)
+			throw new IllegalArgumentException("the finger is not a tracker for this tree");
+		BSTNode x = ((Tracker) finger).node;
+		BSTNode bound = AFT;  //the first element after T(x), when x is a left child
+		if (x == FORE || x == AFT || x.isDeleted())
+			x = (BSTNode) root;
+		else if (comp.compare(x.data, target) < 0) {  //climb until T(x) reaches target
+			while (x != root && (!x.isLeftChild() || comp.compare(x.parent.data, target) < 0))
+				x = x.parent;
+			if (x != root)
+				bound = x.parent;
+		} else {                                     //climb until T(x) starts below target
+			while (x != root && (x.isLeftChild() || comp.compare(x.parent.data, target) >= 0))
+				x = x.parent;
+		}
+		BSTNode result = bound;
+		while (!x.isFrontier()) {  //find the first element in T(x) that is at least target
+			if (comp.compare(target, x.data) <= 0) {
+				result = x;
+				x = x.left;
+			} else
+				x = x.right;
+		}
+		return new Tracker(result);
+	}
+
+
+	protected class BSTSpliterator extends SubtreeSpliterator<BSTNode> {
+
+		BSTSpliterator(BSTNode root) {
+			super(root, ORDERED | SORTED);
+		}
+
+		protected void expand(BSTNode x) {
+			if (!x.right.isFrontier())
+				push(x.right, SUBTREE);
+			push(x, 0);
+			if (!x.left.isFrontier())
+				push(x.left, SUBTREE);
+		}
+
+		protected E elementAt(BSTNode x, int index) {
+			return x.data;
+		}
+
+		protected int subtreeSize(BSTNode x) {
+			return x.subtreeSize;
+		}
+
+		protected BSTSpliterator create() {
+			return new BSTSpliterator(null);
+		}
+	}
+
+/**
+ * The spliterator splits the tree into the left subtree and the root
+ * as the prefix, and the right subtree as the suffix, so the split
+ * is balanced when the tree is.
+ * @return a sorted spliterator over the elements of this collection
+**/
+
+	public Spliterator<E> spliterator() {
+		return new BSTSpliterator((BSTNode) root);
+	}
+
 
 	protected class Tracker extends AbstractCollection<E>.AbstractLocator<E> {
 
@@ -562,6 +1000,14 @@ public class BinarySearchTree<E> extends AbstractSearchTree<E>
 			this.node = ptr;
 		}
 
+/**
+ * @return the tree of this tracker
+**/
+
+		final BinarySearchTree<E> owner() {
+			return BinarySearchTree.this;
+		}
+
 /**
  * @return true  if and only if the tracked element is
  * currently in the collection.
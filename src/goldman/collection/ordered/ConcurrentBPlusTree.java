@@ -0,0 +1,1134 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import goldman.Objects;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.VisitAbortedException;
+import goldman.collection.Visitor;
+/**
+ * A concurrent B+-tree is a B+-tree that may be used by many threads at once.
+ * Each node has a version number that serves as a latch, using optimistic lock
+ * coupling.  A reader never writes to the tree.  It records the version of each
+ * node it reaches, reads the node, and then validates that the version has not
+ * changed, restarting from the root when it has.  Since the version of the child
+ * is read before the parent is validated, a reader always reaches the correct
+ * leaf, and then follows the leaf chain in either direction the same way.  A
+ * writer latches (by a compare-and-set on the version it read) only the nodes it
+ * changes: the leaf to which it adds or from which it removes, and a full node
+ * that it splits, along with its parent and the leaf after it.  As in a top-down
+ * B-tree, a full node is split when an insertion reaches it, so a split never
+ * propagates upwards.
+ * <p>
+ * A writer that fails to latch a node releases its latches and restarts, so no
+ * thread ever waits while holding a latch, and there is no deadlock.  The only
+ * exception is a range scan that could not complete optimistically, which latches
+ * the leaves of the range from left to right.
+ * <p>
+ * A range scan (used by <code>forEachInRange</code>, <code>countRange</code>,
+ * <code>toArray</code> and the locators) is linearizable.  It validates every
+ * leaf it read only after reading the last one, so the elements it returns were
+ * all in the range at one instant.  After a few unsuccessful attempts, it latches
+ * the leaves of the range instead.
+ * <p>
+ * Removals do not merge or rebalance nodes, since that would require latching
+ * siblings, so a leaf may become empty.  The number of nodes is therefore bounded
+ * by the largest size that the collection has had, rather than its current size.
+ * The size is kept in a <code>LongAdder</code>, and is exact only when no update is
+ * in progress.
+ * <p>
+ * Locators are weakly consistent.  A locator is at a position of the sorted
+ * order, which is identified by an element and the number of equivalent elements
+ * before it.  Each method of a locator is linearizable, but elements may be added
+ * or removed between calls.  When an element is removed through a locator, the
+ * locator moves to the position before it, so that <code>advance</code> reaches
+ * the element that followed it.
+**/
+
+public class ConcurrentBPlusTree<E> extends AbstractCollection<E> implements
+	OrderedCollection<E> {
+
+	public static final int DEFAULT_ORDER = 32;
+	static final int OPTIMISTIC_SCANS = 3;  //attempts before a range scan latches leaves
+
+	static final int FIRST = 0;  //descend to the first position
+	static final int LAST = 1;   //descend to the last position
+	static final int LOWER = 2;  //descend to the first position with an element >= target
+	static final int UPPER = 3;  //descend to the first position with an element > target
+
+	static final int FOUND = 0;
+	static final int END = 1;
+	static final int RESTART = 2;
+
+	final int t;  //the order, so that each node holds at most 2t-1 keys
+	volatile Node<E> root;
+	final LongAdder count = new LongAdder();  //number of elements in the collection
+
+
+	static final long LOCKED = 1;  //low bit of a version is set while it is latched
+	static final VarHandle VERSION;
+	static {
+		try {
+			VERSION = MethodHandles.lookup().findVarHandle(Node.class, "version", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+
+	static final class Node<T> {
+
+		final boolean leaf;
+		final Object[] keys;       //elements in a leaf, and separators in an internal node
+		final Node<T>[] children;  //null in a leaf
+		int count;                 //number of keys
+		Node<T> prev;              //the previous leaf in the leaf chain
+		Node<T> next;              //the next leaf in the leaf chain
+		volatile long version;     //odd while latched, incremented when latched and released
+
+/**
+ * @param leaf true for a leaf
+ * @param t the order of the tree
+**/
+
+		@SuppressWarnings("unchecked")
+		Node(boolean leaf, int t) {
+			this.leaf = leaf;
+			keys = new Object[2*t - 1];
+			children = leaf ? null : (Node<T>[]) new Node<?>[2*t];
+		}
+
+/**
+ * Waits until the node is not latched.
+ * @return the version of the node
+**/
+
+		final long readLock() {
+			long v;
+			while (((v = (long) VERSION.getAcquire(this)) & LOCKED) != 0)
+				Thread.onSpinWait();
+			return v;
+		}
+
+/**
+ * @param v a version returned by <code>readLock</code>
+ * @return true  if and only if the node has not been latched since
+ * <code>v</code> was read, so that what was read since then is consistent
+**/
+
+		final boolean validate(long v) {
+			VarHandle.acquireFence();
+			return (long) VERSION.getVolatile(this) == v;
+		}
+
+/**
+ * @param v a version returned by <code>readLock</code>
+ * @return true  if and only if the node has been latched, which fails when
+ * the version is no longer <code>v</code>
+**/
+
+		final boolean tryUpgrade(long v) {
+			return VERSION.compareAndSet(this, v, v + LOCKED);
+		}
+
+/**
+ * @return true  if and only if the node has been latched, which fails when
+ * it is already latched
+**/
+
+		final boolean tryLock() {
+			long v = (long) VERSION.getVolatile(this);
+			return (v & LOCKED) == 0 && tryUpgrade(v);
+		}
+
+/**
+ * Waits until the node is latched.
+**/
+
+		final void lock() {
+			while (!tryLock())
+				Thread.onSpinWait();
+		}
+
+/**
+ * Releases the latch, giving the node a new version.
+**/
+
+		final void unlock() {
+			VERSION.setRelease(this, version + LOCKED);
+		}
+	}
+
+
+/**
+ * A cursor is a position in a leaf along with the version of the leaf that was
+ * read when the cursor was moved there.
+**/
+
+	static final class Cursor<T> {
+		Node<T> leaf;
+		long version;
+		int index;
+		T element;  //the element found by the last move
+	}
+
+/**
+ * Creates an empty concurrent B+-tree of the default order that uses the
+ * default comparator.
+**/
+
+	public ConcurrentBPlusTree() {
+		this(Objects.DEFAULT_COMPARATOR, DEFAULT_ORDER);
+	}
+
+/**
+ * Creates an empty concurrent B+-tree of the default order.
+ * @param comp the comparator that defines an ordering
+ * among the elements
+**/
+
+	public ConcurrentBPlusTree(Comparator<? super E> comp) {
+		this(comp, DEFAULT_ORDER);
+	}
+
+/**
+ * @param comp the comparator that defines an ordering
+ * among the elements
+ * @param t the order of the tree, so that each node holds at most 2t-1 keys
+ * @throws IllegalArgumentException t &lt; 2
+**/
+
+	public ConcurrentBPlusTree(Comparator<? super E> comp, int t) {
+		super(comp);
+		if (t < 2)
+			throw new IllegalArgumentException("t must be at least 2");
+		this.t = t;
+		root = new Node<E>(true, t);
+	}
+
+/**
+ * @param x a node that may be changing
+ * @param target the target
+ * @param mode one of <code>FIRST</code>, <code>LAST</code>, <code>LOWER</code>
+ * and <code>UPPER</code>
+ * @return the index of the child of x to follow or, in a leaf,
+ * the position of x that the mode selects
+**/
+
+	@SuppressWarnings("unchecked")
+	final int route(Node<E> x, E target, int mode) {
+		if (mode == FIRST)
+			return 0;
+		int hi = x.count;
+		if (mode == LAST)
+			return hi;
+		int lo = 0;
+		int bound = (mode == LOWER) ? 0 : 1;  //an element at most target is passed in UPPER mode
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (comp.compare((E) x.keys[mid], target) < bound)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+/**
+ * Descends from the root to a leaf, coupling the version of each node with
+ * that of its parent.  An internal node for which the route is
+ * <code>LOWER</code> reaches the leftmost leaf that could hold an element
+ * equivalent to the target, and <code>UPPER</code> reaches the leftmost leaf that
+ * could hold a greater element.
+ * @param target the target
+ * @param mode one of <code>FIRST</code>, <code>LAST</code>, <code>LOWER</code>
+ * and <code>UPPER</code>
+ * @param c a cursor that is moved to the position in the leaf that the mode selects
+ * @return true  if and only if the descent completed, and false if it must be
+ * restarted
+**/
+
+	final boolean descend(E target, int mode, Cursor<E> c) {
+		Node<E> x = root;
+		long v = x.readLock();
+		if (x != root)
+			return false;
+		while (true) {
+			int i;
+			try {
+				i = route(x, target, mode);
+			} catch (RuntimeException e) {  //the comparator may have seen inconsistent keys
+				if (!x.validate(v))
+					return false;
+				throw e;
+			}
+			if (x.leaf) {
+				c.leaf = x;
+				c.version = v;
+				c.index = i;
+				return true;
+			}
+			Node<E> child = x.children[i];
+			if (!x.validate(v))
+				return false;
+			long cv = child.readLock();
+			if (!x.validate(v))
+				return false;
+			x = child;
+			v = cv;
+		}
+	}
+
+/**
+ * Moves the cursor to the element at its position, following the leaf chain
+ * past the end of a leaf.
+ * @param c a cursor
+ * @return <code>FOUND</code> when the cursor is at an element, <code>END</code>
+ * when there is no element at or after its position, and <code>RESTART</code>
+ * when a leaf changed
+**/
+
+	@SuppressWarnings("unchecked")
+	final int forward(Cursor<E> c) {
+		while (true) {
+			Node<E> x = c.leaf;
+			if (c.index < x.count) {
+				c.element = (E) x.keys[c.index];
+				return x.validate(c.version) ? FOUND : RESTART;
+			}
+			Node<E> next = x.next;
+			if (!x.validate(c.version))
+				return RESTART;
+			if (next == null)
+				return END;
+			long nv = next.readLock();
+			if (!x.validate(c.version))
+				return RESTART;
+			c.leaf = next;
+			c.version = nv;
+			c.index = 0;
+		}
+	}
+
+/**
+ * Moves the cursor to the element before its position, following the
+ * leaf chain back past the start of a leaf.
+ * @param c a cursor
+ * @return <code>FOUND</code> when the cursor is at an element, <code>END</code>
+ * when there is no element before its position, and <code>RESTART</code> when a
+ * leaf changed
+**/
+
+	@SuppressWarnings("unchecked")
+	final int backward(Cursor<E> c) {
+		while (true) {
+			Node<E> x = c.leaf;
+			if (c.index > 0) {
+				c.element = (E) x.keys[--c.index];
+				return x.validate(c.version) ? FOUND : RESTART;
+			}
+			Node<E> prev = x.prev;
+			if (!x.validate(c.version))
+				return RESTART;
+			if (prev == null)
+				return END;
+			long pv = prev.readLock();
+			if (!x.validate(c.version))
+				return RESTART;
+			c.leaf = prev;
+			c.version = pv;
+			c.index = prev.count;  //validated when an element of prev is read
+		}
+	}
+
+/**
+ * @param target the target
+ * @param mode one of <code>FIRST</code>, <code>LAST</code>, <code>LOWER</code>
+ * and <code>UPPER</code>
+ * @param back true to move to the element before the position that
+ * the mode selects, and false to move to the element at it
+ * @param c a cursor
+ * @return <code>FOUND</code> or <code>END</code>, as for <code>forward</code>
+ * and <code>backward</code>
+**/
+
+	final int seek(E target, int mode, boolean back, Cursor<E> c) {
+		while (true) {
+			if (descend(target, mode, c)) {
+				int status = back ? backward(c) : forward(c);
+				if (status != RESTART)
+					return status;
+			}
+		}
+	}
+
+/**
+ * @param target the element being tested for membership in the collection
+ * @return true  if and only if an equivalent value exists in the collection
+**/
+
+	public boolean contains(E target) {
+		Cursor<E> c = new Cursor<E>();
+		return seek(target, LOWER, false, c) == FOUND && comp.compare(c.element, target) == 0;
+	}
+
+/**
+ * @param target the target element
+ * @return an equivalent element that is in the collection
+ * @throws NoSuchElementException there is no equivalent element in the
+ * collection.
+**/
+
+	public E getEquivalentElement(E target) {
+		Cursor<E> c = new Cursor<E>();
+		if (seek(target, LOWER, false, c) == END || comp.compare(c.element, target) != 0)
+			throw new NoSuchElementException();
+		return c.element;
+	}
+
+/**
+ * This method takes linear time, since the nodes do not record the sizes of
+ * their subtrees.
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the sorted order, where
+ * r = 0 is the minimum.
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public E get(int r) {
+		if (r < 0 || r == Integer.MAX_VALUE)
+			throw new IllegalArgumentException();
+		ArrayList<E> elements = scan(null, true, null, true, r + 1);
+		if (elements.size() <= r)
+			throw new IllegalArgumentException();
+		return elements.get(r);
+	}
+
+/**
+ * @return a least element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E min() {
+		Cursor<E> c = new Cursor<E>();
+		if (seek(null, FIRST, false, c) == END)
+			throw new NoSuchElementException();
+		return c.element;
+	}
+
+/**
+ * @return a greatest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E max() {
+		Cursor<E> c = new Cursor<E>();
+		if (seek(null, LAST, true, c) == END)
+			throw new NoSuchElementException();
+		return c.element;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the predecessor
+ * @return the largest
+ * element in the ordered collection that is less than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is smaller than <code>target</code>
+**/
+
+	public E predecessor(E target) {
+		Cursor<E> c = new Cursor<E>();
+		if (seek(target, LOWER, true, c) == END)
+			throw new NoSuchElementException();
+		return c.element;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the successor
+ * @return the smallest
+ * element in the ordered collection that is greater than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is greater than <code>target</code>
+**/
+
+	public E successor(E target) {
+		Cursor<E> c = new Cursor<E>();
+		if (seek(target, UPPER, false, c) == END)
+			throw new NoSuchElementException();
+		return c.element;
+	}
+
+/**
+ * @return the number of elements in the collection, which is exact
+ * only when no update is in progress
+**/
+
+	public int getSize() {
+		return (int) Math.max(0, count.sum());  //a removal can be counted before the addition it follows
+	}
+
+/**
+ * @return true  if and only if the collection has no elements
+**/
+
+	public boolean isEmpty() {
+		return seek(null, FIRST, false, new Cursor<E>()) == END;
+	}
+
+/**
+ * Inserts <code>element</code> into the collection, after any equivalent
+ * elements.
+ * @param element the element to add
+**/
+
+	public void add(E element) {
+		while (!insert(element))
+			;
+		count.increment();
+	}
+
+/**
+ * Descends to the leaf that should hold <code>element</code>, and inserts it
+ * there.  When the descent reaches a full node, the node is split instead.
+ * @param element the element to add
+ * @return true  if and only if the element was inserted, and false if the
+ * insertion must be restarted
+**/
+
+	final boolean insert(E element) {
+		Node<E> parent = null;
+		long pv = 0;
+		Node<E> x = root;
+		long v = x.readLock();
+		if (x != root)
+			return false;
+		while (true) {
+			if (x.count == 2*t - 1) {
+				if (parent != null && !parent.tryUpgrade(pv))
+					return false;
+				if (!x.tryUpgrade(v)) {
+					if (parent != null)
+						parent.unlock();
+					return false;
+				}
+				Node<E> next = x.leaf ? x.next : null;
+				if (next != null && !next.tryLock()) {
+					x.unlock();
+					if (parent != null)
+						parent.unlock();
+					return false;
+				}
+				split(parent, x);
+				if (next != null)
+					next.unlock();
+				x.unlock();
+				if (parent != null)
+					parent.unlock();
+				return false;  //restart from the root now that x has room
+			}
+			int i;
+			try {
+				i = route(x, element, UPPER);
+			} catch (RuntimeException e) {
+				if (!x.validate(v))
+					return false;
+				throw e;
+			}
+			if (x.leaf) {
+				if (!x.tryUpgrade(v))
+					return false;
+				System.arraycopy(x.keys, i, x.keys, i + 1, x.count - i);
+				x.keys[i] = element;
+				x.count++;
+				x.unlock();
+				return true;
+			}
+			Node<E> child = x.children[i];
+			if (!x.validate(v))
+				return false;
+			long cv = child.readLock();
+			if (!x.validate(v))
+				return false;
+			parent = x;
+			pv = v;
+			x = child;
+			v = cv;
+		}
+	}
+
+/**
+ * Splits a full node, moving its upper half to a new node that follows it.
+ * <BR>
+ * REQUIRES: x is full, and latched along with its parent (which is not full)
+ * and, for a leaf, the leaf after it.
+ * @param parent the parent of x, or null if x is the root
+ * @param x the node to split
+**/
+
+	final void split(Node<E> parent, Node<E> x) {
+		Node<E> right = new Node<E>(x.leaf, t);
+		Object separator;
+		if (x.leaf) {  //x keeps t elements, and the separator is copied from right
+			System.arraycopy(x.keys, t, right.keys, 0, t - 1);
+			Arrays.fill(x.keys, t, 2*t - 1, null);
+			right.count = t - 1;
+			x.count = t;
+			separator = right.keys[0];
+			right.next = x.next;
+			right.prev = x;
+			if (x.next != null)
+				x.next.prev = right;
+			x.next = right;
+		} else {  //x keeps t-1 keys, and the middle key moves up
+			separator = x.keys[t - 1];
+			System.arraycopy(x.keys, t, right.keys, 0, t - 1);
+			System.arraycopy(x.children, t, right.children, 0, t);
+			Arrays.fill(x.keys, t - 1, 2*t - 1, null);
+			Arrays.fill(x.children, t, 2*t, null);
+			right.count = t - 1;
+			x.count = t - 1;
+		}
+		if (parent == null) {
+			Node<E> newRoot = new Node<E>(false, t);
+			newRoot.keys[0] = separator;
+			newRoot.children[0] = x;
+			newRoot.children[1] = right;
+			newRoot.count = 1;
+			root = newRoot;
+		} else {
+			int i = 0;
+			while (parent.children[i] != x)
+				i++;
+			System.arraycopy(parent.keys, i, parent.keys, i + 1, parent.count - i);
+			System.arraycopy(parent.children, i + 1, parent.children, i + 2, parent.count - i);
+			parent.keys[i] = separator;
+			parent.children[i + 1] = right;
+			parent.count++;
+		}
+	}
+
+/**
+ * Removes from the collection an arbitrary element (if any)
+ * equivalent to <code>element</code>.  Leaves are latched from left to right,
+ * starting at the leftmost leaf that could hold an equivalent element.
+ * @param element the element to remove
+ * @return true  if an element was removed, and false otherwise.
+**/
+
+	@SuppressWarnings("unchecked")
+	public boolean remove(E element) {
+		Cursor<E> c = new Cursor<E>();
+		restart: while (true) {
+			if (!descend(element, LOWER, c) || !c.leaf.tryUpgrade(c.version))
+				continue;
+			Node<E> x = c.leaf;
+			int i = c.index;
+			while (i == x.count) {  //every element of x is smaller than element
+				Node<E> next = x.next;
+				if (next == null) {
+					x.unlock();
+					return false;
+				}
+				if (!next.tryLock()) {
+					x.unlock();
+					continue restart;
+				}
+				x.unlock();
+				x = next;
+				i = 0;
+			}
+			boolean found;
+			try {
+				found = comp.compare((E) x.keys[i], element) == 0;
+				if (found) {
+					System.arraycopy(x.keys, i + 1, x.keys, i, x.count - i - 1);
+					x.keys[--x.count] = null;
+					count.decrement();
+				}
+			} finally {
+				x.unlock();
+			}
+			return found;
+		}
+	}
+
+/**
+ * @param e an element
+ * @param hi the upper end of a range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return true  if and only if no element of the range is smaller than
+ * <code>e</code>
+**/
+
+	final boolean below(E e, E hi, boolean hiInclusive) {
+		if (hi == null)
+			return true;
+		int c = comp.compare(e, hi);
+		return c < 0 || (hiInclusive && c == 0);
+	}
+
+/**
+ * Returns the elements of a range, which were all in the collection at one
+ * instant during the call.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @param limit the maximum number of elements to return
+ * @return the first <code>limit</code> elements of the range in sorted order
+**/
+
+	final ArrayList<E> scan(E lo, boolean loInclusive, E hi, boolean hiInclusive, int limit) {
+		ArrayList<E> elements = new ArrayList<E>();
+		for (int attempt = 0; attempt < OPTIMISTIC_SCANS; attempt++)
+			if (optimisticScan(lo, loInclusive, hi, hiInclusive, limit, elements))
+				return elements;
+		elements.clear();  //discard the partial results of the last attempt
+		lockingScan(lo, loInclusive, hi, hiInclusive, limit, elements);
+		return elements;
+	}
+
+/**
+ * Reads the leaves of the range without latching them, recording the
+ * version of each, and then validates all of them.  Each leaf was unchanged from
+ * when it was reached until it was validated, so all of them were unchanged
+ * when the last one was reached.
+ * @param elements a list that is cleared and then filled with the elements of the
+ * range
+ * @return true  if and only if the scan succeeded
+**/
+
+	@SuppressWarnings("unchecked")
+	final boolean optimisticScan(E lo, boolean loInclusive, E hi, boolean hiInclusive,
+			int limit, ArrayList<E> elements) {
+		elements.clear();
+		Cursor<E> c = new Cursor<E>();
+		if (!descend(lo, lo == null ? FIRST : (loInclusive ? LOWER : UPPER), c))
+			return false;
+		ArrayList<Node<E>> leaves = new ArrayList<Node<E>>();
+		long[] versions = new long[4];
+		leaves.add(c.leaf);
+		versions[0] = c.version;
+		while (elements.size() < limit) {
+			Node<E> x = c.leaf;
+			if (c.index < x.count) {
+				E e = (E) x.keys[c.index++];
+				if (!x.validate(c.version))  //e must be consistent before it is compared
+					return false;
+				if (!below(e, hi, hiInclusive))
+					break;
+				elements.add(e);
+			} else {
+				Node<E> next = x.next;
+				if (!x.validate(c.version))
+					return false;
+				if (next == null)
+					break;
+				c.leaf = next;
+				c.version = next.readLock();
+				c.index = 0;
+				if (leaves.size() == versions.length)
+					versions = Arrays.copyOf(versions, 2 * versions.length);
+				versions[leaves.size()] = c.version;
+				leaves.add(next);
+			}
+		}
+		for (int i = 0; i < leaves.size(); i++)
+			if (!leaves.get(i).validate(versions[i]))
+				return false;
+		return true;
+	}
+
+/**
+ * Latches the leaves of the range from left to right, and releases them once
+ * the last one has been read.
+ * @param elements a list to which the elements of the range are added
+**/
+
+	@SuppressWarnings("unchecked")
+	final void lockingScan(E lo, boolean loInclusive, E hi, boolean hiInclusive,
+			int limit, ArrayList<E> elements) {
+		Cursor<E> c = new Cursor<E>();
+		while (!descend(lo, lo == null ? FIRST : (loInclusive ? LOWER : UPPER), c) ||
+				!c.leaf.tryUpgrade(c.version))
+			;
+		ArrayList<Node<E>> latched = new ArrayList<Node<E>>();
+		Node<E> x = c.leaf;
+		latched.add(x);
+		try {
+			int i = c.index;
+			while (elements.size() < limit) {
+				if (i < x.count) {
+					E e = (E) x.keys[i++];
+					if (!below(e, hi, hiInclusive))
+						break;
+					elements.add(e);
+				} else {
+					x = x.next;
+					if (x == null)
+						break;
+					x.lock();
+					latched.add(x);
+					i = 0;
+				}
+			}
+		} finally {
+			for (Node<E> leaf : latched)
+				leaf.unlock();
+		}
+	}
+
+/**
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of elements in the range at one instant during the call
+**/
+
+	public int countRange(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		return scan(lo, loInclusive, hi, hiInclusive, Integer.MAX_VALUE).size();
+	}
+
+/**
+ * Applies the visitor, in sorted order, to the elements that were in the range
+ * at one instant during the call.  The visitor is applied after the scan, so it
+ * may update the collection.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @param v a visitor
+ * @throws VisitAbortedException the traversal is aborted due to an
+ * exception raised by the visitor
+**/
+
+	public void forEachInRange(E lo, boolean loInclusive, E hi, boolean hiInclusive,
+			Visitor<? super E> v) {
+		try {
+			for (E e : scan(lo, loInclusive, hi, hiInclusive, Integer.MAX_VALUE))
+				v.visit(e);
+		} catch (Throwable cause) {
+			throw new VisitAbortedException(cause);
+		}
+	}
+
+/**
+ * Traverses a snapshot of the collection applying v to each element
+ * @param v a visitor
+**/
+
+	protected void traverseForVisitor(Visitor<? super E> v) throws Exception {
+		for (E e : scan(null, true, null, true, Integer.MAX_VALUE))
+			v.visit(e);
+	}
+
+/**
+ * @return a Java primitive array that holds
+ * the elements that were in the collection at one instant during the call
+**/
+
+	public Object[] toArray() {
+		return scan(null, true, null, true, Integer.MAX_VALUE).toArray();
+	}
+
+/**
+ * @param array an array of the correct type into which the collection's elements
+ * are to be placed
+ * @return a Java primitive array that holds
+ * the elements that were in the collection at one instant during the call
+**/
+
+	public E[] toArray(E[] array) {
+		return scan(null, true, null, true, Integer.MAX_VALUE).toArray(array);
+	}
+
+/**
+ * Creates a new marker at FORE.
+**/
+
+	public Marker iterator() {
+		return new Marker(null, 0, false);
+	}
+
+/**
+ * Creates a new marker at AFT.
+**/
+
+	public Marker iteratorAtEnd() {
+		return new Marker(null, 0, true);
+	}
+
+/**
+ * @param element an element to locate
+ * @return a marker at the first element equivalent to <code>element</code>
+ * @throws NoSuchElementException there is no equivalent element
+ * in the ordered collection.
+**/
+
+	public Marker getLocator(E element) {
+		return new Marker(getEquivalentElement(element), 0, false);
+	}
+
+/**
+ * The characteristics are those of any ordered collection, plus
+ * <code>CONCURRENT</code>.  The size is not reported since it may change
+ * during the traversal.
+ * @return a spliterator over the elements in the iteration order
+**/
+
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliteratorUnknownSize(iterator(),
+				spliteratorCharacteristics() | Spliterator.CONCURRENT);
+	}
+
+/**
+ * Verifies that the keys of each node are sorted and lie between the
+ * separators around it, that all leaves are at the same depth, that the leaf
+ * chain links the leaves in order, and that the size is the number of elements.
+ * It should only be called when no update is in progress.
+ * @throws IllegalStateException the structure is inconsistent
+**/
+
+	public void checkRep() {
+		ArrayList<Node<E>> leaves = new ArrayList<Node<E>>();
+		checkNode(root, null, null, 0, new int[] {-1}, leaves);
+		int size = 0;
+		for (int i = 0; i < leaves.size(); i++) {
+			Node<E> x = leaves.get(i);
+			if (x.prev != (i == 0 ? null : leaves.get(i - 1)) ||
+					x.next != (i == leaves.size() - 1 ? null : leaves.get(i + 1)))
+				throw new IllegalStateException("leaf chain is inconsistent at leaf " + i);
+			if ((x.version & LOCKED) != 0)
+				throw new IllegalStateException("leaf " + i + " is latched");
+			size += x.count;
+		}
+		if (size != count.sum())
+			throw new IllegalStateException("size is " + count.sum() + " but the leaves have " +
+					size + " elements");
+	}
+
+	@SuppressWarnings("unchecked")
+	void checkNode(Node<E> x, E lo, E hi, int depth, int[] leafDepth, ArrayList<Node<E>> leaves) {
+		for (int i = 0; i < x.count; i++) {
+			E key = (E) x.keys[i];
+			if ((lo != null && comp.compare(key, lo) < 0) || (hi != null && comp.compare(key, hi) > 0) ||
+					(i > 0 && comp.compare((E) x.keys[i - 1], key) > 0))
+				throw new IllegalStateException(key + " is out of order");
+		}
+		if (x.leaf) {
+			if (leafDepth[0] == -1)
+				leafDepth[0] = depth;
+			else if (leafDepth[0] != depth)
+				throw new IllegalStateException("leaves at depths " + leafDepth[0] + " and " + depth);
+			leaves.add(x);
+			return;
+		}
+		if (x.count == 0)
+			throw new IllegalStateException("internal node with no keys");
+		for (int i = 0; i <= x.count; i++)
+			checkNode(x.children[i], i == 0 ? lo : (E) x.keys[i - 1],
+					i == x.count ? hi : (E) x.keys[i], depth + 1, leafDepth, leaves);
+	}
+
+
+	public class Marker extends AbstractCollection<E>.AbstractLocator<E> {
+
+		E element;       //an element equivalent to the marked one, or null at FORE or AFT
+		int rank;        //the number of equivalent elements before the marked one
+		boolean atEnd;   //true at AFT, and false at FORE, when element is null
+
+/**
+ * @param element an element equivalent to the one to mark, or null for FORE
+ * or AFT
+ * @param rank the number of equivalent elements before the one to mark
+ * @param atEnd true for AFT
+**/
+
+		Marker(E element, int rank, boolean atEnd) {
+			this.element = element;
+			this.rank = rank;
+			this.atEnd = atEnd;
+		}
+
+/**
+ * @return the element at the marked position, or null if there is none
+**/
+
+		E current() {
+			if (element == null)
+				return null;
+			ArrayList<E> run = scan(element, true, element, true, rank + 1);
+			return run.size() > rank ? run.get(rank) : null;
+		}
+
+/**
+ * @return true  if and only if there is an element at the marked
+ * position.
+**/
+
+		public boolean inCollection() {
+			return current() != null;
+		}
+
+/**
+ * @return the marked element
+ * @throws NoSuchElementException the marker is not at an element in
+ * the collection.
+**/
+
+		public E get() {
+			E e = current();
+			if (e == null)
+				throw new NoSuchElementException();
+			return e;
+		}
+
+/**
+ * @return the elements from the marked position that include the
+ * one after it
+**/
+
+		ArrayList<E> lookAhead() {
+			if (element == null)
+				return scan(null, true, null, true, 1);
+			return scan(element, true, null, true, rank + 2);
+		}
+
+/**
+ * Moves the marker to the next element in the
+ * iteration order (or AFT if
+ * the last element is currently marked).  If the marked element has
+ * been removed, the marker moves to the element that followed it.
+ * @return true  if and only if after the update, the marker is
+ * at an element of the collection.
+ * @throws AtBoundaryException the marker is at AFT since there is
+ * no place to advance.
+**/
+
+		public boolean advance() {
+			if (element == null && atEnd)
+				throw new AtBoundaryException();
+			ArrayList<E> ahead = lookAhead();
+			int run = 0;  //the number of elements equivalent to element
+			if (element != null)
+				while (run < ahead.size() && comp.compare(ahead.get(run), element) == 0)
+					run++;
+			int p = (element == null) ? 0 : Math.min(rank + 1, run);
+			if (p == ahead.size()) {
+				element = null;
+				atEnd = true;
+				return false;
+			}
+			rank = (p < run) ? p : 0;
+			element = ahead.get(p);
+			return true;
+		}
+
+/**
+ * Moves the marker to the previous element in the iteration order
+ * (or FORE if the first element is currently marked).
+ * @return true  if and only if after the update, the marker is at an element of the collection.
+ * @throws AtBoundaryException the marker is at FORE since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() {
+			if (element == null && !atEnd)
+				throw new AtBoundaryException();
+			return moveBack();
+		}
+
+/**
+ * Moves the marker to the position before the marked one.
+ * @return true  if and only if after the update, the marker is at an element of the collection.
+**/
+
+		boolean moveBack() {
+			if (element != null && rank > 0) {
+				ArrayList<E> run = scan(element, true, element, true, rank);
+				if (!run.isEmpty()) {
+					rank = run.size() - 1;
+					element = run.get(rank);
+					return true;
+				}
+			}
+			Cursor<E> c = new Cursor<E>();
+			int status = (element == null) ? seek(null, LAST, true, c) : seek(element, LOWER, true, c);
+			if (status == END) {
+				element = null;
+				atEnd = false;
+				return false;
+			}
+			ArrayList<E> run = scan(c.element, true, c.element, true, Integer.MAX_VALUE);
+			rank = Math.max(0, run.size() - 1);
+			element = c.element;
+			return true;
+		}
+
+/**
+ * @return true  if there is some element after the current marker position.
+**/
+
+		public boolean hasNext() {
+			if (element == null && atEnd)
+				return false;
+			ArrayList<E> ahead = lookAhead();
+			if (element == null)
+				return !ahead.isEmpty();
+			int run = 0;
+			while (run < ahead.size() && comp.compare(ahead.get(run), element) == 0)
+				run++;
+			return ahead.size() > Math.min(rank + 1, run);
+		}
+
+/**
+ * Moves the marker forward to the next element, and returns the element that
+ * was there when it moved, even if it has been removed since.
+ * @return the element stored at the position
+ * to which the marker is moved
+ * @throws AtBoundaryException the marker is already at AFT
+ * @throws NoSuchElementException the marker is at the last element in
+ * the collection.
+**/
+
+		public E next() {
+			if (!advance())
+				throw new NoSuchElementException();
+			return element;
+		}
+
+/**
+ * Removes an element equivalent to the marked one, and moves the marker to the
+ * position before it, so that advancing reaches the element that followed it.
+ * @throws NoSuchElementException the marker is not at an element in the collection
+**/
+
+		public void remove() {
+			if (current() == null || !ConcurrentBPlusTree.this.remove(element))
+				throw new NoSuchElementException();
+			moveBack();
+		}
+	}
+}
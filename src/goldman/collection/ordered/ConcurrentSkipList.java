@@ -0,0 +1,777 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import goldman.Objects;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Tracked;
+/**
+ * A concurrent skip list is a skip list that may be used by many threads at once
+ * without any locking.  The methods <code>add</code>, <code>remove</code>,
+ * <code>contains</code>, <code>predecessor</code>, <code>successor</code>,
+ * <code>min</code> and <code>max</code> are lock-free and take expected logarithmic
+ * time.  Each link is a marked pointer, and an element is
+ * removed by first marking the links out of its tower, from the top level down.
+ * The element is logically removed when its level 0 link is marked, after which any
+ * thread that traverses one of the marked links unlinks the tower at that level
+ * with a compare-and-set.
+ * <p>
+ * Unlike <code>SkipList</code>, the towers have no previous references and the
+ * links have no widths, since neither can be kept consistent without locking.  So
+ * <code>get(r)</code> takes linear time, and retreating a locator requires a search.
+ * The size is kept in a <code>LongAdder</code>, so that threads that add and remove
+ * elements do not contend for a single counter, and is exact only when no update
+ * is in progress.
+ * <p>
+ * Locators are weakly consistent.  They never throw a
+ * <code>ConcurrentModificationException</code>, and an iteration reaches each
+ * element that is in the collection throughout the iteration exactly once, and may
+ * or may not reach elements that are added or removed during the iteration.  A
+ * locator at an element that has been removed can still advance.
+**/
+
+public class ConcurrentSkipList<E> extends AbstractCollection<E> implements
+	OrderedCollection<E>, Tracked<E> {
+
+	public static final int MAX_HEIGHT = 32;
+	final Node<E> head;  //sentinel head, also serves role of FORE
+	final Node<E> tail;  //sentinel tail, also serves role of AFT
+	final AtomicInteger height = new AtomicInteger(1);  //max height of any tower that has been added
+	final LongAdder count = new LongAdder();  //number of elements in the collection
+
+
+	static final VarHandle LINK = MethodHandles.arrayElementVarHandle(Object[].class);
+
+/**
+ * A marked link holds a <code>Mark</code> wrapping the next tower, which plays
+ * the role of the mark bit of a marked pointer.  An unmarked link holds the next
+ * tower itself, so following it costs no extra indirection.
+**/
+
+	static final class Mark {
+		final Node<?> next;
+
+		Mark(Node<?> next) {
+			this.next = next;
+		}
+	}
+
+
+	static final class Node<T> {
+
+		final T element;
+		final Object[] links;  //links[i] is the next tower at level i, wrapped in a Mark once marked
+
+/**
+ * @param element a reference to the
+ * element
+ * @param towerHeight the desired height for the tower
+**/
+
+		Node(T element, int towerHeight) {
+			this.element = element;
+			links = new Object[towerHeight];
+		}
+
+		final int getTowerHeight() {
+			return links.length;
+		}
+
+		final Object link(int level) {
+			return (Object) LINK.getVolatile(links, level);
+		}
+
+		final boolean casLink(int level, Object expected, Object update) {
+			return (boolean) LINK.compareAndSet(links, level, expected, update);
+		}
+
+		final Node<T> next(int level) {
+			return nodeOf(link(level));
+		}
+
+/**
+ * @return true  if and only if the element in this tower has been removed
+**/
+
+		final boolean isDeleted() {
+			return link(0) instanceof Mark;
+		}
+	}
+
+/**
+ * @param link the value of a link
+ * @return the tower that the link references, whether or not it is marked
+**/
+
+	@SuppressWarnings("unchecked")
+	static <T> Node<T> nodeOf(Object link) {
+		return (Node<T>) (link instanceof Mark ? ((Mark) link).next : link);
+	}
+
+/**
+ * Creates an empty concurrent skip list that uses the default comparator.
+**/
+
+	public ConcurrentSkipList() {
+		this(Objects.DEFAULT_COMPARATOR);
+	}
+
+/**
+ * Creates an empty concurrent skip list that uses the provided comparator.
+ * @param comp the comparator that defines an ordering
+ * among the elements
+**/
+
+	public ConcurrentSkipList(Comparator<? super E> comp) {
+		super(comp);
+		head = new Node<E>(null, MAX_HEIGHT);
+		tail = new Node<E>(null, 1);
+		for (int i = 0; i < MAX_HEIGHT; i++)
+			head.links[i] = tail;
+	}
+
+/**
+ * Selects a tower height in the same way as <code>SkipList</code>, but with a
+ * thread-local generator so that concurrent insertions do not contend.
+ * @return the height for a new tower
+**/
+
+	int selectTowerHeight() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int towerHeight = 1;
+		while (towerHeight < MAX_HEIGHT && (random.nextInt() & 3) == 0)
+			towerHeight++;
+		return towerHeight;
+	}
+
+/**
+ * Raises the height of the skip list to at least <code>towerHeight</code>.
+ * @param towerHeight the height of a tower about to be added
+**/
+
+	void raiseHeight(int towerHeight) {
+		int h = height.get();
+		while (h < towerHeight && !height.compareAndSet(h, towerHeight))
+			h = height.get();
+	}
+
+/**
+ * Fills in <code>preds</code> and <code>succs</code> so that at each level
+ * below their length, <code>preds[i]</code> is the last tower with an element less
+ * than <code>target</code> and <code>succs[i]</code> is the tower that follows it.
+ * The search starts at the top level in use, whatever the length of the arrays.
+ * Any removed tower reached along the way is unlinked at that level.
+ * @param target the target element
+ * @param preds the array to hold the predecessor at each level
+ * @param succs the array to hold the successor at each level
+**/
+
+	void find(E target, Node<E>[] preds, Node<E>[] succs) {
+		retry:
+		while (true) {
+			Node<E> pred = head;
+			for (int level = Math.max(height.get(), preds.length) - 1; level >= 0; level--) {
+				Node<E> curr = pred.next(level);
+				while (curr != tail) {
+					Object link = curr.link(level);
+					Node<E> succ = nodeOf(link);
+					if (link instanceof Mark) {  //curr is being removed, so unlink it at this level
+						if (!pred.casLink(level, curr, succ))
+							continue retry;  //pred changed or is being removed
+						curr = succ;
+					} else if (comp.compare(curr.element, target) < 0) {
+						pred = curr;
+						curr = succ;
+					} else
+						break;
+				}
+				if (level < preds.length) {
+					preds[level] = pred;
+					succs[level] = curr;
+				}
+			}
+			return;
+		}
+	}
+
+/**
+ * Searches without modifying the structure, skipping over removed towers.
+ * @param target the target element
+ * @param inclusive true if towers holding an element equivalent to
+ * <code>target</code> should be passed
+ * @return the last tower reached at level 0 with an element less than
+ * <code>target</code> (or at most <code>target</code> when <code>inclusive</code>
+ * is true), which is <code>head</code> if there is no such element
+**/
+
+	Node<E> lastBefore(E target, boolean inclusive) {
+		while (true) {
+			Node<E> pred = head;
+			for (int level = height.get() - 1; level >= 0; level--) {
+				Node<E> curr = pred.next(level);
+				while (curr != tail) {
+					Object link = curr.link(level);
+					if (!(link instanceof Mark)) {
+						int c = comp.compare(curr.element, target);
+						if (c > 0 || (c == 0 && !inclusive))
+							break;
+						pred = curr;
+					}
+					curr = nodeOf(link);
+				}
+			}
+			if (pred == head || !pred.isDeleted())  //else pred was removed during the search
+				return pred;
+		}
+	}
+
+/**
+ * @param t a reference to a tower, which may have been removed
+ * @return the first tower after <code>t</code> at level 0 that has not been
+ * removed, or <code>tail</code> if there is none
+**/
+
+	Node<E> firstAfter(Node<E> t) {
+		Node<E> curr = t.next(0);
+		while (curr != tail && curr.isDeleted())
+			curr = curr.next(0);
+		return curr;
+	}
+
+/**
+ * Finishes a search begun by <code>lastBefore</code>.  Since other threads may
+ * link new towers after <code>t</code> once <code>lastBefore</code> has
+ * returned, towers that precede the target are passed as well as removed ones.
+ * @param t a tower returned by <code>lastBefore(target, inclusive)</code>
+ * @param target the target element
+ * @param inclusive true if towers holding an element equivalent to
+ * <code>target</code> should be passed
+ * @return the first tower after <code>t</code> at level 0 that has not been
+ * removed and holds an element greater than <code>target</code> (or equal to
+ * it when <code>inclusive</code> is false), or <code>tail</code> if there is none
+**/
+
+	Node<E> firstAfter(Node<E> t, E target, boolean inclusive) {
+		Node<E> curr = t.next(0);
+		while (curr != tail) {
+			if (!curr.isDeleted()) {
+				int c = comp.compare(curr.element, target);
+				if (c > 0 || (c == 0 && !inclusive))
+					break;
+			}
+			curr = curr.next(0);
+		}
+		return curr;
+	}
+
+/**
+ * @return the last tower at level 0 that has not been removed,
+ * or <code>head</code> if the collection is empty
+**/
+
+	Node<E> lastNode() {
+		Node<E> pred = head;
+		for (int level = height.get() - 1; level >= 0; level--) {
+			Node<E> curr = pred.next(level);
+			while (curr != tail) {
+				if (!curr.isDeleted())
+					pred = curr;
+				curr = curr.next(level);
+			}
+		}
+		return pred;
+	}
+
+/**
+ * @param target the element being tested for membership in the collection
+ * @return true  if and only if an equivalent value exists in the collection
+**/
+
+	public boolean contains(E target) {
+		Node<E> t = firstAfter(lastBefore(target, false), target, false);
+		return t != tail && comp.compare(t.element, target) == 0;
+	}
+
+/**
+ * @param target the target element
+ * @return an equivalent element that is in the collection
+ * @throws NoSuchElementException there is no equivalent element in the
+ * collection.
+**/
+
+	public E getEquivalentElement(E target) {
+		Node<E> t = firstAfter(lastBefore(target, false), target, false);
+		if (t == tail || comp.compare(t.element, target) != 0)
+			throw new NoSuchElementException();
+		return t.element;
+	}
+
+/**
+ * This method takes linear time since the links do not record widths.
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the sorted order, where
+ * r = 0 is the minimum.
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public E get(int r) {
+		if (r < 0)
+			throw new IllegalArgumentException();
+		Node<E> t = firstAfter(head);
+		for (int j = 0; j < r && t != tail; j++)
+			t = firstAfter(t);
+		if (t == tail)
+			throw new IllegalArgumentException();
+		return t.element;
+	}
+
+/**
+ * @return a least element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E min() {
+		Node<E> t = firstAfter(head);
+		if (t == tail)
+			throw new NoSuchElementException();
+		return t.element;
+	}
+
+/**
+ * @return a greatest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E max() {
+		Node<E> t = lastNode();
+		if (t == head)
+			throw new NoSuchElementException();
+		return t.element;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the predecessor
+ * @return the largest
+ * element in the ordered collection that is less than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is smaller than <code>target</code>
+**/
+
+	public E predecessor(E target) {
+		Node<E> t = lastBefore(target, false);
+		if (t == head)
+			throw new NoSuchElementException();
+		return t.element;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the successor
+ * @return the smallest
+ * element in the ordered collection that is greater than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is greater than <code>target</code>
+**/
+
+	public E successor(E target) {
+		Node<E> t = firstAfter(lastBefore(target, true), target, true);
+		if (t == tail)
+			throw new NoSuchElementException();
+		return t.element;
+	}
+
+/**
+ * @return the number of elements in the collection, which is exact
+ * only when no update is in progress
+**/
+
+	public int getSize() {
+		return (int) Math.max(0, count.sum());  //a removal can be counted before the addition it follows
+	}
+
+/**
+ * @return true  if and only if the collection has no elements
+**/
+
+	public boolean isEmpty() {
+		return firstAfter(head) == tail;
+	}
+
+/**
+ * Inserts a new tower holding <code>element</code> just before any
+ * equivalent elements.  The element is in the collection once the tower is linked
+ * at level 0, and the higher levels are linked afterwards.
+ * @param element the element to add
+ * @return a reference to the new tower
+**/
+
+	@SuppressWarnings("unchecked")
+	Node<E> insert(E element) {
+		int towerHeight = selectTowerHeight();
+		raiseHeight(towerHeight);
+		Node<E>[] preds = (Node<E>[]) new Node<?>[towerHeight];
+		Node<E>[] succs = (Node<E>[]) new Node<?>[towerHeight];
+		Node<E> newNode = new Node<E>(element, towerHeight);
+		do {
+			find(element, preds, succs);
+			for (int level = 0; level < towerHeight; level++)
+				newNode.links[level] = succs[level];  //published by the compare-and-set
+		} while (!preds[0].casLink(0, succs[0], newNode));
+		count.increment();
+		for (int level = 1; level < towerHeight; level++) {
+			while (true) {
+				Node<E> succ = succs[level];
+				if (preds[level].casLink(level, succ, newNode))
+					break;
+				find(element, preds, succs);
+				if (!newNode.casLink(level, succ, succs[level]))
+					return newNode;  //newNode is being removed, so stop linking it
+			}
+		}
+		return newNode;
+	}
+
+/**
+ * Inserts <code>element</code> into the collection.
+ * @param element the element to add
+**/
+
+	public void add(E element) {
+		insert(element);
+	}
+
+/**
+ * Inserts <code>element</code> into the collection.
+ * @param element the element to add
+ * @return a tracker to the new element
+**/
+
+	public Tracker addTracked(E element) {
+		return new Tracker(insert(element));
+	}
+
+/**
+ * Marks the links out of <code>t</code> from the top level down, and then
+ * unlinks it.
+ * @param t a reference to a tower
+ * @return true  if and only if this call removed the element, as opposed to a
+ * concurrent call
+**/
+
+	boolean remove(Node<E> t) {
+		for (int level = t.getTowerHeight() - 1; level >= 1; level--) {
+			Object link = t.link(level);
+			while (!(link instanceof Mark)) {
+				t.casLink(level, link, new Mark((Node<?>) link));
+				link = t.link(level);
+			}
+		}
+		Object link = t.link(0);
+		while (!(link instanceof Mark)) {
+			if (t.casLink(0, link, new Mark((Node<?>) link))) {  //linearization point
+				count.decrement();
+				unlink(t);
+				return true;
+			}
+			link = t.link(0);
+		}
+		return false;  //some other thread removed it
+	}
+
+/**
+ * Unlinks the removed tower <code>t</code> at every level.  The search
+ * unlinks removed towers before the first equivalent element, and then the run of
+ * equivalent elements is walked at each level until <code>t</code> is reached.
+ * @param t a reference to a removed tower
+**/
+
+	@SuppressWarnings("unchecked")
+	void unlink(Node<E> t) {
+		int top = t.getTowerHeight() - 1;
+		Node<E>[] preds = (Node<E>[]) new Node<?>[top + 1];
+		Node<E>[] succs = (Node<E>[]) new Node<?>[top + 1];
+		retry:
+		while (true) {
+			find(t.element, preds, succs);
+			for (int level = top; level >= 0; level--) {
+				Node<E> pred = preds[level];
+				Node<E> curr = succs[level];
+				while (curr != tail && comp.compare(curr.element, t.element) == 0) {
+					Object link = curr.link(level);
+					Node<E> succ = nodeOf(link);
+					if (link instanceof Mark) {
+						if (!pred.casLink(level, curr, succ))
+							continue retry;
+						if (curr == t)
+							break;
+					} else
+						pred = curr;
+					curr = succ;
+				}
+			}
+			return;
+		}
+	}
+
+/**
+ * Removes the first occurrence of the target from the collection,
+ * if an equivalent element exists in the collection.
+ * @param element the element to remove
+ * @return <code>true</code> if an element was removed, and <code>false</code> otherwise.
+**/
+
+	public boolean remove(E element) {
+		Node<E> t = firstAfter(lastBefore(element, false), element, false);
+		while (t != tail && comp.compare(t.element, element) == 0) {
+			if (remove(t))
+				return true;
+			t = firstAfter(t);  //lost a race to remove t, so try the next equivalent element
+		}
+		return false;
+	}
+
+/**
+ * Creates a new tracker at FORE.
+**/
+
+	public Tracker iterator() {
+		return new Tracker(head);
+	}
+
+/**
+ * Creates a new tracker at AFT.
+**/
+
+	public Tracker iteratorAtEnd() {
+		return new Tracker(tail);
+	}
+
+/**
+ * @param element an element to locate
+ * @return a tracker to the specified element
+ * @throws NoSuchElementException there is no equivalent element
+ * in the ordered collection.
+**/
+
+	public Tracker getLocator(E element) {
+		Node<E> t = firstAfter(lastBefore(element, false), element, false);
+		if (t == tail || comp.compare(element, t.element) != 0)
+			throw new NoSuchElementException();
+		return new Tracker(t);
+	}
+
+/**
+ * The characteristics are those of any ordered collection, plus
+ * <code>CONCURRENT</code>.  The size is not reported since it may change
+ * during the traversal.
+ * @return a spliterator over the elements in the iteration order
+**/
+
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliteratorUnknownSize(iterator(),
+				spliteratorCharacteristics() | Spliterator.CONCURRENT);
+	}
+
+/**
+ * @return a Java primitive array that holds
+ * each element of the collection reached by an iteration
+**/
+
+	public Object[] toArray() {
+		ArrayList<E> elements = new ArrayList<E>();
+		for (E e : this)
+			elements.add(e);
+		return elements.toArray();
+	}
+
+/**
+ * @param array an array of the correct type into which the collection's elements
+ * are to be placed
+ * @return a Java primitive array that holds
+ * each element of the collection reached by an iteration
+**/
+
+	public E[] toArray(E[] array) {
+		ArrayList<E> elements = new ArrayList<E>();
+		for (E e : this)
+			elements.add(e);
+		return elements.toArray(array);
+	}
+
+/**
+ * Verifies that every level is sorted, that every tower in a level above 0
+ * is in level 0, and that the size is the number of elements.  It should only be
+ * called when no update is in progress.
+ * @throws IllegalStateException the structure is inconsistent
+**/
+
+	public void checkRep() {
+		java.util.HashSet<Node<E>> inLevel0 = new java.util.HashSet<Node<E>>();
+		for (int level = 0; level < MAX_HEIGHT; level++) {
+			Node<E> prev = head;
+			for (Node<E> t = head.next(level); t != tail; t = t.next(level)) {
+				if (level >= height.get())
+					throw new IllegalStateException("tower above height " + height.get());
+				if (t.isDeleted())
+					continue;
+				if (prev != head && comp.compare(prev.element, t.element) > 0)
+					throw new IllegalStateException("level " + level + " is out of order");
+				if (level == 0)
+					inLevel0.add(t);
+				else if (!inLevel0.contains(t))
+					throw new IllegalStateException("level " + level + " has " + t.element +
+							" which is not in level 0");
+				prev = t;
+			}
+		}
+		if (inLevel0.size() != count.sum())
+			throw new IllegalStateException("size is " + count.sum() + " but level 0 has " +
+					inLevel0.size() + " elements");
+	}
+
+
+	public class Tracker extends AbstractCollection<E>.AbstractLocator<E> {
+
+		Node<E> loc;        //reference to the tracked tower
+		Node<E> lookahead;  //tower found by hasNext, or null
+
+/**
+ * @param loc a reference to
+ * the tower to track
+**/
+
+		Tracker(Node<E> loc) {
+			this.loc = loc;
+		}
+
+/**
+ * @return true  if and only if the tracked element is
+ * currently in the collection.
+**/
+
+		public boolean inCollection() {
+			return loc != head && loc != tail && !loc.isDeleted();
+		}
+
+/**
+ * @return the tracked element
+ * @throws NoSuchElementException tracker is not at an element in
+ * the collection.
+**/
+
+		public E get() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return loc.element;
+		}
+
+/**
+ * Moves the tracker to the next element in the
+ * iteration order (or <code>tail</code> if
+ * the last element is currently tracked).  If the tracked element has
+ * been removed, the tracker moves to the element that followed it.
+ * @return true  if and only if after the update, the tracker is
+ * at an element of the collection.
+ * @throws AtBoundaryException the tracker is at <code>tail</code> since there is
+ * no place to advance.
+**/
+
+		public boolean advance() {
+			if (loc == tail)
+				throw new AtBoundaryException();
+			lookahead = null;
+			loc = firstAfter(loc);
+			return loc != tail;
+		}
+
+/**
+ * Moves the tracker to the previous element in the iteration order
+ * (or <code>head</code> if the
+ * first element is currently tracked).  Since there are no previous
+ * references, this takes expected logarithmic time.
+ * @return true  if and only if after the update, the tracker is at an element of the collection.
+ * @throws AtBoundaryException the tracker is at <code>head</code> since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() {
+			if (loc == head)
+				throw new AtBoundaryException();
+			lookahead = null;
+			if (loc == tail)
+				loc = lastNode();
+			else {
+				Node<E> pred = lastBefore(loc.element, false);
+				for (Node<E> t = pred.next(0); t != tail && t != loc &&   //walk the equivalent
+						comp.compare(t.element, loc.element) == 0; t = t.next(0))  //elements before loc
+					if (!t.isDeleted())
+						pred = t;
+				loc = pred;
+			}
+			return loc != head;
+		}
+
+/**
+ * @return true  if there is some element after the current tracker position.
+**/
+
+		public boolean hasNext() {
+			if (loc == tail)
+				return false;
+			lookahead = firstAfter(loc);
+			return lookahead != tail;
+		}
+
+/**
+ * Moves the tracker forward to the next element.  When
+ * <code>hasNext</code> has just returned true, the element it found is returned
+ * even if it has been removed since.
+ * @return the element stored at the position
+ * to which the locator is moved
+ * @throws AtBoundaryException the locator is already at AFT
+ * @throws NoSuchElementException the locator is at the last element in
+ * the collection.
+**/
+
+		public E next() {
+			if (lookahead != null) {
+				loc = lookahead;
+				lookahead = null;
+			} else if (!advance())
+				throw new NoSuchElementException();
+			return loc.element;
+		}
+
+/**
+ * Removes the tracked element.  The tracker
+ * can still advance and retreat from the removed element.
+ * @throws NoSuchElementException the tracked element is not in the collection
+**/
+
+		public void remove() {
+			if (!inCollection() || !ConcurrentSkipList.this.remove(loc))
+				throw new NoSuchElementException();
+		}
+	}
+}
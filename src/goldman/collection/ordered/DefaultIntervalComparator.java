@@ -0,0 +1,49 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+import java.util.Comparator;
+import goldman.Objects;
+import goldman.collection.Interval;
+/**
+ * The DefaultIntervalComparator class provides an implementation of
+ * the <code>IntervalComparator</code> interface for elements that implement
+ * <code>Interval</code>, whose minimum and maximum are the endpoints.
+**/
+
+public class DefaultIntervalComparator<T> implements IntervalComparator<Interval<T>> {
+
+	Comparator<? super T> comp;  //compares the endpoints
+
+/**
+ * Creates an interval comparator that compares the endpoints with the
+ * default comparator.
+**/
+
+	public DefaultIntervalComparator() {
+		this(Objects.DEFAULT_COMPARATOR);
+	}
+
+/**
+ * @param comp the comparator that defines an ordering among the endpoints
+**/
+
+	public DefaultIntervalComparator(Comparator<? super T> comp) {
+		this.comp = comp;
+	}
+
+	public int compareMinToMax(Interval<T> a, Interval<T> b) {
+		return comp.compare(a.getMin(), b.getMax());
+	}
+
+	public int compareMax(Interval<T> a, Interval<T> b) {
+		return comp.compare(a.getMax(), b.getMax());
+	}
+
+	public int compare(Interval<T> a, Interval<T> b) {
+		int c = comp.compare(a.getMin(), b.getMin());
+		return (c != 0) ? c : compareMax(a, b);
+	}
+}
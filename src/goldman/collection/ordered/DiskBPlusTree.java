@@ -0,0 +1,1377 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+import goldman.Codec;
+import goldman.Objects;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Locator;
+import goldman.collection.VisitAbortedException;
+import goldman.collection.Visitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+/**
+ * A disk B+-tree is a B+-tree whose nodes are fixed-size pages of a file, so
+ * that the collection can be much larger than the memory available.  As in
+ * <code>BPlusTree</code>, the internal nodes are used only for navigation, and
+ * the leaves form a doubly linked chain that holds the elements in sorted order,
+ * so a range of elements is visited by one search followed by a scan of the chain.
+ * Each element is converted to bytes by a codec, and elements of different encoded
+ * sizes may be mixed, so a node is full when its encoding does not fit in a page
+ * rather than when it holds a fixed number of elements.  A node whose encoding
+ * falls below a quarter of a page is merged with a sibling when the two fit in
+ * one page.
+ * <p>
+ * Each page is a slotted page: an array of offsets at its start gives the
+ * position of each encoded element, and the elements are packed at its end, so a
+ * search decodes only the elements it compares.  Pages are read with positional
+ * <code>FileChannel</code> reads into a buffer pool that holds a bounded number
+ * of pages, and an evicted page's buffer is reused.  A page is pinned while an
+ * operation holds it, and the CLOCK algorithm chooses an unpinned page to evict
+ * when the pool is full.  Modified pages stay in the pool until the next
+ * <code>checkpoint</code>, which writes them first to a journal file, then in
+ * place, forcing the file after each step, and finally empties the journal.
+ * Opening the file replays a complete journal left by a crash and ignores a
+ * partial one, so the file always holds the state of the last checkpoint.  A
+ * checkpoint is taken automatically when half the pool holds modified pages,
+ * and by <code>close</code>.  Opening an existing file reads only its header
+ * page; the nodes are read as they are reached.
+ * <p>
+ * The comparator is not stored in the file, so a file must be reopened with the
+ * comparator and codec used to create it.  Locators are markers, so
+ * <code>remove</code> through a locator is not supported.
+**/
+
+public class DiskBPlusTree<E> extends AbstractCollection<E> implements OrderedCollection<E> {
+
+	public static final int DEFAULT_PAGE_SIZE = 4096;  //bytes per page
+	public static final int DEFAULT_POOL_SIZE = 1024;  //pages held in the buffer pool
+	static final int MAGIC = 0x42504C54;               //identifies a B+-tree page file
+	static final int JOURNAL_MAGIC = 0x4A524E4C;       //identifies a checkpoint journal
+	static final int NONE = 0;          //page 0 holds the header, so it is never a node
+	static final int FORE = -1;         //marker position before the first element
+	static final int AFT = -2;          //marker position after the last element
+	static final byte LEAF = 0;
+	static final byte INTERNAL = 1;
+	static final byte FREE = 2;
+	static final int COUNT = 2;         //offset of the number of elements in a page
+	static final int PREV = 4;          //offset of the previous leaf, or child 0 of an internal node
+	static final int NEXT = 8;          //offset of the next leaf, or the next free page
+	static final int START = 12;        //offset of the offset of the first encoded element
+	static final int PAGE_HEADER = 16;  //size of the page header, which the slots follow
+
+	final Codec<E> codec;        //converts the elements to and from bytes
+	final int pageSize;          //bytes per page
+	final int maxElementSize;    //largest encoded element
+	final int poolSize;          //number of pages the buffer pool aims to hold
+	final File f;
+	final RandomAccessFile file;
+	final FileChannel channel;
+	final RandomAccessFile journal;
+	final Page scratch;          //a page outside the pool, used when splitting
+	final ArrayList<Page> frames = new ArrayList<Page>();  //the buffer pool
+	final HashMap<Integer,Page> resident = new HashMap<Integer,Page>();  //pages in the pool
+	int hand = 0;                //position of the CLOCK hand in frames
+	int dirtyPages = 0;          //number of modified pages in the pool
+	int root;                    //page number of the root
+	int height;                  //number of levels, with the leaves at level height-1
+	int firstLeaf;               //page number of the leftmost leaf
+	int lastLeaf;                //page number of the rightmost leaf
+	int pageCount;               //number of pages in the file
+	int freeList;                //first page of the chain of free pages, or NONE
+	long sequence;               //number of the last checkpoint
+	@SuppressWarnings("unchecked")  //a generic array must be created from its erasure
+	Page[] path = (Page[]) new DiskBPlusTree<?>.Page[8];   //pages on the search path, pinned
+	int[] slot = new int[8];     //slot[d] is the child of path[d] taken by the search
+	int depth;                   //number of pages on the search path
+
+/**
+ * A page holds one node of the tree in a buffer of <code>pageSize</code> bytes.
+ * The header holds the kind of node, the number of elements, the two neighbors
+ * in the leaf chain, and where the encoded elements begin.  Slot i, an offset
+ * stored in the two bytes at <code>PAGE_HEADER + 2i</code>, locates element
+ * i, which is stored as its length followed by its encoding.  In an internal
+ * node with k elements, child 0 is held in the header and child i+1 follows
+ * element i, where every element in child i is at most element i and at least
+ * element i-1.  The encoded elements are kept packed against the end of the
+ * page, so the free space is between the last slot and the first element.
+**/
+
+	final class Page {
+		int id;                      //page number in the file
+		final ByteBuffer buf;        //the contents of the page
+		final byte[] bytes;          //the array backing buf
+		int pins = 0;                //number of operations holding the page
+		boolean referenced = true;   //the CLOCK reference bit
+		boolean dirty = false;       //true if modified since the last checkpoint
+
+		Page(int id) {
+			this.id = id;
+			bytes = new byte[pageSize];
+			buf = ByteBuffer.wrap(bytes);
+		}
+
+		void reset(byte kind) {
+			buf.put(0, kind);
+			buf.putChar(COUNT, (char) 0);
+			buf.putInt(PREV, NONE);
+			buf.putInt(NEXT, NONE);
+			buf.putInt(START, pageSize);
+		}
+
+		byte kind() {
+			return buf.get(0);
+		}
+
+		boolean isLeaf() {
+			return kind() == LEAF;
+		}
+
+		int size() {
+			return buf.getChar(COUNT);
+		}
+
+		int prev() {
+			return buf.getInt(PREV);
+		}
+
+		int next() {
+			return buf.getInt(NEXT);
+		}
+
+		void setPrev(int id) {
+			buf.putInt(PREV, id);
+		}
+
+		void setNext(int id) {
+			buf.putInt(NEXT, id);
+		}
+
+		int start() {
+			return buf.getInt(START);
+		}
+
+		int offset(int i) {
+			return buf.getChar(PAGE_HEADER + 2*i);
+		}
+
+/**
+ * @param i the index of an element
+ * @return the number of bytes holding element i, and for an internal node the
+ * child that follows it
+**/
+
+		int entrySize(int i) {
+			return 2 + buf.getChar(offset(i)) + (isLeaf() ? 0 : 4);
+		}
+
+/**
+ * @return the number of bytes in use, including the header and slots
+**/
+
+		int used() {
+			return PAGE_HEADER + 2*size() + pageSize - start();
+		}
+
+		E get(int i) {
+			int off = offset(i);
+			buf.position(off + 2);
+			return codec.decode(buf, buf.getChar(off));
+		}
+
+		int child(int i) {
+			if (i == 0)
+				return buf.getInt(PREV);
+			int off = offset(i-1);
+			return buf.getInt(off + 2 + buf.getChar(off));
+		}
+
+		void setChild(int i, int id) {
+			if (i == 0)
+				buf.putInt(PREV, id);
+			else {
+				int off = offset(i-1);
+				buf.putInt(off + 2 + buf.getChar(off), id);
+			}
+		}
+
+/**
+ * @param e an element
+ * @return true  if and only if there is room in this page for <code>e</code>
+**/
+
+		boolean fits(E e) {
+			return 2 + 2 + codec.getEncodedSize(e) + (isLeaf() ? 0 : 4) <=
+				start() - PAGE_HEADER - 2*size();
+		}
+
+/**
+ * Opens a gap for slot i and reserves <code>entrySize</code> bytes for it.
+ * @return the offset of the reserved bytes
+**/
+
+		int reserve(int i, int entrySize) {
+			int n = size();
+			int off = start() - entrySize;
+			System.arraycopy(bytes, PAGE_HEADER + 2*i, bytes, PAGE_HEADER + 2*(i+1), 2*(n-i));
+			buf.putChar(PAGE_HEADER + 2*i, (char) off);
+			buf.putChar(COUNT, (char) (n+1));
+			buf.putInt(START, off);
+			return off;
+		}
+
+/**
+ * Inserts an element, and for an internal node, the child to its right.
+ * REQUIRES: <code>fits(e)</code>
+ * @param i the index for the new element
+ * @param e the new element
+ * @param right the page number of the new child of an internal node
+**/
+
+		void insert(int i, E e, int right) {
+			int length = codec.getEncodedSize(e);
+			int off = reserve(i, 2 + length + (isLeaf() ? 0 : 4));
+			buf.putChar(off, (char) length);
+			buf.position(off + 2);
+			codec.encode(e, buf);
+			if (!isLeaf())
+				buf.putInt(off + 2 + length, right);
+		}
+
+/**
+ * Copies element j of another page, and for an internal node the child
+ * to its right, to the end of this page.
+**/
+
+		void append(Page from, int j) {
+			int entrySize = from.entrySize(j);
+			int off = reserve(size(), entrySize);
+			System.arraycopy(from.bytes, from.offset(j), bytes, off, entrySize);
+		}
+
+/**
+ * Removes element i, and for an internal node, the child to its right,
+ * and moves the elements below it up to close the gap.
+ * @param i the index of the element to remove
+**/
+
+		void delete(int i) {
+			int n = size();
+			int off = offset(i);
+			int entrySize = entrySize(i);
+			int start = start();
+			System.arraycopy(bytes, start, bytes, start + entrySize, off - start);
+			System.arraycopy(bytes, PAGE_HEADER + 2*(i+1), bytes, PAGE_HEADER + 2*i, 2*(n-i-1));
+			for (int j = 0; j < n-1; j++) {
+				int o = offset(j);
+				if (o < off)
+					buf.putChar(PAGE_HEADER + 2*j, (char) (o + entrySize));
+			}
+			buf.putChar(COUNT, (char) (n-1));
+			buf.putInt(START, start + entrySize);
+		}
+
+/**
+ * Keeps only the first k elements (and k+1 children) of this page.
+**/
+
+		void truncate(int k) {
+			scratch.copy(this);
+			reset(kind());
+			setPrev(scratch.prev());
+			setNext(scratch.next());
+			for (int j = 0; j < k; j++)
+				append(scratch, j);
+		}
+
+		void copy(Page from) {
+			System.arraycopy(from.bytes, 0, bytes, 0, pageSize);
+		}
+	}
+
+/**
+ * Opens the B+-tree stored in the given file, creating it if the file does
+ * not exist or is empty.
+ * @param f the file holding the tree
+ * @param codec the codec used to convert the elements to bytes
+ * @param comp the comparator that defines the order of the elements
+ * @param pageSize the number of bytes in each page
+ * @param poolSize the number of pages to hold in memory
+ * @throws IOException the file cannot be read, or it is not empty and
+ * does not hold a B+-tree
+ * @throws IllegalArgumentException the page size is not between 128 and 65536,
+ * the pool holds fewer than 16 pages, or the file holds a tree with a different
+ * page size
+**/
+
+	public DiskBPlusTree(File f, Codec<E> codec, Comparator<? super E> comp, int pageSize,
+			int poolSize) throws IOException {
+		super(comp);
+		if (pageSize < 128 || pageSize > 65536 || poolSize < 16)
+			throw new IllegalArgumentException();
+		this.f = f;
+		this.codec = codec;
+		this.pageSize = pageSize;
+		this.poolSize = poolSize;
+		maxElementSize = (pageSize - PAGE_HEADER)/4 - 8;  //a split always leaves halves that fit
+		scratch = new Page(NONE);
+		file = new RandomAccessFile(f, "rw");
+		channel = file.getChannel();
+		journal = new RandomAccessFile(journalFile(f), "rw");
+		recover();
+		if (channel.size() == 0) {
+			clear();
+			checkpoint();
+		} else
+			readHeader();
+	}
+
+/**
+ * Opens the B+-tree stored in the given file, creating it if needed, with
+ * the default comparator, page size, and pool size.
+ * @param f the file holding the tree
+ * @param codec the codec used to convert the elements to bytes
+ * @throws IOException the file cannot be read, or it is not empty and
+ * does not hold a B+-tree
+**/
+
+	public DiskBPlusTree(File f, Codec<E> codec) throws IOException {
+		this(f, codec, Objects.DEFAULT_COMPARATOR, DEFAULT_PAGE_SIZE, DEFAULT_POOL_SIZE);
+	}
+
+/**
+ * @param f the file holding a tree
+ * @return the file holding its checkpoint journal
+**/
+
+	public static File journalFile(File f) {
+		return new File(f.getPath() + ".journal");
+	}
+
+/**
+ * @return the largest encoded size of an element that can be added
+**/
+
+	public int getMaxElementSize() {
+		return maxElementSize;
+	}
+
+
+	void readFully(FileChannel ch, ByteBuffer b, long position) throws IOException {
+		while (b.hasRemaining())
+			if (ch.read(b, position + b.position()) < 0)
+				throw new IOException("unexpected end of " + f);
+	}
+
+	void writeFully(FileChannel ch, ByteBuffer b, long position) throws IOException {
+		while (b.hasRemaining())
+			ch.write(b, position + b.position());
+	}
+
+	void readHeader() throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(64);
+		readFully(channel, b, 0);
+		b.flip();
+		if (b.getInt() != MAGIC)
+			throw new IOException("no B+-tree in " + f);
+		int size = b.getInt();
+		if (size != pageSize)
+			throw new IllegalArgumentException("B+-tree has page size " + size);
+		root = b.getInt();
+		height = b.getInt();
+		firstLeaf = b.getInt();
+		lastLeaf = b.getInt();
+		pageCount = b.getInt();
+		freeList = b.getInt();
+		this.size = b.getInt();
+		sequence = b.getLong();
+	}
+
+	ByteBuffer header() {
+		ByteBuffer b = ByteBuffer.allocate(pageSize);
+		b.putInt(MAGIC).putInt(pageSize).putInt(root).putInt(height).putInt(firstLeaf);
+		b.putInt(lastLeaf).putInt(pageCount).putInt(freeList).putInt(size).putLong(sequence);
+		b.clear();
+		return b;
+	}
+
+/**
+ * Replays the journal if a crash occurred after it was completely written,
+ * and discards it otherwise.
+ * @throws IOException the journal or the file cannot be accessed
+ * @throws IllegalArgumentException the journal was written for a different
+ * page size
+**/
+
+	void recover() throws IOException {
+		FileChannel jc = journal.getChannel();
+		long length = jc.size();
+		if (length == 0)
+			return;
+		ByteBuffer b = ByteBuffer.allocate((int) length);
+		readFully(jc, b, 0);
+		b.flip();
+		if (length >= 20 && b.getInt() == JOURNAL_MAGIC &&
+				b.getLong(b.limit()-8) == checksum(b, (int) length - 8)) {
+			if (b.getInt() != pageSize)
+				throw new IllegalArgumentException("journal has page size " + b.getInt(4));
+			int count = b.getInt();
+			for (int i = 0; i < count; i++) {
+				int id = b.getInt();
+				ByteBuffer page = b.slice(b.position(), pageSize);
+				writeFully(channel, page, (long) id * pageSize);
+				b.position(b.position() + pageSize);
+			}
+			channel.force(true);
+		}
+		jc.truncate(0);
+		jc.force(true);
+	}
+
+	long checksum(ByteBuffer b, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(b.slice(0, length));
+		return crc.getValue();
+	}
+
+/**
+ * Makes the current contents durable.  The modified pages and the header are
+ * written to the journal, which is forced, then to their places in the file,
+ * which is forced, and then the journal is emptied.
+ * @throws UncheckedIOException the file cannot be written
+**/
+
+	public void checkpoint() {
+		try {
+			ArrayList<Page> dirty = new ArrayList<Page>(dirtyPages);
+			for (Page p : frames)
+				if (p.dirty)
+					dirty.add(p);
+			sequence++;
+			ByteBuffer j = ByteBuffer.allocate(12 + (dirty.size()+1)*(4+pageSize) + 8);
+			j.putInt(JOURNAL_MAGIC).putInt(pageSize).putInt(dirty.size()+1);
+			for (Page p : dirty)
+				j.putInt(p.id).put(p.bytes);
+			j.putInt(NONE).put(header());
+			j.putLong(checksum(j, j.position()));
+			j.flip();
+			FileChannel jc = journal.getChannel();
+			writeFully(jc, j, 0);
+			jc.force(true);
+			for (Page p : dirty) {
+				writeFully(channel, ByteBuffer.wrap(p.bytes), (long) p.id * pageSize);
+				p.dirty = false;
+			}
+			writeFully(channel, header(), 0);
+			if (channel.size() > (long) pageCount * pageSize)  //pages freed by clear
+				channel.truncate((long) pageCount * pageSize);
+			channel.force(true);
+			jc.truncate(0);
+			jc.force(true);
+			dirtyPages = 0;
+			trimPool();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+/**
+ * Takes a checkpoint and closes the file.
+ * @throws IOException the file cannot be closed
+**/
+
+	public void close() throws IOException {
+		checkpoint();
+		journal.close();
+		file.close();
+	}
+
+//Buffer pool methods
+
+/**
+ * @param id a page number
+ * @return the page, read into the pool if it is not resident, and pinned
+ * @throws UncheckedIOException the page cannot be read
+**/
+
+	Page fetch(int id) {
+		Page p = resident.get(id);
+		if (p == null) {
+			p = frame(id);
+			try {
+				readFully(channel, p.buf.clear(), (long) id * pageSize);
+			} catch (IOException e) {
+				resident.remove(id);
+				p.id = NONE;
+				throw new UncheckedIOException(e);
+			}
+		}
+		p.pins++;
+		p.referenced = true;
+		return p;
+	}
+
+	void unpin(Page p) {
+		p.pins--;
+	}
+
+/**
+ * Obtains a page of the pool to hold the given page, evicting the page chosen
+ * by the CLOCK algorithm if the pool is full.  Only a page that is neither
+ * pinned nor modified can be evicted, and if there is none, the pool temporarily
+ * grows.
+ * @param id the page number
+ * @return an unpinned page of the pool, whose contents are to be filled in
+**/
+
+	Page frame(int id) {
+		int victim = (frames.size() < poolSize) ? -1 : victim();
+		Page p;
+		if (victim < 0) {
+			p = new Page(id);
+			frames.add(p);
+		} else {
+			p = frames.get(victim);
+			resident.remove(p.id);
+			p.id = id;
+		}
+		resident.put(id, p);
+		return p;
+	}
+
+/**
+ * @return the index in <code>frames</code> of a page to evict, or -1 if every
+ * page is pinned or modified
+**/
+
+	int victim() {
+		int n = frames.size();
+		for (int i = 0; i < 2*n; i++) {   //the second sweep finds the reference bits cleared
+			int current = hand;
+			Page p = frames.get(current);
+			hand = (hand + 1) % n;
+			if (p.pins == 0 && !p.dirty) {
+				if (!p.referenced)
+					return current;
+				p.referenced = false;
+			}
+		}
+		return -1;
+	}
+
+/**
+ * Shrinks a pool that grew beyond its size back to its size.
+**/
+
+	void trimPool() {
+		for (int i = frames.size()-1; i >= 0 && frames.size() > poolSize; i--) {
+			Page p = frames.get(i);
+			if (p.pins == 0) {
+				resident.remove(p.id);
+				frames.remove(i);
+			}
+		}
+		if (hand >= frames.size())
+			hand = 0;
+	}
+
+	void markDirty(Page p) {
+		if (!p.dirty) {
+			p.dirty = true;
+			dirtyPages++;
+		}
+	}
+
+/**
+ * @param kind the kind of the new node
+ * @return a new pinned page, reusing a free page if there is one
+**/
+
+	Page allocate(byte kind) {
+		Page p;
+		if (freeList != NONE) {
+			p = fetch(freeList);
+			freeList = p.next();
+			p.reset(kind);
+		} else {
+			p = frame(pageCount++);
+			p.reset(kind);
+			p.pins++;
+			p.referenced = true;
+		}
+		markDirty(p);
+		return p;
+	}
+
+	void free(Page p) {
+		p.reset(FREE);
+		p.setNext(freeList);
+		freeList = p.id;
+		markDirty(p);
+	}
+
+/**
+ * Completes an update, taking a checkpoint if half the pool holds
+ * modified pages.
+**/
+
+	void endUpdate() {
+		for (int d = 0; d < depth; d++)
+			unpin(path[d]);
+		depth = 0;
+		version.increment();
+		if (dirtyPages > poolSize/2)
+			checkpoint();
+	}
+
+//Search methods
+
+/**
+ * @param p a page
+ * @param target the target element
+ * @param after true to find the first element greater than the target, and false
+ * to find the first element at least the target
+ * @return the index of the first element of <code>p</code> greater than
+ * (or at least) the target, or the size of <code>p</code> if there is none
+**/
+
+	int search(Page p, E target, boolean after) {
+		int lo = 0, hi = p.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = comp.compare(p.get(mid), target);
+			if (c < 0 || (after && c == 0))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+/**
+ * Searches from the root to a leaf, pinning each page on the path.  Every
+ * element to the left of the path is less than (or at most) the target, and
+ * every element to its right is at least (or greater than) the target.
+ * @param target the target element
+ * @param after true if the elements equivalent to the target are to the left
+ * of the path, and false if they are to the right
+ * @return the leaf reached
+**/
+
+	@SuppressWarnings("unchecked")  //a generic array must be created from its erasure
+	Page descend(E target, boolean after) {
+		if (path.length < height) {
+			path = (Page[]) new DiskBPlusTree<?>.Page[2*height];
+			slot = new int[2*height];
+		}
+		Page p = fetch(root);
+		for (depth = 1; !p.isLeaf(); depth++) {
+			path[depth-1] = p;
+			int i = search(p, target, after);
+			slot[depth-1] = i;
+			p = fetch(p.child(i));
+		}
+		path[depth-1] = p;
+		return p;
+	}
+
+/**
+ * Moves the search path to the next leaf.
+ * @return true  if and only if there is a next leaf
+**/
+
+	boolean advancePath() {
+		int d = depth - 2;
+		while (d >= 0 && slot[d] == path[d].size())
+			d--;
+		if (d < 0)
+			return false;
+		for (int j = depth-1; j > d; j--)
+			unpin(path[j]);
+		slot[d]++;
+		for (int j = d+1; j < depth; j++) {
+			path[j] = fetch(path[j-1].child(slot[j-1]));
+			slot[j] = 0;
+		}
+		return true;
+	}
+
+/**
+ * @param target the target element
+ * @param after true to find the first element greater than the target, and false
+ * to find the first element at least the target
+ * @return a marker at the first element greater than (or at least) the target,
+ * or at AFT if there is none
+**/
+
+	Marker find(E target, boolean after) {
+		int id = root;
+		int i;
+		while (true) {
+			Page p = fetch(id);
+			i = search(p, target, after);
+			unpin(p);
+			if (p.isLeaf())
+				break;
+			id = p.child(i);
+		}
+		Marker m = new Marker(id, i);
+		m.skipForward();
+		return m;
+	}
+
+/**
+ * @param target the target element
+ * @return a marker at the first element equivalent to the target, or null if
+ * there is none
+**/
+
+	Marker findEquivalent(E target) {
+		Marker m = find(target, false);
+		if (m.page == AFT || !equivalent(m.element(), target))
+			return null;
+		return m;
+	}
+
+/**
+ * @param target the element being tested for membership in the collection
+ * @return true  if and only if an equivalent value exists in the collection
+**/
+
+	public boolean contains(E target) {
+		return findEquivalent(target) != null;
+	}
+
+/**
+ * @param target the target element
+ * @return an equivalent element that is in the collection
+ * @throws NoSuchElementException there is no equivalent element in the
+ * collection.
+**/
+
+	public E getEquivalentElement(E target) {
+		Marker m = findEquivalent(target);
+		if (m == null)
+			throw new NoSuchElementException();
+		return m.element();
+	}
+
+/**
+ * Walks the leaf chain, so it reads about r/B pages for B elements per page.
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the sorted order, where
+ * r = 0 is the minimum.
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public E get(int r) {
+		if (r < 0 || r >= getSize())
+			throw new IllegalArgumentException();
+		for (int id = firstLeaf; ; ) {
+			Page p = fetch(id);
+			unpin(p);
+			if (r < p.size())
+				return p.get(r);
+			r -= p.size();
+			id = p.next();
+		}
+	}
+
+/**
+ * @return a smallest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E min() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		Marker m = new Marker(FORE, 0);
+		m.advance();
+		return m.element();
+	}
+
+/**
+ * @return a greatest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E max() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		Marker m = new Marker(AFT, 0);
+		m.retreat();
+		return m.element();
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the predecessor
+ * @return the largest
+ * element in the ordered collection that is less than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is less than <code>target</code>
+**/
+
+	public E predecessor(E target) {
+		Marker m = find(target, false);
+		if (!m.retreat())
+			throw new NoSuchElementException();
+		return m.element();
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the successor
+ * @return the least
+ * element in the ordered collection that is greater than <code>target</code>
+ * @throws NoSuchElementException no element in the collection
+ * is greater than <code>target</code>
+**/
+
+	public E successor(E target) {
+		Marker m = find(target, true);
+		if (m.page == AFT)
+			throw new NoSuchElementException();
+		return m.element();
+	}
+
+/**
+ * Visits the elements e with <code>lo</code> &le; e &le; <code>hi</code> in
+ * sorted order, by a search for <code>lo</code> followed by a scan of the leaf chain.
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @param v a visitor
+ * @throws VisitAbortedException the traversal is aborted due to an
+ * exception raised by the visitor
+**/
+
+	public void forEachInRange(E lo, E hi, Visitor<? super E> v) {
+		Marker m = find(lo, false);
+		try {
+			scan(m.page, m.index, hi, v);
+		} catch (Throwable cause) {
+			throw new VisitAbortedException(cause);
+		}
+	}
+
+/**
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @return the number of elements e in the collection with
+ * <code>lo</code> &le; e &le; <code>hi</code>
+**/
+
+	public int countInRange(E lo, E hi) {
+		Marker m = find(lo, false);
+		int count = 0;
+		for (int id = m.page, i = m.index; id != AFT && id != NONE; i = 0) {
+			Page p = fetch(id);
+			unpin(p);
+			if (p.size() > 0 && comp.compare(p.get(p.size()-1), hi) <= 0) {
+				count += p.size() - i;      //the whole remainder of the leaf is in range
+				id = p.next();
+			} else {
+				int end = search(p, hi, true);
+				count += Math.max(0, end - i);
+				break;
+			}
+		}
+		return count;
+	}
+
+/**
+ * Applies the visitor to the elements of the leaf chain from the given position
+ * up to the first element greater than <code>hi</code>.
+ * @param id the page number of the first leaf, or AFT
+ * @param i the index of the first element in that leaf
+ * @param hi the upper end of the range, or null for no bound
+ * @param v a visitor
+**/
+
+	void scan(int id, int i, E hi, Visitor<? super E> v) throws Exception {
+		while (id != AFT && id != NONE) {
+			Page p = fetch(id);
+			try {
+				for (; i < p.size(); i++) {
+					E e = p.get(i);
+					if (hi != null && comp.compare(e, hi) > 0)
+						return;
+					v.visit(e);
+				}
+			} finally {
+				unpin(p);
+			}
+			id = p.next();
+			i = 0;
+		}
+	}
+
+	protected void traverseForVisitor(Visitor<? super E> v) throws Exception {
+		scan(firstLeaf, 0, null, v);
+	}
+
+//Mutation methods
+
+/**
+ * @param element the element to check
+ * @throws IllegalArgumentException the encoding of the element is larger
+ * than <code>getMaxElementSize()</code>
+**/
+
+	void checkSize(E element) {
+		if (codec.getEncodedSize(element) > maxElementSize)
+			throw new IllegalArgumentException("encoded element exceeds " + maxElementSize + " bytes");
+	}
+
+/**
+ * Inserts <code>element</code> into the collection after any equivalent
+ * elements.  A node with no room for a new element is split, and the
+ * separator is added to its parent.
+ * @param element the new element
+ * @throws IllegalArgumentException the encoding of the element is larger
+ * than <code>getMaxElementSize()</code>
+**/
+
+	public void add(E element) {
+		checkSize(element);
+		Page leaf = descend(element, true);
+		insert(depth-1, search(leaf, element, true), element, NONE);
+		size++;
+		endUpdate();
+	}
+
+/**
+ * Inserts an element into a node on the search path, splitting it first if
+ * there is no room.
+ * @param d the level of the node on the search path
+ * @param i the index for the new element
+ * @param e the new element
+ * @param right for an internal node, the page number of the new child to the
+ * right of <code>e</code>
+**/
+
+	void insert(int d, int i, E e, int right) {
+		Page p = path[d];
+		markDirty(p);
+		if (p.fits(e)) {
+			p.insert(i, e, right);
+			return;
+		}
+		Page sibling = allocate(p.kind());
+		int k = split(p, sibling);
+		E separator = p.isLeaf() ? p.get(k-1) : sibling.get(0);
+		if (!p.isLeaf())
+			sibling.delete(0);
+		if (i < k || (i == k && !p.isLeaf()))
+			p.insert(i, e, right);
+		else
+			sibling.insert(i - k - (p.isLeaf() ? 0 : 1), e, right);
+		if (d == 0) {                            //the root was split
+			Page r = allocate(INTERNAL);
+			r.setChild(0, p.id);
+			r.insert(0, separator, sibling.id);
+			root = r.id;
+			height++;
+			unpin(r);
+		} else
+			insert(d-1, slot[d-1], separator, sibling.id);
+		unpin(sibling);
+	}
+
+/**
+ * Moves about half of the encoded bytes of a full node into a new right
+ * sibling.  A leaf keeps its first k elements, and the last of them is the
+ * separator copied up to the parent.  An internal node keeps its first k
+ * elements and k+1 children, and element k, which moves up to the parent, is
+ * left as the first element of the sibling, whose child 0 is set to child k+1.
+ * @param left a full node
+ * @param right an empty node of the same kind
+ * @return k, the number of elements kept in <code>left</code>
+**/
+
+	int split(Page left, Page right) {
+		int n = left.size();
+		int half = (left.used() - PAGE_HEADER)/2;
+		int k = 0;
+		for (int b = 0; k < n - (left.isLeaf() ? 1 : 2); k++) {
+			b += 2 + left.entrySize(k);
+			if (b > half)
+				break;
+		}
+		k = Math.max(k, 1);
+		for (int j = k; j < n; j++)
+			right.append(left, j);
+		if (left.isLeaf()) {
+			right.setPrev(left.id);
+			right.setNext(left.next());
+			if (left.next() == NONE)
+				lastLeaf = right.id;
+			else {
+				Page next = fetch(left.next());
+				next.setPrev(right.id);
+				markDirty(next);
+				unpin(next);
+			}
+			left.setNext(right.id);
+		} else
+			right.setChild(0, left.child(k+1));
+		left.truncate(k);
+		return k;
+	}
+
+/**
+ * Removes from the collection an arbitrary element (if any) equivalent to the target.
+ * @param target the element to remove
+ * @return true  if an element was removed, and false otherwise.
+**/
+
+	public boolean remove(E target) {
+		Page leaf = descend(target, false);
+		int i = search(leaf, target, false);
+		while (i == leaf.size() && advancePath()) {  //equivalent elements may begin in a later leaf
+			leaf = path[depth-1];
+			i = 0;
+		}
+		if (i == leaf.size() || !equivalent(leaf.get(i), target)) {
+			for (int d = 0; d < depth; d++)
+				unpin(path[d]);
+			depth = 0;
+			return false;
+		}
+		leaf.delete(i);
+		markDirty(leaf);
+		rebalance();
+		size--;
+		endUpdate();
+		return true;
+	}
+
+/**
+ * Merges each underfull node on the search path with an adjacent sibling
+ * when the two fit in one page, and then removes a root with a single child.
+**/
+
+	void rebalance() {
+		for (int d = depth-1; d > 0 && path[d].used() < pageSize/4; d--) {
+			Page parent = path[d-1];
+			if (parent.size() == 0)          //no sibling
+				break;
+			int k = Math.min(slot[d-1], parent.size()-1);  //merge children k and k+1
+			Page sibling = fetch(parent.child(k == slot[d-1] ? k+1 : k));
+			Page left = (k == slot[d-1]) ? path[d] : sibling;
+			Page right = (k == slot[d-1]) ? sibling : path[d];
+			int combined = left.used() + right.used() - PAGE_HEADER;
+			if (!left.isLeaf())
+				combined += 2 + parent.entrySize(k);
+			if (combined > pageSize) {
+				unpin(sibling);
+				break;
+			}
+			merge(left, parent, k, right);
+			parent.delete(k);
+			markDirty(parent);
+			unpin(sibling);
+		}
+		while (height > 1) {
+			Page r = fetch(root);
+			unpin(r);
+			if (r.size() > 0)
+				break;
+			root = r.child(0);
+			free(r);                         //the root had a single child
+			height--;
+		}
+	}
+
+/**
+ * Moves the contents of a node into its left sibling, and frees it.
+ * @param left the left node
+ * @param parent the parent of the two nodes
+ * @param k the index of the element of the parent between the two nodes
+ * @param right the right node
+**/
+
+	void merge(Page left, Page parent, int k, Page right) {
+		if (left.isLeaf()) {
+			left.setNext(right.next());
+			if (right.next() == NONE)
+				lastLeaf = left.id;
+			else {
+				Page next = fetch(right.next());
+				next.setPrev(left.id);
+				markDirty(next);
+				unpin(next);
+			}
+		} else {
+			left.append(parent, k);              //the separator moves down
+			left.setChild(left.size(), right.child(0));
+		}
+		for (int j = 0; j < right.size(); j++)
+			left.append(right, j);
+		markDirty(left);
+		free(right);
+	}
+
+/**
+ * Removes all elements from the collection.  The pages are reused, and the
+ * file is truncated at the next checkpoint.
+**/
+
+	public void clear() {
+		frames.clear();
+		resident.clear();
+		hand = 0;
+		dirtyPages = 0;
+		pageCount = 1;
+		freeList = NONE;
+		Page r = allocate(LEAF);
+		unpin(r);
+		root = firstLeaf = lastLeaf = r.id;
+		height = 1;
+		size = 0;
+		version.increment();   //invalidate all markers for iteration
+	}
+
+/**
+ * Verifies that the slots of every page locate packed elements, that every leaf
+ * is at depth height-1, that the elements of each node are sorted and lie between
+ * the separators of its ancestors, that the leaf chain links the leaves in order,
+ * and that the size is the number of elements.
+ * @throws IllegalStateException the tree is inconsistent
+**/
+
+	public void checkRep() {
+		int[] lastSeen = {NONE};
+		int count = checkPage(root, 0, null, null, lastSeen);
+		if (count != size)
+			throw new IllegalStateException("size is " + size + " but tree holds " + count);
+		if (lastSeen[0] != lastLeaf)
+			throw new IllegalStateException("last leaf is " + lastSeen[0] + " not " + lastLeaf);
+	}
+
+	int checkPage(int id, int level, E lo, E hi, int[] lastSeen) {
+		Page p = fetch(id);
+		try {
+			if (p.kind() != (level == height-1 ? LEAF : INTERNAL) || p.used() > pageSize)
+				throw new IllegalStateException("page " + id + " is invalid at level " + level);
+			int packed = 0;
+			for (int i = 0; i < p.size(); i++)
+				if (p.offset(i) >= p.start())
+					packed += p.entrySize(i);
+			if (packed != pageSize - p.start())
+				throw new IllegalStateException("page " + id + " is not packed");
+			for (int i = 0; i < p.size(); i++) {
+				E e = p.get(i);
+				if ((lo != null && comp.compare(e, lo) < 0) || (hi != null && comp.compare(e, hi) > 0)
+						|| (i > 0 && comp.compare(p.get(i-1), e) > 0))
+					throw new IllegalStateException("page " + id + " is out of order at " + e);
+			}
+			if (p.isLeaf()) {
+				if (p.prev() != lastSeen[0] || (lastSeen[0] == NONE && id != firstLeaf))
+					throw new IllegalStateException("leaf chain is broken at " + id);
+				lastSeen[0] = id;
+				return p.size();
+			}
+			int count = 0;
+			for (int i = 0; i <= p.size(); i++)
+				count += checkPage(p.child(i), level+1, (i == 0) ? lo : p.get(i-1),
+						(i == p.size()) ? hi : p.get(i), lastSeen);
+			return count;
+		} finally {
+			unpin(p);
+		}
+	}
+
+//Locator methods
+
+/**
+ * Creates a new marker that is at FORE.
+**/
+
+	public Locator<E> iterator() {
+		return new Marker(FORE, 0);
+	}
+
+/**
+ * Creates a new marker that is at AFT.
+**/
+
+	public Locator<E> iteratorAtEnd() {
+		return new Marker(AFT, 0);
+	}
+
+/**
+ * @param x the element to track
+ * @return a locator initialized at the first element equivalent to x.
+ * @throws NoSuchElementException there is no element equivalent to
+ * x in the collection.
+**/
+
+	public Locator<E> getLocator(E x) {
+		Marker m = findEquivalent(x);
+		if (m == null)
+			throw new NoSuchElementException();
+		return m;
+	}
+
+/**
+ * A marker holds a page number and an index within that leaf, so it
+ * does not keep the page in the pool.
+**/
+
+	protected class Marker extends AbstractCollection<E>.AbstractLocator<E> {
+
+		int page;    //page number of the leaf, or FORE or AFT
+		int index;   //index of the element in the leaf
+
+		Marker(int page, int index) {
+			this.page = page;
+			this.index = index;
+		}
+
+		E element() {
+			Page p = fetch(page);
+			unpin(p);
+			return p.get(index);
+		}
+
+/**
+ * Moves the marker forward past the end of each leaf, to AFT after the last leaf.
+**/
+
+		void skipForward() {
+			while (page != AFT) {
+				Page p = fetch(page);
+				unpin(p);
+				if (index < p.size())
+					return;
+				page = (p.next() == NONE) ? AFT : p.next();
+				index = 0;
+			}
+		}
+
+/**
+ * Moves the marker backward past the start of each leaf, to FORE before the
+ * first leaf.
+**/
+
+		void skipBackward() {
+			while (page != FORE && index < 0) {
+				Page p = fetch(page);
+				unpin(p);
+				if (p.prev() == NONE)
+					page = FORE;
+				else {
+					page = p.prev();
+					Page q = fetch(page);
+					unpin(q);
+					index = q.size()-1;
+				}
+			}
+		}
+
+/**
+ * @return true  if and only if the marker is
+ * at an element in the collection.
+**/
+
+		public boolean inCollection() {
+			checkValidity();
+			return page != FORE && page != AFT;
+		}
+
+/**
+ * @return the marked element
+ * @throws NoSuchElementException marker is not at an element in
+ * the collection.
+**/
+
+		public E get() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return element();
+		}
+
+/**
+ * Moves the marker to the next element in the iteration order,
+ * or AFT if the last element is currently marked.
+ * @return true  if and only if after the update, the marker is at
+ * an element of the collection.
+ * @throws AtBoundaryException the marker is at AFT since there is
+ * no place to advance.
+**/
+
+		public boolean advance() {
+			checkValidity();
+			if (page == AFT)
+				throw new AtBoundaryException();
+			if (page == FORE) {
+				page = firstLeaf;
+				index = 0;
+			} else
+				index++;
+			skipForward();
+			return page != AFT;
+		}
+
+/**
+ * Moves the marker to the previous element in the iteration order, or FORE if the
+ * first element is currently marked.
+ * @return true  if and only if after the update, the marker is at an element of the collection.
+ * @throws AtBoundaryException the marker is at FORE since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() {
+			checkValidity();
+			if (page == FORE)
+				throw new AtBoundaryException();
+			if (page == AFT) {
+				page = lastLeaf;
+				Page p = fetch(page);
+				unpin(p);
+				index = p.size()-1;
+			} else
+				index--;
+			skipBackward();
+			return page != FORE;
+		}
+
+/**
+ * @return true  if there is some element after the current marker position.
+**/
+
+		public boolean hasNext() {
+			checkValidity();
+			if (page == AFT)
+				return false;
+			Marker m = new Marker(page, index);
+			m.versionNumber = versionNumber;
+			return m.advance();
+		}
+
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
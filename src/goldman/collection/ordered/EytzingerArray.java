@@ -0,0 +1,518 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Collection;
+import goldman.collection.Locator;
+/**
+ * An Eytzinger array is a read-only ordered collection for lookup tables that
+ * are built once and then searched many times.  It is created by
+ * <code>freeze</code> from any ordered collection, and any method that would
+ * change it throws an <code>UnsupportedOperationException</code>.
+ * <p>
+ * The elements are held in a single array in the order of a breadth-first
+ * traversal of a complete binary search tree, which is called the Eytzinger
+ * layout: the root is at index 1, and the children of the element at index k
+ * are at indices 2k and 2k+1.  A search descends from index 1 to an index
+ * beyond n, always continuing at 2k or 2k+1, and the index where it last went
+ * left (or right) is then recovered from the trailing bits of the final index,
+ * so the search never stops early and needs no bookkeeping.  Unlike a binary
+ * search of a sorted array, whose first probes are far apart, the first levels
+ * that every search visits share a few cache lines, and the elements a search
+ * may reach four levels below index k are the 16 consecutive elements from
+ * index 16k, so the references a search follows are fetched a cache line at a
+ * time.  At large n a search therefore waits for far fewer cache misses.
+ * <p>
+ * Since each comparison must load an element object, the search of this
+ * class lets the processor predict the direction of each step, so that it
+ * starts loading the next element before the comparison completes.  A
+ * <code>LongEytzingerArray</code>, whose keys are in the array itself, instead
+ * selects each next index without a branch.
+ * <p>
+ * The size of every subtree follows from n, so the element of a given rank is
+ * found in logarithmic time by a descent that uses the subtree sizes, and a
+ * locator moves to the next or previous element in amortized constant time.
+**/
+
+public class EytzingerArray<E> extends AbstractCollection<E> implements OrderedCollection<E> {
+
+	final Object[] a;  //a[1], ..., a[n] hold the elements in breadth-first order
+
+
+/**
+ * @param comp the comparator that orders the elements
+ * @param n the number of elements
+ * @param a the elements in breadth-first order, starting at index 1, or
+ * null when a subclass holds them
+**/
+
+	EytzingerArray(Comparator<? super E> comp, int n, Object[] a) {
+		super(comp);
+		size = n;
+		this.a = a;
+	}
+
+/**
+ * Creates a read-only copy of an ordered collection, in linear time.  The
+ * copy uses the same comparator, and later changes to <code>c</code> do not
+ * affect it.
+ * @param c an ordered collection
+ * @return an Eytzinger array holding the elements of <code>c</code>
+**/
+
+	public static <E> EytzingerArray<E> freeze(OrderedCollection<E> c) {
+		Object[] sorted = c.toArray();
+		return new EytzingerArray<E>(c.getComparator(), sorted.length, layout(sorted));
+	}
+
+/**
+ * @param sorted an array of elements in sorted order
+ * @return an array that holds them in breadth-first order, starting at index 1
+**/
+
+	static Object[] layout(Object[] sorted) {
+		int n = sorted.length;
+		Object[] a = new Object[n + 1];
+		for (int i = 0, k = first(n); i < n; i++, k = next(k, n))
+			a[k] = sorted[i];
+		return a;
+	}
+
+/**
+ * @param n the number of elements
+ * @return the index of the minimum, or 0 when n is 0
+**/
+
+	static int first(int n) {
+		return Integer.highestOneBit(n);
+	}
+
+/**
+ * @param n the number of elements
+ * @return the index of the maximum, or 0 when n is 0
+**/
+
+	static int last(int n) {
+		return Integer.highestOneBit(n + 1) - 1;
+	}
+
+/**
+ * @param k the index of an element
+ * @param n the number of elements
+ * @return the index of the next element in sorted order, or 0 if
+ * k is the index of the maximum
+**/
+
+	static int next(int k, int n) {
+		if (2*k + 1 <= n) {        //go to the leftmost element in the right subtree
+			k = 2*k + 1;
+			while (2*k <= n)
+				k = 2*k;
+			return k;
+		}
+		return lastLeft(k);        //go up to the ancestor where the path last went left
+	}
+
+/**
+ * @param k the index of an element
+ * @param n the number of elements
+ * @return the index of the previous element in sorted order, or 0 if
+ * k is the index of the minimum
+**/
+
+	static int prev(int k, int n) {
+		if (2*k <= n) {            //go to the rightmost element in the left subtree
+			k = 2*k;
+			while (2*k + 1 <= n)
+				k = 2*k + 1;
+			return k;
+		}
+		return lastRight(k);       //go up to the ancestor where the path last went right
+	}
+
+/**
+ * @param k an index reached by a descent from index 1, in which each 0 bit
+ * after the leading 1 is a step to the left child, and each 1 bit is a step
+ * to the right child
+ * @return the index from which the descent last went left, or 0 if it never did
+**/
+
+	static int lastLeft(int k) {
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+
+/**
+ * @param k an index reached by a descent from index 1
+ * @return the index from which the descent last went right, or 0 if it never did
+**/
+
+	static int lastRight(int k) {
+		return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+	}
+
+/**
+ * The levels above the last level of the subtree are full, and the last
+ * level holds those of the consecutive indices from k shifted left by the
+ * number of levels below k that are at most n.
+ * @param k an index
+ * @param n the number of elements
+ * @return the number of elements in the subtree rooted at index k, which is 0
+ * when k &gt; n
+**/
+
+	static int subtreeSize(int k, int n) {
+		if (k > n)
+			return 0;
+		int h = Integer.numberOfLeadingZeros(k) - Integer.numberOfLeadingZeros(n);  //levels below k
+		long lastLevel = (long) k << h;  //index of the leftmost position on the last level
+		return (1 << h) - 1 + (int) Math.max(0, Math.min(1 << h, n - lastLevel + 1));
+	}
+
+/**
+ * @param r a rank from 0 to n-1
+ * @param n the number of elements
+ * @return the index of the element of rank r
+**/
+
+	static int index(int r, int n) {
+		int k = 1;
+		while (true) {
+			int leftSize = subtreeSize(2*k, n);
+			if (r < leftSize)                 //element is in the left subtree
+				k = 2*k;
+			else if (r == leftSize)           //element is at k
+				return k;
+			else {                            //element is in the right subtree
+				r -= leftSize + 1;
+				k = 2*k + 1;
+			}
+		}
+	}
+
+/**
+ * @param k the index of an element
+ * @return the element at index k
+**/
+
+	@SuppressWarnings("unchecked")
+	E element(int k) {
+		return (E) a[k];
+	}
+
+/**
+ * @param x the target
+ * @return the index of the first element in sorted order that is at least
+ * <code>x</code>, or 0 if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	int lowerBound(E x) {
+		int k = 1;
+		while (k <= size)
+			k = (comp.compare((E) a[k], x) < 0) ? 2*k + 1 : 2*k;
+		return lastLeft(k);
+	}
+
+/**
+ * @param x the target
+ * @return the index of the first element in sorted order that is greater
+ * than <code>x</code>, or 0 if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	int upperBound(E x) {
+		int k = 1;
+		while (k <= size)
+			k = (comp.compare((E) a[k], x) <= 0) ? 2*k + 1 : 2*k;
+		return lastLeft(k);
+	}
+
+/**
+ * @param x the target
+ * @return the index of the last element in sorted order that is less
+ * than <code>x</code>, or 0 if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	int lastBelow(E x) {
+		int k = 1;
+		while (k <= size)
+			k = (comp.compare((E) a[k], x) < 0) ? 2*k + 1 : 2*k;
+		return lastRight(k);
+	}
+
+/**
+ * @param x the target
+ * @return the index of the first element equivalent to <code>x</code>,
+ * or 0 if there is none
+**/
+
+	int find(E x) {
+		int k = lowerBound(x);
+		return (k != 0 && comp.compare(element(k), x) == 0) ? k : 0;
+	}
+
+/**
+ * @param target the element being tested for membership in the collection
+ * @return true  if and only if an equivalent element exists in the collection
+**/
+
+	public boolean contains(E target) {
+		return find(target) != 0;
+	}
+
+/**
+ * @param target the target
+ * @return an equivalent element from the collection
+ * @throws NoSuchElementException there is no equivalent element in this
+ * collection.
+**/
+
+	public E getEquivalentElement(E target) {
+		int k = find(target);
+		if (k == 0)
+			throw new NoSuchElementException();
+		return element(k);
+	}
+
+/**
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the
+ * sorted order, where r=0 is the minimum element
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public E get(int r) {
+		if (r < 0 || r >= size)
+			throw new IllegalArgumentException("" + r);
+		return element(index(r, size));
+	}
+
+/**
+ * @return a smallest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E min() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return element(first(size));
+	}
+
+/**
+ * @return a largest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E max() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return element(last(size));
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the predecessor
+ * @return the largest
+ * element in the ordered collection that is less than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is smaller than <code>target</code>
+**/
+
+	public E predecessor(E target) {
+		int k = lastBelow(target);
+		if (k == 0)
+			throw new NoSuchElementException();
+		return element(k);
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the successor
+ * @return the smallest
+ * element in the ordered collection that is greater than <code>target</code>
+ * @throws NoSuchElementException no element in the collection
+ * is greater than <code>target</code>
+**/
+
+	public E successor(E target) {
+		int k = upperBound(target);
+		if (k == 0)
+			throw new NoSuchElementException();
+		return element(k);
+	}
+
+/**
+ * @throws UnsupportedOperationException an Eytzinger array cannot be changed
+**/
+
+	public void add(E element) {
+		throw new UnsupportedOperationException("an Eytzinger array cannot be changed");
+	}
+
+/**
+ * @throws UnsupportedOperationException an Eytzinger array cannot be changed
+**/
+
+	public void addAll(Collection<? extends E> c) {
+		throw new UnsupportedOperationException("an Eytzinger array cannot be changed");
+	}
+
+/**
+ * @throws UnsupportedOperationException an Eytzinger array cannot be changed
+**/
+
+	public boolean remove(E element) {
+		throw new UnsupportedOperationException("an Eytzinger array cannot be changed");
+	}
+
+/**
+ * @throws UnsupportedOperationException an Eytzinger array cannot be changed
+**/
+
+	public void retainAll(Collection<E> c) {
+		throw new UnsupportedOperationException("an Eytzinger array cannot be changed");
+	}
+
+/**
+ * @throws UnsupportedOperationException an Eytzinger array cannot be changed
+**/
+
+	public void clear() {
+		throw new UnsupportedOperationException("an Eytzinger array cannot be changed");
+	}
+
+/**
+ * Checks that the elements are in sorted order.
+ * @throws IllegalStateException an element is less than the one before it
+**/
+
+	public void checkRep() {
+		int prev = 0;
+		for (int k = first(size); k != 0; prev = k, k = next(k, size))
+			if (prev != 0 && comp.compare(element(prev), element(k)) > 0)
+				throw new IllegalStateException(element(prev) + " precedes " + element(k));
+	}
+
+/**
+ * Creates a new marker that is at FORE.
+**/
+
+	public Locator<E> iterator() {
+		return new Marker(0);
+	}
+
+/**
+ * Creates a new marker that is at AFT.
+**/
+
+	public Locator<E> iteratorAtEnd() {
+		return new Marker(size + 1);
+	}
+
+/**
+ * @param element the element to locate
+ * @return a marker at the first element equivalent to <code>element</code>
+ * @throws NoSuchElementException there is no equivalent element in the collection
+**/
+
+	public Locator<E> getLocator(E element) {
+		int k = find(element);
+		if (k == 0)
+			throw new NoSuchElementException();
+		return new Marker(k);
+	}
+
+
+	public class Marker extends AbstractCollection<E>.AbstractLocator<E> {
+
+		int k;  //the index of the marked element, 0 at FORE, or n+1 at AFT
+
+/**
+ * @param k the index of the marked element, 0 for FORE, or n+1 for AFT
+**/
+
+		Marker(int k) {
+			this.k = k;
+		}
+
+/**
+ * @return true  if and only if the marker is at an element
+**/
+
+		public boolean inCollection() {
+			return k >= 1 && k <= size;
+		}
+
+/**
+ * @return the marked element
+ * @throws NoSuchElementException the marker is at FORE or AFT
+**/
+
+		public E get() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return element(k);
+		}
+
+/**
+ * Moves the marker to the next element in sorted order, or to AFT after the last.
+ * @return true  if and only if the marker is then at an element
+ * @throws AtBoundaryException the marker is already at AFT
+**/
+
+		public boolean advance() {
+			if (k == size + 1)
+				throw new AtBoundaryException();
+			k = (k == 0) ? first(size) : EytzingerArray.next(k, size);
+			if (k == 0)
+				k = size + 1;
+			return k != size + 1;
+		}
+
+/**
+ * Moves the marker to the previous element in sorted order, or to FORE before
+ * the first.
+ * @return true  if and only if the marker is then at an element
+ * @throws AtBoundaryException the marker is already at FORE
+**/
+
+		public boolean retreat() {
+			if (k == 0)
+				throw new AtBoundaryException();
+			k = (k == size + 1) ? last(size) : prev(k, size);
+			return k != 0;
+		}
+
+/**
+ * @return true  if there is an element after the marker
+**/
+
+		public boolean hasNext() {
+			if (k == 0)
+				return size > 0;
+			return k != size + 1 && EytzingerArray.next(k, size) != 0;
+		}
+
+/**
+ * @throws UnsupportedOperationException an Eytzinger array cannot be changed
+**/
+
+		public void remove() {
+			throw new UnsupportedOperationException("an Eytzinger array cannot be changed");
+		}
+	}
+}
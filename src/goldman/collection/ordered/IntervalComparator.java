@@ -0,0 +1,28 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+import java.util.Comparator;
+/**
+ * The <code>IntervalComparator</code> interface is used by the interval tree to
+ * compare the endpoints of elements that are closed intervals.  Its
+ * <code>compare</code> method must order the elements by their minimum
+ * endpoints, breaking ties by their maximum endpoints.
+**/
+
+public interface IntervalComparator<T> extends Comparator<T> {
+
+/**
+ * Compares the minimum endpoint of a with the maximum endpoint of b.
+**/
+
+	public int compareMinToMax(T a, T b);
+
+/**
+ * Compares a and b according to their maximum endpoints.
+**/
+
+	public int compareMax(T a, T b);
+}
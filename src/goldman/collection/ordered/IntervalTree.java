@@ -0,0 +1,150 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import goldman.collection.Collection;
+import goldman.collection.VisitAbortedException;
+import goldman.collection.Visitor;
+import goldman.collection.positional.DoublyLinkedList;
+/**
+ * An interval tree is a red-black tree whose elements are closed intervals,
+ * ordered by their minimum endpoints, that finds the intervals overlapping a
+ * given range.  It is augmented, using an <code>Aggregator</code>, so that each
+ * node holds the element with the greatest maximum endpoint in its subtree.
+ * The aggregates are kept by the insertions, deletions and rotations of the
+ * red-black tree, so they cost O(1) time per node on the path that changes.
+ * <p>
+ * A query visits the tree in order, but skips each subtree whose greatest
+ * maximum endpoint is before the range, and stops at the first element whose
+ * minimum endpoint is after it.  Every other node visited is on the search
+ * path for an end of the range or is an ancestor of an interval that is
+ * reported, so reporting k intervals takes O(log n + k log(n/k + 1)) time, and
+ * O(log n) time to find whether there are any.  The intervals are reported in
+ * sorted order.
+ * <p>
+ * A point is given as an element whose two endpoints are equal.  The
+ * aggregator is fixed, so <code>setAggregator</code> is not supported.
+**/
+
+public class IntervalTree<E> extends RedBlackTree<E> {
+
+	IntervalComparator<? super E> endpoints;  //compares the endpoints of the elements
+
+
+	final class MaxAggregator implements Aggregator<E,E> {
+
+		public E identity() {
+			return null;
+		}
+
+		public E lift(E x) {
+			return x;
+		}
+
+		public E combine(E left, E right) {
+			if (left == null)
+				return right;
+			if (right == null)
+				return left;
+			return (endpoints.compareMax(left, right) >= 0) ? left : right;
+		}
+	}
+
+/**
+ * Creates an empty interval tree for elements that implement
+ * <code>Interval</code>, whose endpoints are compared with the default
+ * comparator.
+**/
+
+	@SuppressWarnings("unchecked")
+	public IntervalTree() {
+		this((IntervalComparator<? super E>) new DefaultIntervalComparator<Object>());
+	}
+
+/**
+ * @param comp the interval comparator that defines an ordering
+ * among the elements and compares their endpoints
+**/
+
+	public IntervalTree(IntervalComparator<? super E> comp) {
+		super(comp);
+		endpoints = comp;
+		super.setAggregator(new MaxAggregator());
+	}
+
+/**
+ * @throws UnsupportedOperationException an interval tree keeps the element
+ * with the greatest maximum endpoint of each subtree as its aggregate
+**/
+
+	public <A> void setAggregator(Aggregator<? super E, A> aggregator) {
+		throw new UnsupportedOperationException("the aggregator of an interval tree is fixed");
+	}
+
+/**
+ * @param point an element whose endpoints are equal, or any interval
+ * @return a collection of the elements that overlap <code>point</code>,
+ * in sorted order
+**/
+
+	public Collection<E> overlapping(E point) {
+		return overlapping(point, point);
+	}
+
+/**
+ * @param lo an element whose minimum endpoint is the lower end of the range
+ * @param hi an element whose maximum endpoint is the upper end of the range
+ * @return a collection of the elements that overlap the range, in sorted order
+**/
+
+	public Collection<E> overlapping(E lo, E hi) {
+		final Collection<E> elements = new DoublyLinkedList<E>();
+		overlapping(lo, hi, new Visitor<E>() {
+			public void visit(E e) {
+				elements.add(e);
+			}
+		});
+		return elements;
+	}
+
+/**
+ * Applies a visitor, in sorted order, to each element that overlaps the
+ * range, without collecting them.
+ * @param lo an element whose minimum endpoint is the lower end of the range
+ * @param hi an element whose maximum endpoint is the upper end of the range
+ * @param v the visitor to apply
+ * @throws VisitAbortedException the visitor threw an exception
+**/
+
+	public void overlapping(E lo, E hi, Visitor<? super E> v) {
+		try {
+			overlapping((BSTNode) root, lo, hi, v);
+		} catch (Exception cause) {
+			throw new VisitAbortedException(cause);
+		}
+	}
+
+/**
+ * Visits the elements of T(x) that overlap the range.  The left subtrees are
+ * searched recursively, and the right spine iteratively.
+ * @param x a reference to a tree node
+ * @param lo an element whose minimum endpoint is the lower end of the range
+ * @param hi an element whose maximum endpoint is the upper end of the range
+ * @param v the visitor to apply
+**/
+
+	@SuppressWarnings("unchecked")
+	final void overlapping(BSTNode x, E lo, E hi, Visitor<? super E> v) throws Exception {
+		while (!x.isFrontier() && endpoints.compareMinToMax(lo, (E) x.aggregate) <= 0) {
+			overlapping(x.left, lo, hi, v);
+			if (endpoints.compareMinToMax(x.data, hi) > 0)  //x and all that follow start after the range
+				return;
+			if (endpoints.compareMinToMax(lo, x.data) <= 0)
+				v.visit(x.data);
+			x = x.right;
+		}
+	}
+}
@@ -0,0 +1,833 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import goldman.Objects;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Visitor;
+/**
+ * A log-structured merge tree is an ordered collection for write-heavy
+ * workloads.  New elements are added to a small in-memory tree (the memtable),
+ * which is a <code>PersistentRedBlackTree</code>.  When the memtable reaches its
+ * capacity, it is flushed: its elements are copied, in sorted order, into an
+ * immutable sorted run, and a new memtable is started.  So an addition costs a
+ * search of a small tree plus constant amortized time for the flush, however
+ * large the collection.
+ * <p>
+ * Removing an element that is in the memtable removes it from the memtable.
+ * Otherwise a tombstone is added to the memtable.  A tombstone cancels one
+ * equivalent element held in an older run.  Runs are kept from newest to oldest.
+ * Each run holds the elements and tombstones of the memtable that was flushed
+ * to it.
+ * <p>
+ * Compaction merges two adjacent runs in linear time.  The tombstones of the
+ * newer run cancel elements of the older run.  Tombstones that reach the oldest
+ * run are dropped.  As in the logarithmic method, a run is merged with the next
+ * older one when it is at least half as large, so there are O(log n) runs, and
+ * each element takes part in O(log n) merges.
+ * <p>
+ * Compaction runs in the background on an <code>Executor</code>.  A merge
+ * holds no lock while it reads the immutable runs and builds the new one.  It
+ * locks only to install the result.  All the other methods are synchronized on
+ * the collection, so it may be shared by threads.
+ * <p>
+ * A search takes O(log n) time in each run, so O(log<sup>2</sup> n) time
+ * overall.  An ordered traversal merges the runs one group of equivalent
+ * elements at a time.
+ * <p>
+ * Locators are markers.  A marker records an element and the number of
+ * equivalent elements before it, and is relocated by searching for that element,
+ * so markers never throw a <code>ConcurrentModificationException</code>.
+**/
+
+public class LogStructuredMergeTree<E> extends AbstractCollection<E>
+	implements OrderedCollection<E> {
+
+	public static final int DEFAULT_MEMTABLE_CAPACITY = 4096;
+
+	static final Object[] EMPTY = new Object[0];
+
+/**
+ * The executor used by default for compaction, whose threads are daemons so that
+ * they do not keep an application running.
+**/
+
+	static final ExecutorService BACKGROUND = Executors.newCachedThreadPool(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "LogStructuredMergeTree compaction");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+
+	static final class Run {
+		final Object[] elements;    //sorted
+		final Object[] tombstones;  //sorted, each cancelling an element of an older run
+
+		Run(Object[] elements, Object[] tombstones) {
+			this.elements = elements;
+			this.tombstones = tombstones;
+		}
+
+		int size() {
+			return elements.length + tombstones.length;
+		}
+	}
+
+
+	final int memtableCapacity;  //entries in the memtable that trigger a flush
+	final Executor executor;     //runs the compactions
+	PersistentRedBlackTree<E> memtable;    //elements added since the last flush
+	PersistentRedBlackTree<E> tombstones;  //tombstones added since the last flush
+	ArrayList<Run> runs = new ArrayList<Run>();  //from newest to oldest
+	boolean compacting = false;  //true while a compaction task is scheduled or running
+
+/**
+ * Creates an empty log-structured merge tree that uses the default comparator.
+**/
+
+	public LogStructuredMergeTree() {
+		this(Objects.DEFAULT_COMPARATOR);
+	}
+
+/**
+ * Creates an empty log-structured merge tree that uses the provided comparator.
+ * @param comp the comparator that defines an ordering
+ * among the elements
+**/
+
+	public LogStructuredMergeTree(Comparator<? super E> comp) {
+		this(comp, DEFAULT_MEMTABLE_CAPACITY, BACKGROUND);
+	}
+
+/**
+ * @param comp the comparator that defines an ordering
+ * among the elements
+ * @param memtableCapacity the number of elements and tombstones in the
+ * memtable that causes it to be flushed
+ * @param executor the executor on which compactions are run
+ * @throws IllegalArgumentException <code>memtableCapacity</code> &lt; 1
+**/
+
+	public LogStructuredMergeTree(Comparator<? super E> comp, int memtableCapacity, Executor executor) {
+		super(comp);
+		if (memtableCapacity < 1)
+			throw new IllegalArgumentException("memtableCapacity must be positive");
+		this.memtableCapacity = memtableCapacity;
+		this.executor = executor;
+		memtable = new PersistentRedBlackTree<E>(comp);
+		tombstones = new PersistentRedBlackTree<E>(comp);
+	}
+
+/**
+ * @return the number of sorted runs
+**/
+
+	public synchronized int getNumRuns() {
+		return runs.size();
+	}
+
+/**
+ * @param a a sorted array
+ * @param x the target
+ * @param upper true to count elements equivalent to x
+ * @return the number of elements of a less than x, or at most x when
+ * <code>upper</code> is true
+**/
+
+	@SuppressWarnings("unchecked")
+	final int rank(Object[] a, E x, boolean upper) {
+		int lo = 0;
+		int hi = a.length;
+		int bound = upper ? 1 : 0;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (comp.compare((E) a[mid], x) < bound)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+/**
+ * Collects the elements equivalent to x that are not cancelled by tombstones,
+ * from the newest level to the oldest.
+ * @param x the target
+ * @return the live elements equivalent to x
+**/
+
+	@SuppressWarnings("unchecked")
+	final ArrayList<E> group(E x) {
+		ArrayList<E> group = new ArrayList<E>();
+		for (int r = memtable.lowerRank(x), hi = memtable.upperRank(x); r < hi; r++)
+			group.add(memtable.get(r));
+		int pending = tombstones.upperRank(x) - tombstones.lowerRank(x);  //cancel older elements
+		for (Run run : runs) {
+			int lo = rank(run.elements, x, false);
+			int hi = rank(run.elements, x, true);
+			int cancelled = Math.min(pending, hi - lo);
+			pending -= cancelled;
+			for (int r = lo + cancelled; r < hi; r++)
+				group.add((E) run.elements[r]);
+			pending += rank(run.tombstones, x, true) - rank(run.tombstones, x, false);
+		}
+		return group;
+	}
+
+/**
+ * @param x the target, or null for no bound
+ * @param after true to find an element greater than x, and false to find one
+ * at least x
+ * @return the least element of any level that follows x, whether
+ * or not it has been cancelled, or null if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	final E nextKey(E x, boolean after) {
+		E best = null;
+		int r = (x == null) ? 0 : (after ? memtable.upperRank(x) : memtable.lowerRank(x));
+		if (r < memtable.getSize())
+			best = memtable.get(r);
+		for (Run run : runs) {
+			r = (x == null) ? 0 : rank(run.elements, x, after);
+			if (r < run.elements.length && (best == null || comp.compare((E) run.elements[r], best) < 0))
+				best = (E) run.elements[r];
+		}
+		return best;
+	}
+
+/**
+ * @param x the target, or null for no bound
+ * @return the greatest element of any level that is less than x, whether
+ * or not it has been cancelled, or null if there is none
+**/
+
+	@SuppressWarnings("unchecked")
+	final E previousKey(E x) {
+		E best = null;
+		int r = (x == null) ? memtable.getSize() : memtable.lowerRank(x);
+		if (r > 0)
+			best = memtable.get(r - 1);
+		for (Run run : runs) {
+			r = (x == null) ? run.elements.length : rank(run.elements, x, false);
+			if (r > 0 && (best == null || comp.compare((E) run.elements[r - 1], best) > 0))
+				best = (E) run.elements[r - 1];
+		}
+		return best;
+	}
+
+/**
+ * @param x the target, or null for no bound
+ * @param after true to skip the elements equivalent to x
+ * @return the live elements of the first group that follows x, or null if
+ * there is none
+**/
+
+	final ArrayList<E> nextGroup(E x, boolean after) {
+		for (E key = nextKey(x, after); key != null; key = nextKey(key, true)) {
+			ArrayList<E> group = group(key);
+			if (!group.isEmpty())
+				return group;
+		}
+		return null;
+	}
+
+/**
+ * @param x the target, or null for no bound
+ * @return the live elements of the last group that precedes x, or null if
+ * there is none
+**/
+
+	final ArrayList<E> previousGroup(E x) {
+		for (E key = previousKey(x); key != null; key = previousKey(key)) {
+			ArrayList<E> group = group(key);
+			if (!group.isEmpty())
+				return group;
+		}
+		return null;
+	}
+
+/**
+ * @param target the element being tested for membership in the collection
+ * @return true  if and only if an equivalent value exists in the collection
+**/
+
+	public synchronized boolean contains(E target) {
+		return !group(target).isEmpty();
+	}
+
+/**
+ * @param target the target element
+ * @return an equivalent element that is in the collection
+ * @throws NoSuchElementException there is no equivalent element in the
+ * collection.
+**/
+
+	public synchronized E getEquivalentElement(E target) {
+		ArrayList<E> group = group(target);
+		if (group.isEmpty())
+			throw new NoSuchElementException();
+		return group.get(0);
+	}
+
+/**
+ * This method takes linear time, since it merges the runs up to rank r.
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the sorted order, where
+ * r = 0 is the minimum.
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public synchronized E get(int r) {
+		if (r < 0 || r >= size)
+			throw new IllegalArgumentException();
+		for (ArrayList<E> group = nextGroup(null, false); ; group = nextGroup(group.get(0), true)) {
+			if (r < group.size())
+				return group.get(r);
+			r -= group.size();
+		}
+	}
+
+/**
+ * @return a least element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public synchronized E min() {
+		ArrayList<E> group = nextGroup(null, false);
+		if (group == null)
+			throw new NoSuchElementException();
+		return group.get(0);
+	}
+
+/**
+ * @return a greatest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public synchronized E max() {
+		ArrayList<E> group = previousGroup(null);
+		if (group == null)
+			throw new NoSuchElementException();
+		return group.get(0);
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the predecessor
+ * @return the largest
+ * element in the ordered collection that is less than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is smaller than <code>target</code>
+**/
+
+	public synchronized E predecessor(E target) {
+		ArrayList<E> group = previousGroup(target);
+		if (group == null)
+			throw new NoSuchElementException();
+		return group.get(0);
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the successor
+ * @return the smallest
+ * element in the ordered collection that is greater than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is greater than <code>target</code>
+**/
+
+	public synchronized E successor(E target) {
+		ArrayList<E> group = nextGroup(target, true);
+		if (group == null)
+			throw new NoSuchElementException();
+		return group.get(0);
+	}
+
+/**
+ * Inserts <code>element</code> into the memtable, and flushes the memtable
+ * if it is full.
+ * @param element the element to add
+**/
+
+	public synchronized void add(E element) {
+		memtable.add(element);
+		size++;
+		version.increment();
+		if (memtable.getSize() + tombstones.getSize() >= memtableCapacity)
+			flush();
+	}
+
+/**
+ * Removes from the collection an arbitrary element (if any)
+ * equivalent to <code>element</code>.  An element in the memtable is removed
+ * directly, and otherwise a tombstone is added.
+ * @param element the element to remove
+ * @return true  if an element was removed, and false otherwise.
+**/
+
+	public synchronized boolean remove(E element) {
+		if (!memtable.remove(element)) {
+			if (group(element).isEmpty())
+				return false;
+			tombstones.add(element);
+		}
+		size--;
+		version.increment();
+		if (memtable.getSize() + tombstones.getSize() >= memtableCapacity)
+			flush();
+		return true;
+	}
+
+/**
+ * Removes all elements from the collection.  A compaction in progress
+ * discards its result.
+**/
+
+	public synchronized void clear() {
+		memtable = new PersistentRedBlackTree<E>(comp);
+		tombstones = new PersistentRedBlackTree<E>(comp);
+		runs = new ArrayList<Run>();
+		size = 0;
+		version.increment();
+	}
+
+/**
+ * Moves the contents of the memtable to a new run, which becomes the newest,
+ * and schedules a compaction if one is needed.
+**/
+
+	public synchronized void flush() {
+		if (memtable.isEmpty() && tombstones.isEmpty())
+			return;
+		runs.add(0, new Run(memtable.toArray(), tombstones.toArray()));
+		memtable = new PersistentRedBlackTree<E>(comp);
+		tombstones = new PersistentRedBlackTree<E>(comp);
+		if (!compacting && mergeIndex() >= 0) {
+			compacting = true;
+			executor.execute(new Runnable() {
+				public void run() {
+					compact();
+				}
+			});
+		}
+	}
+
+/**
+ * @return the index of the newest run that should be merged with the one after
+ * it, or -1 if none should be
+**/
+
+	final int mergeIndex() {
+		for (int i = 0; i + 1 < runs.size(); i++)
+			if (2 * runs.get(i).size() >= runs.get(i + 1).size())
+				return i;
+		return -1;
+	}
+
+/**
+ * Performs merges until none is needed.  Each merge reads the two runs and
+ * builds the merged run without holding the lock, and then installs it in their
+ * place, unless they were removed in the meantime by <code>clear</code>.
+**/
+
+	final void compact() {
+		while (true) {
+			Run newer, older;
+			boolean oldest;
+			synchronized (this) {
+				int i = mergeIndex();
+				if (i < 0) {
+					compacting = false;
+					notifyAll();
+					return;
+				}
+				newer = runs.get(i);
+				older = runs.get(i + 1);
+				oldest = (i + 2 == runs.size());
+			}
+			Run merged = merge(newer, older, oldest);
+			synchronized (this) {
+				int i = runs.indexOf(newer);  //flushes may have shifted the runs
+				if (i >= 0 && i + 1 < runs.size() && runs.get(i + 1) == older) {
+					runs.remove(i + 1);
+					if (merged.size() == 0)
+						runs.remove(i);
+					else
+						runs.set(i, merged);
+				}
+			}
+		}
+	}
+
+/**
+ * Waits until no compaction is scheduled or running.
+ * @throws InterruptedException the thread is interrupted while waiting
+**/
+
+	public synchronized void awaitCompaction() throws InterruptedException {
+		while (compacting)
+			wait();
+	}
+
+/**
+ * Flushes the memtable and merges all the runs into one, in the calling
+ * thread, dropping every tombstone.
+**/
+
+	public void compactFully() {
+		Run[] all;
+		synchronized (this) {
+			flush();
+			all = runs.toArray(new Run[runs.size()]);
+		}
+		if (all.length < 2)
+			return;
+		Run merged = all[all.length - 1];
+		for (int i = all.length - 2; i >= 0; i--)
+			merged = merge(all[i], merged, true);
+		synchronized (this) {
+			int first = runs.size() - all.length;  //flushes may have added newer runs
+			boolean unchanged = first >= 0;
+			for (int i = 0; unchanged && i < all.length; i++)
+				unchanged = runs.get(first + i) == all[i];
+			if (unchanged) {
+				for (int i = 0; i < all.length; i++)
+					runs.remove(runs.size() - 1);
+				if (merged.size() > 0)
+					runs.add(merged);
+			}
+		}
+	}
+
+/**
+ * Merges two adjacent runs.  The tombstones of the newer run first cancel
+ * equivalent elements of the older run, and those that remain are kept
+ * unless the older run is the oldest.
+ * @param newer a run
+ * @param older the run that follows it
+ * @param oldest true if there is no run older than <code>older</code>
+ * @return the merged run
+**/
+
+	@SuppressWarnings("unchecked")
+	final Run merge(Run newer, Run older, boolean oldest) {
+		Object[] survivors = new Object[older.elements.length];
+		Object[] remaining = new Object[newer.tombstones.length];
+		int s = 0, t = 0;
+		int i = 0, j = 0;
+		while (i < older.elements.length || j < newer.tombstones.length) {
+			int c = (i == older.elements.length) ? 1 : (j == newer.tombstones.length) ? -1 :
+				comp.compare((E) older.elements[i], (E) newer.tombstones[j]);
+			if (c < 0)
+				survivors[s++] = older.elements[i++];
+			else if (c > 0)
+				remaining[t++] = newer.tombstones[j++];
+			else {  //the tombstone cancels the element
+				i++;
+				j++;
+			}
+		}
+		Object[] elements = merge(newer.elements, newer.elements.length, survivors, s);
+		Object[] tombstones = oldest ? EMPTY : merge(older.tombstones, older.tombstones.length, remaining, t);
+		return new Run(elements, tombstones);
+	}
+
+/**
+ * @param a a sorted array
+ * @param na the number of elements of a to merge
+ * @param b a sorted array
+ * @param nb the number of elements of b to merge
+ * @return a sorted array holding the first na elements of a and the first nb
+ * elements of b
+**/
+
+	@SuppressWarnings("unchecked")
+	final Object[] merge(Object[] a, int na, Object[] b, int nb) {
+		if (na + nb == 0)
+			return EMPTY;
+		Object[] result = new Object[na + nb];
+		int i = 0, j = 0, k = 0;
+		while (i < na && j < nb)
+			result[k++] = (comp.compare((E) b[j], (E) a[i]) < 0) ? b[j++] : a[i++];
+		System.arraycopy(a, i, result, k, na - i);
+		System.arraycopy(b, j, result, k + na - i, nb - j);
+		return result;
+	}
+
+/**
+ * Traverses the collection applying v to each element
+ * @param v a visitor
+**/
+
+	protected synchronized void traverseForVisitor(Visitor<? super E> v) throws Exception {
+		for (ArrayList<E> group = nextGroup(null, false); group != null;
+				group = nextGroup(group.get(0), true))
+			for (E e : group)
+				v.visit(e);
+	}
+
+/**
+ * @return a Java primitive array that holds
+ * each element of the collection in sorted order
+**/
+
+	public synchronized Object[] toArray() {
+		final ArrayList<E> elements = new ArrayList<E>(size);
+		accept(new Visitor<E>() {
+			public void visit(E e) {
+				elements.add(e);
+			}
+		});
+		return elements.toArray();
+	}
+
+/**
+ * Creates a new marker at FORE.
+**/
+
+	public Marker iterator() {
+		return new Marker(null, 0, false);
+	}
+
+/**
+ * Creates a new marker at AFT.
+**/
+
+	public Marker iteratorAtEnd() {
+		return new Marker(null, 0, true);
+	}
+
+/**
+ * @param element an element to locate
+ * @return a marker at an element equivalent to <code>element</code>
+ * @throws NoSuchElementException there is no equivalent element
+ * in the ordered collection.
+**/
+
+	public Marker getLocator(E element) {
+		return new Marker(getEquivalentElement(element), 0, false);
+	}
+
+/**
+ * Verifies that the memtable and each run are sorted, and that the size
+ * is the number of live elements.
+ * @throws IllegalStateException the structure is inconsistent
+**/
+
+	@SuppressWarnings("unchecked")
+	public synchronized void checkRep() {
+		memtable.checkRep();
+		tombstones.checkRep();
+		for (Run run : runs)
+			for (Object[] a : new Object[][] {run.elements, run.tombstones})
+				for (int i = 1; i < a.length; i++)
+					if (comp.compare((E) a[i - 1], (E) a[i]) > 0)
+						throw new IllegalStateException("run is out of order at " + a[i]);
+		int live = 0;
+		for (ArrayList<E> group = nextGroup(null, false); group != null;
+				group = nextGroup(group.get(0), true))
+			live += group.size();
+		if (live != size)
+			throw new IllegalStateException("size is " + size + " but there are " + live +
+					" live elements");
+	}
+
+
+	public class Marker extends AbstractCollection<E>.AbstractLocator<E> {
+
+		E element;       //an element equivalent to the marked one, or null at FORE or AFT
+		int k;           //the number of live equivalent elements before the marked one
+		boolean atEnd;   //true at AFT, and false at FORE, when element is null
+
+/**
+ * @param element an element equivalent to the one to mark, or null for FORE
+ * or AFT
+ * @param k the number of equivalent elements before the one to mark
+ * @param atEnd true for AFT
+**/
+
+		Marker(E element, int k, boolean atEnd) {
+			this.element = element;
+			this.k = k;
+			this.atEnd = atEnd;
+		}
+
+/**
+ * @return the element at the marked position, or null if there is none
+**/
+
+		E current() {
+			if (element == null)
+				return null;
+			synchronized (LogStructuredMergeTree.this) {
+				ArrayList<E> group = group(element);
+				return k < group.size() ? group.get(k) : null;
+			}
+		}
+
+/**
+ * @return true  if and only if there is an element at the marked
+ * position.
+**/
+
+		public boolean inCollection() {
+			return current() != null;
+		}
+
+/**
+ * @return the marked element
+ * @throws NoSuchElementException the marker is not at an element in
+ * the collection.
+**/
+
+		public E get() {
+			E e = current();
+			if (e == null)
+				throw new NoSuchElementException();
+			return e;
+		}
+
+/**
+ * Moves the marker to the first element of a group, or to AFT when there
+ * is none.
+ * @param group the live elements of a group, or null
+ * @return true  if and only if the marker is at an element
+**/
+
+		boolean moveToFirst(ArrayList<E> group) {
+			if (group == null) {
+				element = null;
+				atEnd = true;
+				return false;
+			}
+			element = group.get(0);
+			k = 0;
+			return true;
+		}
+
+/**
+ * Moves the marker to the last element of a group, or to FORE when there
+ * is none.
+ * @param group the live elements of a group, or null
+ * @return true  if and only if the marker is at an element
+**/
+
+		boolean moveToLast(ArrayList<E> group) {
+			if (group == null) {
+				element = null;
+				atEnd = false;
+				return false;
+			}
+			k = group.size() - 1;
+			element = group.get(k);
+			return true;
+		}
+
+/**
+ * Moves the marker to the next element in the
+ * iteration order (or AFT if
+ * the last element is currently marked).  If the marked element has
+ * been removed, the marker moves to the element that followed it.
+ * @return true  if and only if after the update, the marker is
+ * at an element of the collection.
+ * @throws AtBoundaryException the marker is at AFT since there is
+ * no place to advance.
+**/
+
+		public boolean advance() {
+			if (element == null && atEnd)
+				throw new AtBoundaryException();
+			synchronized (LogStructuredMergeTree.this) {
+				if (element == null)
+					return moveToFirst(nextGroup(null, false));
+				ArrayList<E> group = group(element);
+				if (k + 1 < group.size()) {
+					element = group.get(++k);
+					return true;
+				}
+				return moveToFirst(nextGroup(element, true));
+			}
+		}
+
+/**
+ * Moves the marker to the previous element in the iteration order
+ * (or FORE if the first element is currently marked).
+ * @return true  if and only if after the update, the marker is at an element of the collection.
+ * @throws AtBoundaryException the marker is at FORE since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() {
+			if (element == null && !atEnd)
+				throw new AtBoundaryException();
+			synchronized (LogStructuredMergeTree.this) {
+				return moveBack();
+			}
+		}
+
+/**
+ * Moves the marker to the position before the marked one.
+ * @return true  if and only if after the update, the marker is at an element of the collection.
+**/
+
+		boolean moveBack() {
+			if (element == null)
+				return moveToLast(previousGroup(null));
+			ArrayList<E> group = group(element);
+			if (k > 0 && !group.isEmpty()) {
+				k = Math.min(k, group.size()) - 1;
+				element = group.get(k);
+				return true;
+			}
+			return moveToLast(previousGroup(element));
+		}
+
+/**
+ * @return true  if there is some element after the current marker position.
+**/
+
+		public boolean hasNext() {
+			if (element == null && atEnd)
+				return false;
+			synchronized (LogStructuredMergeTree.this) {
+				if (element == null)
+					return nextGroup(null, false) != null;
+				return k + 1 < group(element).size() || nextGroup(element, true) != null;
+			}
+		}
+
+/**
+ * Removes an element equivalent to the marked one, and moves the marker to the
+ * position before it, so that advancing reaches the element that followed it.
+ * @throws NoSuchElementException the marker is not at an element in the collection
+**/
+
+		public void remove() {
+			synchronized (LogStructuredMergeTree.this) {
+				if (current() == null || !LogStructuredMergeTree.this.remove(element))
+					throw new NoSuchElementException();
+				moveBack();
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import goldman.Objects;
+/**
+ * An Eytzinger array of <code>long</code> values in numeric order.  It
+ * provides the methods of an <code>EytzingerArray</code> of <code>Long</code>
+ * elements, along with methods that take and return <code>long</code> values,
+ * so that a search neither boxes the target nor calls a comparator.  The
+ * values are held in a <code>long[]</code>, so the 16 values a search may reach
+ * four levels below index k occupy two cache lines, and each step of the
+ * search selects the next index with a conditional expression, which the
+ * compiler turns into a conditional move.
+**/
+
+public class LongEytzingerArray extends EytzingerArray<Long> {
+
+	final long[] keys;  //keys[1], ..., keys[n] hold the values in breadth-first order
+
+/**
+ * Creates an Eytzinger array holding the given values, in O(n log n) time.
+ * @param values the values, in any order
+**/
+
+	public LongEytzingerArray(long[] values) {
+		super(Objects.DEFAULT_COMPARATOR, values.length, null);
+		long[] sorted = Arrays.copyOf(values, values.length);
+		Arrays.sort(sorted);
+		keys = layout(sorted);
+	}
+
+/**
+ * Creates a read-only copy of an ordered collection of <code>Long</code>
+ * values, in linear time.  The values are then held in numeric order.
+ * @param c an ordered collection
+**/
+
+	public LongEytzingerArray(OrderedCollection<Long> c) {
+		super(Objects.DEFAULT_COMPARATOR, c.getSize(), null);
+		long[] sorted = new long[size];
+		int i = 0;
+		for (Long x : c)
+			sorted[i++] = x;
+		if (c.getComparator() != Objects.DEFAULT_COMPARATOR)
+			Arrays.sort(sorted);
+		keys = layout(sorted);
+	}
+
+/**
+ * @param sorted an array of values in sorted order
+ * @return an array that holds them in breadth-first order, starting at index 1
+**/
+
+	static long[] layout(long[] sorted) {
+		int n = sorted.length;
+		long[] keys = new long[n + 1];
+		for (int i = 0, k = first(n); i < n; i++, k = next(k, n))
+			keys[k] = sorted[i];
+		return keys;
+	}
+
+	Long element(int k) {
+		return keys[k];
+	}
+
+/**
+ * @param x the target
+ * @return the index of the first value that is at least
+ * <code>x</code>, or 0 if there is none
+**/
+
+	int lowerBound(long x) {
+		int k = 1;
+		while (k <= size)
+			k = 2*k + (keys[k] < x ? 1 : 0);
+		return lastLeft(k);
+	}
+
+/**
+ * @param x the target
+ * @return the index of the first value that is greater
+ * than <code>x</code>, or 0 if there is none
+**/
+
+	int upperBound(long x) {
+		int k = 1;
+		while (k <= size)
+			k = 2*k + (keys[k] <= x ? 1 : 0);
+		return lastLeft(k);
+	}
+
+/**
+ * @param x the target
+ * @return the index of the last value that is less
+ * than <code>x</code>, or 0 if there is none
+**/
+
+	int lastBelow(long x) {
+		int k = 1;
+		while (k <= size)
+			k = 2*k + (keys[k] < x ? 1 : 0);
+		return lastRight(k);
+	}
+
+	int lowerBound(Long x) {
+		return lowerBound(x.longValue());
+	}
+
+	int upperBound(Long x) {
+		return upperBound(x.longValue());
+	}
+
+	int lastBelow(Long x) {
+		return lastBelow(x.longValue());
+	}
+
+	int find(Long x) {
+		return find(x.longValue());
+	}
+
+/**
+ * @param x the target
+ * @return the index of the first occurrence of <code>x</code>,
+ * or 0 if there is none
+**/
+
+	int find(long x) {
+		int k = lowerBound(x);
+		return (k != 0 && keys[k] == x) ? k : 0;
+	}
+
+/**
+ * @param target the value being tested for membership in the collection
+ * @return true  if and only if <code>target</code> is in the collection
+**/
+
+	public boolean contains(long target) {
+		return find(target) != 0;
+	}
+
+/**
+ * @param r the desired rank
+ * @return the r<sup>th</sup> value in numeric order, where r=0 is the minimum
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public long getLong(int r) {
+		if (r < 0 || r >= size)
+			throw new IllegalArgumentException("" + r);
+		return keys[index(r, size)];
+	}
+
+/**
+ * @param target the value for which to find the predecessor, which need not
+ * be in the collection
+ * @return the largest value in the collection that is less than <code>target</code>
+ * @throws NoSuchElementException no value in the collection
+ * is smaller than <code>target</code>
+**/
+
+	public long predecessor(long target) {
+		int k = lastBelow(target);
+		if (k == 0)
+			throw new NoSuchElementException();
+		return keys[k];
+	}
+
+/**
+ * @param target the value for which to find the successor, which need not
+ * be in the collection
+ * @return the smallest value in the collection that is greater than <code>target</code>
+ * @throws NoSuchElementException no value in the collection
+ * is greater than <code>target</code>
+**/
+
+	public long successor(long target) {
+		int k = upperBound(target);
+		if (k == 0)
+			throw new NoSuchElementException();
+		return keys[k];
+	}
+}
@@ -0,0 +1,845 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import goldman.Objects;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Visitor;
+/**
+ * A persistent red-black tree is a red-black tree whose earlier versions
+ * remain available.  The method <code>snapshot</code> takes constant time and
+ * returns a read-only ordered collection that holds the elements that are in the
+ * tree when it is called, however the tree is changed afterwards.
+ * <p>
+ * The nodes have no parent references, so that a node can be shared by many
+ * versions.  Each node records the owner that created it.  The tree changes a node
+ * that it owns in place, and before it changes a node that it does not own, which
+ * is a node reachable from a snapshot, it replaces the node by a copy that it owns.
+ * Taking a snapshot just gives the tree a new owner, so every node is then shared.
+ * Since a change only reaches the nodes on one path from the root (and their
+ * siblings, when a color is flipped), a change after a snapshot copies only
+ * O(log n) nodes.  A snapshot never changes, so any number of threads may
+ * read it without locking once it has been published to them (for example
+ * through a volatile field, a concurrent collection or <code>Thread.start</code>).
+ * A version that is no longer referenced is reclaimed by the garbage collector
+ * like any other object.
+ * <p>
+ * The balancing is that of a left-leaning red-black tree, in which a red node is
+ * always a left child.  It corresponds to a 2-3 tree, and it is maintained by
+ * recursive insertion and deletion methods that rebalance on the way back up
+ * the path, which suits path copying.  Each node also records the size of its
+ * subtree, so <code>get(r)</code> takes logarithmic time.
+ * <p>
+ * Locators are markers that record the position of an element in the sorted
+ * order.  When the tree changes, a marker is relocated by searching for the
+ * element it marks, so markers never throw a
+ * <code>ConcurrentModificationException</code>.
+**/
+
+public class PersistentRedBlackTree<E> extends AbstractCollection<E>
+	implements OrderedCollection<E> {
+
+	Node<E> root;   //null when the collection is empty
+	Object owner;   //owner of the nodes that may be changed in place, or null for a snapshot
+
+
+	static final class Node<T> {
+
+		T data;
+		Node<T> left;
+		Node<T> right;
+		boolean red;
+		int size;            //number of elements in the subtree
+		final Object owner;  //the owner that created this node
+
+/**
+ * @param data the element to hold in this node
+ * @param owner the owner creating the node
+**/
+
+		Node(T data, Object owner) {
+			this.data = data;
+			this.owner = owner;
+			red = true;
+			size = 1;
+		}
+
+/**
+ * @param x the node to copy
+ * @param owner the owner of the copy
+**/
+
+		Node(Node<T> x, Object owner) {
+			data = x.data;
+			left = x.left;
+			right = x.right;
+			red = x.red;
+			size = x.size;
+			this.owner = owner;
+		}
+	}
+
+/**
+ * Creates an empty persistent red-black tree that uses the default comparator.
+**/
+
+	public PersistentRedBlackTree() {
+		this(Objects.DEFAULT_COMPARATOR);
+	}
+
+/**
+ * Creates an empty persistent red-black tree that uses the provided comparator.
+ * @param comp the comparator that defines an ordering
+ * among the elements
+**/
+
+	public PersistentRedBlackTree(Comparator<? super E> comp) {
+		super(comp);
+		owner = new Object();
+	}
+
+/**
+ * Creates a snapshot.
+ * @param comp the comparator of the tree
+ * @param root the root of the tree
+ * @param size the size of the tree
+**/
+
+	PersistentRedBlackTree(Comparator<? super E> comp, Node<E> root, int size) {
+		super(comp);
+		this.root = root;
+		this.size = size;
+	}
+
+/**
+ * Returns a read-only view of the collection as it is now, which is not
+ * affected by any later change to the tree.  Any method of the snapshot that
+ * would change it throws an <code>UnsupportedOperationException</code>.
+ * It takes constant time.
+ * @return a snapshot of the collection
+**/
+
+	public PersistentRedBlackTree<E> snapshot() {
+		if (owner == null)
+			return this;
+		owner = new Object();  //every existing node is now shared with the snapshot
+		return new PersistentRedBlackTree<E>(comp, root, size);
+	}
+
+/**
+ * @return true  if and only if this is a snapshot, which cannot be changed
+**/
+
+	public boolean isSnapshot() {
+		return owner == null;
+	}
+
+/**
+ * @throws UnsupportedOperationException this is a snapshot
+**/
+
+	final void checkWritable() {
+		if (owner == null)
+			throw new UnsupportedOperationException("a snapshot cannot be changed");
+	}
+
+	static int size(Node<?> x) {
+		return x == null ? 0 : x.size;
+	}
+
+	static boolean isRed(Node<?> x) {
+		return x != null && x.red;
+	}
+
+/**
+ * @param x a reference to a node
+ * @return x if this tree owns it, and otherwise a copy of x that it owns
+**/
+
+	final Node<E> own(Node<E> x) {
+		return x.owner == owner ? x : new Node<E>(x, owner);
+	}
+
+/**
+ * @param h an owned node with a red right child
+ * @return the right child of h, which replaces h as the root of the subtree
+**/
+
+	final Node<E> rotateLeft(Node<E> h) {
+		Node<E> x = own(h.right);
+		h.right = x.left;
+		x.left = h;
+		x.red = h.red;
+		h.red = true;
+		x.size = h.size;
+		h.size = size(h.left) + size(h.right) + 1;
+		return x;
+	}
+
+/**
+ * @param h an owned node with a red left child
+ * @return the left child of h, which replaces h as the root of the subtree
+**/
+
+	final Node<E> rotateRight(Node<E> h) {
+		Node<E> x = own(h.left);
+		h.left = x.right;
+		x.right = h;
+		x.red = h.red;
+		h.red = true;
+		x.size = h.size;
+		h.size = size(h.left) + size(h.right) + 1;
+		return x;
+	}
+
+/**
+ * Flips the colors of an owned node and its two children.
+ * @param h an owned node with two children
+**/
+
+	final void flipColors(Node<E> h) {
+		h.left = own(h.left);
+		h.right = own(h.right);
+		h.red = !h.red;
+		h.left.red = !h.left.red;
+		h.right.red = !h.right.red;
+	}
+
+/**
+ * Restores the invariants at an owned node on the way back up from an
+ * insertion or a deletion, and updates its size.
+ * @param h an owned node
+ * @return the root of the rebalanced subtree
+**/
+
+	final Node<E> balance(Node<E> h) {
+		if (isRed(h.right) && !isRed(h.left))
+			h = rotateLeft(h);
+		if (isRed(h.left) && isRed(h.left.left))
+			h = rotateRight(h);
+		if (isRed(h.left) && isRed(h.right))
+			flipColors(h);
+		h.size = size(h.left) + size(h.right) + 1;
+		return h;
+	}
+
+/**
+ * Inserts <code>element</code> into the collection, after any equivalent
+ * elements.
+ * @param element the element to add
+ * @throws UnsupportedOperationException this is a snapshot
+**/
+
+	public void add(E element) {
+		checkWritable();
+		root = insert(root, element);
+		root.red = false;
+		size++;
+		version.increment();
+	}
+
+/**
+ * @param h the root of a subtree, or null
+ * @param element the element to add
+ * @return the root of the subtree after the insertion, which is owned
+**/
+
+	final Node<E> insert(Node<E> h, E element) {
+		if (h == null)
+			return new Node<E>(element, owner);
+		h = own(h);
+		if (comp.compare(element, h.data) < 0)
+			h.left = insert(h.left, element);
+		else
+			h.right = insert(h.right, element);
+		return balance(h);
+	}
+
+/**
+ * Removes from the collection the first element
+ * equivalent to <code>element</code>, if any.
+ * @param element the element to remove
+ * @return true  if an element was removed, and false otherwise.
+ * @throws UnsupportedOperationException this is a snapshot
+**/
+
+	public boolean remove(E element) {
+		checkWritable();
+		int r = lowerRank(element);
+		if (r == size || comp.compare(select(r), element) != 0)
+			return false;
+		removeAt(r);
+		return true;
+	}
+
+/**
+ * Removes the element at rank r.
+ * @param r a rank from 0 to n-1
+**/
+
+	final void removeAt(int r) {
+		root = own(root);
+		if (!isRed(root.left) && !isRed(root.right))
+			root.red = true;
+		root = delete(root, r);
+		if (root != null)
+			root.red = false;
+		size--;
+		version.increment();
+	}
+
+/**
+ * Moves a red link down the left side while descending, so that the
+ * left child of h is not a 2-node.
+ * @param h an owned red node whose left child and left grandchild are black
+ * @return the root of the subtree
+**/
+
+	final Node<E> moveRedLeft(Node<E> h) {
+		flipColors(h);
+		if (isRed(h.right.left)) {
+			h.right = rotateRight(own(h.right));
+			h = rotateLeft(h);
+			flipColors(h);
+		}
+		return h;
+	}
+
+/**
+ * Moves a red link down the right side while descending, so that the
+ * right child of h is not a 2-node.
+ * @param h an owned red node whose right child and its left child are black
+ * @return the root of the subtree
+**/
+
+	final Node<E> moveRedRight(Node<E> h) {
+		flipColors(h);
+		if (isRed(h.left.left)) {
+			h = rotateRight(h);
+			flipColors(h);
+		}
+		return h;
+	}
+
+/**
+ * @param h the root of a subtree with a left child
+ * @return the root of the subtree after removing its minimum
+**/
+
+	final Node<E> deleteMin(Node<E> h) {
+		if (h.left == null)
+			return null;
+		h = own(h);
+		if (!isRed(h.left) && !isRed(h.left.left))
+			h = moveRedLeft(h);
+		h.left = deleteMin(h.left);
+		return balance(h);
+	}
+
+/**
+ * Removes the element at rank r in T(h), where the ranks are recomputed from the
+ * sizes after each rotation, since a rotation does not change the elements of
+ * the subtree.
+ * @param h the root of a subtree
+ * @param r a rank within T(h)
+ * @return the root of the subtree after the deletion
+**/
+
+	final Node<E> delete(Node<E> h, int r) {
+		h = own(h);
+		if (r < size(h.left)) {
+			if (!isRed(h.left) && !isRed(h.left.left))
+				h = moveRedLeft(h);
+			h.left = delete(h.left, r);
+		} else {
+			if (isRed(h.left))
+				h = rotateRight(h);
+			if (r == size(h.left) && h.right == null)
+				return null;
+			if (!isRed(h.right) && !isRed(h.right.left))
+				h = moveRedRight(h);
+			if (r == size(h.left)) {
+				Node<E> min = h.right;
+				while (min.left != null)
+					min = min.left;
+				h.data = min.data;
+				h.right = deleteMin(h.right);
+			} else
+				h.right = delete(h.right, r - size(h.left) - 1);
+		}
+		return balance(h);
+	}
+
+/**
+ * Removes all elements from the collection in constant time.  Snapshots are
+ * not affected.
+ * @throws UnsupportedOperationException this is a snapshot
+**/
+
+	public void clear() {
+		checkWritable();
+		root = null;
+		size = 0;
+		version.increment();
+	}
+
+/**
+ * @param target the target element
+ * @return the number of elements in the collection that are less than
+ * <code>target</code>
+**/
+
+	public int lowerRank(E target) {
+		int r = 0;
+		for (Node<E> x = root; x != null; )
+			if (comp.compare(target, x.data) <= 0)
+				x = x.left;
+			else {
+				r += size(x.left) + 1;
+				x = x.right;
+			}
+		return r;
+	}
+
+/**
+ * @param target the target element
+ * @return the number of elements in the collection that are less than or
+ * equivalent to <code>target</code>
+**/
+
+	public int upperRank(E target) {
+		int r = 0;
+		for (Node<E> x = root; x != null; )
+			if (comp.compare(target, x.data) < 0)
+				x = x.left;
+			else {
+				r += size(x.left) + 1;
+				x = x.right;
+			}
+		return r;
+	}
+
+/**
+ * @param r a rank from 0 to n-1
+ * @return the element at rank r
+**/
+
+	final E select(int r) {
+		Node<E> x = root;
+		while (true) {
+			int leftSize = size(x.left);
+			if (r < leftSize)
+				x = x.left;
+			else if (r == leftSize)
+				return x.data;
+			else {
+				r -= leftSize + 1;
+				x = x.right;
+			}
+		}
+	}
+
+/**
+ * @param target the element being tested for membership in the collection
+ * @return true  if and only if an equivalent value exists in the collection
+**/
+
+	public boolean contains(E target) {
+		return find(target) != null;
+	}
+
+/**
+ * @param target the target element
+ * @return a node holding an element equivalent to the target, or null if
+ * there is none
+**/
+
+	final Node<E> find(E target) {
+		Node<E> x = root;
+		while (x != null) {
+			int c = comp.compare(target, x.data);
+			if (c == 0)
+				return x;
+			x = (c < 0) ? x.left : x.right;
+		}
+		return null;
+	}
+
+/**
+ * @param target the target element
+ * @return an equivalent element that is in the collection
+ * @throws NoSuchElementException there is no equivalent element in the
+ * collection.
+**/
+
+	public E getEquivalentElement(E target) {
+		Node<E> x = find(target);
+		if (x == null)
+			throw new NoSuchElementException();
+		return x.data;
+	}
+
+/**
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the sorted order, where
+ * r = 0 is the minimum.
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public E get(int r) {
+		if (r < 0 || r >= size)
+			throw new IllegalArgumentException();
+		return select(r);
+	}
+
+/**
+ * @return a least element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E min() {
+		if (root == null)
+			throw new NoSuchElementException();
+		Node<E> x = root;
+		while (x.left != null)
+			x = x.left;
+		return x.data;
+	}
+
+/**
+ * @return a greatest element
+ * in the collection.
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public E max() {
+		if (root == null)
+			throw new NoSuchElementException();
+		Node<E> x = root;
+		while (x.right != null)
+			x = x.right;
+		return x.data;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the predecessor
+ * @return the largest
+ * element in the ordered collection that is less than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is smaller than <code>target</code>
+**/
+
+	public E predecessor(E target) {
+		Node<E> pred = null;
+		for (Node<E> x = root; x != null; )
+			if (comp.compare(x.data, target) < 0) {
+				pred = x;
+				x = x.right;
+			} else
+				x = x.left;
+		if (pred == null)
+			throw new NoSuchElementException();
+		return pred.data;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element for which to find
+ * the successor
+ * @return the smallest
+ * element in the ordered collection that is greater than <code>target</code>.
+ * @throws NoSuchElementException no element in the collection
+ * is greater than <code>target</code>
+**/
+
+	public E successor(E target) {
+		Node<E> succ = null;
+		for (Node<E> x = root; x != null; )
+			if (comp.compare(x.data, target) > 0) {
+				succ = x;
+				x = x.left;
+			} else
+				x = x.right;
+		if (succ == null)
+			throw new NoSuchElementException();
+		return succ.data;
+	}
+
+/**
+ * Traverses the collection applying v to each element
+ * @param v a visitor
+**/
+
+	protected void traverseForVisitor(Visitor<? super E> v) throws Exception {
+		inorder(root, v);
+	}
+
+	void inorder(Node<E> x, Visitor<? super E> v) throws Exception {
+		for (; x != null; x = x.right) {
+			inorder(x.left, v);
+			v.visit(x.data);
+		}
+	}
+
+/**
+ * @return a Java primitive array that holds
+ * each element of the collection in sorted order
+**/
+
+	public Object[] toArray() {
+		final ArrayList<E> elements = new ArrayList<E>(size);
+		accept(new Visitor<E>() {
+			public void visit(E e) {
+				elements.add(e);
+			}
+		});
+		return elements.toArray();
+	}
+
+/**
+ * Creates a new marker at FORE.
+**/
+
+	public Marker iterator() {
+		return new Marker(null, -1, 0, false);
+	}
+
+/**
+ * Creates a new marker at AFT.
+**/
+
+	public Marker iteratorAtEnd() {
+		return new Marker(null, size, 0, true);
+	}
+
+/**
+ * @param element an element to locate
+ * @return a marker at the first element equivalent to <code>element</code>
+ * @throws NoSuchElementException there is no equivalent element
+ * in the ordered collection.
+**/
+
+	public Marker getLocator(E element) {
+		int r = lowerRank(element);
+		if (r == size || comp.compare(select(r), element) != 0)
+			throw new NoSuchElementException();
+		return new Marker(select(r), r, 0, false);
+	}
+
+/**
+ * Verifies the search tree order, that no red node is a right child or has a
+ * red child, that every path from the root to a missing child has the same
+ * number of black nodes, that the root is black, and that the sizes are correct.
+ * @throws IllegalStateException the structure is inconsistent
+**/
+
+	public void checkRep() {
+		if (isRed(root))
+			throw new IllegalStateException("root is red");
+		checkNode(root);
+		if (size(root) != size)
+			throw new IllegalStateException("size is " + size + " but the root has " + size(root));
+	}
+
+/**
+ * @param x the root of a subtree
+ * @return the number of black nodes on each path from x to a missing child
+**/
+
+	int checkNode(Node<E> x) {
+		if (x == null)
+			return 0;
+		if (isRed(x.right))
+			throw new IllegalStateException("red right child of " + x.data);
+		if (x.red && isRed(x.left))
+			throw new IllegalStateException("red node " + x.data + " has a red child");
+		if ((x.left != null && comp.compare(x.left.data, x.data) > 0) ||
+				(x.right != null && comp.compare(x.right.data, x.data) < 0))
+			throw new IllegalStateException(x.data + " is out of order");
+		if (x.size != size(x.left) + size(x.right) + 1)
+			throw new IllegalStateException("wrong size at " + x.data);
+		int leftHeight = checkNode(x.left);
+		if (leftHeight != checkNode(x.right))
+			throw new IllegalStateException("unequal black heights at " + x.data);
+		return leftHeight + (x.red ? 0 : 1);
+	}
+
+
+	public class Marker extends AbstractCollection<E>.AbstractLocator<E> {
+
+		E element;        //an element equivalent to the marked one, or null at FORE or AFT
+		int rank;         //the rank of the marked position when the tree had version seen
+		int k;            //the number of equivalent elements before the marked one
+		boolean atEnd;    //true at AFT, and false at FORE, when element is null
+		int seen;         //the version of the tree when rank was computed
+
+/**
+ * @param element the marked element, or null for FORE or AFT
+ * @param rank its rank
+ * @param k the number of equivalent elements before it
+ * @param atEnd true for AFT
+**/
+
+		Marker(E element, int rank, int k, boolean atEnd) {
+			this.element = element;
+			this.rank = rank;
+			this.k = k;
+			this.atEnd = atEnd;
+			seen = version.getCount();
+		}
+
+/**
+ * @return true  if and only if the tree changed since the rank was computed
+**/
+
+		final boolean changed() {
+			return seen != version.getCount();
+		}
+
+/**
+ * Recomputes the rank of the marked position if the tree has changed.
+**/
+
+		final void sync() {
+			if (changed()) {
+				if (element != null)
+					rank = lowerRank(element) + k;
+				else
+					rank = atEnd ? size : -1;
+				seen = version.getCount();
+			}
+		}
+
+/**
+ * @return true  if and only if the marked element is
+ * currently in the collection.
+**/
+
+		public boolean inCollection() {
+			if (element == null)
+				return false;
+			sync();
+			return rank < size && comp.compare(select(rank), element) == 0;
+		}
+
+/**
+ * @return the marked element
+ * @throws NoSuchElementException the marker is not at an element in
+ * the collection.
+**/
+
+		public E get() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return select(rank);
+		}
+
+/**
+ * Moves the marker to the position r.
+ * @param r a rank from -1 to n
+ * @param lo the number of elements less than the marked element, or -1 if
+ * it is not known
+ * @return true  if and only if r is the rank of an element
+**/
+
+		final boolean moveTo(int r, int lo) {
+			seen = version.getCount();
+			rank = r;
+			if (r < 0 || r >= size) {
+				atEnd = r >= 0;
+				rank = atEnd ? size : -1;
+				element = null;
+				return false;
+			}
+			E next = select(r);
+			if (lo >= 0 && element != null && comp.compare(next, element) == 0)
+				k = r - lo;
+			else
+				k = r - lowerRank(next);
+			element = next;
+			return true;
+		}
+
+/**
+ * Moves the marker to the next element in the
+ * iteration order (or AFT if
+ * the last element is currently marked).  If the marked element has
+ * been removed, the marker moves to the element that followed it.
+ * @return true  if and only if after the update, the marker is
+ * at an element of the collection.
+ * @throws AtBoundaryException the marker is at AFT since there is
+ * no place to advance.
+**/
+
+		public boolean advance() {
+			if (element == null && atEnd)
+				throw new AtBoundaryException();
+			if (element == null)
+				return moveTo(0, -1);
+			if (!changed())
+				return moveTo(rank + 1, rank - k);
+			int lo = lowerRank(element);
+			return moveTo(lo + Math.min(k + 1, upperRank(element) - lo), lo);
+		}
+
+/**
+ * Moves the marker to the previous element in the iteration order
+ * (or FORE if the first element is currently marked).
+ * @return true  if and only if after the update, the marker is at an element of the collection.
+ * @throws AtBoundaryException the marker is at FORE since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() {
+			if (element == null && !atEnd)
+				throw new AtBoundaryException();
+			if (element == null)
+				return moveTo(size - 1, -1);
+			if (!changed())
+				return moveTo(rank - 1, rank - k);
+			int lo = lowerRank(element);
+			return moveTo(lo + Math.min(k, upperRank(element) - lo) - 1, lo);
+		}
+
+/**
+ * @return true  if there is some element after the current marker position.
+**/
+
+		public boolean hasNext() {
+			if (element == null)
+				return !atEnd && size > 0;
+			if (!changed())
+				return rank + 1 < size;
+			int lo = lowerRank(element);
+			return lo + Math.min(k + 1, upperRank(element) - lo) < size;
+		}
+
+/**
+ * Removes the marked element, and moves the marker to the position before
+ * it, so that advancing reaches the element that followed it.
+ * @throws NoSuchElementException the marker is not at an element in the collection
+ * @throws UnsupportedOperationException the tree is a snapshot
+**/
+
+		public void remove() {
+			checkWritable();
+			if (!inCollection())
+				throw new NoSuchElementException();
+			int r = rank;
+			removeAt(r);
+			moveTo(r - 1, -1);
+		}
+	}
+}
@@ -6,6 +6,8 @@
 package goldman.collection.ordered;
 
 import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import goldman.Objects;
 import goldman.collection.Tracked;
 /**
@@ -22,6 +24,14 @@ import goldman.collection.Tracked;
  * in the collection, additional structure can be added
  * for this purpose at the expense of increased execution time and
  * space usage.
+ * <p>
+ * Two red-black trees are combined by <code>union</code>, <code>intersect</code>
+ * and <code>difference</code>, which are built on two primitives: splitting
+ * a tree around an element, and joining two trees separated by an element.
+ * Each element of the other tree splits a piece of this tree, and the two
+ * resulting halves are combined recursively (in parallel when they are large)
+ * and then joined, so combining trees of sizes m &le; n takes O(m log(n/m + 1))
+ * time rather than the O(m log n) time of m searches.
 **/
 
 public class RedBlackTree<E> extends BalancedBinarySearchTree<E>
@@ -213,12 +223,521 @@ public class RedBlackTree<E> extends BalancedBinarySearchTree<E>
 		doubleBlack.setBlack();		//used when loop terminates with a red node as doubleBlack
 	}
 
+/**
+ * A subtree that is detached from its parent, together with its black height,
+ * which is the number of black nodes other than the frontier node on each path
+ * from its root to a frontier node.  Unlike the tree as a whole, a piece
+ * may have a red root.
+**/
+
+	final class Piece {
+		final BSTNode root;
+		final int height;
+
+		Piece(BSTNode root, int height) {
+			this.root = root;
+			this.height = height;
+		}
+
+		final boolean isEmpty() {
+			return root.isFrontier();
+		}
+	}
+
+/**
+ * @param x a reference to a node, possibly of another red-black tree
+ * @return true  if and only if x is red
+**/
+
+	final boolean red(BSTNode x) {
+		return ((RBNode) x).colorIsRed;
+	}
+
+/**
+ * @param x the root of a subtree that satisfies the red-black properties
+ * @return the black height of T(x)
+**/
+
+	int blackHeight(BSTNode x) {
+		int h = 0;
+		for (; !x.isFrontier(); x = x.left)
+			if (!red(x))
+				h++;
+		return h;
+	}
+
+/**
+ * @param l the root of a detached subtree
+ * @param k a detached node
+ * @param r the root of a detached subtree
+ * <BR> 
+ * REQUIRES: 
+ *  T(<code>l</code>) &le; <code>k.data</code> &le; T(<code>r</code>)
+ * @return <code>k</code>, after making T(<code>l</code>) its left subtree
+ * and T(<code>r</code>) its right subtree
+**/
+
+	BSTNode link(BSTNode l, BSTNode k, BSTNode r) {
+		k.setLeft(l);
+		k.setRight(r);
+		k.updateSize();
+		return k;
+	}
+
+/**
+ * Descends the right spine of T(<code>l</code>) to the first black node
+ * whose black height is that of T(<code>r</code>), and replaces it by a red
+ * <code>k</code> with that node as its left child and <code>r</code> as its
+ * right child.  Red-red violations are repaired on the way back up.
+ * @param l the root of a detached subtree with black height <code>lh</code>
+ * @param lh the black height of T(<code>l</code>)
+ * @param k a detached node
+ * @param r the root of a detached subtree with black height <code>rh</code>
+ * @param rh the black height of T(<code>r</code>)
+ * <BR> 
+ * REQUIRES: 
+ *  <code>lh</code> &ge; <code>rh</code> and
+ *  T(<code>l</code>) &le; <code>k.data</code> &le; T(<code>r</code>)
+ * @return the root of the joined subtree, which has black height <code>lh</code>
+ * and satisfies the red-black properties except that a red root may
+ * have a red right child
+**/
+
+	BSTNode joinRight(BSTNode l, int lh, BSTNode k, BSTNode r, int rh) {
+		if (lh == rh && !red(l)) {
+			((RBNode) k).setRed();
+			return link(l, k, r);
+		}
+		BSTNode t = joinRight(l.right, red(l) ? lh : lh - 1, k, r, rh);
+		l.setRight(t);
+		if (!red(l) && red(t) && red(t.right)) {  //two reds below a black node
+			((RBNode) t.right).setBlack();
+			l.setRight(t.left);                   //so rotate t above l
+			l.updateSize();
+			t.setLeft(l);
+			t.updateSize();
+			return t;
+		}
+		l.updateSize();
+		return l;
+	}
+
+/**
+ * The mirror image of <code>joinRight</code>.
+ * @param l the root of a detached subtree with black height <code>lh</code>
+ * @param lh the black height of T(<code>l</code>)
+ * @param k a detached node
+ * @param r the root of a detached subtree with black height <code>rh</code>
+ * @param rh the black height of T(<code>r</code>)
+ * <BR> 
+ * REQUIRES: 
+ *  <code>lh</code> &le; <code>rh</code> and
+ *  T(<code>l</code>) &le; <code>k.data</code> &le; T(<code>r</code>)
+ * @return the root of the joined subtree, which has black height <code>rh</code>
+ * and satisfies the red-black properties except that a red root may
+ * have a red left child
+**/
+
+	BSTNode joinLeft(BSTNode l, int lh, BSTNode k, BSTNode r, int rh) {
+		if (lh == rh && !red(r)) {
+			((RBNode) k).setRed();
+			return link(l, k, r);
+		}
+		BSTNode t = joinLeft(l, lh, k, r.left, red(r) ? rh : rh - 1);
+		r.setLeft(t);
+		if (!red(r) && red(t) && red(t.left)) {   //two reds below a black node
+			((RBNode) t.left).setBlack();
+			r.setLeft(t.right);                   //so rotate t above r
+			r.updateSize();
+			t.setRight(r);
+			t.updateSize();
+			return t;
+		}
+		r.updateSize();
+		return r;
+	}
+
+/**
+ * Joins two pieces separated by a node, in time proportional to the
+ * difference in their black heights.
+ * @param left a piece
+ * @param k a detached node
+ * @param right a piece
+ * <BR> 
+ * REQUIRES: 
+ *  the elements of <code>left</code> &le; <code>k.data</code> &le;
+ *  the elements of <code>right</code>
+ * @return a piece holding the elements of <code>left</code>, <code>k</code>,
+ * and the elements of <code>right</code>
+**/
+
+	Piece join(Piece left, BSTNode k, Piece right) {
+		BSTNode t;
+		int h;
+		if (left.height > right.height) {
+			t = joinRight(left.root, left.height, k, right.root, right.height);
+			h = left.height;
+			if (red(t) && red(t.right)) {
+				((RBNode) t).setBlack();
+				h++;
+			}
+		} else if (left.height < right.height) {
+			t = joinLeft(left.root, left.height, k, right.root, right.height);
+			h = right.height;
+			if (red(t) && red(t.left)) {
+				((RBNode) t).setBlack();
+				h++;
+			}
+		} else {
+			t = link(left.root, k, right.root);
+			h = left.height;
+			if (!red(left.root) && !red(right.root))
+				((RBNode) k).setRed();
+			else {
+				((RBNode) k).setBlack();
+				h++;
+			}
+		}
+		t.parent = null;
+		return new Piece(t, h);
+	}
+
+/**
+ * Joins two pieces without a node to separate them, by first removing the
+ * last node of <code>left</code>.
+ * @param left a piece
+ * @param right a piece
+ * <BR> 
+ * REQUIRES: 
+ *  the elements of <code>left</code> &le; the elements of <code>right</code>
+ * @return a piece holding the elements of both
+**/
+
+	@SuppressWarnings("unchecked")
+	Piece join(Piece left, Piece right) {
+		if (left.isEmpty())
+			return right;
+		if (right.isEmpty())
+			return left;
+		BSTNode[] last = (BSTNode[]) new BinarySearchTree<?>.BSTNode[1];
+		Piece rest = removeLast(left, last);
+		return join(rest, last[0], right);
+	}
+
+/**
+ * @param p a non-empty piece
+ * @param last a one element array in which the detached node that held
+ * the last element of <code>p</code> is placed
+ * @return a piece holding the other elements of <code>p</code>
+**/
+
+	Piece removeLast(Piece p, BSTNode[] last) {
+		BSTNode x = p.root;
+		int ch = red(x) ? p.height : p.height - 1;  //black height of each child
+		if (x.right.isFrontier()) {
+			last[0] = x;
+			return new Piece(x.left, ch);
+		}
+		Piece rest = removeLast(new Piece(x.right, ch), last);
+		return join(new Piece(x.left, ch), x, rest);
+	}
+
+/**
+ * Splits a piece around the given element, in time proportional to its
+ * black height.
+ * @param p a piece
+ * @param key the element at which to split
+ * @param inclusive true if elements equivalent to <code>key</code> belong to the
+ * left part, and false if they belong to the right part
+ * @return an array holding the piece of elements less than <code>key</code>
+ * (or at most <code>key</code> when <code>inclusive</code> is true) followed by
+ * the piece of remaining elements
+**/
+
+	@SuppressWarnings("unchecked")
+	Piece[] split(Piece p, E key, boolean inclusive) {
+		if (p.isEmpty())
+			return (Piece[]) new RedBlackTree<?>.Piece[] {p, p};
+		BSTNode x = p.root;
+		int ch = red(x) ? p.height : p.height - 1;  //black height of each child
+		Piece l = new Piece(x.left, ch);
+		Piece r = new Piece(x.right, ch);
+		int comparison = comp.compare(x.data, key);
+		if (comparison < 0 || (inclusive && comparison == 0)) {  //x belongs to the left part
+			Piece[] parts = split(r, key, inclusive);
+			parts[0] = join(l, x, parts[0]);
+			return parts;
+		} else {                                                 //x belongs to the right part
+			Piece[] parts = split(l, key, inclusive);
+			parts[1] = join(parts[1], x, r);
+			return parts;
+		}
+	}
+
+/**
+ * @param y the root of a subtree, possibly of another red-black tree
+ * @return the root of a copy of T(<code>y</code>) made of new nodes of this tree
+**/
+
+	BSTNode copy(BSTNode y) {
+		if (y.isFrontier())
+			return FRONTIER_L;
+		RBNode x = (RBNode) createTreeNode(y.data);
+		x.colorIsRed = red(y);
+		x.setLeft(copy(y.left));
+		x.setRight(copy(y.right));
+		x.updateSize();
+		return x;
+	}
+
+/**
+ * Splits a piece into the elements less than, equivalent to, and greater
+ * than the given element.  When there are no equivalent elements, which is
+ * found by a descent that creates nothing, only one split is needed.
+ * @param p a piece
+ * @param key the element at which to split
+ * @return an array holding the three pieces, in order
+**/
+
+	@SuppressWarnings("unchecked")
+	Piece[] split(Piece p, E key) {
+		Piece[] less = split(p, key, false);
+		Piece rest = less[1];
+		if (rest.isEmpty() || comp.compare(((BSTNode) leftmost(rest.root)).data, key) > 0)
+			return (Piece[]) new RedBlackTree<?>.Piece[] {less[0], new Piece(FRONTIER_L, 0), rest};
+		Piece[] more = split(rest, key, true);
+		return (Piece[]) new RedBlackTree<?>.Piece[] {less[0], more[0], more[1]};
+	}
+
+/**
+ * @param y the root of a subtree, possibly of another red-black tree
+ * @param yh the black height of T(y)
+ * @param lo an element, or null
+ * @param hi an element, or null
+ * @return a piece of new nodes holding the elements of T(y) that are
+ * not equivalent to <code>lo</code> or <code>hi</code>
+**/
+
+	Piece copy(BSTNode y, int yh, E lo, E hi) {
+		Piece c = new Piece(copy(y), yh);
+		c.root.parent = null;
+		if (lo != null)
+			c = split(c, lo, true)[1];
+		if (hi != null)
+			c = split(c, hi, false)[0];
+		return c;
+	}
+
+	static final int UNION = 0;
+	static final int INTERSECTION = 1;
+	static final int DIFFERENCE = 2;
+
+
+	static final int PARALLEL_CUTOFF = 2048;  //smallest subtree of the other tree split in parallel
+
+/**
+ * @param x an element
+ * @param bound an element, or null
+ * @return true  if and only if <code>bound</code> is not null and x is
+ * equivalent to it
+**/
+
+	final boolean atBound(E x, E bound) {
+		return bound != null && equivalent(x, bound);
+	}
+
+/**
+ * Combines a piece of this tree with a subtree of the other tree by
+ * splitting the piece around the element at the root of the subtree,
+ * combining the parts with the two child subtrees (in parallel when the
+ * subtree is large), and joining the results.
+ * For a union, equivalent elements already in this tree must not be added
+ * again.  Since the child subtrees are bounded by the elements of their
+ * ancestors, an element of the other tree can only be equivalent to an element
+ * of a different piece of this tree if it is equivalent to one of those bounds,
+ * so the bounds whose equivalent elements are to be skipped are passed down.
+ * @param op UNION, INTERSECTION, or DIFFERENCE
+ * @param a a piece of this tree
+ * @param y the root of a subtree of the other tree
+ * @param yh the black height of T(y)
+ * @param lo an element, or null
+ * @param hi an element, or null
+ * @return a piece holding the result of the operation on the elements of
+ * <code>a</code> and the elements of T(y), where for a union the
+ * elements of T(y) equivalent to <code>lo</code> or <code>hi</code> are not added
+**/
+
+	Piece combine(int op, Piece a, BSTNode y, int yh, E lo, E hi) {
+		if (y.isFrontier()) {
+			if (op == INTERSECTION) {
+				clearNodes(a.root);
+				return new Piece(FRONTIER_L, 0);
+			}
+			return a;
+		}
+		if (a.isEmpty())
+			return (op == UNION) ? copy(y, yh, lo, hi) : a;
+		E k = y.data;
+		int ch = red(y) ? yh : yh - 1;  //black height of each child of y
+		Piece[] parts = split(a, k);
+		Piece equal = parts[1];
+		boolean skip = op == UNION &&
+			(!equal.isEmpty() || atBound(k, lo) || atBound(k, hi));
+		Piece l, r;
+		if (y.subtreeSize >= PARALLEL_CUTOFF) {
+			SetOperation right = new SetOperation(op, parts[2], y.right, ch, skip ? k : lo, hi);
+			right.fork();
+			l = combine(op, parts[0], y.left, ch, lo, skip ? k : hi);
+			r = right.join();
+		} else {
+			l = combine(op, parts[0], y.left, ch, lo, skip ? k : hi);
+			r = combine(op, parts[2], y.right, ch, skip ? k : lo, hi);
+		}
+		if (op == DIFFERENCE)
+			clearNodes(equal.root);
+		else
+			l = join(l, equal);
+		if (op == UNION && !skip)
+			return join(l, createTreeNode(k), r);
+		return join(l, r);
+	}
+
+/**
+ * A task that applies <code>combine</code> to its arguments, so that
+ * it can run in parallel with the caller.
+**/
+
+	@SuppressWarnings("serial")  //a task is run in place, never serialized
+	final class SetOperation extends RecursiveTask<Piece> {
+
+		final int op;
+		final Piece a;
+		final BSTNode y;
+		final int yh;
+		final E lo, hi;
+
+		SetOperation(int op, Piece a, BSTNode y, int yh, E lo, E hi) {
+			this.op = op;
+			this.a = a;
+			this.y = y;
+			this.yh = yh;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected Piece compute() {
+			return combine(op, a, y, yh, lo, hi);
+		}
+	}
+
+/**
+ * @param op UNION, INTERSECTION, or DIFFERENCE
+ * @param other a red-black tree that uses the same order as this one
+**/
+
+	void combine(int op, RedBlackTree<E> other) {
+		if (other == this) {
+			if (op == DIFFERENCE)
+				clear();
+			return;
+		}
+		BSTNode x = (BSTNode) root;
+		BSTNode y = (BSTNode) other.root;
+		Piece result = ForkJoinPool.commonPool().invoke(
+				new SetOperation(op, new Piece(x, blackHeight(x)), y, blackHeight(y), null, null));
+		if (result.isEmpty())
+			root = FRONTIER_L;
+		else {
+			result.root.parent = null;
+			((RBNode) result.root).setBlack();  //preserve RootBlack
+			root = result.root;
+		}
+		size = ((BSTNode) root).subtreeSize;
+	}
+
+/**
+ * Adds to this collection each element of <code>other</code> that is not
+ * equivalent to an element already in this collection.  The collection
+ * <code>other</code> is not changed.  The time is O(m log(n/m + 1)), where
+ * m and n &ge; m are the sizes of the two collections, plus the time to
+ * create nodes for the added elements.
+ * @param other a red-black tree that uses the same order as this one
+**/
+
+	public void union(RedBlackTree<E> other) {
+		combine(UNION, other);
+	}
+
+/**
+ * Removes from this collection each element that is not equivalent to an
+ * element of <code>other</code>.  The collection
+ * <code>other</code> is not changed.  The time is O(m log(n/m + 1)), where
+ * m and n &ge; m are the sizes of the two collections, plus time
+ * proportional to the number of elements removed.
+ * @param other a red-black tree that uses the same order as this one
+**/
+
+	public void intersect(RedBlackTree<E> other) {
+		combine(INTERSECTION, other);
+	}
+
+/**
+ * Removes from this collection each element that is equivalent to an
+ * element of <code>other</code>.  The collection
+ * <code>other</code> is not changed.  The time is O(m log(n/m + 1)), where
+ * m and n &ge; m are the sizes of the two collections, plus time
+ * proportional to the number of elements removed.
+ * @param other a red-black tree that uses the same order as this one
+**/
+
+	public void difference(RedBlackTree<E> other) {
+		combine(DIFFERENCE, other);
+	}
+
+/**
+ * Removes the elements in a range by splitting the tree at both ends of the
+ * range and joining the outer pieces, so the time is O(log n) plus the time
+ * to mark the removed nodes, with no rebalancing per element.  A tracker at
+ * a removed element is redirected to the first element that follows the range.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of elements removed
+**/
+
+	@SuppressWarnings("unchecked")
+	int removeRange(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		BSTNode x = (BSTNode) root;
+		Piece whole = new Piece(x, blackHeight(x));
+		Piece empty = new Piece(FRONTIER_L, 0);
+		Piece[] below = (lo == null) ? (Piece[]) new RedBlackTree<?>.Piece[] {empty, whole}
+				: split(whole, lo, !loInclusive);
+		Piece[] above = (hi == null) ? (Piece[]) new RedBlackTree<?>.Piece[] {below[1], empty}
+				: split(below[1], hi, hiInclusive);
+		Piece removed = above[0];
+		int count = removed.root.subtreeSize;
+		if (count > 0)
+			clearNodes(removed.root, above[1].isEmpty() ? AFT : (BSTNode) leftmost(above[1].root));
+		Piece result = join(below[0], above[1]);
+		if (result.isEmpty())
+			root = FRONTIER_L;
+		else {
+			result.root.parent = null;
+			((RBNode) result.root).setBlack();  //preserve RootBlack
+			root = result.root;
+		}
+		size -= count;
+		return count;
+	}
+
 /**
  * This method is used for testing the invariants.
 **/
 
 	@SuppressWarnings("unchecked")
 	public void checkRep() {
+		super.checkRep();
 		if (((RBNode) root).isRed())
 			throw new RuntimeException("Root is red.");
 		int depth = computeDepth((RBNode) root);
@@ -27,6 +27,12 @@ import goldman.collection.Tracked;
  * While the probability
  * of a search taking more than logarithmic time is extremely small, there is more variation in the search
  * time than with a red-black tree.
+ * <p>
+ * Each link also records its width, which is the number of positions in the
+ * sorted order that it spans.  The widths are maintained by <code>add</code> and
+ * <code>remove</code> in expected constant time per level, so the element of a
+ * given rank, the rank of an element, and the element k positions after a tracked
+ * element are all found in expected logarithmic time.
 **/
 
 public class SkipList<E> extends AbstractCollection<E> implements 
@@ -37,13 +43,14 @@ public class SkipList<E> extends AbstractCollection<E> implements
 	int height;     //max height of any tower
 	Tower<E> head;  //sentinel head, also serves role of FORE
 	Tower<E> tail;  //sentinel tail, also serves role of AFT
-	java.util.Random randseq; //for random number generation
+	java.util.Random randseq; //for random number generation, used to select tower heights
 
 
 	class Tower<T> {
 
 		T element;  
 		Tower<T>[] links; 
+		int[] widths;  //widths[i] is the number of level 0 links spanned by next(i)
 
 /**
  * @param element a reference to the
@@ -56,6 +63,7 @@ public class SkipList<E> extends AbstractCollection<E> implements
 		Tower(T element, int towerHeight) {
 			this.element = element;
 			links = (Tower<T>[]) new Tower[2 * towerHeight];
+			widths = new int[towerHeight];
 		}
 
 /**
@@ -140,14 +148,33 @@ public class SkipList<E> extends AbstractCollection<E> implements
 **/
 
 	public SkipList(int size, Comparator<? super E> comp) {
+		this(size, comp, new java.util.Random());
+	}
+
+/**
+ * Creates an empty skip list
+ * that uses the provided initial height for head and tail, the provided comparator,
+ * and the provided random number generator to select the tower heights.  Providing a
+ * seeded generator makes the structure reproducible, and an
+ * <code>XorShiftRandom</code> is cheaper than <code>java.util.Random</code>.
+ * @param size the initial size for
+ * head and tail
+ * @param comp the comparator that defines an ordering
+ * among the elements
+ * @param random the random number generator
+**/
+
+	public SkipList(int size, Comparator<? super E> comp, java.util.Random random) {
 		super(comp);                      
-		randseq = new java.util.Random(); //initialize random number sequence
+		randseq = random;                 //initialize random number sequence
 		height = 0;                       //no towers, so current height is 0
 		head = new Tower<E>(null, size);
 		tail = new Tower<E>(null, size);
 		head.setPrev(0,head);                //satisfy InUse
-		for (int i = 0; i < size; i++)       //In all lists, initially,
+		for (int i = 0; i < size; i++) {     //In all lists, initially,
 			head.setNext(i,tail);                //head points to tail
+			head.widths[i] = 1;
+		}
 	}
 
 /**
@@ -271,13 +298,45 @@ public class SkipList<E> extends AbstractCollection<E> implements
  * @throws IllegalArgumentException r &lt; 0 or r &ge; n
 **/
 
-    	public E get(int r) {
-    		if (r < 0 || r >= getSize())
-    			throw new IllegalArgumentException();
-    		Tower<E> ptr = head.next(0);
-    		for (int j=0; j < r; j++, ptr = ptr.next(0));
-    		return ptr.element;
-    	}
+	public E get(int r) {
+		if (r < 0 || r >= getSize())
+			throw new IllegalArgumentException();
+		Tower<E> ptr = head;
+		int pos = -1;            //rank of ptr, where head has rank -1
+		for (int level = height - 1; level >= 0; level--)
+			while (pos + ptr.widths[level] <= r) {  //move right unless it passes r
+				pos += ptr.widths[level];
+				ptr = ptr.next(level);
+			}
+		return ptr.element;
+	}
+
+/**
+ * This method does not require that <code>target</code>
+ * be in the collection.
+ * @param target the element to locate
+ * @return the number of elements in the collection that are less than
+ * <code>target</code>, which is the rank of the first occurrence of
+ * <code>target</code> when it is in the collection
+**/
+
+	public int rankOf(E target) {
+		Tower<E> left = head;   //leftmost tower of range to search
+		Tower<E> right = tail;  //rightmost tower of range to search
+		int pos = -1;           //rank of left
+		int level = height - 1; //start search at max level in use
+		while (level >= 0) {
+			Tower<E> next = left.next(level);
+			if (right != next && comp.compare(target,next.element) > 0) {
+				pos += left.widths[level];
+				left = next;
+			} else {
+				right = next;
+				level--;
+			}
+		}
+		return pos + 1;
+	}
 
 /**
  * @param target the element for which an equivalent element is sought
@@ -370,6 +429,7 @@ public class SkipList<E> extends AbstractCollection<E> implements
 		System.arraycopy(head.links, 0, newHeadLinks, 0, oldHeight);
 		Arrays.fill(newHeadLinks, oldHeight, newHeight, tail);
 		head.links = newHeadLinks;
+		head.widths = Arrays.copyOf(head.widths, newHeight);
 		
 		Tower<E>[] newTailLinks = (Tower<E>[]) new Tower[newHeight*2];
 		System.arraycopy(tail.links, oldHeight, newTailLinks, newHeight, oldHeight);
@@ -413,27 +473,40 @@ public class SkipList<E> extends AbstractCollection<E> implements
 		int towerHeight = selectTowerHeight(); //pick random height
 		int headHeight = head.getTowerHeight();
 		if (towerHeight > height)   {    
-			height = towerHeight;            //maintain Height property
 			if (towerHeight > headHeight)    //must resize if new tower higher
 				resizeHeadAndTail(towerHeight); //than current head and tail
+			for (int i = height; i < towerHeight; i++)
+				head.widths[i] = size + 1;   //head to tail at the levels coming into use
+			height = towerHeight;            //maintain Height property
 		}
 		Tower<E> newTower = new Tower<E>(element, towerHeight);
 		Tower<E> left = head;   //left boundary of search range (initially head)
 		Tower<E> right = tail;  //right boundary of search range (initially tail)
+		int pos = -1;           //rank of left
 		int level = height - 1; //current level (start at max level in use)
 		while (level >= 0) {    //until done with bottom level
 			Tower<E> next = left.next(level);  //next tower at current level
-			if (next != right && comp.compare(element,next.element) > 0) 
+			if (next != right && comp.compare(element,next.element) > 0) {
+				pos += left.widths[level];
 				left = next;                                        //left marker moves to right
-			else {					          //element <= next elem.
+			} else {					          //element <= next elem.
 				right = next;									   //right marker moves to left
 				if (level < towerHeight) {   //splice in newTower between left and right at this level
 					left.setNext(level,newTower);
 					newTower.setNext(level,right);
-				}
+					newTower.widths[level] = pos;   //hold the rank of left until the rank of newTower is known
+				} else
+					left.widths[level]++;    //the link over newTower spans one more position
 				level--;					  //move down to next level
 			}
 		}
+		int rank = pos + 1;
+		for (int i = 0; i < towerHeight; i++) {  //split the width of the link that newTower divides
+			Tower<E> prev = newTower.prev(i);
+			int leftWidth = rank - newTower.widths[i];
+			newTower.widths[i] = prev.widths[i] - leftWidth + 1;
+			prev.widths[i] = leftWidth;
+		}
 		size++;							  //increment size to maintain Size property
 		return newTower;
 	}
@@ -485,6 +558,32 @@ public class SkipList<E> extends AbstractCollection<E> implements
 				succ[i].prev(i).setNext(i, newTower);      //insert new tower in L_i just before succ[i]
 				newTower.setNext(i,succ[i]);
 			}
+			size++;
+		}
+		computeWidths();
+	}
+
+/**
+ * Recomputes the width of every link in a single pass through L_0, which
+ * takes linear time.
+**/
+
+	void computeWidths() {
+		@SuppressWarnings("unchecked")  //a generic array must be created from its erasure
+		Tower<E>[] last = (Tower<E>[]) new SkipList<?>.Tower<?>[height];  //last tower reached in each list
+		int[] lastRank = new int[height];      //and its rank
+		Arrays.fill(last, head);
+		Arrays.fill(lastRank, -1);
+		int rank = 0;
+		for (Tower<E> t = head.next(0); ; t = t.next(0), rank++) {
+			int levels = (t == tail) ? height : t.getTowerHeight();
+			for (int i = 0; i < levels; i++) {
+				last[i].widths[i] = rank - lastRank[i];
+				last[i] = t;
+				lastRank[i] = rank;
+			}
+			if (t == tail)
+				return;
 		}
 	}
 
@@ -525,10 +624,18 @@ public class SkipList<E> extends AbstractCollection<E> implements
 
 	void remove(Tower<E> t) {
 		int towerHeight = t.getTowerHeight();
-		for (int i = 0; i < towerHeight; i++) 
+		for (int i = 0; i < towerHeight; i++) {
+			t.prev(i).widths[i] += t.widths[i] - 1;  //the link over t replaces the links to and from t
 			t.prev(i).setNext(i, t.next(i));  //remove from all levels it's in
+		}
+		Tower<E> ptr = t.prev(towerHeight - 1);
+		for (int i = towerHeight; i < height; i++) {  //links at higher levels span one less position
+			while (ptr.getTowerHeight() <= i)
+				ptr = ptr.prev(ptr.getTowerHeight() - 1);
+			ptr.widths[i]--;
+		}
 		if (height == towerHeight){ //see if skip list height decreases
-			while (height > 1 && head.next(height) == tail) //preserves Height property
+			while (height > 1 && head.next(height-1) == tail) //preserves Height property
 				height--;
 		}
 		t.delete();  //preserves InUse property
@@ -550,6 +657,116 @@ public class SkipList<E> extends AbstractCollection<E> implements
 		return true;
 	}
 
+/**
+ * Removes every element e with <code>lo</code> &le; e &le; <code>hi</code>.
+ * Instead of unlinking each tower, the whole range is spliced out of each
+ * list at once, so the expected time is O(log n) plus the time to mark the
+ * removed towers.
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @return the number of elements removed
+**/
+
+	public int removeRange(E lo, E hi) {
+		if (comp.compare(lo, hi) > 0)
+			return 0;
+		return removeRange(lo, true, hi, true);
+	}
+
+/**
+ * Removes every element less than <code>x</code>.
+ * @param x the bound
+ * @return the number of elements removed
+**/
+
+	public int removeLessThan(E x) {
+		return removeRange(null, false, x, false);
+	}
+
+/**
+ * Removes every element greater than <code>x</code>.
+ * @param x the bound
+ * @return the number of elements removed
+**/
+
+	public int removeGreaterThan(E x) {
+		return removeRange(x, false, null, false);
+	}
+
+/**
+ * Removes the elements in a range.  A tracker at a removed element
+ * advances to the first element that follows the range, since the level 0
+ * links among the removed towers are left in place.
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of elements removed
+**/
+
+	@SuppressWarnings("unchecked")
+	int removeRange(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		if (isEmpty())  //a list that has never held an element has no levels
+			return 0;
+		Tower<E>[] before = (Tower<E>[]) new SkipList<?>.Tower<?>[height];  //last tower before the range in each list
+		int[] beforeRank = new int[height];
+		Tower<E>[] last = (Tower<E>[]) new SkipList<?>.Tower<?>[height];    //last tower in or before the range in each list
+		int[] lastRank = new int[height];
+		if (lo == null) {
+			Arrays.fill(before, head);
+			Arrays.fill(beforeRank, -1);
+		} else
+			predecessors(lo, !loInclusive, before, beforeRank);
+		predecessors(hi, hiInclusive, last, lastRank);
+		int count = lastRank[0] - beforeRank[0];
+		if (count <= 0)
+			return 0;
+		Tower<E> t = before[0].next(0);  //the first tower removed
+		for (int i = 0; i < height; i++) {
+			if (before[i] == last[i])  //the link spans the range
+				before[i].widths[i] -= count;
+			else {                     //splice out the towers of the range in L_i
+				before[i].widths[i] = lastRank[i] + last[i].widths[i] - beforeRank[i] - count;
+				before[i].setNext(i, last[i].next(i));
+			}
+		}
+		for (int k = 0; k < count; k++, t = t.next(0))
+			t.delete();  //preserves InUse property
+		while (height > 1 && head.next(height-1) == tail)  //preserves Height property
+			height--;
+		size -= count;
+		return count;
+	}
+
+/**
+ * Finds, in each list, the last tower whose element precedes the given
+ * bound, and its rank.
+ * @param x the bound, or null for no bound
+ * @param after true if elements equivalent to <code>x</code> precede it
+ * @param pred an array in which the last tower in L_i that precedes
+ * <code>x</code> is placed at index i, for each level i in use
+ * @param rank an array in which the rank of <code>pred[i]</code> is
+ * placed at index i, where the rank of the head is -1
+**/
+
+	void predecessors(E x, boolean after, Tower<E>[] pred, int[] rank) {
+		Tower<E> left = head;
+		int pos = -1;  //rank of left
+		for (int level = height - 1; level >= 0; level--) {
+			for (Tower<E> next = left.next(level); next != tail; next = left.next(level)) {
+				if (x != null) {
+					int comparison = comp.compare(next.element, x);
+					if (comparison > 0 || (comparison == 0 && !after))
+						break;
+				}
+				pos += left.widths[level];
+				left = next;
+			}
+			pred[level] = left;
+			rank[level] = pos;
+		}
+	}
+
 /**
  * Updates the current collection to contain only
  * elements that are also in <code>c</code>.  When c is an ordered collection with
@@ -606,8 +823,129 @@ public class SkipList<E> extends AbstractCollection<E> implements
 		return new Tracker(t);
 	}
 
+/**
+ * Searches for <code>target</code> starting from the tower of a tracker,
+ * instead of from <code>head</code>.  The search moves along the level 0
+ * list toward the target, climbing each tower it reaches as long as the link
+ * at the next level does not pass the target, and then descends as in an
+ * ordinary search.  Since the towers reached are expected to grow in height
+ * geometrically, the search takes expected O(log d) time, where d is the
+ * number of elements between the tracked element and the target.  The
+ * returned tracker can serve as the finger for the next search, so a run of
+ * nearby searches never returns to <code>head</code>.  The predecessor of
+ * <code>target</code> is found by retreating the returned tracker, and
+ * whether <code>target</code> is in the collection by comparing it with the
+ * tracked element.
+ * @param finger a tracker for this skip list, which may be at FORE or AFT.  If
+ * its element has been removed, the search starts from <code>head</code>.
+ * @param target the element to search for
+ * @return a tracker at the first element that is at least <code>target</code>,
+ * or at AFT if there is none
+ * @throws IllegalArgumentException <code>finger</code> is not a tracker for
+ * this skip list
+**/
 
-	protected class Tracker extends AbstractCollection<E>.AbstractLocator<E> {
+	public Tracker searchFrom(Locator<E> finger, E target) {
+		if (!(finger instanceof SkipList.Tracker) || ((Tracker) finger).owner() != this)
+			throw new IllegalArgumentException("the finger is not a tracker for this skip list");
+		Tower<E> x = ((Tracker) finger).loc;
+		if (x.isDeleted())
+			x = head;
+		int level = 0;
+		if (x == head || (x != tail && comp.compare(x.element, target) < 0)) {
+			while (true) {  //x precedes target, so climb and move right
+				int top = Math.min(x.getTowerHeight(), height);
+				while (level + 1 < top && x.next(level + 1) != tail
+						&& comp.compare(x.next(level + 1).element, target) < 0)
+					level++;
+				Tower<E> next = x.next(level);
+				if (next == tail || comp.compare(next.element, target) >= 0)
+					break;
+				x = next;
+			}
+		} else {
+			while (true) {  //x is at least target, so climb and move left
+				int top = Math.min(x.getTowerHeight(), height);
+				while (level + 1 < top && x.prev(level + 1) != head
+						&& comp.compare(x.prev(level + 1).element, target) >= 0)
+					level++;
+				x = x.prev(level);
+				if (x == head || comp.compare(x.element, target) < 0)
+					break;
+			}
+		}
+		for (; level >= 0; level--)  //x precedes target, and x.next(level) does not
+			while (x.next(level) != tail && comp.compare(x.next(level).element, target) < 0)
+				x = x.next(level);
+		return new Tracker(x.next(0));
+	}
+
+
+/**
+ * Verifies that the width of every link is the number of positions it spans,
+ * and that the size is the number of elements in L_0.
+ * @throws IllegalStateException a width or the size is incorrect
+**/
+
+	public void checkRep() {
+		int[][] saved = new int[size + 1][];
+		int rank = 0;
+		saved[0] = head.widths.clone();
+		for (Tower<E> t = head.next(0); t != tail; t = t.next(0))
+			saved[++rank] = t.widths.clone();
+		if (rank != size)
+			throw new IllegalStateException("size is " + size + " but L_0 has " + rank + " elements");
+		computeWidths();
+		rank = 0;
+		for (Tower<E> t = head; t != tail; t = t.next(0), rank++)
+			for (int i = 0; i < Math.min(t.getTowerHeight(), height); i++)
+				if (saved[rank][i] != t.widths[i])
+					throw new IllegalStateException("width " + saved[rank][i] + " at level " + i +
+							" of rank " + (rank - 1) + " should be " + t.widths[i]);
+	}
+
+/**
+ * A xorshift random number generator, which is cheaper than
+ * <code>java.util.Random</code> since it does no synchronization, and has adequate
+ * quality for selecting tower heights.  As for any skip list, it should not be
+ * shared by skip lists used in different threads.
+**/
+
+	public static class XorShiftRandom extends java.util.Random {
+
+		private static final long serialVersionUID = 1L;
+
+		long state;  //never 0, since 0 is a fixed point of the generator
+
+/**
+ * Creates a generator seeded from the system clock.
+**/
+
+		public XorShiftRandom() {
+			this(System.nanoTime());
+		}
+
+/**
+ * @param seed the initial seed
+**/
+
+		public XorShiftRandom(long seed) {
+			super(seed);  //calls setSeed
+		}
+
+		public void setSeed(long seed) {
+			state = (seed == 0) ? 0x9E3779B97F4A7C15L : seed;
+		}
+
+		protected int next(int bits) {
+			state ^= state << 13;
+			state ^= state >>> 7;
+			state ^= state << 17;
+			return (int) (state >>> (64 - bits));
+		}
+	}
+
+	public class Tracker extends AbstractCollection<E>.AbstractLocator<E> {
 
 		Tower<E> loc;  //reference to the tracked tower
 
@@ -620,6 +958,14 @@ public class SkipList<E> extends AbstractCollection<E> implements
 			this.loc = loc;
 		}
 
+/**
+ * @return the skip list of this tracker
+**/
+
+		final SkipList<E> owner() {
+			return SkipList.this;
+		}
+
 /**
  * @return true  if and only if the tracked element is
  * currently in the collection.
@@ -678,6 +1024,43 @@ public class SkipList<E> extends AbstractCollection<E> implements
 			return loc != tail;
 		}
 
+/**
+ * Moves the tracker forward <code>k</code> elements in the iteration
+ * order (or to <code>tail</code> if fewer than <code>k</code> elements follow it),
+ * in expected O(log k) time.  When the tracked element has been removed, the
+ * first step moves the tracker to the element that followed it.
+ * @param k the number of elements to move forward
+ * @return true  if and only if after the update, the tracker is at
+ * an element of the collection.
+ * @throws IllegalArgumentException <code>k</code> is negative
+ * @throws AtBoundaryException the tracker is at <code>tail</code> and
+ * <code>k</code> is positive
+**/
+
+		public boolean skip(int k) {
+			if (k < 0)
+				throw new IllegalArgumentException();
+			if (k == 0)
+				return loc != head && loc != tail && !loc.isDeleted();
+			if (loc == tail)
+				throw new AtBoundaryException();
+			if (loc.isDeleted()) {
+				loc = skipRemovedElements(loc);
+				k--;
+			}
+			int level = 0;
+			while (k > 0 && loc != tail) {
+				int top = Math.min(loc.getTowerHeight(), height);  //head may be taller than height
+				while (level + 1 < top && loc.widths[level + 1] <= k)  //climb while the link doesn't pass the target
+					level++;
+				while (loc.widths[level] > k)  //descend until it doesn't
+					level--;
+				k -= loc.widths[level];
+				loc = loc.next(level);
+			}
+			return loc != tail;
+		}
+
 /**
  * Moves the tracker to the previous element in the iteration order
  * (or <code>head</code> if the
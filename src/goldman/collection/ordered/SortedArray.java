@@ -13,6 +13,7 @@ import goldman.collection.positional.DynamicArray;
 
 import java.util.Comparator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 /**
  * The sorted array provides very efficient use of space and
  * the fastest search time independent of the access pattern.
@@ -302,13 +303,16 @@ public class SortedArray<E> extends AbstractCollection<E> implements
 	}
 
 /**
- * Adds all elements in <code>c</code> to the collection.
+ * Adds all elements in <code>c</code> to the collection.  The new elements
+ * are appended, sorted, and then merged from the back, so adding m elements
+ * takes O(m log m + n) time.
  * @param c the collection to be added
 **/
 
 	public void addAll(Collection<? extends E> c) {
+		int n = a.getSize();
 		a.addAll(c);
-		a.quicksort();
+		a.mergeSuffix(n, comp);
 	}
 
 /**
@@ -327,6 +331,65 @@ public class SortedArray<E> extends AbstractCollection<E> implements
 		return true;
 	}
 
+/**
+ * Removes every element e with <code>lo</code> &le; e &le; <code>hi</code>.
+ * Both ends of the range are found by binary search, and then the elements
+ * that follow the range are shifted left once, so the time is O(log n) plus
+ * the number of elements after the range, instead of a shift per element
+ * removed.
+ * @param lo the lower end of the range
+ * @param hi the upper end of the range
+ * @return the number of elements removed
+**/
+
+	public int removeRange(E lo, E hi) {
+		if (comp.compare(lo, hi) > 0)
+			return 0;
+		return removeRange(lo, true, hi, true);
+	}
+
+/**
+ * Removes every element less than <code>x</code>.
+ * @param x the bound
+ * @return the number of elements removed
+**/
+
+	public int removeLessThan(E x) {
+		return removeRange(null, false, x, false);
+	}
+
+/**
+ * Removes every element greater than <code>x</code>.
+ * @param x the bound
+ * @return the number of elements removed
+**/
+
+	public int removeGreaterThan(E x) {
+		return removeRange(x, false, null, false);
+	}
+
+/**
+ * @param lo the lower end of the range, or null for no lower bound
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range, or null for no upper bound
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of elements removed
+**/
+
+	int removeRange(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		int n = getSize();
+		if (n == 0)
+			return 0;
+		int from = (lo == null) ? 0 : loInclusive ? findFirstInsertPosition(0, n-1, lo)
+				: findLastInsertPosition(0, n-1, lo);
+		int to = (hi == null) ? n : hiInclusive ? findLastInsertPosition(0, n-1, hi)
+				: findFirstInsertPosition(0, n-1, hi);
+		if (from >= to)
+			return 0;
+		a.removeRange(from, to-1);
+		return to - from;
+	}
+
 /**
  * Updates the current collection to contain only
  * elements that are also in <code>c</code>
@@ -408,6 +471,32 @@ public class SortedArray<E> extends AbstractCollection<E> implements
 	}
 
 
+	protected class RankSpliterator extends IndexSpliterator {
+
+		RankSpliterator(int origin, int fence) {
+			super(origin, fence, ORDERED | SORTED);
+		}
+
+		protected E elementAt(int r) {
+			return a.get(r);
+		}
+
+		protected RankSpliterator create(int origin, int fence) {
+			return new RankSpliterator(origin, fence);
+		}
+	}
+
+/**
+ * Since the element of each rank can be accessed in constant time,
+ * the spliterator splits the range of ranks at the middle.
+ * @return a sorted spliterator over the elements of this collection
+**/
+
+	public Spliterator<E> spliterator() {
+		return new RankSpliterator(0, getSize());
+	}
+
+
 	public Locator<E> iteratorAtEnd() {
 		return a.new BasicMarker(a.getSize());
 	}
@@ -196,6 +196,7 @@ public class SplayTree<E> extends BalancedBinarySearchTree<E>
 		if (node.isDeleted())		   
 			throw new NoSuchElementException();
 		BSTNode successor = succ(node);		   
+		BSTNode changed = node.parent;  //lowest node whose subtree loses an element
 		if (node.left.isFrontier()) 				   
 			node.deleteAndReplaceBy(node.right);
 		else if (node.right.isFrontier()) 	   	   
@@ -204,7 +205,9 @@ public class SplayTree<E> extends BalancedBinarySearchTree<E>
 			splay(successor,node); //splay the successor to be the child of x
 			successor.deleteAndReplaceBy(successor.right);
 			node.substituteNode(successor);
+			changed = successor;
 		}
+		updateAggregates(changed);  //before splaying, which preserves aggregates
 		if (node.parent != null) // If x's parent is not already at the root
 			splay(node.parent,null); // use splay to bring x's parent to the root
 		node.parent = successor; 
@@ -6,6 +6,7 @@
 package goldman.collection.ordered;
 import goldman.Objects;
 import java.util.Comparator;
+import java.util.Iterator;
 
 /**
  * The top down B-tree implements a variation of a B-tree
@@ -21,7 +22,7 @@ public class TopDownBTree<E> extends BTree<E> implements OrderedCollection<E> {
 			BTreeNode x = this; //pointer to node where element will be added
 			if (x.size()-i > 0)  //need to make room for rightChild
 				System.arraycopy(x.children,i+1,x.children,i+2,x.size()-i);
-			x.data.add(i, element);  //add new element
+			x.addKey(i, element);  //add new element
 			x.setChild(i+1,rightChild); //add new child
 			return x;   //return the node where the new element was placed
 		}
@@ -47,18 +48,43 @@ public class TopDownBTree<E> extends BTree<E> implements OrderedCollection<E> {
 		super(comp, t);
 	}
 
+//bulk loading builds the same structure as for a B-tree, since it does not
+//  depend on whether later insertions and deletions are top-down or bottom-up
+
+	public static <E> TopDownBTree<E> bulkLoad(Comparator<? super E> comp, int t, E[] sorted, double fillFactor) {
+		TopDownBTree<E> tree = new TopDownBTree<E>(comp, t);
+		tree.load(sorted, sorted.length, fillFactor, false);
+		return tree;
+	}
+
+	public static <E> TopDownBTree<E> bulkLoad(Comparator<? super E> comp, int t, Iterator<? extends E> sorted,
+			double fillFactor) {
+		Object[] elements = toArray(sorted);
+		TopDownBTree<E> tree = new TopDownBTree<E>(comp, t);
+		tree.load(elements, elements.length, fillFactor, false);
+		return tree;
+	}
+
+	public static <E> TopDownBTree<E> parallelBulkLoad(Comparator<? super E> comp, int t, E[] sorted,
+			double fillFactor) {
+		TopDownBTree<E> tree = new TopDownBTree<E>(comp, t);
+		tree.load(sorted, sorted.length, fillFactor, true);
+		return tree;
+	}
+
 //during search in insert, split any node reached that is full
 	protected TreeNode insert(E element){
 		if (isEmpty()) {
 			createRoot();
-			((BTreeNode) root).data.add(0, element);
+			((BTreeNode) root).addKey(0, element);
 			((BTreeNode) root).children[0] = (BTreeNode) FRONTIER;
 			((BTreeNode) root).children[1] = (BTreeNode) FRONTIER;
+			updateAggregates();
 			return root;
 		} else {
 			BTreeNode ptr = (BTreeNode) root;			//start search at the root
 			while (ptr.atMaxSize() || !ptr.isLeaf() ) {
-				curIndex = ptr.data.findLastInsertPosition(0,ptr.size()-1,element);
+				curIndex = ptr.findLastInsertPosition(element);
 				if (ptr.atMaxSize()){
 					BTreeNode newNode = ptr.split();
 					if (curIndex >= t) {
@@ -69,9 +95,11 @@ public class TopDownBTree<E> extends BTree<E> implements OrderedCollection<E> {
 				else
 					ptr = ptr.child(curIndex);
 			}
-			curIndex = ptr.data.findLastInsertPosition(0,ptr.size()-1,element);
+			curIndex = ptr.findLastInsertPosition(element);
 			version.increment();   //invalidate all markers for iteration
-			return ptr.addElement(curIndex,element,(BTreeNode) FRONTIER);
+			ptr = ptr.addElement(curIndex,element,(BTreeNode) FRONTIER);
+			updateAggregates();
+			return ptr;
 		}
 	}
 
@@ -118,7 +146,7 @@ public class TopDownBTree<E> extends BTree<E> implements OrderedCollection<E> {
 		BTreeNode x = (BTreeNode) root;
 		int i = 0;
 		while (!x.isFrontier()) {
-			curIndex = x.data.find(element);
+			curIndex = x.find(element);
 			i = curIndex;
 			int pIndex = x.pIndex;
 			if (x.atMinSize() && x != root) { //can't remove prior to restructing
@@ -140,48 +168,47 @@ public class TopDownBTree<E> extends BTree<E> implements OrderedCollection<E> {
 					}
 				}
 			}
-			if (i < x.size() && comp.compare(element, x.data.get(i)) == 0)
+			if (i < x.size() && comp.compare(element, x.key(i)) == 0)
 				break;
 			((BTreeNode) FRONTIER).parent = x;
 			x = x.child(i);
 		}
-		if (x.isFrontier()) 
+		if (x.isFrontier()) {
+			updateAggregates();  //the tree may have been restructured
 			return false;  
+		}
 		remove(x, i);
 		version.increment();
+		updateAggregates();
 		return true;
 	}
 
 //The remove method that takes the node and element to remove is modified so that
-//    moveToPredecessor (versus rightmost) is used to ensure that the tree is
-//	  restructured if any minimum-sized node on the search path to the predecessor is
-//	  encountered.  In addition, if this restructuring causes the node x holding the
-//    element to remove changes, then x and index are updated.
-	
+//    the element to remove is never moved by restructuring below it.  If the child
+//    left of the element is not minimum-sized, moveToPredecessor restructures only
+//    below that child.  Otherwise the element is first moved down into that child,
+//    by a shift from the right sibling or a merge, and the removal continues there.
+
 	void remove(BTreeNode x, int index) {
-		if (x.isLeaf()) {    //Case 1
-			x.remove(index);
-			size--;
-		} else {             //Case 2
-			int xSize = x.size();
-			int	xLeftSize = x.child(index).size();
-			int	xRightSize = x.child(index+1).size();
-			BTreeNode pred = (BTreeNode) moveToPredecessor(x.child(index)); 
-			if (x.size() != xSize) {  //if element to remove was combined with children during merge
-				x = x.child(index);      //update x to reference node with element to remove 
-				index = t-1;             //after merge element to remove is at median position
-			}
-			else if (x.child(index).size() > xLeftSize) {  //if element to remove was moved left by shift left
-				x = x.child(index);      //update x to reference node with element to remove 
-				index = x.size()-1;      //after shift left, element to remove is rightmost in node
-			}
-			else if (x.child(index+1).size() > xRightSize){ //if element to remove was moved right by shift right
-				x = x.child(index+1);    //update x to reference node with element to remove
-				index = 0;               //after shift right, element to remove is leftmost in node
+		while (!x.isLeaf()) {
+			BTreeNode left = x.child(index);
+			if (!left.atMinSize()) {                     //replace by predecessor from left subtree
+				BTreeNode pred = (BTreeNode) moveToPredecessor(left);
+				x.setKey(index,pred.key(pred.size()-1));
+				x = pred;
+				index = pred.size()-1;
+			} else if (!x.child(index+1).atMinSize()) {  //element to remove moves down to end of left
+				left.shiftLeft(x,index);
+				x = left;
+				index = left.size()-1;
+			} else {                                     //element to remove moves down to median of left
+				left.merge(x,index);
+				x = left;
+				index = t-1;
 			}
-			x.data.set(index,pred.data(pred.size()-1));
-			remove(pred,pred.size()-1);
 		}
+		x.remove(index);
+		size--;
 	}
 }
 
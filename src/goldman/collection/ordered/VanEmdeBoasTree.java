@@ -0,0 +1,722 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.ordered;
+
+import java.util.NoSuchElementException;
+import goldman.Objects;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Locator;
+/**
+ * A van Emde Boas tree is an ordered collection of <code>int</code> values
+ * whose predecessor and successor are found in O(log log U) time, where U =
+ * 2<sup>32</sup> is the size of the universe of keys, instead of the
+ * O(log n) time of a comparison-based search tree.
+ * <p>
+ * A node for a universe of 2<sup>b</sup> keys splits each key into its
+ * high-order and low-order b/2 bits.  The keys with the same high-order bits
+ * are held in a <i>cluster</i>, which is a node for a universe of
+ * 2<sup>b/2</sup> keys, and the high-order bits of the nonempty clusters are
+ * held in the <i>summary</i>, which is also a node for a universe of
+ * 2<sup>b/2</sup> keys.  Each node caches its minimum and maximum key, so that
+ * a search for a successor makes a single recursive call: into the cluster of
+ * the target when its maximum is larger than the target, and otherwise into
+ * the summary, to find the next nonempty cluster, whose minimum is the
+ * successor.  A node for at most 2<sup>8</sup> keys is a leaf that holds a
+ * bit vector, in which the next key is found with a few word operations.  So
+ * a 32-bit key is found after visiting the root, a node for 16-bit keys, and
+ * a leaf.
+ * <p>
+ * Each node keeps its clusters in an open addressing hash table indexed by
+ * their high-order bits, so that the space used grows with the number of
+ * nonempty clusters rather than with U.  Every key is held in a leaf, and a
+ * leaf that holds several copies of some key also holds the number of copies
+ * of each key.  Since adding a key to an empty cluster also adds to the
+ * summary, <code>add</code> and <code>remove</code> make up to two recursive
+ * calls per node, and take O(log U) time in the worst case, which is a small
+ * constant here since the tree has only three levels.  The elements are kept
+ * in numeric order, and the methods that take an <code>int</code> avoid
+ * boxing.
+**/
+
+public class VanEmdeBoasTree extends AbstractCollection<Integer> implements OrderedCollection<Integer> {
+
+	static final int LEAF_BITS = 8;  //nodes for universes of at most 2^8 keys are leaves
+
+	Internal root = new Internal(32);
+
+
+	public VanEmdeBoasTree() {
+		super(Objects.DEFAULT_COMPARATOR);
+	}
+
+/**
+ * The methods of a node take and return keys as unsigned values within the
+ * universe of the node.
+**/
+
+	static abstract class Node {
+
+		int distinct;  //the number of distinct keys in this node
+
+		final boolean isEmpty() {
+			return distinct == 0;
+		}
+
+/**
+ * @return the smallest key in this node
+ * <BR> REQUIRES: this node is not empty
+**/
+
+		abstract int min();
+
+/**
+ * @return the largest key in this node
+ * <BR> REQUIRES: this node is not empty
+**/
+
+		abstract int max();
+
+/**
+ * @param x a key
+ * @return the number of copies of <code>x</code> in this node
+**/
+
+		abstract int count(int x);
+
+/**
+ * Adds a copy of <code>x</code>.
+ * @param x a key
+ * @return true  if and only if <code>x</code> was not already in this node
+**/
+
+		abstract boolean insert(int x);
+
+/**
+ * Removes a copy of <code>x</code>.
+ * @param x a key
+ * @return true  if and only if <code>x</code> is no longer in this node
+ * <BR> REQUIRES: <code>x</code> is in this node
+**/
+
+		abstract boolean delete(int x);
+
+/**
+ * @param x a key
+ * @return the smallest key in this node that is greater than <code>x</code>,
+ * or -1 if there is none
+**/
+
+		abstract long successor(int x);
+
+/**
+ * @param x a key
+ * @return the largest key in this node that is less than <code>x</code>,
+ * or -1 if there is none
+**/
+
+		abstract long predecessor(int x);
+	}
+
+/**
+ * @param bits the number of bits in a key
+ * @return a new empty node for keys of that many bits
+**/
+
+	static Node create(int bits) {
+		return (bits <= LEAF_BITS) ? new Leaf(bits) : new Internal(bits);
+	}
+
+/**
+ * @param a a key
+ * @param b a key
+ * @return true  if and only if <code>a</code> is less than <code>b</code>, as
+ * unsigned values
+**/
+
+	static boolean less(int a, int b) {
+		return (a ^ Integer.MIN_VALUE) < (b ^ Integer.MIN_VALUE);
+	}
+
+
+	static final class Leaf extends Node {
+
+		final long[] words;  //bit x of the vector is set when x is in the leaf
+		int[] counts;        //the number of copies of each key, or null if there is one of each
+
+		Leaf(int bits) {
+			words = new long[Math.max(1, (1 << bits) >>> 6)];
+		}
+
+		int min() {
+			int i = 0;
+			while (words[i] == 0)
+				i++;
+			return (i << 6) + Long.numberOfTrailingZeros(words[i]);
+		}
+
+		int max() {
+			int i = words.length - 1;
+			while (words[i] == 0)
+				i--;
+			return (i << 6) + 63 - Long.numberOfLeadingZeros(words[i]);
+		}
+
+		int count(int x) {
+			if ((words[x >>> 6] >>> x & 1) == 0)
+				return 0;
+			return (counts == null) ? 1 : counts[x];
+		}
+
+		boolean insert(int x) {
+			if ((words[x >>> 6] >>> x & 1) != 0) {
+				if (counts == null) {  //x is the first key with a second copy
+					counts = new int[words.length << 6];
+					for (int k = 0; k < counts.length; k++)
+						counts[k] = (int) (words[k >>> 6] >>> k & 1);
+				}
+				counts[x]++;
+				return false;
+			}
+			words[x >>> 6] |= 1L << x;
+			if (counts != null)
+				counts[x] = 1;
+			distinct++;
+			return true;
+		}
+
+		boolean delete(int x) {
+			if (counts != null && counts[x] > 1) {
+				counts[x]--;
+				return false;
+			}
+			words[x >>> 6] &= ~(1L << x);
+			if (counts != null)
+				counts[x] = 0;
+			distinct--;
+			return true;
+		}
+
+		long successor(int x) {
+			int i = x >>> 6;
+			long w = words[i] & (-2L << x);  //the bits above x in its word
+			while (w == 0) {
+				if (++i == words.length)
+					return -1;
+				w = words[i];
+			}
+			return (i << 6) + Long.numberOfTrailingZeros(w);
+		}
+
+		long predecessor(int x) {
+			int i = x >>> 6;
+			long w = words[i] & ((1L << x) - 1);  //the bits below x in its word
+			while (w == 0) {
+				if (--i < 0)
+					return -1;
+				w = words[i];
+			}
+			return (i << 6) + 63 - Long.numberOfLeadingZeros(w);
+		}
+	}
+
+
+	static final class Internal extends Node {
+
+		final int lowBits;    //the number of low-order bits, which locate a key within its cluster
+		final Node summary;   //holds the high-order bits of each nonempty cluster
+		int[] highs;          //the high-order bits of the cluster in each slot
+		Node[] clusters;      //the nonempty clusters, or null for an empty slot
+		int numClusters;      //the number of nonempty clusters
+		int min, max;         //the smallest and largest keys, when not empty
+
+		Internal(int bits) {
+			lowBits = bits / 2;
+			summary = create(bits - lowBits);
+			highs = new int[4];
+			clusters = new Node[4];
+		}
+
+/**
+ * @param h the high-order bits of a key
+ * @return the cluster for those keys, or null if there is none
+**/
+
+		Node cluster(int h) {
+			int mask = clusters.length - 1;
+			for (int i = h & mask; clusters[i] != null; i = (i + 1) & mask)
+				if (highs[i] == h)
+					return clusters[i];
+			return null;
+		}
+
+/**
+ * @param h the high-order bits of the keys in cluster <code>c</code>
+ * @param c a cluster that is not in the table
+**/
+
+		void addCluster(int h, Node c) {
+			if (2 * (numClusters + 1) > clusters.length) {  //keep the load at most 1/2
+				int[] oldHighs = highs;
+				Node[] oldClusters = clusters;
+				highs = new int[2 * oldClusters.length];
+				clusters = new Node[2 * oldClusters.length];
+				numClusters = 0;
+				for (int i = 0; i < oldClusters.length; i++)
+					if (oldClusters[i] != null)
+						addCluster(oldHighs[i], oldClusters[i]);
+			}
+			int mask = clusters.length - 1;
+			int i = h & mask;
+			while (clusters[i] != null)
+				i = (i + 1) & mask;
+			highs[i] = h;
+			clusters[i] = c;
+			numClusters++;
+		}
+
+/**
+ * Removes a cluster from the table, and moves back each later cluster in
+ * the same run of occupied slots that can then be found closer to its
+ * home slot, so that no deleted markers are needed.
+ * @param h the high-order bits of a cluster in the table
+**/
+
+		void removeCluster(int h) {
+			int mask = clusters.length - 1;
+			int i = h & mask;
+			while (highs[i] != h || clusters[i] == null)
+				i = (i + 1) & mask;
+			clusters[i] = null;
+			numClusters--;
+			for (int j = (i + 1) & mask; clusters[j] != null; j = (j + 1) & mask)
+				if (((j - highs[j]) & mask) >= ((j - i) & mask)) {  //slot i is on the probe path for j
+					highs[i] = highs[j];
+					clusters[i] = clusters[j];
+					clusters[j] = null;
+					i = j;
+				}
+		}
+
+		int min() {
+			return min;
+		}
+
+		int max() {
+			return max;
+		}
+
+/**
+ * @param h the high-order bits of a key
+ * @param l the low-order bits of the key
+ * @return the key as an unsigned value
+**/
+
+		long key(int h, long l) {
+			return ((long) h << lowBits) | l;
+		}
+
+		int count(int x) {
+			Node c = cluster(x >>> lowBits);
+			return (c == null) ? 0 : c.count(x & ((1 << lowBits) - 1));
+		}
+
+		boolean insert(int x) {
+			int h = x >>> lowBits;
+			Node c = cluster(h);
+			if (c == null) {
+				c = create(lowBits);
+				addCluster(h, c);
+				summary.insert(h);
+			}
+			if (!c.insert(x & ((1 << lowBits) - 1)))
+				return false;
+			if (distinct == 0 || less(x, min))
+				min = x;
+			if (distinct == 0 || less(max, x))
+				max = x;
+			distinct++;
+			return true;
+		}
+
+		boolean delete(int x) {
+			int h = x >>> lowBits;
+			Node c = cluster(h);
+			if (!c.delete(x & ((1 << lowBits) - 1)))
+				return false;
+			distinct--;
+			if (c.isEmpty()) {
+				removeCluster(h);
+				summary.delete(h);
+			}
+			if (distinct > 0) {
+				if (x == min)
+					min = (int) key(summary.min(), cluster(summary.min()).min());
+				if (x == max)
+					max = (int) key(summary.max(), cluster(summary.max()).max());
+			}
+			return true;
+		}
+
+		long successor(int x) {
+			if (distinct == 0 || !less(x, max))
+				return -1;
+			if (less(x, min))
+				return min & 0xFFFFFFFFL;
+			int h = x >>> lowBits;
+			int l = x & ((1 << lowBits) - 1);
+			Node c = cluster(h);
+			if (c != null && l < c.max())       //the successor is in the same cluster
+				return key(h, c.successor(l));
+			int next = (int) summary.successor(h);  //exists since x < max
+			return key(next, cluster(next).min());
+		}
+
+		long predecessor(int x) {
+			if (distinct == 0 || !less(min, x))
+				return -1;
+			if (less(max, x))
+				return max & 0xFFFFFFFFL;
+			int h = x >>> lowBits;
+			int l = x & ((1 << lowBits) - 1);
+			Node c = cluster(h);
+			if (c != null && c.min() < l)       //the predecessor is in the same cluster
+				return key(h, c.predecessor(l));
+			int prev = (int) summary.predecessor(h);  //exists since x > min
+			return key(prev, cluster(prev).max());
+		}
+	}
+
+/**
+ * @param x an element
+ * @return its key, which is an unsigned value in the same order
+**/
+
+	static int key(int x) {
+		return x ^ Integer.MIN_VALUE;
+	}
+
+/**
+ * @param key a key, as returned by the methods of a node
+ * @return the element with that key
+**/
+
+	static int element(long key) {
+		return (int) key ^ Integer.MIN_VALUE;
+	}
+
+/**
+ * @param x the value being tested for membership in the collection
+ * @return true  if and only if <code>x</code> is in the collection
+**/
+
+	public boolean contains(int x) {
+		return root.count(key(x)) > 0;
+	}
+
+	public boolean contains(Integer x) {
+		return contains(x.intValue());
+	}
+
+/**
+ * @param x a value
+ * @return the number of occurrences of <code>x</code> in the collection
+**/
+
+	public int count(int x) {
+		return root.count(key(x));
+	}
+
+/**
+ * @param x the new element
+**/
+
+	public void add(Integer x) {
+		root.insert(key(x));
+		size++;
+	}
+
+/**
+ * Removes one occurrence of <code>x</code>, if any.
+ * @param x the element to remove
+ * @return true  if and only if an element was removed
+**/
+
+	public boolean remove(Integer x) {
+		int k = key(x);
+		if (root.count(k) == 0)
+			return false;
+		root.delete(k);
+		size--;
+		return true;
+	}
+
+/**
+ * Removes all elements from the collection.
+**/
+
+	public void clear() {
+		root = new Internal(32);
+		size = 0;
+	}
+
+/**
+ * @param target the target
+ * @return <code>target</code>, if it is in the collection
+ * @throws NoSuchElementException <code>target</code> is not in the collection
+**/
+
+	public Integer getEquivalentElement(Integer target) {
+		if (!contains(target))
+			throw new NoSuchElementException();
+		return target;
+	}
+
+/**
+ * Since a van Emde Boas tree does not keep the number of elements in each
+ * subtree, this method takes linear time.
+ * @param r the desired rank
+ * @return the r<sup>th</sup> element in the
+ * sorted order, where r=0 is the minimum element
+ * @throws IllegalArgumentException r &lt; 0 or r &ge; n
+**/
+
+	public Integer get(int r) {
+		if (r < 0 || r >= size)
+			throw new IllegalArgumentException("" + r);
+		Locator<Integer> loc = iterator();
+		for (int j = 0; j <= r; j++)
+			loc.advance();
+		return loc.get();
+	}
+
+/**
+ * @return a smallest element in the collection
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public Integer min() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return element(root.min);
+	}
+
+/**
+ * @return a largest element in the collection
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public Integer max() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return element(root.max);
+	}
+
+/**
+ * @param x a value, which need not be in the collection
+ * @return the largest element in the collection that is less than <code>x</code>
+ * @throws NoSuchElementException no element in the collection
+ * is smaller than <code>x</code>
+**/
+
+	public int predecessor(int x) {
+		long k = root.predecessor(key(x));
+		if (k < 0)
+			throw new NoSuchElementException();
+		return element(k);
+	}
+
+	public Integer predecessor(Integer x) {
+		return predecessor(x.intValue());
+	}
+
+/**
+ * @param x a value, which need not be in the collection
+ * @return the smallest element in the collection that is greater than <code>x</code>
+ * @throws NoSuchElementException no element in the collection
+ * is greater than <code>x</code>
+**/
+
+	public int successor(int x) {
+		long k = root.successor(key(x));
+		if (k < 0)
+			throw new NoSuchElementException();
+		return element(k);
+	}
+
+	public Integer successor(Integer x) {
+		return successor(x.intValue());
+	}
+
+/**
+ * Creates a new marker that is at FORE.
+**/
+
+	public Locator<Integer> iterator() {
+		return new Marker(-1, 0);
+	}
+
+/**
+ * Creates a new marker that is at AFT.
+**/
+
+	public Locator<Integer> iteratorAtEnd() {
+		return new Marker(1L << 32, 0);
+	}
+
+/**
+ * @param x the element to locate
+ * @return a marker at the first occurrence of <code>x</code>
+ * @throws NoSuchElementException <code>x</code> is not in the collection
+**/
+
+	public Locator<Integer> getLocator(Integer x) {
+		if (!contains(x))
+			throw new NoSuchElementException();
+		return new Marker(key(x) & 0xFFFFFFFFL, 0);
+	}
+
+/**
+ * A marker holds the key of the marked element and which of its copies is
+ * marked, so it remains valid as the collection changes.  If the marked
+ * element is removed, the marker stays between its neighbors.
+**/
+
+	public class Marker extends AbstractCollection<Integer>.AbstractLocator<Integer> {
+
+		long key;         //the marked key, -1 at FORE, or 2^32 at AFT
+		int copy;         //the number of copies of the key before the marked one
+		boolean removed;  //true when the marked copy was removed through this marker
+
+		Marker(long key, int copy) {
+			this.key = key;
+			this.copy = copy;
+		}
+
+		final boolean atFore() {
+			return key < 0;
+		}
+
+		final boolean atAft() {
+			return key > 0xFFFFFFFFL;
+		}
+
+/**
+ * @return true  if and only if the marker is at an element of the collection
+**/
+
+		public boolean inCollection() {
+			return !removed && !atFore() && !atAft() && copy < root.count((int) key);
+		}
+
+/**
+ * @return the marked element
+ * @throws NoSuchElementException the marker is not at an element in the collection
+**/
+
+		public Integer get() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return element(key);
+		}
+
+/**
+ * Moves the marker to the given copy of the given key, or to the first copy
+ * of the next key if there are no more copies of the given key.
+ * @return true  if and only if the marker is then at an element
+**/
+
+		final boolean moveForward(long k, int c) {
+			removed = false;
+			if (k >= 0 && c < root.count((int) k)) {
+				key = k;
+				copy = c;
+				return true;
+			}
+			long next = (k < 0) ? (root.isEmpty() ? -1 : root.min() & 0xFFFFFFFFL)
+					: root.successor((int) k);
+			key = (next < 0) ? 1L << 32 : next;
+			copy = 0;
+			return next >= 0;
+		}
+
+/**
+ * Moves the marker to the copy of the given key just before the given copy,
+ * or to the last copy of the previous key if there is none.
+ * @return true  if and only if the marker is then at an element
+**/
+
+		final boolean moveBackward(long k, int c) {
+			removed = false;
+			if (!atAft()) {
+				int count = root.count((int) k);
+				if (Math.min(c, count) > 0) {
+					key = k;
+					copy = Math.min(c, count) - 1;
+					return true;
+				}
+			}
+			long prev = atAft() ? (root.isEmpty() ? -1 : root.max() & 0xFFFFFFFFL)
+					: root.predecessor((int) k);
+			key = prev;
+			copy = (prev < 0) ? 0 : root.count((int) prev) - 1;
+			return prev >= 0;
+		}
+
+/**
+ * Moves the marker to the next element in the iteration order, or to AFT
+ * after the last.  If the marked element was removed, the marker moves to
+ * the element that followed it.
+ * @return true  if and only if the marker is then at an element
+ * @throws AtBoundaryException the marker is already at AFT
+**/
+
+		public boolean advance() {
+			if (atAft())
+				throw new AtBoundaryException();
+			return moveForward(key, removed ? copy : copy + 1);
+		}
+
+/**
+ * Moves the marker to the previous element in the iteration order, or to
+ * FORE before the first.
+ * @return true  if and only if the marker is then at an element
+ * @throws AtBoundaryException the marker is already at FORE
+**/
+
+		public boolean retreat() {
+			if (atFore())
+				throw new AtBoundaryException();
+			return moveBackward(key, copy);
+		}
+
+/**
+ * @return true  if there is an element after the marker
+**/
+
+		public boolean hasNext() {
+			if (atAft())
+				return false;
+			if (atFore())
+				return !root.isEmpty();
+			return (removed ? copy : copy + 1) < root.count((int) key)
+					|| root.successor((int) key) >= 0;
+		}
+
+/**
+ * Removes the marked element, leaving the marker between its neighbors.
+ * @throws NoSuchElementException the marker is not at an element of the collection
+**/
+
+		public void remove() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			root.delete((int) key);
+			size--;
+			removed = true;
+		}
+	}
+}
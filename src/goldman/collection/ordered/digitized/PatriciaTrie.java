@@ -7,6 +7,8 @@ package goldman.collection.ordered.digitized;
 
 import goldman.collection.Digitizer;
 import goldman.collection.Tracked;
+import java.util.Spliterator;
+import java.util.Spliterators;
 /**
  * The Patricia trie is a variation of a compressed trie that can
  * be used when the digitizer has base 2 and the collection is naturally prefix-free
@@ -397,5 +399,15 @@ public PatriciaTrie(Digitizer<? super E> digitizer) throws Exception {
 		size--;
 	}
 
+/**
+ * Since each node serves as both an internal node and a leaf, the
+ * spliterator is driven by a tracker rather than by splitting nodes.
+ * @return a spliterator over the elements of this collection
+**/
+
+	public Spliterator<E> spliterator() {
+		return Spliterators.spliterator(iterator(), getSize(), spliteratorCharacteristics());
+	}
+
 
 }
@@ -9,6 +9,7 @@ import goldman.Pool;
 import goldman.collection.*;
 
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 /**
  * The trie data structure is the simplest <code>DigitizedOrderedCollection</code>
  * implementation.  However,
@@ -743,6 +744,44 @@ protected static enum FindResult
 		return new Tracker(FORE);
 	}
 
+
+	protected class TrieSpliterator extends SubtreeSpliterator<TrieNode<E>> {
+
+		TrieSpliterator(TrieNode<E> root) {
+			super(root, spliteratorCharacteristics());
+		}
+
+		protected void expand(TrieNode<E> x) {
+			if (x.isLeaf()) {
+				push(x, 0);
+				return;
+			}
+			TrieNode<E>[] children = ((InternalNode) x).children;
+			for (int i = children.length - 1; i >= 0; i--)
+				if (children[i] != null)
+					push(children[i], children[i].isLeaf() ? 0 : SUBTREE);
+		}
+
+		protected E elementAt(TrieNode<E> x, int index) {
+			return x.data();
+		}
+
+		protected TrieSpliterator create() {
+			return new TrieSpliterator(null);
+		}
+	}
+
+/**
+ * The spliterator splits a node into its children, and hands
+ * the first half of them to the prefix.
+ * @return a spliterator over the elements of this collection, in the
+ * iteration order
+**/
+
+	public Spliterator<E> spliterator() {
+		return new TrieSpliterator(root);
+	}
+
 /**
  * Creates a new tracker that is at AFT.
 **/
@@ -5,8 +5,11 @@
 
 package goldman.collection.positional;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
 import goldman.Objects;
 import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
 /**
  * The AbstractPositionalCollection provides
  * a basis for defining concrete positional collections by defining a useful
@@ -83,5 +86,162 @@ public abstract class AbstractPositionalCollection<E> extends AbstractCollection
 
 	public abstract PositionalCollectionLocator<E> iteratorAtEnd();
 
+/**
+ * A position spliterator traverses the elements at a range of positions using
+ * <code>get</code>, and splits the range at its middle position.  It is
+ * used by the positional collections that provide efficient access by position.
+**/
+
+	protected class PositionSpliterator extends IndexSpliterator {
+
+		protected PositionSpliterator(int origin, int fence) {
+			super(origin, fence, ORDERED);
+		}
+
+		protected E elementAt(int p) {
+			return get(p);
+		}
+
+		protected PositionSpliterator create(int origin, int fence) {
+			return new PositionSpliterator(origin, fence);
+		}
+	}
+
+/**
+ * A cursor locator is a positional collection locator whose position is
+ * registered with a cursor list.  The collection updates the cursor list for
+ * each insertion and removal, so a cursor locator remains valid across these
+ * edits and continues to refer to the same element.  If the element at a cursor
+ * locator is removed, the locator is logically between the elements that preceded
+ * and followed it, exactly as for a tracker.  Operations that reorder the
+ * elements, such as sorting, still invalidate cursor locators.
+ * All methods are implemented using the public positional collection methods.
+**/
+
+	protected class CursorLocator extends AbstractLocator<E>
+		implements PositionalCollectionLocator<E> {
+
+		final CursorList.Cursor cursor; //the registered position
+
+/**
+ * @param cursors the cursor list of the collection
+ * @param p the initial position, where FORE is -1 and AFT is the size
+**/
+
+		CursorLocator(CursorList cursors, int p) {
+			if (p < FORE || p > getSize())
+				throw new IllegalArgumentException();
+			cursor = cursors.register(p);
+		}
+
+/**
+ * @return true  if and only if the locator is at an element of the collection
+**/
+
+		public boolean inCollection() {
+			return !cursor.removed && cursor.pos > FORE && cursor.pos < getSize();
+		}
+
+/**
+ * @return the element at the locator
+ * @throws NoSuchElementException the locator is not at an element
+**/
+
+		public E get() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return AbstractPositionalCollection.this.get(cursor.pos);
+		}
+
+/**
+ * @return the user position of the locator
+ * @throws NoSuchElementException the locator is not at an element
+**/
+
+		public int getCurrentPosition() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return cursor.pos;
+		}
+
+/**
+ * Moves the locator forward by one position
+ * @return true  if and only if after the update the locator is
+ * still at a position in the collection.
+ * @throws AtBoundaryException the locator is at AFT since there is
+ * no place to advance.
+**/
+
+		public boolean advance() throws ConcurrentModificationException {
+			checkValidity();
+			if (cursor.removed)          //next element is at the cursor position
+				cursor.removed = false;
+			else if (cursor.pos >= getSize())
+				throw new AtBoundaryException("Already after end.");
+			else
+				cursor.pos++;
+			return cursor.pos < getSize();
+		}
+
+/**
+ * Moves the locator to the previous position
+ * @return true  if and only if after the update the locator is still at a
+ * valid position.
+ * @throws AtBoundaryException the locator is at FORE since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() throws ConcurrentModificationException {
+			checkValidity();
+			if (cursor.pos == FORE)
+				throw new AtBoundaryException("Already before front.");
+			cursor.removed = false;
+			cursor.pos--;
+			return cursor.pos != FORE;
+		}
+
+/**
+ * @return true  if there is some element after the current locator position.
+**/
+
+		public boolean hasNext() throws ConcurrentModificationException {
+			checkValidity();
+			if (cursor.removed)
+				return cursor.pos < getSize();
+			return cursor.pos < getSize() - 1;
+		}
+
+/**
+ * Removes the element at the locator and updates the locator to be
+ * at the element in the collection preceding the one deleted.
+ * @throws NoSuchElementException the locator is not at an element
+**/
+
+		public void remove() throws ConcurrentModificationException {
+			checkValidity();
+			if (!inCollection())
+				throw new NoSuchElementException();
+			AbstractPositionalCollection.this.remove(cursor.pos);  //cursor now before pos
+			retreat();
+		}
+
+/**
+ * Inserts <code>value</code> immediately after the locator.
+ * @param value the element to be added
+ * @return a cursor locator at the inserted element
+ * @throws RuntimeException the locator is at AFT
+**/
+
+		public PositionalCollectionLocator<E> addAfter(E value)
+							throws ConcurrentModificationException {
+			checkValidity();
+			if (!cursor.removed && cursor.pos >= getSize())
+				throw new RuntimeException("can't add past the end");
+			int p = cursor.removed ? cursor.pos : cursor.pos + 1;
+			add(p, value);
+			return iteratorAt(p);
+		}
+	}
+
 
 }
@@ -18,6 +18,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import static java.lang.Math.*;
 /**
  * The simplest of the positional collections, array provides space for
@@ -512,6 +513,16 @@ public class Array<E> extends AbstractPositionalCollection<E>
 			v.visit((E) get(p));
 	}
 
+/**
+ * Since access by position takes constant time, the spliterator
+ * splits the range of positions at the middle.
+ * @return a spliterator over the elements of this collection
+**/
+
+	public Spliterator<E> spliterator() {
+		return new PositionSpliterator(0, size);
+	}
+
 /**
  * Creates a new marker that starts at FORE.
 **/
@@ -654,6 +665,41 @@ public class Array<E> extends AbstractPositionalCollection<E>
 		}
 	}
 
+/**
+ * Sorts the m elements at positions <code>from</code>, ...,
+ * <code>size</code>-1, and then merges them with the elements before them,
+ * which must already be sorted, so that the whole collection is sorted.
+ * The merge fills the positions from the back, so only the m elements need
+ * to be copied, and it takes O(m log m + n) time, rather than the
+ * O(n log n) time to sort the whole collection.
+ * @param from the first position of the elements to merge
+ * @param comp the comparator that defines the
+ * ordering of the elements
+ * @throws PositionOutOfBoundsException <code>from</code> is neither
+ * <code>size</code> nor a valid position
+**/
+
+	@SuppressWarnings("unchecked")
+	public void mergeSuffix(int from, Comparator<? super E> comp) {
+		if (from < 0 || from > size)
+			throw new PositionOutOfBoundsException(from);
+		int m = size - from;
+		if (m == 0)
+			return;
+		Object[] run = new Object[m];       //the elements to merge, sorted
+		for (int j = 0; j < m; j++)
+			run[j] = read(from + j);
+		mergesortImpl(run, new Object[m], 0, m-1, comp);
+		int i = from - 1;  //position of the last sorted element not yet placed
+		int j = m - 1;     //index in run of the last element not yet placed
+		for (int p = size - 1; j >= 0; p--)   //elements before position i+1 are in place when run is used up
+			if (i >= 0 && comp.compare(read(i), (E) run[j]) > 0)
+				put(p, read(i--));
+			else
+				put(p, run[j--]);
+		version.increment();                //invalidate active markers for iteration
+	}
+
 /**
  * Sorts this collection with
  * heap sort using the default comparator
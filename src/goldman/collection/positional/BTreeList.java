@@ -0,0 +1,753 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.positional;
+
+import goldman.Objects;
+import goldman.collection.Bucketizer;
+import goldman.collection.Digitizer;
+import goldman.collection.Visitor;
+
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+/**
+ * A B-tree list is a rope: a balanced tree whose leaves hold blocks of consecutive
+ * elements, and where each node records the number of elements in its subtree.
+ * The user position of an element is found by descending from the root using the
+ * subtree sizes, so access, insertion, and removal at any position take logarithmic
+ * time, whereas for an array an insertion or removal must shift a linear number of
+ * elements, and for a list a linear number of items must be traversed to reach a
+ * position.  Since leaves hold up to <code>nodeCapacity</code> elements in an
+ * array, the tree is shallow and the space overhead is small.  The leaves are
+ * linked to support efficient iteration by visitors.  As for the gap buffer,
+ * the locators are cursors that are updated for each insertion and removal, so
+ * they are not invalidated by these edits.  Sorting is performed by copying the
+ * elements into an array, and invalidates all locators.
+ * This is an untracked implementation.
+**/
+
+public class BTreeList<E> extends AbstractPositionalCollection<E>
+	implements PositionalCollection<E> {
+
+	public static final int DEFAULT_NODE_CAPACITY = 64;  //default maximum block size
+
+	final int nodeCapacity;  //max elements in a leaf and max children of an internal node
+	final int minFill;       //min elements (children) of a non-root leaf (internal node)
+	Node root;               //root of the tree
+	CursorList cursors = new CursorList();  //positions of the active locators
+
+/**
+ * A node is a leaf when <code>children</code> is null, in which case
+ * <code>items</code> holds its elements.  Otherwise <code>children</code> holds
+ * its children.  In both cases, <code>count</code> is the number of slots in use,
+ * and <code>size</code> is the number of elements in the subtree.
+**/
+
+	static final class Node {
+		Object[] items;    //elements of a leaf
+		Node[] children;   //children of an internal node
+		int count;         //number of elements (or children) in use
+		int size;          //number of elements in the subtree
+		Node prev, next;   //neighboring leaves
+
+		boolean isLeaf() {
+			return children == null;
+		}
+	}
+
+/**
+ * Creates an empty B-tree list with the given node capacity that uses the provided
+ * equivalence tester.
+ * @param nodeCapacity the maximum number of elements in a leaf
+ * and children of an internal node
+ * @param equivalenceTester a user-provided equivalence tester
+ * @throws IllegalArgumentException <code>nodeCapacity</code> &lt; 4
+**/
+
+	public BTreeList(int nodeCapacity, Comparator<? super E> equivalenceTester) {
+		super(equivalenceTester);
+		if (nodeCapacity < 4)
+			throw new IllegalArgumentException("nodeCapacity must be at least 4");
+		this.nodeCapacity = nodeCapacity;
+		minFill = nodeCapacity/2;
+		root = newLeaf();
+	}
+
+/**
+ * Creates an empty B-tree list with the given node capacity.
+ * @param nodeCapacity the maximum number of elements in a leaf
+ * and children of an internal node
+ * @throws IllegalArgumentException <code>nodeCapacity</code> &lt; 4
+**/
+
+	public BTreeList(int nodeCapacity) {
+		this(nodeCapacity, Objects.DEFAULT_EQUIVALENCE_TESTER);
+	}
+
+/**
+ * Creates an empty B-tree list with the default node capacity.
+**/
+
+	public BTreeList() {
+		this(DEFAULT_NODE_CAPACITY);
+	}
+
+	Node newLeaf() {
+		Node leaf = new Node();
+		leaf.items = new Object[nodeCapacity];
+		return leaf;
+	}
+
+	Node newInternal() {
+		Node x = new Node();
+		x.children = new Node[nodeCapacity + 1];  //one extra slot for overflow before a split
+		return x;
+	}
+
+/**
+ * @param p a valid user position
+ * @return the leaf that holds the element at position <code>p</code>, where
+ * <code>offset[0]</code> is set to the index of the element within the leaf
+**/
+
+	Node findLeaf(int p, int[] offset) {
+		Node x = root;
+		while (!x.isLeaf()) {
+			int i = 0;
+			while (p >= x.children[i].size)  //skip children entirely before p
+				p -= x.children[i++].size;
+			x = x.children[i];
+		}
+		offset[0] = p;
+		return x;
+	}
+
+/**
+ * @param p the desired user position
+ * @return the element at the position <code>p</code>
+ * @throws PositionOutOfBoundsException p is not a valid position
+**/
+
+	@SuppressWarnings("unchecked")
+
+	public E get(int p) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		int[] offset = new int[1];
+		Node leaf = findLeaf(p, offset);
+		return (E) leaf.items[offset[0]];
+	}
+
+/**
+ * @param p a user position to update
+ * @param value the element to put at position <code>p</code>
+ * @return the prior element at position <code>p</code>
+ * @throws PositionOutOfBoundsException <code>p</code> is not
+ * a valid position
+**/
+
+	@SuppressWarnings("unchecked")
+
+	public E set(int p, E value) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		int[] offset = new int[1];
+		Node leaf = findLeaf(p, offset);
+		E oldValue = (E) leaf.items[offset[0]];
+		leaf.items[offset[0]] = value;
+		return oldValue;
+	}
+
+/**
+ * Swaps the values held in positions <code>pos1</code> and <code>pos2</code>
+ * @param pos1 a valid position
+ * @param pos2 a valid position
+ * @throws PositionOutOfBoundsException either <code>pos1</code> or <code>pos2</code>
+ * is not a valid position
+**/
+
+	public void swap(int pos1, int pos2) {
+		if (pos1 < 0 || pos1 >= size)
+			throw new PositionOutOfBoundsException(pos1);
+		if (pos2 < 0 || pos2 >= size)
+			throw new PositionOutOfBoundsException(pos2);
+		set(pos2, set(pos1, get(pos2)));
+		version.increment();   //invalidate all locators
+	}
+
+/**
+ * @return the leftmost leaf
+**/
+
+	Node firstLeaf() {
+		Node x = root;
+		while (!x.isLeaf())
+			x = x.children[0];
+		return x;
+	}
+
+/**
+ * @param value the element to be located
+ * @return the position in the collection for <code>value</code>
+ * or <code>NOT_FOUND</code> if <code>value</code> is not in the collection
+**/
+
+	@SuppressWarnings("unchecked")
+
+	public int positionOf(E value) {
+		int p = 0;
+		for (Node leaf = firstLeaf(); leaf != null; leaf = leaf.next)
+			for (int i = 0; i < leaf.count; i++, p++)
+				if (equivalent(value, (E) leaf.items[i]))
+					return p;
+		return NOT_FOUND;
+	}
+
+/**
+ * @param value the element to be located
+ * @return true  if and only if an equivalent element exists in the collection
+**/
+
+	public boolean contains(E value) {
+		return positionOf(value) != NOT_FOUND;
+	}
+
+/**
+ * Traverses the entire collection on behalf of v, by following the
+ * links between the leaves.
+ * @param v a visitor to apply for each element in the collection
+ * @throws Exception the visitor throws an exception.
+**/
+
+	@SuppressWarnings("unchecked")
+
+	protected void traverseForVisitor(Visitor<? super E> v) throws Exception {
+		for (Node leaf = firstLeaf(); leaf != null; leaf = leaf.next)
+			for (int i = 0; i < leaf.count; i++)
+				v.visit((E) leaf.items[i]);
+	}
+
+/**
+ * Inserts <code>value</code> at position <code>p</code>
+ * and increments the position number for the elements that were at
+ * positions <code>p</code>, ..., <code>size</code>-1.
+ * @param p a valid user position
+ * @param value the new element
+ * @throws PositionOutOfBoundsException <code>p</code> is neither <code>size</code>
+ * nor a valid position
+**/
+
+	public void add(int p, E value) {
+		if (p < 0 || p > size)
+			throw new PositionOutOfBoundsException(p);
+		Node sibling = insert(root, p, value);
+		if (sibling != null) {       //root was split, so grow the tree by one level
+			Node newRoot = newInternal();
+			newRoot.children[0] = root;
+			newRoot.children[1] = sibling;
+			newRoot.count = 2;
+			newRoot.size = root.size + sibling.size;
+			root = newRoot;
+		}
+		size++;
+		cursors.inserted(p, 1);
+	}
+
+/**
+ * Inserts it at the end of the collection.
+ * @param value the new element
+**/
+
+	public void add(E value) {
+		add(size, value);
+	}
+
+/**
+ * Inserts <code>value</code> at position <code>p</code> of the subtree
+ * rooted at <code>x</code>, splitting <code>x</code> if it overflows.
+ * @param x the root of a subtree
+ * @param p a position in the subtree from 0 to <code>x.size</code>
+ * @param value the new element
+ * @return the new right sibling of <code>x</code> if <code>x</code> was split,
+ * and otherwise null
+**/
+
+	Node insert(Node x, int p, Object value) {
+		if (x.isLeaf()) {
+			if (x.count < nodeCapacity) {
+				insertIntoLeaf(x, p, value);
+				return null;
+			}
+			Node right = splitLeaf(x);
+			if (p <= x.count)
+				insertIntoLeaf(x, p, value);
+			else
+				insertIntoLeaf(right, p - x.count, value);
+			return right;
+		}
+		int i = 0;
+		while (i < x.count - 1 && p > x.children[i].size)  //find child to hold position p
+			p -= x.children[i++].size;
+		Node sibling = insert(x.children[i], p, value);
+		x.size++;
+		if (sibling == null)
+			return null;
+		System.arraycopy(x.children, i+1, x.children, i+2, x.count - i - 1);
+		x.children[i+1] = sibling;
+		x.count++;
+		if (x.count <= nodeCapacity)
+			return null;
+		return splitInternal(x);
+	}
+
+	void insertIntoLeaf(Node leaf, int i, Object value) {
+		System.arraycopy(leaf.items, i, leaf.items, i+1, leaf.count - i);
+		leaf.items[i] = value;
+		leaf.count++;
+		leaf.size++;
+	}
+
+/**
+ * Moves the upper half of the elements of a full leaf into a new leaf
+ * that follows it.
+ * @param leaf a full leaf
+ * @return the new leaf
+**/
+
+	Node splitLeaf(Node leaf) {
+		Node right = newLeaf();
+		int keep = leaf.count/2;
+		right.count = right.size = leaf.count - keep;
+		System.arraycopy(leaf.items, keep, right.items, 0, right.count);
+		for (int i = keep; i < leaf.count; i++)
+			leaf.items[i] = null;
+		leaf.count = leaf.size = keep;
+		right.next = leaf.next;      //link right into the leaf chain
+		if (right.next != null)
+			right.next.prev = right;
+		right.prev = leaf;
+		leaf.next = right;
+		return right;
+	}
+
+/**
+ * Moves the upper half of the children of an overfull internal node
+ * into a new internal node.
+ * @param x an internal node with <code>nodeCapacity+1</code> children
+ * @return the new internal node
+**/
+
+	Node splitInternal(Node x) {
+		Node right = newInternal();
+		int keep = x.count/2;
+		right.count = x.count - keep;
+		System.arraycopy(x.children, keep, right.children, 0, right.count);
+		for (int i = 0; i < right.count; i++) {
+			right.size += right.children[i].size;
+			x.children[keep + i] = null;
+		}
+		x.count = keep;
+		x.size -= right.size;
+		return right;
+	}
+
+/**
+ * Removes the element at position <code>p</code> and shifts elements
+ * u_{p+1}, ..., u_{<code>size</code>-1} left by one position.
+ * @param p a valid position
+ * @return the removed element
+ * @throws PositionOutOfBoundsException <code>p</code> is not a valid
+ * position
+**/
+
+	@SuppressWarnings("unchecked")
+
+	public E remove(int p) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		E removed = (E) delete(p);
+		cursors.removed(p, p);
+		return removed;
+	}
+
+/**
+ * Removes the element at position 0.
+ * @return the element that was removed
+ * @throws NoSuchElementException the collection is empty
+**/
+
+	public E removeFirst() {
+		if (isEmpty())
+			throw new NoSuchElementException("collection is empty");
+		return remove(0);
+	}
+
+/**
+ * Removes the element at position <code>size</code>-1
+ * @return the element that was removed
+ * @throws NoSuchElementException the collection is empty
+**/
+
+	public E removeLast() {
+		if (isEmpty())
+			throw new NoSuchElementException("collection is empty");
+		return remove(size-1);
+	}
+
+/**
+ * Removes the first element in the collection equivalent to
+ * <code>value</code>
+ * @param value the element to be removed
+ * @return true  if and only if an element is removed.
+**/
+
+	public boolean remove(E value) {
+		int p = positionOf(value);
+		if (p == NOT_FOUND)
+			return false;
+		remove(p);
+		return true;
+	}
+
+/**
+ * Removes the elements at positions
+ * <code>fromPos</code>, ..., <code>toPos</code>, inclusive,
+ * from the collection and
+ * decrements the positions of the
+ * elements at positions <code>toPos+1</code> to <code>size-1</code> by
+ * <code>toPos-fromPos+1</code> (the number of elements
+ * being removed).
+ * @param fromPos a valid position
+ * @param toPos a valid position
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	public void removeRange(int fromPos, int toPos) {
+		if (fromPos < 0 || toPos >= size)
+			throw new PositionOutOfBoundsException();
+		if (fromPos > toPos)
+			throw new IllegalArgumentException();
+		for (int i = fromPos; i <= toPos; i++)
+			delete(fromPos);
+		cursors.removed(fromPos, toPos);
+	}
+
+/**
+ * Removes the element at position <code>p</code> from the tree, restoring
+ * the minimum fill of the nodes along the way, without updating the cursors.
+ * @param p a valid position
+ * @return the removed element
+**/
+
+	Object delete(int p) {
+		Object removed = delete(root, p);
+		if (!root.isLeaf() && root.count == 1)  //shrink the tree by one level
+			root = root.children[0];
+		size--;
+		return removed;
+	}
+
+/**
+ * @param x the root of a subtree
+ * @param p a valid position in the subtree
+ * @return the element removed from position <code>p</code> of the subtree
+**/
+
+	Object delete(Node x, int p) {
+		if (x.isLeaf()) {
+			Object removed = x.items[p];
+			System.arraycopy(x.items, p+1, x.items, p, x.count - p - 1);
+			x.items[--x.count] = null;
+			x.size--;
+			return removed;
+		}
+		int i = 0;
+		while (p >= x.children[i].size)   //find child holding position p
+			p -= x.children[i++].size;
+		Object removed = delete(x.children[i], p);
+		x.size--;
+		if (x.children[i].count < minFill)
+			rebalance(x, i);
+		return removed;
+	}
+
+/**
+ * Restores the minimum fill of child <code>i</code> of <code>x</code>, either
+ * by merging it with a neighboring sibling or by moving elements (children) from
+ * that sibling.
+ * @param x an internal node with at least two children
+ * @param i the index of a child of <code>x</code> that is below the minimum fill
+**/
+
+	void rebalance(Node x, int i) {
+		int left = (i > 0) ? i - 1 : i;  //combine children left and left+1
+		Node a = x.children[left];
+		Node b = x.children[left+1];
+		if (a.count + b.count <= nodeCapacity) {   //merge b into a
+			if (a.isLeaf()) {
+				System.arraycopy(b.items, 0, a.items, a.count, b.count);
+				a.next = b.next;
+				if (a.next != null)
+					a.next.prev = a;
+			} else
+				System.arraycopy(b.children, 0, a.children, a.count, b.count);
+			a.count += b.count;
+			a.size += b.size;
+			System.arraycopy(x.children, left+2, x.children, left+1, x.count - left - 2);
+			x.children[--x.count] = null;
+		} else {                                   //redistribute evenly
+			int target = (a.count + b.count)/2;
+			if (a.count < target)
+				shiftLeft(a, b, target - a.count);
+			else
+				shiftRight(a, b, a.count - target);
+		}
+	}
+
+/**
+ * Moves the first <code>num</code> slots of <code>b</code> to the end of <code>a</code>
+ * @param a a node
+ * @param b the following sibling of <code>a</code>
+ * @param num the number of elements (or children) to move
+**/
+
+	void shiftLeft(Node a, Node b, int num) {
+		int moved = num;
+		if (a.isLeaf()) {
+			System.arraycopy(b.items, 0, a.items, a.count, num);
+			System.arraycopy(b.items, num, b.items, 0, b.count - num);
+			for (int j = b.count - num; j < b.count; j++)
+				b.items[j] = null;
+		} else {
+			System.arraycopy(b.children, 0, a.children, a.count, num);
+			System.arraycopy(b.children, num, b.children, 0, b.count - num);
+			moved = 0;
+			for (int j = 0; j < num; j++)
+				moved += a.children[a.count + j].size;
+			for (int j = b.count - num; j < b.count; j++)
+				b.children[j] = null;
+		}
+		a.count += num;
+		b.count -= num;
+		a.size += moved;
+		b.size -= moved;
+	}
+
+/**
+ * Moves the last <code>num</code> slots of <code>a</code> to the front of <code>b</code>
+ * @param a a node
+ * @param b the following sibling of <code>a</code>
+ * @param num the number of elements (or children) to move
+**/
+
+	void shiftRight(Node a, Node b, int num) {
+		int moved = num;
+		if (a.isLeaf()) {
+			System.arraycopy(b.items, 0, b.items, num, b.count);
+			System.arraycopy(a.items, a.count - num, b.items, 0, num);
+			for (int j = a.count - num; j < a.count; j++)
+				a.items[j] = null;
+		} else {
+			System.arraycopy(b.children, 0, b.children, num, b.count);
+			System.arraycopy(a.children, a.count - num, b.children, 0, num);
+			moved = 0;
+			for (int j = a.count - num; j < a.count; j++) {
+				moved += a.children[j].size;
+				a.children[j] = null;
+			}
+		}
+		a.count -= num;
+		b.count += num;
+		a.size -= moved;
+		b.size += moved;
+	}
+
+/**
+ * Removes all elements from the collection.
+**/
+
+	public void clear() {
+		if (!isEmpty()) {
+			cursors.removed(0, size - 1);
+			root = newLeaf();
+			size = 0;
+		}
+	}
+
+/**
+ * Since access by position takes logarithmic time, the spliterator
+ * splits the range of positions at the middle.
+ * @return a spliterator over the elements of this collection
+**/
+
+	public Spliterator<E> spliterator() {
+		return new PositionSpliterator(0, size);
+	}
+
+/**
+ * Creates a new cursor that starts at FORE.
+**/
+
+	public PositionalCollectionLocator<E> iterator() {
+		return new CursorLocator(cursors, FORE);
+	}
+
+/**
+ * Creates a new cursor that starts at AFT.
+**/
+
+	public PositionalCollectionLocator<E> iteratorAtEnd() {
+		return new CursorLocator(cursors, size);
+	}
+
+/**
+ * Returns a new cursor that is at the given position.
+ * @param pos the user position of an element
+ * @throws NoSuchElementException the given position is not a valid user position.
+**/
+
+	public PositionalCollectionLocator<E> iteratorAt(int pos) {
+		if (pos < 0 || pos >= size)
+			throw new NoSuchElementException();
+		return new CursorLocator(cursors, pos);
+	}
+
+/**
+ * @param value the target
+ * @return a cursor initialized to the position of the first
+ * element in the collection equivalent to <code>value</code>
+ * @throws NoSuchElementException <code>value</code> does not occur in the collection
+**/
+
+	public PositionalCollectionLocator<E> getLocator(E value) {
+		int position = positionOf(value);
+		if (position == NOT_FOUND)
+			throw new NoSuchElementException();
+		return new CursorLocator(cursors, position);
+	}
+
+/**
+ * @return an array holding the elements of this collection in
+ * iteration order, to be sorted
+**/
+
+	@SuppressWarnings("unchecked")
+
+	Array<E> copyToArray() {
+		final Array<E> copy = new Array<E>(size, getComparator());
+		for (Node leaf = firstLeaf(); leaf != null; leaf = leaf.next)
+			for (int i = 0; i < leaf.count; i++)
+				copy.add((E) leaf.items[i]);
+		return copy;
+	}
+
+/**
+ * Replaces the elements of this collection, in order, by those of <code>copy</code>,
+ * which has the same size.  The tree structure is not changed.  All
+ * locators are invalidated.
+ * @param copy the reordered elements
+**/
+
+	void copyFromArray(Array<E> copy) {
+		int p = 0;
+		for (Node leaf = firstLeaf(); leaf != null; leaf = leaf.next)
+			for (int i = 0; i < leaf.count; i++)
+				leaf.items[i] = copy.read(p++);
+		version.increment();   //invalidate all locators
+	}
+
+	public void insertionsort() {
+		insertionsort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void insertionsort(Comparator<? super E> comp) {
+		Array<E> copy = copyToArray();
+		copy.insertionsort(comp);
+		copyFromArray(copy);
+	}
+
+	public void mergesort() {
+		mergesort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void mergesort(Comparator<? super E> comp) {
+		Array<E> copy = copyToArray();
+		copy.mergesort(comp);
+		copyFromArray(copy);
+	}
+
+	public void heapsort() {
+		heapsort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void heapsort(Comparator<? super E> comp) {
+		Array<E> copy = copyToArray();
+		copy.heapsort(comp);
+		copyFromArray(copy);
+	}
+
+	public void treesort() {
+		treesort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void treesort(Comparator<? super E> comp) {
+		Array<E> copy = copyToArray();
+		copy.treesort(comp);
+		copyFromArray(copy);
+	}
+
+	public void quicksort() {
+		quicksort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void quicksort(Comparator<? super E> comp) {
+		Array<E> copy = copyToArray();
+		copy.quicksort(comp);
+		copyFromArray(copy);
+	}
+
+	public void radixsort(Digitizer<? super E> digitizer) {
+		Array<E> copy = copyToArray();
+		copy.radixsort(digitizer);
+		copyFromArray(copy);
+	}
+
+	public void bucketsort(Bucketizer<? super E> bucketizer) {
+		Array<E> copy = copyToArray();
+		copy.bucketsort(bucketizer);
+		copyFromArray(copy);
+	}
+
+/**
+ * @param r the rank of the desired element in the sorted collection
+ * @return the element at rank <code>r</code> when using the default comparator
+ * @throws NoSuchElementException <code>r</code> is not a valid position
+**/
+
+	public E repositionElementByRank(int r) {
+		return repositionElementByRank(r, Objects.DEFAULT_COMPARATOR);
+	}
+
+/**
+ * @param r the rank of the desired element
+ * @param comp the comparator to use
+ * @return the element at rank <code>r</code> when using the given comparator
+ * @throws NoSuchElementException the collection is empty
+ * or <code>r</code> is not a valid position
+**/
+
+	public E repositionElementByRank(int r, Comparator<? super E> comp) {
+		if (isEmpty() || r < 0 || r >= getSize())
+			throw new NoSuchElementException();
+		Array<E> copy = copyToArray();
+		E result = copy.repositionElementByRank(r, comp);
+		copyFromArray(copy);
+		return result;
+	}
+}
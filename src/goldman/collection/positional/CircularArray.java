@@ -213,7 +213,7 @@ public class CircularArray<E> extends Array<E> {
 			if (num >= cap-i)  // all of end wraps to front
 				System.arraycopy(a, i, a, 0, num);
 			else  {           // only portion of end wraps to front
-				System.arraycopy(a, cap-num+1, a, 0, num);
+				System.arraycopy(a, cap-num, a, 0, num);
 				System.arraycopy(a, i, a, i+num, cap-i-num);
 			}
 		}
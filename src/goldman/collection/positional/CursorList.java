@@ -0,0 +1,126 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.positional;
+import java.lang.ref.WeakReference;
+/**
+ * A CursorList records the positions of the live locators of a positional
+ * collection, and updates them as elements are added and removed so that the locators
+ * survive edits instead of being invalidated.  Each locator holds its cursor and the
+ * cursor list only weakly references it, so cursors are reclaimed along with their
+ * locators.  Each edit takes time linear in the number of registered cursors, so this
+ * approach is appropriate when relatively few locators are live at once, as
+ * for the cursors of an editor.
+**/
+
+class CursorList {
+
+/**
+ * A cursor is either at position <code>pos</code>, or when <code>removed</code>
+ * is true, logically between positions <code>pos-1</code> and <code>pos</code>
+ * since the element it was at has been removed.  FORE is position -1 and AFT is
+ * position n.
+**/
+
+	static final class Cursor {
+		int pos;          //the position of the cursor
+		boolean removed;  //true iff the element at the cursor has been removed
+
+		Cursor(int pos) {
+			this.pos = pos;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private WeakReference<Cursor>[] refs = (WeakReference<Cursor>[]) new WeakReference<?>[4];  //registered cursors
+	private int count = 0;  //number of slots of refs in use
+
+/**
+ * @param pos the initial position for the cursor
+ * @return a new cursor that is updated by later edits for as long as it is
+ * referenced by its locator
+**/
+
+	@SuppressWarnings("unchecked")
+
+	Cursor register(int pos) {
+		if (count == refs.length) {
+			purge();
+			if (count > refs.length/2) {
+				WeakReference<Cursor>[] newRefs = (WeakReference<Cursor>[]) new WeakReference<?>[2*refs.length];
+				System.arraycopy(refs, 0, newRefs, 0, count);
+				refs = newRefs;
+			}
+		}
+		Cursor c = new Cursor(pos);
+		refs[count++] = new WeakReference<Cursor>(c);
+		return c;
+	}
+
+/**
+ * Removes the references to cursors that have been reclaimed.
+**/
+
+	private void purge() {
+		int live = 0;
+		for (int i = 0; i < count; i++)
+			if (refs[i].get() != null)
+				refs[live++] = refs[i];
+		for (int i = live; i < count; i++)
+			refs[i] = null;
+		count = live;
+	}
+
+/**
+ * Updates the cursors for the insertion of <code>num</code> elements starting at position
+ * <code>p</code>.  A cursor whose element was removed, and that is just before position
+ * <code>p</code>, stays before the inserted elements.
+ * @param p the position of the first inserted element
+ * @param num the number of elements inserted
+**/
+
+	void inserted(int p, int num) {
+		int live = 0;
+		for (int i = 0; i < count; i++) {
+			Cursor c = refs[i].get();
+			if (c == null)
+				continue;
+			if (c.pos > p || (c.pos == p && !c.removed))
+				c.pos += num;
+			refs[live++] = refs[i];
+		}
+		for (int i = live; i < count; i++)
+			refs[i] = null;
+		count = live;
+	}
+
+/**
+ * Updates the cursors for the removal of the elements at positions
+ * <code>fromPos</code>, ..., <code>toPos</code>.  A cursor at a removed element
+ * moves to be between the elements that precede and follow the removed range.
+ * @param fromPos the first position removed
+ * @param toPos the last position removed
+**/
+
+	void removed(int fromPos, int toPos) {
+		int live = 0;
+		int num = toPos - fromPos + 1;
+		for (int i = 0; i < count; i++) {
+			Cursor c = refs[i].get();
+			if (c == null)
+				continue;
+			if (c.pos > toPos)
+				c.pos -= num;
+			else if (c.pos > fromPos || (c.pos == fromPos && !c.removed)) {
+				c.pos = fromPos;
+				c.removed = true;
+			}
+			refs[live++] = refs[i];
+		}
+		for (int i = live; i < count; i++)
+			refs[i] = null;
+		count = live;
+	}
+}
@@ -4,6 +4,7 @@
 // Use subject to license agreement.
 
 package goldman.collection.positional;
+import goldman.Pool;
 /**
  * The doubly linked list is the only positional collection data structure
  * that provides amortized constant time methods for all of the
@@ -52,9 +53,28 @@ public class DoublyLinkedList<E> extends SinglyLinkedList<E> implements Position
 **/
 
 	protected DLListItem<E> newListItem(E value) {
-		return new DLListItem<E>(value);
+		if (nodePool == null)
+			return new DLListItem<E>(value);
+		DLListItem<E> item = (DLListItem<E>) nodePool.allocate();
+		item.data = value;
+		return item;
 	}	
 
+/**
+ * @param maxRetained the maximum number of list items retained in the shared
+ * portion of the pool
+ * @return a thread-safe pool of doubly linked list items that can be shared by any
+ * number of doubly linked lists
+**/
+
+	public static <E> Pool<ListItem<E>> createNodePool(int maxRetained) {
+		return new Pool<ListItem<E>>(maxRetained) {
+			protected ListItem<E> create() {
+				return new DLListItem<E>(null);
+			}
+		};
+	}
+
 /**
  * Updates this collection to be empty
 **/
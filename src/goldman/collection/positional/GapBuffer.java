@@ -0,0 +1,253 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.positional;
+
+import goldman.Objects;
+import goldman.collection.Digitizer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+/**
+ * A gap buffer is a dynamic array in which the unused slots of the underlying
+ * array form a single gap that is kept at the position of the most recent
+ * insertion or removal.  Moving the gap from position p to position q takes time
+ * proportional to |p - q|, so a sequence of edits near a cursor, as performed by
+ * a text editor, takes constant time per edit, while access by position remains
+ * constant time.  Edits far from the previous edit cost the same as for an array.
+ * The locators are cursors that are updated for each insertion and removal, so
+ * unlike the markers of an array, they are not invalidated by these edits.  When
+ * the element at a locator is removed, the locator is logically between the
+ * neighboring elements.  Sorting invalidates all locators.
+ * This is an untracked implementation.
+**/
+
+public class GapBuffer<E> extends DynamicArray<E> implements PositionalCollection<E> {
+
+	int gapStart;  //index of the first slot in the gap, which is also the user position after it
+	CursorList cursors = new CursorList();  //positions of the active locators
+
+/**
+ * Creates a gap buffer with the given capacity that uses
+ * the provided equivalence tester
+ * @param capacity the desired initial capacity for the underlying array
+ * @param equivalenceTester a user-provided equivalence tester
+ * @throws IllegalArgumentException <code>capacity</code> &lt; 0.
+**/
+
+	public GapBuffer(int capacity, Comparator<? super E> equivalenceTester) {
+		super(capacity, equivalenceTester);
+	}
+
+/**
+ * Creates a gap buffer with a default initial capacity.
+**/
+
+	public GapBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+/**
+ * Creates a gap buffer with the given capacity.
+ * @param capacity the initial capacity for the underlying array <code>a</code>
+ * @throws IllegalArgumentException <code>capacity</code> &lt; 0.
+**/
+
+	public GapBuffer(int capacity) {
+		this(capacity, Objects.DEFAULT_EQUIVALENCE_TESTER);
+	}
+
+/**
+ * @param p a valid user position
+ * @return the corresponding index in the underlying array <code>a</code>
+**/
+
+	int getIndex(int p) {
+		if (p < gapStart)
+			return p;
+		return p + a.length - size;  //skip the gap
+	}
+
+/**
+ * @param index an underlying array index that is in use
+ * @return the corresponding user position.
+**/
+
+	int getPosition(int index) {
+		if (index < gapStart)
+			return index;
+		return index - (a.length - size);
+	}
+
+/**
+ * Moves the gap so that it begins at user position <code>p</code>, by shifting
+ * the elements between the current gap and position <code>p</code> across the gap.
+ * The slots that become part of the gap are set to null.
+ * @param p a user position from 0 to <code>size</code>
+**/
+
+	void moveGap(int p) {
+		int gap = a.length - size;  //length of the gap
+		if (p < gapStart) {         //shift positions p, ..., gapStart-1 to the right
+			System.arraycopy(a, p, a, p + gap, gapStart - p);
+			Arrays.fill(a, p, Math.min(gapStart, p + gap), null);
+		} else if (p > gapStart) {  //shift positions gapStart, ..., p-1 to the left
+			System.arraycopy(a, gapStart + gap, a, gapStart, p - gapStart);
+			Arrays.fill(a, Math.max(p, gapStart + gap), p + gap, null);
+		}
+		gapStart = p;
+	}
+
+/**
+ * Copies the elements to <code>newArray</code> so that they are
+ * contiguous, leaving the gap at the end.
+ * @param newArray the array to which the elements should be moved
+ * @return the parameter value for convenience
+**/
+
+	protected Object[] moveElementsTo(Object[] newArray) {
+		if (a != null) {
+			System.arraycopy(a, 0, newArray, 0, gapStart);
+			System.arraycopy(a, gapStart + a.length - size, newArray, gapStart, size - gapStart);
+		}
+		gapStart = size;
+		return newArray;
+	}
+
+/**
+ * Inserts object <code>value</code> at position <code>p</code> by moving
+ * the gap to position <code>p</code> and placing <code>value</code> in its
+ * first slot.
+ * @param p a valid user position
+ * @param value the object to insert
+ * @return null for an untracked implementations
+**/
+
+	protected PositionalCollectionLocator<E> addImpl(int p, Object value) {
+		if (size == highWaterMark)
+			resizeArray(Math.max(2*size, 1));
+		moveGap(p);
+		a[gapStart++] = value;
+		size++;
+		cursors.inserted(p, 1);
+		return null;
+	}
+
+/**
+ * Moves the gap to be adjacent to the positions <code>fromPos</code>, ..., <code>toPos</code>,
+ * and then extends it over them.  The size is updated by the caller.
+ * @param fromPos the first position in the gap to close
+ * @param toPos the last position in the gap to close
+**/
+
+	protected void closeGap(int fromPos, int toPos) {
+		if (gapStart > toPos) {        //gap follows the removed elements
+			moveGap(toPos + 1);
+			Arrays.fill(a, fromPos, toPos + 1, null);
+			gapStart = fromPos;
+		} else {                       //gap precedes the removed elements
+			moveGap(fromPos);
+			int gap = a.length - size;
+			Arrays.fill(a, fromPos + gap, toPos + 1 + gap, null);
+		}
+	}
+
+/**
+ * Removes the elements at positions
+ * <code>fromPos</code>, ..., <code>toPos</code>, inclusive,
+ * from the collection, and updates the active locators.
+ * @param fromPos a valid position
+ * @param toPos a valid position
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	public void removeRange(int fromPos, int toPos) {
+		int count = version.getCount();
+		super.removeRange(fromPos, toPos);
+		version.restoreCount(count);  //locators are updated instead of invalidated
+		cursors.removed(fromPos, toPos);
+	}
+
+/**
+ * Removes all elements from the collection.
+**/
+
+	public void clear() {
+		if (!isEmpty()) {
+			cursors.removed(0, size - 1);
+			Arrays.fill(a, null);
+			size = 0;
+			gapStart = 0;
+		}
+	}
+
+/**
+ * Sorts using merge sort after moving the gap to the end, since the underlying
+ * array is used as the auxiliary array.
+ * @param sorter the comparator to use
+**/
+
+	void mergesortImpl(Comparator<? super E> sorter) {
+		moveGap(size);
+		super.mergesortImpl(sorter);
+	}
+
+/**
+ * Sorts using radix sort after moving the gap to the end, so that user
+ * positions and array indices coincide.
+ * @param digitizer the digitizer to use
+**/
+
+	protected void radixsortImpl(Digitizer<? super E> digitizer) {
+		moveGap(size);
+		super.radixsortImpl(digitizer);
+	}
+
+/**
+ * Creates a new cursor that starts at FORE.
+**/
+
+	public PositionalCollectionLocator<E> iterator() {
+		return new CursorLocator(cursors, FORE);
+	}
+
+/**
+ * Creates a new cursor that starts at AFT.
+**/
+
+	public PositionalCollectionLocator<E> iteratorAtEnd() {
+		return new CursorLocator(cursors, size);
+	}
+
+/**
+ * Returns a new cursor that is at the given position.
+ * @param pos the user position of an element
+ * @throws NoSuchElementException the given position is not a valid user position.
+**/
+
+	public PositionalCollectionLocator<E> iteratorAt(int pos) {
+		if (pos < 0 || pos >= size)
+			throw new NoSuchElementException();
+		return new CursorLocator(cursors, pos);
+	}
+
+/**
+ * @param value the target
+ * @return a cursor initialized to the position of the first
+ * element in the collection equivalent to <code>value</code>
+ * @throws NoSuchElementException <code>value</code> does not occur in the collection
+**/
+
+	public PositionalCollectionLocator<E> getLocator(E value) {
+		int position = findPosition(value);
+		if (position == NOT_FOUND)
+			throw new NoSuchElementException();
+		return new CursorLocator(cursors, position);
+	}
+}
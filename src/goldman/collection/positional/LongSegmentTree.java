@@ -0,0 +1,938 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.positional;
+
+import goldman.Objects;
+import goldman.collection.Bucketizer;
+import goldman.collection.Digitizer;
+import goldman.collection.Visitor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+/**
+ * A segment tree is a positional collection of <code>long</code> values that
+ * answers aggregate queries over a range of positions.  Along with the methods
+ * of a positional collection of <code>Long</code> elements, it provides
+ * <code>rangeSum</code>, <code>rangeMin</code>, and <code>rangeMax</code>,
+ * which return the sum, minimum, and maximum of the values at positions
+ * <code>fromPos</code>, ..., <code>toPos</code>, and <code>rangeAdd</code>,
+ * which adds an amount to each of those values.  Each takes logarithmic time,
+ * as do <code>set</code> and access by position, whereas for an array a range
+ * query or update must visit every position in the range.
+ * <p>
+ * The values are held in the leaves of a complete binary tree that is stored
+ * implicitly in arrays, as for a binary heap: node 1 is the root, the children
+ * of node x are nodes 2x and 2x+1, and the leaf for position p is node
+ * <code>leaves</code>+p.  Each internal node records the sum, minimum, and
+ * maximum of the values below it.  A range update is applied to the O(log n)
+ * nodes whose ranges cover the updated range, and recorded in each such node as
+ * an amount still to be added to the nodes below it.  These pending amounts are
+ * pushed down to the children only when a later update or <code>set</code>
+ * passes through the node, and queries account for them without changing the
+ * tree.  (A Fenwick tree would use less space, but it supports only sums.)
+ * <p>
+ * Adding or removing at the end takes logarithmic amortized time.  Since an
+ * insertion or removal elsewhere changes the position of every later value, it
+ * rebuilds the tree, which takes linear time.  Sums are computed with
+ * <code>long</code> arithmetic, so they wrap around silently on overflow.  As for
+ * the B-tree list, the locators are cursors that are updated for each insertion
+ * and removal.  Sorting invalidates all locators.
+ * This is an untracked implementation.
+**/
+
+public class LongSegmentTree extends AbstractPositionalCollection<Long>
+	implements PositionalCollection<Long> {
+
+	static final int PARALLEL_CUTOFF = 4096;  //fewest nodes in a level to build in parallel, and leaves in a block
+
+	int leaves;      //the number of leaves, a power of 2 that is at least the capacity
+	int height;      //the number of levels above the leaves
+	long[] sum;      //sum[x] is the sum of the values below node x
+	long[] min;      //min[x] is the minimum value below node x
+	long[] max;      //max[x] is the maximum value below node x
+	long[] lazy;     //lazy[x] is included in node x, but not yet in its children
+	CursorList cursors = new CursorList();  //positions of the active locators
+
+/**
+ * Creates an empty segment tree with the given capacity that uses the
+ * provided equivalence tester.
+ * @param capacity the number of values to hold before the tree is rebuilt
+ * @param equivalenceTester a user-provided equivalence tester
+ * @throws IllegalArgumentException <code>capacity</code> &lt; 0.
+**/
+
+	public LongSegmentTree(int capacity, Comparator<? super Long> equivalenceTester) {
+		super(equivalenceTester);
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity must be nonnegative");
+		load(new long[0], 0, capacity, false);
+	}
+
+/**
+ * Creates an empty segment tree with the given capacity.
+ * @param capacity the number of values to hold before the tree is rebuilt
+ * @throws IllegalArgumentException <code>capacity</code> &lt; 0.
+**/
+
+	public LongSegmentTree(int capacity) {
+		this(capacity, Objects.DEFAULT_EQUIVALENCE_TESTER);
+	}
+
+/**
+ * Creates an empty segment tree with a default initial capacity.
+**/
+
+	public LongSegmentTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+/**
+ * Returns a segment tree that holds the given values, built bottom-up in
+ * linear time.
+ * @param values the values for positions 0, 1, ...
+ * @return a new segment tree holding <code>values</code>
+**/
+
+	public static LongSegmentTree bulkLoad(long[] values) {
+		LongSegmentTree tree = new LongSegmentTree(0);
+		tree.load(values, values.length, values.length, false);
+		return tree;
+	}
+
+/**
+ * Like <code>bulkLoad</code>, except that blocks of leaves are filled in
+ * parallel, and so are the nodes of each large level, since each node depends
+ * only on its two children.
+ * @param values the values for positions 0, 1, ...
+ * @return a new segment tree holding <code>values</code>
+**/
+
+	public static LongSegmentTree parallelBulkLoad(long[] values) {
+		LongSegmentTree tree = new LongSegmentTree(0);
+		tree.load(values, values.length, values.length, true);
+		return tree;
+	}
+
+/**
+ * Replaces the tree by one with room for at least <code>capacity</code> values,
+ * whose nodes are not yet initialized.
+ * @param capacity the number of values the tree must hold
+**/
+
+	void allocate(int capacity) {
+		leaves = 1;
+		while (leaves < capacity)
+			leaves *= 2;
+		height = Integer.numberOfTrailingZeros(leaves);
+		sum = new long[2*leaves];
+		min = new long[2*leaves];
+		max = new long[2*leaves];
+		lazy = new long[leaves];
+	}
+
+/**
+ * Rebuilds the tree to hold the first <code>n</code> values of the given array,
+ * computing each level of internal nodes from the level below it.  The unused
+ * leaves hold the identity for the sum, minimum, and maximum, so that they never
+ * change an aggregate.
+ * @param values the values for positions 0, ..., n-1
+ * @param n the number of values
+ * @param capacity the number of values the new tree must hold, which is at least n
+ * @param parallel true if the leaves, and the nodes of large levels, should be
+ * computed in parallel
+**/
+
+	void load(final long[] values, final int n, int capacity, boolean parallel) {
+		allocate(capacity);
+		IntConsumer copyLeaves = new IntConsumer() {
+			public void accept(int i) {  //copies the values in block i
+				int from = i * PARALLEL_CUTOFF;
+				int k = Math.min(PARALLEL_CUTOFF, n - from);
+				System.arraycopy(values, from, sum, leaves + from, k);
+				System.arraycopy(values, from, min, leaves + from, k);
+				System.arraycopy(values, from, max, leaves + from, k);
+			}
+		};
+		int blocks = (n + PARALLEL_CUTOFF - 1) / PARALLEL_CUTOFF;
+		if (parallel)
+			IntStream.range(0, blocks).parallel().forEach(copyLeaves);
+		else
+			for (int i = 0; i < blocks; i++)
+				copyLeaves.accept(i);
+		Arrays.fill(min, leaves + n, 2*leaves, Long.MAX_VALUE);
+		Arrays.fill(max, leaves + n, 2*leaves, Long.MIN_VALUE);
+		IntConsumer pullNode = new IntConsumer() {
+			public void accept(int x) {
+				pull(x);
+			}
+		};
+		for (int first = leaves/2; first >= 1; first /= 2)  //the level holds nodes first, ..., 2*first-1
+			if (parallel && first >= PARALLEL_CUTOFF)
+				IntStream.range(first, 2*first).parallel().forEach(pullNode);
+			else
+				for (int x = first; x < 2*first; x++)
+					pull(x);
+		size = n;
+	}
+
+/**
+ * Recomputes the aggregates of internal node <code>x</code> from those of its
+ * children.  It requires that no amount is pending at <code>x</code>.
+ * @param x an internal node
+**/
+
+	final void pull(int x) {
+		sum[x] = sum[2*x] + sum[2*x+1];
+		min[x] = Math.min(min[2*x], min[2*x+1]);
+		max[x] = Math.max(max[2*x], max[2*x+1]);
+	}
+
+/**
+ * Adds <code>delta</code> to every value below node <code>x</code>, by updating
+ * the aggregates of <code>x</code> and recording the amount as pending for its
+ * children.
+ * @param x a node whose range lies within the positions in use
+ * @param w the number of leaves below <code>x</code>
+ * @param delta the amount to add
+**/
+
+	final void apply(int x, int w, long delta) {
+		sum[x] += delta * w;
+		min[x] += delta;
+		max[x] += delta;
+		if (x < leaves)
+			lazy[x] += delta;
+	}
+
+/**
+ * Moves the amount pending at internal node <code>x</code> to its children.
+ * @param x an internal node
+ * @param w the number of leaves below <code>x</code>
+**/
+
+	final void push(int x, int w) {
+		if (lazy[x] != 0) {
+			apply(2*x, w/2, lazy[x]);
+			apply(2*x+1, w/2, lazy[x]);
+			lazy[x] = 0;
+		}
+	}
+
+/**
+ * Pushes every pending amount down to the leaves, so that each leaf holds its
+ * value.
+**/
+
+	void flush() {
+		for (int first = 1, w = leaves; first < leaves; first *= 2, w /= 2)
+			for (int x = first; x < 2*first; x++)
+				push(x, w);
+	}
+
+/**
+ * @param length the length of the array to return, which is at least the size
+ * @return an array whose first <code>size</code> entries are the values in
+ * order
+**/
+
+	long[] values(int length) {
+		flush();
+		long[] values = new long[length];
+		System.arraycopy(sum, leaves, values, 0, size);
+		return values;
+	}
+
+/**
+ * @return an array holding the values in position order
+**/
+
+	public long[] toLongArray() {
+		return values(size);
+	}
+
+/**
+ * @param p a position from 0 to <code>leaves</code>-1
+ * @return the value at position <code>p</code>, including the amounts
+ * pending at its ancestors
+**/
+
+	final long read(int p) {
+		int x = leaves + p;
+		long value = sum[x];
+		for (x /= 2; x > 0; x /= 2)
+			value += lazy[x];
+		return value;
+	}
+
+/**
+ * Places <code>value</code> in the leaf for position <code>p</code> and
+ * updates the aggregates of its ancestors.  The value can be the identity for
+ * the sum, minimum, and maximum, which frees the leaf.
+ * @param p a position from 0 to <code>leaves</code>-1
+ * @param s the new sum of the leaf
+ * @param lo the new minimum of the leaf
+ * @param hi the new maximum of the leaf
+ * @return the prior value at position <code>p</code>
+**/
+
+	long write(int p, long s, long lo, long hi) {
+		int x = leaves + p;
+		for (int h = height; h > 0; h--)  //push down along the path from the root
+			push(x >> h, 1 << h);
+		long oldValue = sum[x];
+		sum[x] = s;
+		min[x] = lo;
+		max[x] = hi;
+		for (x /= 2; x > 0; x /= 2)
+			pull(x);
+		return oldValue;
+	}
+
+/**
+ * @param p a valid position
+ * @return the value at the position <code>p</code>
+ * @throws PositionOutOfBoundsException p is not a valid position
+**/
+
+	public long getLong(int p) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		return read(p);
+	}
+
+/**
+ * @param p a valid position
+ * @return the value at the position <code>p</code>
+ * @throws PositionOutOfBoundsException p is not a valid position
+**/
+
+	public Long get(int p) {
+		return getLong(p);
+	}
+
+/**
+ * @param p a user position to update
+ * @param value the value to put at position <code>p</code>
+ * @return the prior value at position <code>p</code>
+ * @throws PositionOutOfBoundsException <code>p</code> is not
+ * a valid position
+**/
+
+	public long set(int p, long value) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		return write(p, value, value, value);
+	}
+
+/**
+ * @param p a user position to update
+ * @param value the value to put at position <code>p</code>
+ * @return the prior value at position <code>p</code>
+ * @throws PositionOutOfBoundsException <code>p</code> is not
+ * a valid position
+**/
+
+	public Long set(int p, Long value) {
+		return set(p, value.longValue());
+	}
+
+/**
+ * Swaps the values held in positions <code>pos1</code> and <code>pos2</code>
+ * @param pos1 a valid position
+ * @param pos2 a valid position
+ * @throws PositionOutOfBoundsException either <code>pos1</code> or <code>pos2</code>
+ * is not a valid position
+**/
+
+	public void swap(int pos1, int pos2) {
+		if (pos1 < 0 || pos1 >= size)
+			throw new PositionOutOfBoundsException(pos1);
+		if (pos2 < 0 || pos2 >= size)
+			throw new PositionOutOfBoundsException(pos2);
+		set(pos2, set(pos1, read(pos2)));
+		version.increment();   //invalidate all locators
+	}
+
+/**
+ * @param fromPos a valid position
+ * @param toPos a valid position
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	void checkRange(int fromPos, int toPos) {
+		if (fromPos < 0 || toPos >= size)
+			throw new PositionOutOfBoundsException();
+		if (fromPos > toPos)
+			throw new IllegalArgumentException();
+	}
+
+/**
+ * @param fromPos a valid position
+ * @param toPos a valid position
+ * @return the sum of the values at positions <code>fromPos</code>, ...,
+ * <code>toPos</code>, inclusive
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	public long rangeSum(int fromPos, int toPos) {
+		checkRange(fromPos, toPos);
+		return sum(1, 0, leaves, fromPos, toPos);
+	}
+
+/**
+ * @param x a node
+ * @param l the position of the first leaf below <code>x</code>
+ * @param w the number of leaves below <code>x</code>
+ * @param lo the first position of the range, which overlaps those below <code>x</code>
+ * @param hi the last position of the range
+ * @return the sum of the values in the range below <code>x</code>, not including
+ * the amounts pending at the ancestors of <code>x</code>
+**/
+
+	long sum(int x, int l, int w, int lo, int hi) {
+		if (lo <= l && l + w - 1 <= hi)
+			return sum[x];
+		int m = l + w/2;
+		long s = lazy[x] * (Math.min(hi, l + w - 1) - Math.max(lo, l) + 1);
+		if (lo < m)
+			s += sum(2*x, l, w/2, lo, hi);
+		if (hi >= m)
+			s += sum(2*x+1, m, w/2, lo, hi);
+		return s;
+	}
+
+/**
+ * @param fromPos a valid position
+ * @param toPos a valid position
+ * @return the minimum of the values at positions <code>fromPos</code>, ...,
+ * <code>toPos</code>, inclusive
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	public long rangeMin(int fromPos, int toPos) {
+		checkRange(fromPos, toPos);
+		return min(1, 0, leaves, fromPos, toPos);
+	}
+
+/**
+ * @param x a node
+ * @param l the position of the first leaf below <code>x</code>
+ * @param w the number of leaves below <code>x</code>
+ * @param lo the first position of the range, which overlaps those below <code>x</code>
+ * @param hi the last position of the range
+ * @return the minimum of the values in the range below <code>x</code>, not
+ * including the amounts pending at the ancestors of <code>x</code>
+**/
+
+	long min(int x, int l, int w, int lo, int hi) {
+		if (lo <= l && l + w - 1 <= hi)
+			return min[x];
+		int m = l + w/2;
+		long result = Long.MAX_VALUE;
+		if (lo < m)
+			result = min(2*x, l, w/2, lo, hi);
+		if (hi >= m)
+			result = Math.min(result, min(2*x+1, m, w/2, lo, hi));
+		return result + lazy[x];
+	}
+
+/**
+ * @param fromPos a valid position
+ * @param toPos a valid position
+ * @return the maximum of the values at positions <code>fromPos</code>, ...,
+ * <code>toPos</code>, inclusive
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	public long rangeMax(int fromPos, int toPos) {
+		checkRange(fromPos, toPos);
+		return max(1, 0, leaves, fromPos, toPos);
+	}
+
+/**
+ * @param x a node
+ * @param l the position of the first leaf below <code>x</code>
+ * @param w the number of leaves below <code>x</code>
+ * @param lo the first position of the range, which overlaps those below <code>x</code>
+ * @param hi the last position of the range
+ * @return the maximum of the values in the range below <code>x</code>, not
+ * including the amounts pending at the ancestors of <code>x</code>
+**/
+
+	long max(int x, int l, int w, int lo, int hi) {
+		if (lo <= l && l + w - 1 <= hi)
+			return max[x];
+		int m = l + w/2;
+		long result = Long.MIN_VALUE;
+		if (lo < m)
+			result = max(2*x, l, w/2, lo, hi);
+		if (hi >= m)
+			result = Math.max(result, max(2*x+1, m, w/2, lo, hi));
+		return result + lazy[x];
+	}
+
+/**
+ * Adds <code>delta</code> to each of the values at positions
+ * <code>fromPos</code>, ..., <code>toPos</code>, inclusive.
+ * @param fromPos a valid position
+ * @param toPos a valid position
+ * @param delta the amount to add
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	public void rangeAdd(int fromPos, int toPos, long delta) {
+		checkRange(fromPos, toPos);
+		add(1, 0, leaves, fromPos, toPos, delta);
+	}
+
+/**
+ * Adds <code>delta</code> to the values in the range below node <code>x</code>.
+ * @param x a node
+ * @param l the position of the first leaf below <code>x</code>
+ * @param w the number of leaves below <code>x</code>
+ * @param lo the first position of the range, which overlaps those below <code>x</code>
+ * @param hi the last position of the range
+ * @param delta the amount to add
+**/
+
+	void add(int x, int l, int w, int lo, int hi, long delta) {
+		if (lo <= l && l + w - 1 <= hi) {
+			apply(x, w, delta);
+			return;
+		}
+		push(x, w);
+		int m = l + w/2;
+		if (lo < m)
+			add(2*x, l, w/2, lo, hi, delta);
+		if (hi >= m)
+			add(2*x+1, m, w/2, lo, hi, delta);
+		pull(x);
+	}
+
+/**
+ * @param value the element to be located
+ * @return the position in the collection for <code>value</code>
+ * or <code>NOT_FOUND</code> if <code>value</code> is not in the collection
+**/
+
+	public int positionOf(Long value) {
+		flush();
+		for (int p = 0; p < size; p++)
+			if (equivalent(value, sum[leaves + p]))
+				return p;
+		return NOT_FOUND;
+	}
+
+/**
+ * @param value the element to be located
+ * @return true  if and only if an equivalent element exists in the collection
+**/
+
+	public boolean contains(Long value) {
+		return positionOf(value) != NOT_FOUND;
+	}
+
+/**
+ * Traverses the entire collection on behalf of v, in position order.
+ * @param v a visitor to apply for each element in the collection
+ * @throws Exception the visitor throws an exception.
+**/
+
+	protected void traverseForVisitor(Visitor<? super Long> v) throws Exception {
+		flush();
+		for (int p = 0; p < size; p++)
+			v.visit(sum[leaves + p]);
+	}
+
+/**
+ * Inserts <code>value</code> at the end of the collection, rebuilding the
+ * tree with twice the capacity if it is full.
+ * @param value the new value
+**/
+
+	public void add(long value) {
+		if (size == leaves)
+			load(values(size), size, 2*leaves, false);
+		write(size, value, value, value);
+		size++;
+		cursors.inserted(size - 1, 1);
+	}
+
+/**
+ * Inserts it at the end of the collection.
+ * @param value the new element
+**/
+
+	public void add(Long value) {
+		add(value.longValue());
+	}
+
+/**
+ * Inserts <code>value</code> at position <code>p</code>
+ * and increments the position number for the elements that were at
+ * positions <code>p</code>, ..., <code>size</code>-1.  Unless <code>p</code>
+ * is <code>size</code>, the tree is rebuilt.
+ * @param p a valid user position
+ * @param value the new element
+ * @throws PositionOutOfBoundsException <code>p</code> is neither <code>size</code>
+ * nor a valid position
+**/
+
+	public void add(int p, Long value) {
+		if (p < 0 || p > size)
+			throw new PositionOutOfBoundsException(p);
+		if (p == size) {
+			add(value.longValue());
+			return;
+		}
+		long[] values = values(size + 1);
+		System.arraycopy(values, p, values, p + 1, size - p);
+		values[p] = value;
+		load(values, size + 1, Math.max(leaves, size + 1), false);
+		cursors.inserted(p, 1);
+	}
+
+/**
+ * Removes the element at position <code>p</code> and decrements the positions
+ * of the elements that follow it.  Unless <code>p</code> is the last position,
+ * the tree is rebuilt.
+ * @param p a valid position
+ * @return the removed element
+ * @throws PositionOutOfBoundsException <code>p</code> is not a valid
+ * position
+**/
+
+	public Long remove(int p) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		long removed;
+		if (p == size - 1) {
+			removed = write(p, 0, Long.MAX_VALUE, Long.MIN_VALUE);  //frees the leaf
+			size--;
+		} else {
+			long[] values = values(size);
+			removed = values[p];
+			System.arraycopy(values, p + 1, values, p, size - p - 1);
+			load(values, size - 1, leaves, false);
+		}
+		cursors.removed(p, p);
+		return removed;
+	}
+
+/**
+ * Removes the element at position 0.
+ * @return the element that was removed
+ * @throws NoSuchElementException the collection is empty
+**/
+
+	public Long removeFirst() {
+		if (isEmpty())
+			throw new NoSuchElementException("collection is empty");
+		return remove(0);
+	}
+
+/**
+ * Removes the element at position <code>size</code>-1
+ * @return the element that was removed
+ * @throws NoSuchElementException the collection is empty
+**/
+
+	public Long removeLast() {
+		if (isEmpty())
+			throw new NoSuchElementException("collection is empty");
+		return remove(size-1);
+	}
+
+/**
+ * Removes the first element in the collection equivalent to
+ * <code>value</code>
+ * @param value the element to be removed
+ * @return true  if and only if an element is removed.
+**/
+
+	public boolean remove(Long value) {
+		int p = positionOf(value);
+		if (p == NOT_FOUND)
+			return false;
+		remove(p);
+		return true;
+	}
+
+/**
+ * Removes the elements at positions
+ * <code>fromPos</code>, ..., <code>toPos</code>, inclusive,
+ * from the collection and
+ * decrements the positions of the
+ * elements at positions <code>toPos+1</code> to <code>size-1</code> by
+ * <code>toPos-fromPos+1</code> (the number of elements
+ * being removed).  The tree is rebuilt.
+ * @param fromPos a valid position
+ * @param toPos a valid position
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	public void removeRange(int fromPos, int toPos) {
+		checkRange(fromPos, toPos);
+		long[] values = values(size);
+		System.arraycopy(values, toPos + 1, values, fromPos, size - toPos - 1);
+		load(values, size - (toPos - fromPos + 1), leaves, false);
+		cursors.removed(fromPos, toPos);
+	}
+
+/**
+ * Removes all elements from the collection.
+**/
+
+	public void clear() {
+		if (!isEmpty()) {
+			cursors.removed(0, size - 1);
+			load(new long[0], 0, leaves, false);
+		}
+	}
+
+/**
+ * @return the number of values the tree can hold before it is rebuilt
+**/
+
+	public int getCapacity() {
+		return leaves;
+	}
+
+/**
+ * Rebuilds the tree, if needed, so that it can hold <code>capacity</code>
+ * values.
+ * @param capacity the desired capacity
+**/
+
+	public void ensureCapacity(int capacity) {
+		if (capacity > leaves)
+			load(values(size), size, capacity, false);
+	}
+
+/**
+ * Rebuilds the tree with the smallest number of leaves that can hold
+ * its values.
+**/
+
+	public void trimToSize() {
+		if (leaves > 1 && leaves / 2 >= size)
+			load(values(size), size, size, false);
+	}
+
+/**
+ * Since access by position takes logarithmic time, the spliterator
+ * splits the range of positions at the middle.
+ * @return a spliterator over the elements of this collection
+**/
+
+	public Spliterator<Long> spliterator() {
+		return new PositionSpliterator(0, size);
+	}
+
+/**
+ * Creates a new cursor that starts at FORE.
+**/
+
+	public PositionalCollectionLocator<Long> iterator() {
+		return new CursorLocator(cursors, FORE);
+	}
+
+/**
+ * Creates a new cursor that starts at AFT.
+**/
+
+	public PositionalCollectionLocator<Long> iteratorAtEnd() {
+		return new CursorLocator(cursors, size);
+	}
+
+/**
+ * Returns a new cursor that is at the given position.
+ * @param pos the user position of an element
+ * @throws NoSuchElementException the given position is not a valid user position.
+**/
+
+	public PositionalCollectionLocator<Long> iteratorAt(int pos) {
+		if (pos < 0 || pos >= size)
+			throw new NoSuchElementException();
+		return new CursorLocator(cursors, pos);
+	}
+
+/**
+ * @param value the target
+ * @return a cursor initialized to the position of the first
+ * element in the collection equivalent to <code>value</code>
+ * @throws NoSuchElementException <code>value</code> does not occur in the collection
+**/
+
+	public PositionalCollectionLocator<Long> getLocator(Long value) {
+		int position = positionOf(value);
+		if (position == NOT_FOUND)
+			throw new NoSuchElementException();
+		return new CursorLocator(cursors, position);
+	}
+
+/**
+ * Checks that the aggregates of each internal node agree with those of its
+ * children and the amount pending at the node.
+ * @throws IllegalStateException the aggregates are inconsistent
+**/
+
+	public void checkRep() {
+		for (int first = 1, w = leaves; first < leaves; first *= 2, w /= 2)
+			for (int x = first; x < 2*first; x++) {
+				long pending = lazy[x];
+				if (pending != 0 && x * w + w > leaves + size)
+					throw new IllegalStateException("amount pending at node " + x + " beyond the end");
+				if (sum[x] != sum[2*x] + sum[2*x+1] + pending * w)
+					throw new IllegalStateException("sum of node " + x + " is " + sum[x]);
+				if (max[2*x] != Long.MIN_VALUE &&  //not all leaves below x are free
+						(min[x] != Math.min(min[2*x], min[2*x+1]) + pending ||
+						 max[x] != Math.max(max[2*x], max[2*x+1]) + pending))
+					throw new IllegalStateException("minimum or maximum of node " + x + " is wrong");
+			}
+		for (int p = size; p < leaves; p++)
+			if (sum[leaves + p] != 0 || min[leaves + p] != Long.MAX_VALUE || max[leaves + p] != Long.MIN_VALUE)
+				throw new IllegalStateException("leaf for free position " + p + " is in use");
+	}
+
+/**
+ * @return an array holding the elements of this collection in
+ * iteration order, to be sorted
+**/
+
+	Array<Long> copyToArray() {
+		long[] values = values(size);
+		Array<Long> copy = new Array<Long>(size, getComparator());
+		for (int p = 0; p < size; p++)
+			copy.add(values[p]);
+		return copy;
+	}
+
+/**
+ * Rebuilds the tree to hold the elements of <code>copy</code> in order,
+ * which has the same size.  All locators are invalidated.
+ * @param copy the reordered elements
+**/
+
+	void copyFromArray(Array<Long> copy) {
+		long[] values = new long[size];
+		for (int p = 0; p < size; p++)
+			values[p] = copy.read(p);
+		load(values, size, leaves, false);
+		version.increment();   //invalidate all locators
+	}
+
+	public void insertionsort() {
+		insertionsort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void insertionsort(Comparator<? super Long> comp) {
+		Array<Long> copy = copyToArray();
+		copy.insertionsort(comp);
+		copyFromArray(copy);
+	}
+
+	public void mergesort() {
+		mergesort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void mergesort(Comparator<? super Long> comp) {
+		Array<Long> copy = copyToArray();
+		copy.mergesort(comp);
+		copyFromArray(copy);
+	}
+
+	public void heapsort() {
+		heapsort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void heapsort(Comparator<? super Long> comp) {
+		Array<Long> copy = copyToArray();
+		copy.heapsort(comp);
+		copyFromArray(copy);
+	}
+
+	public void treesort() {
+		treesort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void treesort(Comparator<? super Long> comp) {
+		Array<Long> copy = copyToArray();
+		copy.treesort(comp);
+		copyFromArray(copy);
+	}
+
+	public void quicksort() {
+		quicksort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	public void quicksort(Comparator<? super Long> comp) {
+		Array<Long> copy = copyToArray();
+		copy.quicksort(comp);
+		copyFromArray(copy);
+	}
+
+	public void radixsort(Digitizer<? super Long> digitizer) {
+		Array<Long> copy = copyToArray();
+		copy.radixsort(digitizer);
+		copyFromArray(copy);
+	}
+
+	public void bucketsort(Bucketizer<? super Long> bucketizer) {
+		Array<Long> copy = copyToArray();
+		copy.bucketsort(bucketizer);
+		copyFromArray(copy);
+	}
+
+/**
+ * @param r the rank of the desired element in the sorted collection
+ * @return the element at rank <code>r</code> when using the default comparator
+ * @throws NoSuchElementException <code>r</code> is not a valid position
+**/
+
+	public Long repositionElementByRank(int r) {
+		return repositionElementByRank(r, Objects.DEFAULT_COMPARATOR);
+	}
+
+/**
+ * @param r the rank of the desired element
+ * @param comp the comparator to use
+ * @return the element at rank <code>r</code> when using the given comparator
+ * @throws NoSuchElementException the collection is empty
+ * or <code>r</code> is not a valid position
+**/
+
+	public Long repositionElementByRank(int r, Comparator<? super Long> comp) {
+		if (isEmpty() || r < 0 || r >= getSize())
+			throw new NoSuchElementException();
+		Array<Long> copy = copyToArray();
+		Long result = copy.repositionElementByRank(r, comp);
+		copyFromArray(copy);
+		return result;
+	}
+}
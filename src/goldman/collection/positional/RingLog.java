@@ -0,0 +1,441 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.positional;
+import goldman.Codec;
+import goldman.collection.AtCapacityException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+/**
+ * A ring log is a bounded buffer, with the semantics of a circular array, that
+ * is stored in a memory-mapped file so that its contents survive a restart.
+ * Elements are added at the end and removed from the front, and any element can
+ * be read by its position.  Each element is converted to bytes by a codec and
+ * stored either in a fixed-size record, or in a variable-size record that is
+ * prefixed by its length.  A record is never split across the end of the file:
+ * when a variable-size record does not fit, the remainder of the ring is skipped.
+ * <p>
+ * The file begins with a header page that holds two copies of the head and tail
+ * pointers, each with a sequence number and a checksum.  A <code>commit</code>
+ * forces the records to the file, and then writes the pointers into the older copy,
+ * so a crash at any point leaves at least one valid copy, and the newest valid copy
+ * describes records that are fully written.  Until the next commit, space freed by
+ * <code>removeFirst</code> is not reused, so that the records of the committed
+ * state are not overwritten.  Reopening the file reads the header and maps the
+ * file, which takes constant time regardless of the number of records.
+ * Changes made since the last commit are lost if the process crashes.
+ * <p>
+ * For fixed-size records, access by position takes constant time.  For
+ * variable-size records, the first access by a position other than 0 scans the
+ * records once to build an index of their offsets, which is then maintained.
+**/
+
+public class RingLog<E> {
+
+	public static final int VARIABLE_LENGTH = 0;  //record length for length-prefixed records
+	static final int HEADER_SIZE = 4096;  //size of the header page
+	static final int SLOT_SIZE = 512;     //space for each copy of the header
+	static final int HEADER_BYTES = 48;   //bytes covered by the checksum
+	static final int MAGIC = 0x52494E47;  //identifies a ring log file
+	static final int WRAP = -1;           //length marking the skipped end of the ring
+
+	final Codec<E> codec;     //converts elements to and from bytes
+	final int recordLength;   //bytes per record, or VARIABLE_LENGTH
+	final int capacity;       //bytes in the ring
+	final boolean evict;      //true if a full log removes its oldest records
+	final RandomAccessFile file;
+	final MappedByteBuffer map;
+	long head;                //logical offset of the first record
+	long tail;                //logical offset just after the last record
+	long committedHead;       //head as of the last commit
+	long sequence;            //sequence number of the last commit
+	int size;                 //number of records
+	DynamicCircularArray<Long> offsets = null;  //start of each record, when indexed
+
+/**
+ * Opens the ring log stored in the given file, creating it if the file does not
+ * exist or is empty.
+ * @param f the file holding the log
+ * @param capacity the number of bytes available for records
+ * @param recordLength the number of bytes in each record, or
+ * <code>VARIABLE_LENGTH</code> for length-prefixed records
+ * @param codec the codec used to convert the elements to bytes
+ * @param evict true if adding to a full log should remove the oldest records, and
+ * false if it should throw an <code>AtCapacityException</code>
+ * @throws IOException the file cannot be mapped, or it is not empty and does
+ * not hold a valid ring log
+ * @throws IllegalArgumentException the capacity cannot hold a record, or
+ * the file holds a ring log with a different capacity or record length
+**/
+
+	public RingLog(File f, int capacity, int recordLength, Codec<E> codec, boolean evict)
+			throws IOException {
+		if (recordLength < 0 || capacity < Math.max(recordLength, 8))
+			throw new IllegalArgumentException();
+		if (recordLength != VARIABLE_LENGTH)
+			capacity -= capacity % recordLength;  //records never wrap
+		this.capacity = capacity;
+		this.recordLength = recordLength;
+		this.codec = codec;
+		this.evict = evict;
+		boolean exists = f.length() > 0;
+		file = new RandomAccessFile(f, "rw");
+		boolean opened = false;
+		try {
+			if (exists)  //check the header before mapping, which could grow the file
+				recover(f, readHeaderPage());
+			map = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+			if (!exists)
+				commit();
+			opened = true;
+		} finally {
+			if (!opened)
+				file.close();
+		}
+	}
+
+/**
+ * Opens the ring log stored in the given file, creating it if needed, where
+ * adding to a full log throws an <code>AtCapacityException</code>.
+ * @param f the file holding the log
+ * @param capacity the number of bytes available for records
+ * @param recordLength the number of bytes in each record, or
+ * <code>VARIABLE_LENGTH</code> for length-prefixed records
+ * @param codec the codec used to convert the elements to bytes
+ * @throws IOException the file cannot be mapped, or it is not empty and does
+ * not hold a valid ring log
+**/
+
+	public RingLog(File f, int capacity, int recordLength, Codec<E> codec) throws IOException {
+		this(f, capacity, recordLength, codec, false);
+	}
+
+/**
+ * Reads the header page from the file, without changing the file.
+ * @return a buffer holding the header page, in which any bytes beyond the end
+ * of a short file are zero
+ * @throws IOException the file cannot be read
+**/
+
+	ByteBuffer readHeaderPage() throws IOException {
+		byte[] page = new byte[HEADER_SIZE];
+		file.seek(0);
+		int n = 0, read;
+		while (n < HEADER_SIZE && (read = file.read(page, n, HEADER_SIZE - n)) > 0)
+			n += read;
+		return ByteBuffer.wrap(page);
+	}
+
+/**
+ * Restores the pointers from the newest valid copy of the header.
+ * @param f the file, for the error message
+ * @param page the header page
+ * @throws IOException neither copy of the header is valid
+ * @throws IllegalArgumentException the header does not match the
+ * capacity and record length of this log
+**/
+
+	void recover(File f, ByteBuffer page) throws IOException {
+		long[] h0 = readHeader(page, 0);
+		long[] h1 = readHeader(page, 1);
+		long[] h = (h0 == null || (h1 != null && h1[0] > h0[0])) ? h1 : h0;
+		if (h == null)
+			throw new IOException("no valid ring log header in " + f);
+		sequence = h[0];
+		head = committedHead = h[1];
+		tail = h[2];
+		size = (int) h[3];
+	}
+
+/**
+ * @param page the header page
+ * @param slot which copy of the header to read
+ * @return the sequence number, head, tail, and size held in the given copy,
+ * or null if the copy is not valid
+**/
+
+	long[] readHeader(ByteBuffer page, int slot) {
+		ByteBuffer b = page.duplicate();
+		b.position(slot * SLOT_SIZE);
+		if (b.getInt() != MAGIC)
+			return null;
+		int length = b.getInt();
+		long cap = b.getLong();
+		long[] h = {b.getLong(), b.getLong(), b.getLong(), b.getLong()};
+		if (b.getLong() != checksum(page, slot))
+			return null;
+		if (length != recordLength || cap != capacity)
+			throw new IllegalArgumentException("ring log has capacity " + cap +
+					" and record length " + length);
+		return h;
+	}
+
+	void writeHeader(int slot) {
+		ByteBuffer b = map.duplicate();
+		b.position(slot * SLOT_SIZE);
+		b.putInt(MAGIC).putInt(recordLength).putLong(capacity);
+		b.putLong(sequence).putLong(head).putLong(tail).putLong(size);
+		b.putLong(checksum(map, slot));
+	}
+
+	long checksum(ByteBuffer page, int slot) {
+		ByteBuffer b = page.duplicate();
+		b.position(slot * SLOT_SIZE);
+		b.limit(slot * SLOT_SIZE + HEADER_BYTES);
+		CRC32 crc = new CRC32();
+		crc.update(b);
+		return crc.getValue();
+	}
+
+/**
+ * Makes the current contents durable.  The records are forced to the file before
+ * the header copy that refers to them is written.
+**/
+
+	public void commit() {
+		map.force();
+		sequence++;
+		writeHeader((int) (sequence % 2));  //overwrite the older copy
+		map.force();
+		committedHead = head;
+	}
+
+/**
+ * Commits and closes the log.
+ * @throws IOException the file cannot be closed
+**/
+
+	public void close() throws IOException {
+		commit();
+		file.close();
+	}
+
+/**
+ * @param offset a logical offset
+ * @return a buffer positioned at the corresponding byte of the file
+**/
+
+	ByteBuffer at(long offset) {
+		ByteBuffer b = map.duplicate();
+		b.position(HEADER_SIZE + (int) (offset % capacity));
+		return b;
+	}
+
+/**
+ * @param offset the logical offset at which a record would be written
+ * @param need the number of bytes in the record
+ * @return the number of bytes at the end of the ring that must be skipped
+ * so that the record is not split
+**/
+
+	int skipBefore(long offset, int need) {
+		int room = capacity - (int) (offset % capacity);
+		return (room < need) ? room : 0;
+	}
+
+/**
+ * @param offset the logical offset of a record, or of the skipped end of the ring
+ * that precedes it
+ * @return the logical offset at which the record begins
+**/
+
+	long recordStart(long offset) {
+		if (recordLength != VARIABLE_LENGTH)
+			return offset;
+		int room = capacity - (int) (offset % capacity);
+		if (room < 4 || at(offset).getInt() == WRAP)
+			return offset + room;
+		return offset;
+	}
+
+/**
+ * @param start the logical offset at which a record begins
+ * @return the logical offset just after the record
+**/
+
+	long recordEnd(long start) {
+		if (recordLength != VARIABLE_LENGTH)
+			return start + recordLength;
+		return start + 4 + at(start).getInt();
+	}
+
+	E read(long start) {
+		ByteBuffer b = at(start);
+		int length = (recordLength == VARIABLE_LENGTH) ? b.getInt() : recordLength;
+		return codec.decode(b, length);
+	}
+
+/**
+ * @return true  if and only if the log holds no records
+**/
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+/**
+ * @return the number of records in the log
+**/
+
+	public int getSize() {
+		return size;
+	}
+
+/**
+ * @return the number of bytes available for records
+**/
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+/**
+ * @param p a valid position
+ * @return the element at position <code>p</code>
+ * @throws PositionOutOfBoundsException <code>p</code> is not a valid position
+**/
+
+	public E get(int p) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		if (recordLength != VARIABLE_LENGTH)
+			return read(head + (long) p * recordLength);
+		if (p == 0)
+			return read(recordStart(head));
+		if (offsets == null)
+			buildIndex();
+		return read(offsets.get(p));
+	}
+
+/**
+ * Scans the records to record where each one begins.
+**/
+
+	void buildIndex() {
+		offsets = new DynamicCircularArray<Long>(Math.max(size, 1));
+		long offset = head;
+		for (int i = 0; i < size; i++) {
+			long start = recordStart(offset);
+			offsets.addLast(start);
+			offset = recordEnd(start);
+		}
+	}
+
+/**
+ * @return the first element in the log
+ * @throws NoSuchElementException the log is empty
+**/
+
+	public E getFirst() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return get(0);
+	}
+
+/**
+ * @return the last element in the log
+ * @throws NoSuchElementException the log is empty
+**/
+
+	public E getLast() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return get(size - 1);
+	}
+
+/**
+ * Appends <code>value</code> to the log.  If this would overwrite a record of
+ * the committed state that has since been removed, the log is first committed.
+ * A record that does not fit before the end of the ring is placed at its
+ * beginning, once enough earlier records have been evicted.
+ * @param value the element to add
+ * @throws AtCapacityException the log is full and does not evict
+ * @throws IllegalArgumentException the encoding of <code>value</code> does
+ * not fit in a record
+**/
+
+	public void addLast(E value) {
+		int length = codec.getEncodedSize(value);
+		int need = (recordLength == VARIABLE_LENGTH) ? 4 + length : recordLength;
+		if (length > need || need > capacity)
+			throw new IllegalArgumentException("record too large");
+		int skip = skipBefore(tail, need);
+		while (tail + skip + need - head > capacity) {  //not enough free space
+			if (isEmpty()) {  //start at the beginning of the ring, where the record fits
+				tail += skip;
+				head = tail;
+				skip = 0;
+			} else if (!evict)
+				throw new AtCapacityException(capacity);
+			else
+				removeFirst();
+		}
+		if (tail + skip + need - committedHead > capacity)  //protect committed records
+			commit();
+		if (skip >= 4)
+			at(tail).putInt(WRAP);
+		tail += skip;
+		ByteBuffer b = at(tail);
+		if (recordLength == VARIABLE_LENGTH)
+			b.putInt(length);
+		b.limit(b.position() + length);
+		codec.encode(value, b);
+		if (offsets != null)
+			offsets.addLast(tail);
+		tail += need;
+		size++;
+	}
+
+/**
+ * Removes the first element in the log
+ * @return the removed element
+ * @throws NoSuchElementException the log is empty
+**/
+
+	public E removeFirst() {
+		if (isEmpty())
+			throw new NoSuchElementException("log is empty");
+		long start = recordStart(head);
+		E value = read(start);
+		head = recordEnd(start);
+		if (offsets != null)
+			offsets.removeFirst();
+		size--;
+		return value;
+	}
+
+/**
+ * Removes all elements from the log.
+**/
+
+	public void clear() {
+		head = tail;
+		size = 0;
+		offsets = null;
+	}
+
+/**
+ * @return a comma-separated string showing the elements in
+ * order.  Angle brackets mark the beginning and the end of the log.
+**/
+
+	public String toString() {
+		StringBuilder s = new StringBuilder("<");
+		for (int p = 0; p < size; p++) {
+			if (p > 0)
+				s.append(", ");
+			s.append(get(p));
+		}
+		s.append(">");
+		return s.toString();
+	}
+}
@@ -5,6 +5,7 @@
 
 package goldman.collection.positional;
 import goldman.Objects;
+import goldman.Pool;
 import goldman.ReverseComparator;
 import goldman.collection.AbstractCollection;
 import goldman.collection.AtBoundaryException;
@@ -39,6 +40,8 @@ public class SinglyLinkedList<E> extends AbstractPositionalCollection<E> impleme
 
 	protected ListItem<E> head; // sentinel head ListItem
 	private ListItem<E> last; // reference to last item
+	Pool<ListItem<E>> nodePool = null; // optional pool for recycling list items
+	ListItem<E> retired = null; // most recently removed item, not yet released to the pool
 
 
 	static final Object REMOVED = new Object(); // singleton for a removed item
@@ -102,7 +105,58 @@ public class SinglyLinkedList<E> extends AbstractPositionalCollection<E> impleme
 **/
 
 	ListItem<E> newListItem(E value) {
-		return new ListItem<E>(value);
+		if (nodePool == null)
+			return new ListItem<E>(value);
+		ListItem<E> item = nodePool.allocate();
+		item.data = value;
+		return item;
+	}
+
+/**
+ * @param maxRetained the maximum number of list items retained in the shared
+ * portion of the pool
+ * @return a thread-safe pool of list items that can be shared by any number of
+ * singly linked lists
+**/
+
+	public static <E> Pool<ListItem<E>> createNodePool(int maxRetained) {
+		return new Pool<ListItem<E>>(maxRetained) {
+			protected ListItem<E> create() {
+				return new ListItem<E>(null);
+			}
+		};
+	}
+
+/**
+ * Opts into recycling list items through the given pool.  Each removed
+ * list item is released to the pool once the next one is removed, so a locator that has
+ * just removed its element can still advance.
+ * @param pool a pool created by <code>createNodePool</code>, or null to stop recycling list items
+ * <BR>
+ * REQUIRES:
+ *  no tracker is used once the element it tracks has been removed, other than to
+ * advance the locator that removed it before any other element is removed.
+**/
+
+	public void setNodePool(Pool<ListItem<E>> pool) {
+		if (retired != null && nodePool != null)
+			nodePool.release(retired);
+		retired = null;
+		nodePool = pool;
+	}
+
+/**
+ * Releases the previously removed list item to the node pool (if any), and
+ * holds <code>x</code> until the next list item is removed.
+ * @param x a list item that has just been removed
+**/
+
+	void retire(ListItem<E> x) {
+		if (nodePool != null) {
+			if (retired != null)
+				nodePool.release(retired);
+			retired = x;
+		}
 	}
 
 /**
@@ -377,6 +431,7 @@ public class SinglyLinkedList<E> extends AbstractPositionalCollection<E> impleme
 		size--;                   //preserve Size
 		E result = (E) x.data;
 		x.data = REMOVED;         //preserve Removed
+		retire(x);
 		return result;
 	}
 
@@ -404,8 +459,10 @@ public class SinglyLinkedList<E> extends AbstractPositionalCollection<E> impleme
 			throw new IllegalArgumentException();
 		ListItem<E> beforeFromPos = getPtr(fromPos-1);
 		ListItem<E> ptr = beforeFromPos.next;
-		for (int i = fromPos; i<= toPos; i++, ptr = ptr.next) 
+		for (int i = fromPos; i<= toPos; i++, ptr = ptr.next) {
 			ptr.data = REMOVED;   //mark items as removed
+			retire(ptr);
+		}
 		beforeFromPos.setNext(ptr);      //remove them
 		size = size - (toPos - fromPos + 1);  //preserve Size
 		if (last.data == REMOVED)             //preserve Last
@@ -476,8 +533,10 @@ public class SinglyLinkedList<E> extends AbstractPositionalCollection<E> impleme
 
 	public void clear() {
 		ListItem<E> tail = getTail();
-		for (ListItem<E> ptr = head.next; ptr != tail; ptr = ptr.next)
+		for (ListItem<E> ptr = head.next; ptr != tail; ptr = ptr.next) {
 			ptr.data = REMOVED;
+			retire(ptr);
+		}
 		size = 0;
 		head.setNext(tail);
 		last = head;
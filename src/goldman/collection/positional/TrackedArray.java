@@ -27,7 +27,9 @@ import goldman.collection.priority.PriorityQueue;
  * Observe that the tracker does not reduce the cost of shifting array elements when an
  * element is added or removed, even through a tracker.  The tracker would be useful
  * when the application needs to determine the position of a tracked element in
- * constant time.
+ * constant time.  When insertions and removals away from the ends are frequent,
+ * TrackedTreeList avoids the linear cost of updating the nodes after each shift,
+ * at the cost of logarithmic time access by position.
 **/
 
 public class TrackedArray<E> extends DynamicCircularArray<E> implements
@@ -0,0 +1,1012 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.positional;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import goldman.Objects;
+import goldman.collection.AbstractCollection;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Bucketizer;
+import goldman.collection.Digitizer;
+import goldman.collection.Tracked;
+import goldman.collection.Visitor;
+/**
+ * A tracked tree list is a tracked positional collection in which
+ * the elements are held, one per node, in a balanced (AVL) binary tree whose
+ * inorder traversal gives the positional order.  Each node records the number of
+ * elements in its subtree, so the element at position p is found in logarithmic
+ * time by descending from the root, and the position of a tracked node is computed
+ * in logarithmic time by climbing to the root.  Unlike a tracked array, no
+ * positions are stored, so an insertion or removal at any position takes
+ * logarithmic time and does not touch the nodes of the other trackers.
+ * The trade-off is that access by position takes logarithmic rather than
+ * constant time.  As for a tracked array, a tracker for a removed element
+ * follows a redirect chain to the nearest preceding element still in the
+ * collection, and sorting moves the nodes, so the trackers continue to
+ * track their elements.
+**/
+
+public class TrackedTreeList<E> extends AbstractPositionalCollection<E> implements
+	PositionalCollection<E>, Tracked<E> {
+
+	@SuppressWarnings({"rawtypes", "unchecked"})  //the sentinels are shared by lists of every element type
+	static final TreeNode FORE_NODE = new TreeNode(null);
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	static final TreeNode AFT_NODE = new TreeNode(null);
+
+	static class TreeNode<E> {
+		E data;                      //the element held in this node
+		TreeNode<E> left, right;     //children
+		TreeNode<E> parent;          //parent, or null for the root
+		TreeNode<E> redirect;        //head pointer for redirect chain, or null if in the collection
+		int size = 1;                //number of elements in this subtree
+		int height = 1;              //height of this subtree
+
+		TreeNode(E element) {
+			data = element;
+		}
+	}
+
+	TreeNode<E> root = null;  //root of the tree, or null if empty
+
+/**
+ * Creates an empty tracked tree list that uses
+ * the provided equivalence tester
+ * @param equivalenceTester a user-provided equivalence tester
+**/
+
+	public TrackedTreeList(Comparator<? super E> equivalenceTester) {
+		super(equivalenceTester);
+	}
+
+/**
+ * Creates an empty tracked tree list that uses the default equivalence tester.
+**/
+
+	public TrackedTreeList() {
+		this(Objects.DEFAULT_EQUIVALENCE_TESTER);
+	}
+
+	static int size(TreeNode<?> x) {
+		return (x == null) ? 0 : x.size;
+	}
+
+	static int height(TreeNode<?> x) {
+		return (x == null) ? 0 : x.height;
+	}
+
+/**
+ * Recomputes the size and height of <code>x</code> from its children
+**/
+
+	static void update(TreeNode<?> x) {
+		x.size = size(x.left) + size(x.right) + 1;
+		x.height = Math.max(height(x.left), height(x.right)) + 1;
+	}
+
+/**
+ * @param p a valid position
+ * @return the node at position <code>p</code>
+**/
+
+	TreeNode<E> nodeAt(int p) {
+		TreeNode<E> x = root;
+		while (true) {
+			int leftSize = size(x.left);
+			if (p < leftSize)
+				x = x.left;
+			else if (p == leftSize)
+				return x;
+			else {
+				p -= leftSize + 1;
+				x = x.right;
+			}
+		}
+	}
+
+/**
+ * @param x a node in the collection
+ * @return the position of <code>x</code>, computed by climbing to the root
+**/
+
+	int positionOf(TreeNode<E> x) {
+		int p = size(x.left);
+		for (; x.parent != null; x = x.parent)
+			if (x == x.parent.right)     //x follows its parent and its parent's left subtree
+				p += size(x.parent.left) + 1;
+		return p;
+	}
+
+	TreeNode<E> first(TreeNode<E> x) {
+		while (x.left != null)
+			x = x.left;
+		return x;
+	}
+
+	TreeNode<E> last(TreeNode<E> x) {
+		while (x.right != null)
+			x = x.right;
+		return x;
+	}
+
+/**
+ * @param x a node in the collection
+ * @return the node that follows <code>x</code>, or null if <code>x</code> is last
+**/
+
+	TreeNode<E> successor(TreeNode<E> x) {
+		if (x.right != null)
+			return first(x.right);
+		while (x.parent != null && x == x.parent.right)
+			x = x.parent;
+		return x.parent;
+	}
+
+/**
+ * @param x a node in the collection
+ * @return the node that precedes <code>x</code>, or null if <code>x</code> is first
+**/
+
+	TreeNode<E> predecessor(TreeNode<E> x) {
+		if (x.left != null)
+			return last(x.left);
+		while (x.parent != null && x == x.parent.left)
+			x = x.parent;
+		return x.parent;
+	}
+
+/**
+ * Replaces <code>old</code>, a child of <code>parent</code>, by <code>x</code>
+ * @param parent the parent of <code>old</code>, or null if <code>old</code> is the root
+**/
+
+	void replaceChild(TreeNode<E> parent, TreeNode<E> old, TreeNode<E> x) {
+		if (parent == null)
+			root = x;
+		else if (parent.left == old)
+			parent.left = x;
+		else
+			parent.right = x;
+		if (x != null)
+			x.parent = parent;
+	}
+
+	TreeNode<E> rotateLeft(TreeNode<E> x) {
+		TreeNode<E> y = x.right;
+		x.right = y.left;
+		if (y.left != null)
+			y.left.parent = x;
+		replaceChild(x.parent, x, y);
+		y.left = x;
+		x.parent = y;
+		update(x);
+		update(y);
+		return y;
+	}
+
+	TreeNode<E> rotateRight(TreeNode<E> x) {
+		TreeNode<E> y = x.left;
+		x.left = y.right;
+		if (y.right != null)
+			y.right.parent = x;
+		replaceChild(x.parent, x, y);
+		y.right = x;
+		x.parent = y;
+		update(x);
+		update(y);
+		return y;
+	}
+
+/**
+ * Updates <code>x</code> and performs a single or double rotation at
+ * <code>x</code> if the heights of its subtrees differ by more than one.
+ * @param x a node whose children are balanced
+ * @return the root of the resulting subtree
+**/
+
+	TreeNode<E> balance(TreeNode<E> x) {
+		int diff = height(x.left) - height(x.right);
+		if (diff > 1) {
+			if (height(x.left.left) < height(x.left.right))
+				rotateLeft(x.left);
+			return rotateRight(x);
+		} else if (diff < -1) {
+			if (height(x.right.right) < height(x.right.left))
+				rotateRight(x.right);
+			return rotateLeft(x);
+		}
+		update(x);
+		return x;
+	}
+
+/**
+ * Restores the sizes, heights, and balance of all nodes from <code>x</code>
+ * up to the root.
+ * @param x the lowest node whose subtree changed, or null
+**/
+
+	void retrace(TreeNode<E> x) {
+		while (x != null)
+			x = balance(x).parent;
+	}
+
+/**
+ * Places the detached node <code>x</code> at position <code>p</code>
+ * @param p a position from 0 to <code>size</code>
+ * @param x a node that is not in the tree
+**/
+
+	void attach(int p, TreeNode<E> x) {
+		x.left = x.right = null;
+		x.size = x.height = 1;
+		x.redirect = null;
+		if (root == null) {
+			root = x;
+			x.parent = null;
+		} else if (p == size) {         //new last element
+			TreeNode<E> parent = last(root);
+			parent.right = x;
+			x.parent = parent;
+		} else {                        //make x the predecessor of the node at position p
+			TreeNode<E> next = nodeAt(p);
+			if (next.left == null) {
+				next.left = x;
+				x.parent = next;
+			} else {
+				TreeNode<E> parent = last(next.left);
+				parent.right = x;
+				x.parent = parent;
+			}
+		}
+		size++;
+		retrace(x.parent);
+	}
+
+/**
+ * Removes node <code>x</code> from the tree.  When <code>x</code> has two
+ * children, its successor takes its place in the tree, so that no other node
+ * changes the element it holds.
+ * @param x a node in the tree
+**/
+
+	void detach(TreeNode<E> x) {
+		TreeNode<E> start;  //lowest node whose subtree changed
+		if (x.left == null || x.right == null) {
+			TreeNode<E> child = (x.left != null) ? x.left : x.right;
+			start = x.parent;
+			replaceChild(x.parent, x, child);
+		} else {
+			TreeNode<E> y = first(x.right);  //successor of x, which has no left child
+			if (y.parent == x)
+				start = y;
+			else {
+				start = y.parent;
+				replaceChild(y.parent, y, y.right);
+				y.right = x.right;
+				y.right.parent = y;
+			}
+			y.left = x.left;
+			y.left.parent = y;
+			replaceChild(x.parent, x, y);
+		}
+		x.left = x.right = x.parent = null;
+		size--;
+		retrace(start);
+	}
+
+/**
+ * @param p the desired user position
+ * @return the element at the position <code>p</code>
+ * @throws PositionOutOfBoundsException p is not a valid position
+**/
+
+	public E get(int p) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		return nodeAt(p).data;
+	}
+
+/**
+ * @param p a valid user position to be updated
+ * @param element the element to put at position <code>p</code>
+ * @return the prior element at position <code>p</code>
+ * @throws PositionOutOfBoundsException <code>p</code> is not
+ * a valid position
+**/
+
+	public E set(int p, E element) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		TreeNode<E> x = nodeAt(p);
+		E oldElement = x.data;
+		x.data = element;
+		return oldElement;
+	}
+
+/**
+ * Swaps the nodes at positions <code>pos1</code> and <code>pos2</code>, so that
+ * the trackers continue to track their elements.
+ * @param pos1 a valid position
+ * @param pos2 a valid position
+ * @throws PositionOutOfBoundsException either <code>pos1</code> or <code>pos2</code>
+ * is not a valid position
+**/
+
+	public void swap(int pos1, int pos2) {
+		if (pos1 < 0 || pos1 >= size)
+			throw new PositionOutOfBoundsException(pos1);
+		if (pos2 < 0 || pos2 >= size)
+			throw new PositionOutOfBoundsException(pos2);
+		if (pos1 == pos2)
+			return;
+		int lo = Math.min(pos1, pos2);
+		int hi = Math.max(pos1, pos2);
+		TreeNode<E> x = nodeAt(lo);
+		TreeNode<E> y = nodeAt(hi);
+		detach(y);
+		detach(x);
+		attach(lo, y);
+		attach(hi, x);
+		version.increment();   //invalidate all trackers for iteration
+	}
+
+/**
+ * @param value the element to be located
+ * @return the first position <code>p</code> in the collection holding
+ * an equivalent element, or <code>NOT_FOUND</code> if there is no equivalent
+ * element in the collection
+**/
+
+	public int positionOf(E value) {
+		int p = 0;
+		for (TreeNode<E> x = (root == null) ? null : first(root); x != null; x = successor(x), p++)
+			if (equivalent(value, x.data))
+				return p;
+		return NOT_FOUND;
+	}
+
+/**
+ * @param value the element to be located
+ * @return true  if and only if an equivalent element exists in the collection
+**/
+
+	public boolean contains(E value) {
+		return positionOf(value) != NOT_FOUND;
+	}
+
+/**
+ * Traverses the entire collection on behalf of v.
+ * @param v a visitor to apply for each element in the collection
+ * @throws Exception the visitor throws an exception.
+**/
+
+	protected void traverseForVisitor(Visitor<? super E> v) throws Exception {
+		for (TreeNode<E> x = (root == null) ? null : first(root); x != null; x = successor(x))
+			v.visit(x.data);
+	}
+
+/**
+ * Inserts <code>value</code> at position <code>p</code>
+ * and increments the position number for the elements that were at
+ * positions <code>p</code>, ..., <code>size</code>-1.
+ * @param p a valid user position
+ * @param value the new element
+ * @throws PositionOutOfBoundsException <code>p</code> is neither <code>size</code>
+ * nor a valid position
+**/
+
+	public void add(int p, E value) {
+		addTracked(p, value);
+	}
+
+/**
+ * Inserts <code>value</code> at the end of the collection.
+ * @param value the new element
+**/
+
+	public void add(E value) {
+		addTracked(size, value);
+	}
+
+/**
+ * Inserts <code>value</code> it at the end of the collection.
+ * @param value the new element
+ * @return a tracker for the new element
+**/
+
+	public PositionalCollectionLocator<E> addTracked(E value) {
+		return addTracked(size, value);
+	}
+
+/**
+ * Inserts the new element at position <code>p</code>
+ * and increments the position number for the elements that were at
+ * positions <code>p</code>, ..., <code>size</code>-1.
+ * @param p a valid user position
+ * @param value the new element
+ * @return a tracker for the new element
+ * @throws PositionOutOfBoundsException <code>p</code> is neither <code>size</code>
+ * nor a valid position
+**/
+
+	public PositionalCollectionLocator<E> addTracked(int p, E value) {
+		if (p < 0 || p > size)
+			throw new PositionOutOfBoundsException(p);
+		TreeNode<E> x = new TreeNode<E>(value);
+		attach(p, x);
+		return new Tracker(x);
+	}
+
+/**
+ * Removes the element at position <code>p</code>
+ * @param p a valid position
+ * @return the removed element
+ * @throws PositionOutOfBoundsException <code>p</code> is not a valid
+ * position
+**/
+
+	public E remove(int p) {
+		if (p < 0 || p >= size)
+			throw new PositionOutOfBoundsException(p);
+		E removed = nodeAt(p).data;
+		removeRange(p, p);
+		return removed;
+	}
+
+/**
+ * Removes the element at position 0.
+ * @return the element that was removed
+ * @throws NoSuchElementException the collection is empty
+**/
+
+	public E removeFirst() {
+		if (isEmpty())
+			throw new NoSuchElementException("collection is empty");
+		return remove(0);
+	}
+
+/**
+ * Removes the element at position <code>size</code>-1
+ * @return the element that was removed
+ * @throws NoSuchElementException the collection is empty
+**/
+
+	public E removeLast() {
+		if (isEmpty())
+			throw new NoSuchElementException("collection is empty");
+		return remove(size-1);
+	}
+
+/**
+ * Removes the first element in the collection equivalent to
+ * <code>value</code>
+ * @param value the element to be removed
+ * @return true  if and only if an element is removed.
+**/
+
+	public boolean remove(E value) {
+		int p = positionOf(value);
+		if (p == NOT_FOUND)
+			return false;
+		removeRange(p, p);
+		return true;
+	}
+
+/**
+ * Removes the elements at positions <code>fromPos</code>, ..., <code>toPos</code>.
+ * Each removed node is redirected to the element preceding the removed range.
+ * @param fromPos the first position to be removed
+ * @param toPos the last position to be removed
+ * @throws PositionOutOfBoundsException either of the arguments
+ * is not a valid position
+ * @throws IllegalArgumentException <code>fromPos</code> is greater
+ * than <code>toPos</code>
+**/
+
+	@SuppressWarnings("unchecked")
+
+	public void removeRange(int fromPos, int toPos) {
+		if (fromPos < 0 || toPos >= size)
+			throw new PositionOutOfBoundsException();
+		if (fromPos > toPos)
+			throw new IllegalArgumentException();
+		TreeNode<E> x = nodeAt(fromPos);
+		TreeNode<E> predecessor = predecessor(x);  //predecessor for all removed elements
+		if (predecessor == null)
+			predecessor = FORE_NODE;
+		for (int p = fromPos; p <= toPos; p++) {   //preserve RedirectChain
+			TreeNode<E> next = successor(x);
+			detach(x);
+			x.redirect = predecessor;
+			x = next;
+		}
+	}
+
+/**
+ * Removes all elements from the collection.
+**/
+
+	public void clear() {
+		if (!isEmpty())
+			removeRange(0, getSize()-1);
+	}
+
+/**
+ * Since access by position takes logarithmic time, the spliterator
+ * splits the range of positions at the middle.
+ * @return a spliterator over the elements of this collection
+**/
+
+	public Spliterator<E> spliterator() {
+		return new PositionSpliterator(0, size);
+	}
+
+/**
+ * @return a new
+ * tracker that is initialized to  be logically just
+ * before the first element in the collection.
+**/
+
+	@SuppressWarnings("unchecked")  //FORE_NODE holds no element
+	public PositionalCollectionLocator<E> iterator() {
+		return new Tracker(FORE_NODE);
+	}
+
+/**
+ * @return a new tracker that is initialized to
+ * be logically just after the last element in the collection
+**/
+
+	@SuppressWarnings("unchecked")  //AFT_NODE holds no element
+	public PositionalCollectionLocator<E> iteratorAtEnd() {
+		return new Tracker(AFT_NODE);
+	}
+
+/**
+ * Returns a new tracker that is at the given position.
+ * @param pos the user position of an element
+ * @throws NoSuchElementException the given position is not a valid user position.
+**/
+
+	public PositionalCollectionLocator<E> iteratorAt(int pos) {
+		if (pos < 0 || pos >= size)
+			throw new NoSuchElementException();
+		return new Tracker(nodeAt(pos));
+	}
+
+/**
+ * @param value the target
+ * @return a tracker initialized to the position of the first
+ * element in the collection equivalent to <code>value</code>
+ * @throws NoSuchElementException <code>value</code> does not occur in the collection
+**/
+
+	public PositionalCollectionLocator<E> getLocator(E value) {
+		int position = positionOf(value);
+		if (position == NOT_FOUND)
+			throw new NoSuchElementException();
+		return new Tracker(nodeAt(position));
+	}
+
+/**
+ * @return an array holding the nodes in positional order.  Its
+ * <code>insertionsort</code> method, which bucket sort uses to complete the
+ * sort, compares nodes by their elements.
+**/
+
+	@SuppressWarnings("unchecked")
+
+	Array<Object> nodesToArray() {
+		Array<Object> nodes = new Array<Object>(size) {
+			public void insertionsort() {
+				insertionsort(getSorter(Objects.DEFAULT_COMPARATOR));
+			}
+		};
+		for (TreeNode<E> x = (root == null) ? null : first(root); x != null; x = successor(x))
+			nodes.add(x);
+		return nodes;
+	}
+
+/**
+ * Replaces the tree by a perfectly balanced tree holding the given nodes in order.
+ * Since the nodes themselves are moved, the trackers continue to track their
+ * elements.  All trackers are invalidated for iteration.
+ * @param nodes the nodes of the collection in their new order
+**/
+
+	@SuppressWarnings("unchecked")
+
+	void rebuild(Array<Object> nodes) {
+		root = build(nodes, 0, nodes.getSize() - 1, null);
+		version.increment();   //invalidate all trackers for iteration
+	}
+
+	@SuppressWarnings("unchecked")
+
+	TreeNode<E> build(Array<Object> nodes, int from, int to, TreeNode<E> parent) {
+		if (from > to)
+			return null;
+		int mid = (from + to) >>> 1;
+		TreeNode<E> x = (TreeNode<E>) nodes.read(mid);
+		x.parent = parent;
+		x.left = build(nodes, from, mid - 1, x);
+		x.right = build(nodes, mid + 1, to, x);
+		update(x);
+		return x;
+	}
+
+/**
+ * @param comp the comparator to use for the elements
+ * @return a comparator defined over nodes for use by the
+ * sorting algorithms
+**/
+
+	@SuppressWarnings("rawtypes")  //the nodes are sorted within an Array<Object>
+	private Comparator getSorter(final Comparator<? super E> comp) {
+		return new Comparator<TreeNode<E>>() {  //anonymous comparator over nodes
+			public int compare(TreeNode<E> a, TreeNode<E> b) {
+				return comp.compare(a.data, b.data);
+			}
+		};
+	}
+
+	public void insertionsort() {
+		insertionsort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	@SuppressWarnings("unchecked")
+
+	public void insertionsort(Comparator<? super E> comp) {
+		Array<Object> nodes = nodesToArray();
+		nodes.insertionsort(getSorter(comp));
+		rebuild(nodes);
+	}
+
+	public void mergesort() {
+		mergesort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	@SuppressWarnings("unchecked")
+
+	public void mergesort(Comparator<? super E> comp) {
+		Array<Object> nodes = nodesToArray();
+		nodes.mergesort(getSorter(comp));
+		rebuild(nodes);
+	}
+
+	public void heapsort() {
+		heapsort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	@SuppressWarnings("unchecked")
+
+	public void heapsort(Comparator<? super E> comp) {
+		Array<Object> nodes = nodesToArray();
+		nodes.heapsort(getSorter(comp));
+		rebuild(nodes);
+	}
+
+	public void treesort() {
+		treesort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	@SuppressWarnings("unchecked")
+
+	public void treesort(Comparator<? super E> comp) {
+		Array<Object> nodes = nodesToArray();
+		nodes.treesort(getSorter(comp));
+		rebuild(nodes);
+	}
+
+	public void quicksort() {
+		quicksort(Objects.DEFAULT_COMPARATOR);
+	}
+
+	@SuppressWarnings("unchecked")
+
+	public void quicksort(Comparator<? super E> comp) {
+		Array<Object> nodes = nodesToArray();
+		nodes.quicksort(getSorter(comp));
+		rebuild(nodes);
+	}
+
+	public E repositionElementByRank(int r) {
+		return repositionElementByRank(r, Objects.DEFAULT_COMPARATOR);
+	}
+
+	@SuppressWarnings("unchecked")
+
+	public E repositionElementByRank(int r, Comparator<? super E> comp) {
+		if (isEmpty() || r < 0 || r >= getSize())
+			throw new NoSuchElementException();
+		Array<Object> nodes = nodesToArray();
+		TreeNode<E> x = (TreeNode<E>) nodes.repositionElementByRank(r, getSorter(comp));
+		rebuild(nodes);
+		return x.data;
+	}
+
+/**
+ * @param digitizer the digitizer to use for the elements
+ * @return a digitizer defined over nodes for use by
+ * radix sort
+**/
+
+	@SuppressWarnings("rawtypes")  //the nodes are sorted within an Array<Object>
+	private Digitizer getNodeDigitizer(final Digitizer<? super E> digitizer) {
+		return new Digitizer<TreeNode<E>>() {  //anonymous node digitizer class
+			public int getDigit(TreeNode<E> x, int place) {
+				return digitizer.getDigit(x.data, place);
+			}
+			public int getBase() {
+				return digitizer.getBase();
+			}
+			public boolean isPrefixFree() {
+				return digitizer.isPrefixFree();
+			}
+			public int numDigits(TreeNode<E> x) {
+				return digitizer.numDigits(x.data);
+			}
+			public String formatDigit(TreeNode<E> x, int place) {
+				return digitizer.formatDigit(x.data, place);
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+
+	public void radixsort(Digitizer<? super E> digitizer) {
+		Array<Object> nodes = nodesToArray();
+		nodes.radixsort(getNodeDigitizer(digitizer));
+		rebuild(nodes);
+	}
+
+/**
+ * @param bucketizer the bucketizer to use for the elements
+ * @return a bucketizer defined over nodes for use by
+ * bucket sort.
+**/
+
+	@SuppressWarnings("rawtypes")  //the nodes are sorted within an Array<Object>
+	private Bucketizer getNodeBucketizer(final Bucketizer<? super E> bucketizer) {
+		return new Bucketizer<TreeNode<E>>() {
+			public int getBucket(TreeNode<E> x) {
+				return bucketizer.getBucket(x.data);
+			}
+			public int getNumBuckets() {
+				return bucketizer.getNumBuckets();
+			}
+			public int compare(TreeNode<E> a, TreeNode<E> b) {
+				return bucketizer.compare(a.data, b.data);
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+
+	public void bucketsort(Bucketizer<? super E> bucketizer) {
+		Array<Object> nodes = nodesToArray();
+		nodes.bucketsort(getNodeBucketizer(bucketizer));
+		rebuild(nodes);
+	}
+
+
+	protected class Tracker extends AbstractCollection<E>.AbstractLocator<E>
+		implements PositionalCollectionLocator<E> {
+
+		protected TreeNode<E> trackedNode;
+
+/**
+ * @param toTrack the node to track.
+ * @throws IllegalArgumentException the property TracksElement would be violated
+**/
+
+		protected Tracker(TreeNode<E> toTrack) {
+			if (toTrack == null)
+				throw new IllegalArgumentException();
+			this.trackedNode = toTrack;
+		}
+
+/**
+ * @return true  if and only if
+ * the tracked element is currently in the collection
+**/
+
+		public boolean inCollection() {
+			if (trackedNode == FORE_NODE || trackedNode == AFT_NODE)
+				return false;
+			return trackedNode.redirect == null;
+		}
+
+/**
+ * @return the tracked element
+ * @throws NoSuchElementException the tracker is not at an element
+ * in the collection.
+**/
+
+		public E get() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return trackedNode.data;
+		}
+
+/**
+ * @param element the element to store at the current tracker location.
+ * @return the element that had been stored at the tracker location
+ * @throws NoSuchElementException the tracker is not at an element in
+ * the collection
+**/
+
+		public E set(E element) {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			E oldElement = trackedNode.data;
+			trackedNode.data = element;
+			return oldElement;
+		}
+
+/**
+ * @return the position of the tracker, computed in logarithmic time
+ * @throws NoSuchElementException the tracker is not at an
+ * element in the collection
+**/
+
+		public int getCurrentPosition() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return positionOf(trackedNode);
+		}
+
+/**
+ * @param ptr reference to a node
+ * @return the first element still in the
+ * collection that is reached when following the <code>redirect</code>
+ * pointers.
+**/
+
+		private TreeNode<E> skipRemovedElements(TreeNode<E> ptr) {
+			if (ptr.redirect == null)
+				return ptr;
+			if (ptr.redirect.redirect != null) //for efficiency
+				ptr.redirect = skipRemovedElements(ptr.redirect);
+			return ptr.redirect;
+		}
+
+/**
+ * <BR>
+ * REQUIRES:
+ *  that <code>trackedNode</code> is not at <code>AFT_NODE</code>
+ * @return a reference
+ * to the next node in the collection
+**/
+
+		@SuppressWarnings("unchecked")
+
+		private TreeNode<E> nextCollectionElement() {
+			if (trackedNode.redirect != null)  //tracked node not in collection
+				trackedNode = skipRemovedElements(trackedNode);
+			TreeNode<E> next;
+			if (trackedNode == FORE_NODE)
+				next = (root == null) ? null : first(root);
+			else
+				next = successor(trackedNode);
+			return (next == null) ? AFT_NODE : next;
+		}
+
+/**
+ * <BR>
+ * REQUIRES:
+ * <code>trackedNode</code> is not at <code>FORE_NODE</code>
+ * @return a reference
+ * to the previous node in the collection
+**/
+
+		@SuppressWarnings("unchecked")
+
+		TreeNode<E> prevCollectionElement() {
+			if (trackedNode.redirect != null)
+				return skipRemovedElements(trackedNode);
+			TreeNode<E> prev;
+			if (trackedNode == AFT_NODE)
+				prev = (root == null) ? null : last(root);
+			else
+				prev = predecessor(trackedNode);
+			return (prev == null) ? FORE_NODE : prev;
+		}
+
+/**
+ * Moves the tracker to the next position
+ * @return true  if and only if the tracker has not reached AFT
+ * @throws AtBoundaryException the tracker is at AFT, since there is
+ * no place to advance.
+**/
+
+		public boolean advance() throws ConcurrentModificationException {
+			if (trackedNode == AFT_NODE)
+				throw new AtBoundaryException("Already at end.");
+			checkValidity();   //throw ConcurrentModificationException if tracker invalidated
+			trackedNode = nextCollectionElement();
+			return trackedNode != AFT_NODE;
+		}
+
+/**
+ * Moves the tracker to the previous position
+ * @return true  if and only if the tracker has not reached FORE.
+ * @throws AtBoundaryException the tracker is at FORE, since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() throws ConcurrentModificationException {
+			if (trackedNode == FORE_NODE)
+				throw new AtBoundaryException("Already before front.");
+			checkValidity();  //throw ConcurrentModificationException if tracker invalidated
+			trackedNode = prevCollectionElement();
+			return trackedNode != FORE_NODE;
+		}
+
+/**
+ * @return true  if there is some element after the current tracker position.
+**/
+
+		public boolean hasNext() throws ConcurrentModificationException {
+			checkValidity();  //throw ConcurrentModificationException if tracker invalidated
+			return (trackedNode != AFT_NODE && nextCollectionElement() != AFT_NODE);
+		}
+
+/**
+ * Adds to the collection after the tracker location
+ * If the tracker is between positions <code>p-1</code>, and <code>p</code> then
+ * the new element is inserted at position <code>p</code>.
+ * @param e the element to be added
+ * @return a tracker for the new element
+ * @throws AtBoundaryException the tracker is at AFT
+**/
+
+		public PositionalCollectionLocator<E> addAfter(E e) {
+			if (trackedNode == AFT_NODE)
+				throw new AtBoundaryException("can't add past the end");
+			TreeNode<E> t = trackedNode;
+			if (t.redirect != null)
+				t = prevCollectionElement();
+			int pos = (t == FORE_NODE) ? 0 : positionOf(t) + 1;  //position to add new element
+			return addTracked(pos, e);
+		}
+
+/**
+ * Removes the element at the tracker and updates the tracker to be between
+ * its current position and the one before it.
+ * @throws NoSuchElementException the tracker is not at a valid position
+ * in the collection
+**/
+
+		public void remove() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			int p = positionOf(trackedNode);
+			TrackedTreeList.this.removeRange(p, p);
+		}
+
+/**
+ * @param tracker the tracker to be checked for equality
+ * @return true  if the given tracker refers to the same element in this collection
+**/
+
+		public boolean equals(Object tracker) {
+			return ((tracker instanceof TrackedTreeList.Tracker) &&
+					trackedNode == ((TrackedTreeList.Tracker) tracker).trackedNode);
+		}
+
+/**
+ * @return a hash code consistent with <code>equals</code>, based on
+ * the identity of the tracked element
+**/
+
+		public int hashCode() {
+			return System.identityHashCode(trackedNode);
+		}
+	}
+}
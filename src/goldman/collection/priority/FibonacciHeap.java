@@ -7,6 +7,7 @@ package goldman.collection.priority;
 import java.util.Arrays;
 import java.util.Comparator;
 import goldman.Objects;
+import goldman.Pool;
 import goldman.collection.Tracked;
 import static java.lang.Math.*;
 /**
@@ -51,6 +52,16 @@ public class FibonacciHeap<E> extends PairingHeap<E> implements
 			parent = null;       //satisfies Parent for a root
 		}
 
+/**
+ * Returns a recycled node to the state of a newly created node.
+ * @param element the element to be held in this node
+**/
+
+		void reuse(E element) {
+			super.reuse(element);
+			degree = 0;
+		}
+
 /**
  * @param newChild a reference
  * to the heap node to be added as a child of this node
@@ -112,6 +123,21 @@ public class FibonacciHeap<E> extends PairingHeap<E> implements
 		return new FibonacciHeapNode<E>(element);
 	}
 
+/**
+ * @param maxRetained the maximum number of heap nodes retained in the shared
+ * portion of the pool
+ * @return a thread-safe pool of heap nodes that can be shared by any number of
+ * Fibonacci heaps
+**/
+
+	public static <E> Pool<HeapNode<E>> createNodePool(int maxRetained) {
+		return new Pool<HeapNode<E>>(maxRetained) {
+			protected HeapNode<E> create() {
+				return new FibonacciHeapNode<E>(null);
+			}
+		};
+	}
+
 /**
  * Removes T(x) from its current position, and adds it to
  * the root chain.
@@ -340,6 +366,7 @@ public class FibonacciHeap<E> extends PairingHeap<E> implements
 		x.markDeleted();           //preserve Removed
 		x.prev.setNext(x.next);    //preserve IterationList
 		size--;                    //preserve Size
+		retire(x);
 		return x.element;
 	}
 
@@ -7,6 +7,7 @@ package goldman.collection.priority;
 import java.util.Comparator;
 import java.util.NoSuchElementException;
 import goldman.Objects;
+import goldman.Pool;
 import goldman.collection.AbstractCollection;
 import goldman.collection.AtBoundaryException;
 import goldman.collection.Tracked;
@@ -39,9 +40,11 @@ public class PairingHeap<E> extends AbstractCollection<E> implements
 	final HeapNode<E> FORE = new HeapNode<E>(null);
 	final HeapNode<E> AFT = new HeapNode<E>(null); 
 	Queue<HeapNode<E>> detached = new Queue<HeapNode<E>>();  
+	Pool<HeapNode<E>> nodePool = null; //optional pool for recycling heap nodes
+	HeapNode<E> retired = null;  //most recently removed node, not yet released to the pool
 
 
-	static class HeapNode<E> {
+	public static class HeapNode<E> {
 
 		E element;
 		HeapNode<E> child;  //reference to the leftmost child
@@ -70,6 +73,17 @@ public class PairingHeap<E> extends AbstractCollection<E> implements
 			sibR = null; //satisfy SiblingChain
 		}
 
+/**
+ * Returns a recycled node to the state of a newly created node.
+ * @param element the element to be held in this node
+**/
+
+		void reuse(E element) {
+			this.element = element;
+			child = null;
+			makeRoot();
+		}
+
 /**
  * @param ptr a reference to the heap
  * node that is to be placed left of this node in the sibling chain
@@ -209,6 +223,68 @@ public class PairingHeap<E> extends AbstractCollection<E> implements
 		return new HeapNode<E>(value);
 	}
 
+/**
+ * @param value the desired element
+ * @return a heap node holding the given element, taken from the node pool
+ * when one is in use
+**/
+
+	final HeapNode<E> allocateHeapNode(E value) {
+		if (nodePool == null)
+			return newHeapNode(value);
+		HeapNode<E> x = nodePool.allocate();
+		x.reuse(value);
+		return x;
+	}
+
+/**
+ * @param maxRetained the maximum number of heap nodes retained in the shared
+ * portion of the pool
+ * @return a thread-safe pool of heap nodes that can be shared by any number of
+ * pairing heaps
+**/
+
+	public static <E> Pool<HeapNode<E>> createNodePool(int maxRetained) {
+		return new Pool<HeapNode<E>>(maxRetained) {
+			protected HeapNode<E> create() {
+				return new HeapNode<E>(null);
+			}
+		};
+	}
+
+/**
+ * Opts into recycling heap nodes through the given pool.  Each removed
+ * heap node is released to the pool once the next one is removed, so a tracker that has
+ * just removed its element can still advance.
+ * @param pool a pool created by <code>createNodePool</code> of this class,
+ * or null to stop recycling heap nodes
+ * <BR>
+ * REQUIRES:
+ *  no tracker is used once the element it tracks has been removed, other than to
+ * advance the tracker that removed it before any other element is removed.
+**/
+
+	public void setNodePool(Pool<HeapNode<E>> pool) {
+		if (retired != null && nodePool != null)
+			nodePool.release(retired);
+		retired = null;
+		nodePool = pool;
+	}
+
+/**
+ * Releases the previously removed heap node to the node pool (if any), and
+ * holds <code>x</code> until the next heap node is removed.
+ * @param x a heap node that has just been removed
+**/
+
+	void retire(HeapNode<E> x) {
+		if (nodePool != null) {
+			if (retired != null)
+				nodePool.release(retired);
+			retired = x;
+		}
+	}
+
 /**
  * @return a highest priority element
  * @throws NoSuchElementException this pairing heap is empty
@@ -288,7 +364,7 @@ public class PairingHeap<E> extends AbstractCollection<E> implements
 **/
 
 	HeapNode<E> insert(E element) {
-		HeapNode<E> x = newHeapNode(element);
+		HeapNode<E> x = allocateHeapNode(element);
 		mergeWithRoot(x);
 		AFT.prev.setNext(x);     //preserve IterationList by
 		x.setNext(AFT);          //adding new node just before AFT
@@ -434,6 +510,7 @@ public class PairingHeap<E> extends AbstractCollection<E> implements
 		x.markDeleted();             //preserve Removed
 		x.prev.setNext(x.next);      //preserve IterationList
 		size--;                         //preserve Size
+		retire(x);
 		return x.element;
 	}
 
@@ -11,6 +11,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import goldman.collection.Locator;
 /**
  * This data structure provides excellent performance, but
@@ -222,6 +224,68 @@ public class DirectAddressing<E> extends AbstractCollection<E> implements Set<E>
 		return new Marker(FORE);
 	}
 
+/**
+ * A slot spliterator traverses the slots <code>slot</code>, ...,
+ * <code>fence</code>-1 of the table, and splits the range of slots at the middle.
+ * The number of elements is only known exactly before the first split.
+**/
+
+	protected class SlotSpliterator extends AbstractSpliterator {
+
+		Object[] table = DirectAddressing.this.table;
+		int slot;        //next slot to check
+		int fence;       //one past the last slot
+		long estimate;   //estimated number of remaining elements
+
+		SlotSpliterator(int origin, int fence, long estimate, int characteristics) {
+			super(characteristics);
+			slot = origin;
+			this.fence = fence;
+			this.estimate = estimate;
+		}
+
+		@SuppressWarnings("unchecked")
+
+		public boolean tryAdvance(Consumer<? super E> action) {
+			checkValidity();
+			while (slot < fence)
+				if (inUse(slot++)) {
+					action.accept((E) table[slot-1]);
+					return true;
+				}
+			return false;
+		}
+
+		public void forEachRemaining(Consumer<? super E> action) {
+			while (tryAdvance(action));
+		}
+
+		public SlotSpliterator trySplit() {
+			int mid = (slot + fence) >>> 1;
+			if (mid <= slot)
+				return null;
+			characteristics &= ~SIZED;
+			estimate >>>= 1;
+			SlotSpliterator prefix = new SlotSpliterator(slot, mid, estimate, characteristics);
+			prefix.versionNumber = versionNumber;
+			slot = mid;
+			return prefix;
+		}
+
+		public long estimateSize() {
+			return estimate;
+		}
+	}
+
+/**
+ * The spliterator splits the table into ranges of slots.
+ * @return a spliterator over the elements of this set
+**/
+
+	public Spliterator<E> spliterator() {
+		return new SlotSpliterator(0, table.length, getSize(), Spliterator.DISTINCT | Spliterator.SIZED);
+	}
+
 /**
  * @param value the target
  * @return a marker initialized at an equivalent
@@ -8,6 +8,9 @@ import java.util.Arrays;
 import java.util.Comparator;
 import static goldman.Objects.*;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import goldman.Pool;
 import goldman.collection.AtBoundaryException;
 import goldman.collection.AbstractCollection;
 import goldman.collection.Locator;
@@ -40,9 +43,10 @@ public class SeparateChaining<E> extends AbstractCollection<E> implements Set<E>
 	int lowWaterMark; // min value for size (unless smaller than minCapacity)
 	int highWaterMark; // max value for size
 	Hasher<? super E> hasher;  // for computing hash codes and the new table size
+	Pool<ChainItem<E>> nodePool = null; // optional pool for recycling chain items
 
 
-	static class ChainItem<E> {
+	public static class ChainItem<E> {
 
 		E element;  //element in the collection
 		ChainItem<E> next;  //pointer to next item in the chain
@@ -194,6 +198,63 @@ public class SeparateChaining<E> extends AbstractCollection<E> implements Set<E>
 	
 
 
+/**
+ * @param element the element to store in the chain item
+ * @param next a reference to the next item
+ * @return a chain item holding <code>element</code>, taken from the node pool
+ * when one is in use
+**/
+
+	ChainItem<E> newChainItem(E element, ChainItem<E> next) {
+		if (nodePool == null)
+			return new ChainItem<E>(element, next);
+		ChainItem<E> item = nodePool.allocate();
+		item.element = element;
+		item.next = next;
+		return item;
+	}
+
+/**
+ * Marks the chain item as deleted and, when a node pool is in use,
+ * releases it to the pool.
+ * @param item a chain item that has just been removed from its chain
+**/
+
+	void retire(ChainItem<E> item) {
+		item.markDeleted();          //preserve InUse
+		if (nodePool != null)
+			nodePool.release(item);
+	}
+
+/**
+ * @param maxRetained the maximum number of chain items retained in the shared
+ * portion of the pool
+ * @return a thread-safe pool of chain items that can be shared by any number of
+ * separate chaining sets.  Released chain items do not retain their elements.
+**/
+
+	public static <E> Pool<ChainItem<E>> createNodePool(int maxRetained) {
+		return new Pool<ChainItem<E>>(maxRetained) {
+			protected ChainItem<E> create() {
+				return new ChainItem<E>(null, null);
+			}
+			protected void reset(ChainItem<E> item) {
+				item.element = null;
+			}
+		};
+	}
+
+/**
+ * Opts into recycling chain items through the given pool.
+ * @param pool a pool created by <code>createNodePool</code>, or null to stop
+ * recycling chain items
+**/
+
+	public void setNodePool(Pool<ChainItem<E>> pool) {
+		nodePool = pool;
+	}
+
+
 	public static final double A = (Math.sqrt(5.0)-1)/2;
 
 /**
@@ -256,11 +317,14 @@ public class SeparateChaining<E> extends AbstractCollection<E> implements Set<E>
 		if (hasher.getTableSize(desiredCapacity, targetLoad) != table.length) {
 			SeparateChaining<E> newTable =
 				new SeparateChaining<E>(desiredCapacity, targetLoad, comp, hasher);
-			Locator<E> loc = this.iterator();  //iterate through all elements
-			while (loc.advance()) {
-				E e = loc.get();                         //get next element
-				int slot = newTable.hash(hasher.getHashCode(e));  //place at front of its chain
-				newTable.table[slot] = new ChainItem<E>(e,newTable.table[slot]); 
+			for (ChainItem<E> ptr : table) {   //relink each chain item into the new table
+				while (ptr != null) {
+					ChainItem<E> next = ptr.next;
+					int slot = newTable.hash(hasher.getHashCode(ptr.element));  //place at front of its chain
+					ptr.next = newTable.table[slot];
+					newTable.table[slot] = ptr;
+					ptr = next;
+				}
 			}
 			this.table = newTable.table;
 			version.increment();   //invalidate all active locators
@@ -345,7 +409,7 @@ public class SeparateChaining<E> extends AbstractCollection<E> implements Set<E>
 		} 
 		else {
 			int slot = hash(hasher.getHashCode(element));  //place new element at front of
-			table[slot] = new ChainItem<E>(element,table[slot]); //appropriate chain
+			table[slot] = newChainItem(element,table[slot]); //appropriate chain
 			size++;
 			growTableAsNeeded();
 		}
@@ -356,6 +420,13 @@ public class SeparateChaining<E> extends AbstractCollection<E> implements Set<E>
 **/
 
 	public void clear() {
+		if (nodePool != null)                   //recycle all chain items
+			for (ChainItem<E> ptr : table)
+				while (ptr != null) {
+					ChainItem<E> next = ptr.next;
+					retire(ptr);
+					ptr = next;
+				}
 		Arrays.fill(table, 0, table.length, null);  //preserve Placement
 		size = 0;              //preserve Size
 		shrinkTableAsNeeded(); //preserve Proportionality and MinCapacity
@@ -388,7 +459,7 @@ public class SeparateChaining<E> extends AbstractCollection<E> implements Set<E>
 		}
 		if (toRemove != null) {	 //if found perform needed updates
 			size--;                  //preserve Size
-			toRemove.markDeleted();  //preserve InUse
+			retire(toRemove);        //preserve InUse
 			shrinkTableAsNeeded();   //preserve Proportionality and MinCapacity
 			return true;          
 		}
@@ -403,6 +474,69 @@ public class SeparateChaining<E> extends AbstractCollection<E> implements Set<E>
 		return new Marker(FORE);
 	}
 
+/**
+ * A chain spliterator traverses the chains in the slots <code>slot</code>,
+ * ..., <code>fence</code>-1 of the table, and splits the range of slots at the
+ * middle.  The number of elements is only known exactly before the first split.
+**/
+
+	protected class ChainSpliterator extends AbstractSpliterator {
+
+		ChainItem<E>[] table = SeparateChaining.this.table;
+		ChainItem<E> item = null;  //next item in the current chain
+		int slot;                  //next slot to check
+		int fence;                 //one past the last slot
+		long estimate;             //estimated number of remaining elements
+
+		ChainSpliterator(int origin, int fence, long estimate, int characteristics) {
+			super(characteristics);
+			slot = origin;
+			this.fence = fence;
+			this.estimate = estimate;
+		}
+
+		public boolean tryAdvance(Consumer<? super E> action) {
+			checkValidity();
+			while (item == null && slot < fence)
+				item = table[slot++];
+			if (item == null)
+				return false;
+			E element = item.element;
+			item = item.next;
+			action.accept(element);
+			return true;
+		}
+
+		public void forEachRemaining(Consumer<? super E> action) {
+			while (tryAdvance(action));
+		}
+
+		public ChainSpliterator trySplit() {
+			int mid = (slot + fence) >>> 1;
+			if (item != null || mid <= slot)  //only split at the start of a chain
+				return null;
+			characteristics &= ~SIZED;
+			estimate >>>= 1;
+			ChainSpliterator prefix = new ChainSpliterator(slot, mid, estimate, characteristics);
+			prefix.versionNumber = versionNumber;
+			slot = mid;
+			return prefix;
+		}
+
+		public long estimateSize() {
+			return estimate;
+		}
+	}
+
+/**
+ * The spliterator splits the table into ranges of slots.
+ * @return a spliterator over the elements of this set
+**/
+
+	public Spliterator<E> spliterator() {
+		return new ChainSpliterator(0, table.length, getSize(), Spliterator.DISTINCT | Spliterator.SIZED);
+	}
+
 /**
  * @param element the target
  * @return a marker initialized to the first equivalent
@@ -585,7 +719,7 @@ public class SeparateChaining<E> extends AbstractCollection<E> implements Set<E>
 				chainLoc.next = chainLoc.next.next;  //remove it
 			}
 			shrinkTableAsNeeded();    //preserve Proportionality
-			toRemove.markDeleted();   //preserve InUse
+			retire(toRemove);         //preserve InUse
 			size--;                   //preserve Size
 			updateVersion();          //ensures that this locator is still valid
 		}
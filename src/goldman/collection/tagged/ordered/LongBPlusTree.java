@@ -0,0 +1,1106 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.tagged.ordered;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import goldman.collection.AtBoundaryException;
+import goldman.collection.Collection;
+import goldman.collection.Locator;
+import goldman.collection.Version;
+import goldman.collection.VisitAbortedException;
+import goldman.collection.Visitor;
+import goldman.collection.positional.Array;
+import goldman.collection.tagged.TaggedCollection;
+import goldman.collection.tagged.TaggedElement;
+/**
+ * A B+-tree of tagged elements whose tags are <code>long</code> values.  It
+ * provides the methods of a <code>TaggedBPlusTree</code> with <code>Long</code>
+ * tags, along with methods that take and return <code>long</code> tags, so that
+ * a search neither boxes the tag nor calls a comparator.  Each node holds its
+ * tags in a <code>long[]</code>, and each leaf holds the associated elements in
+ * a parallel array.  Within a node, the search is a binary search whose only
+ * branch is the loop test: each step selects the next index with a conditional
+ * expression, which the compiler turns into a conditional move, so the
+ * processor never mispredicts which half holds the target.
+ * <p>
+ * As in a B+-tree, the leaves form a sorted list, and each internal node
+ * holds, for each pair of consecutive children, a tag that is at least as large
+ * as every tag in the left child and no larger than any tag in the right child.
+ * Several tagged elements can have the same tag.
+**/
+
+public class LongBPlusTree<V> implements TaggedOrderedCollection<Long,V> {
+
+	public static final int DEFAULT_ORDER = 32;
+
+
+/**
+ * A visitor for the tagged elements in a range, which receives each tag
+ * without boxing it.
+**/
+
+	public interface EntryVisitor<V> {
+		public void visit(long tag, V element) throws Exception;
+	}
+
+
+	final int t;         //min branching factor
+	int size = 0;        //the number of tagged elements
+	Node root;
+	final Node FORE;     //sentinel leaf before the first leaf
+	final Node AFT;      //sentinel leaf after the last leaf
+	int curIndex;        //index within the leaf returned by the most recent search
+	Object removed;      //element removed by the most recent call to remove(Node, long)
+	long splitTag;       //tag to add to the parent after a node splits
+	final Version version = new Version();  //keeps modification count
+
+
+	final class Node {
+
+		final long[] tags;       //tags[0], ..., tags[size-1] in sorted order
+		final Object[] elements; //the elements of a leaf, or null for an internal node
+		final Node[] children;   //the children of an internal node, or null for a leaf
+		int size;                //the number of tags in the node
+		Node prev;               //the previous leaf
+		Node next;               //the next leaf
+
+
+		@SuppressWarnings("unchecked")  //a generic array must be created from its erasure
+		Node(boolean leaf) {
+			tags = new long[2*t-1];
+			elements = leaf ? new Object[2*t-1] : null;
+			children = leaf ? null : (Node[]) new LongBPlusTree<?>.Node[2*t];
+		}
+
+
+		final boolean isLeaf() {
+			return children == null;
+		}
+
+/**
+ * @param i the index of the desired element
+ * @return the element at index i of this leaf
+**/
+
+		@SuppressWarnings("unchecked")
+		final V element(int i) {
+			return (V) elements[i];
+		}
+
+/**
+ * @param ptr a reference to the leaf node to place
+ * after this leaf node in the leaf chain
+**/
+
+		final void setNext(Node ptr) {
+			next = ptr;
+			ptr.prev = this;
+		}
+	}
+
+	public LongBPlusTree() {
+		this(DEFAULT_ORDER);
+	}
+
+/**
+ * @param t the order for the B+-tree
+ * @throws IllegalArgumentException t &lt; 2
+**/
+
+	public LongBPlusTree(int t) {
+		if (t < 2)
+			throw new IllegalArgumentException("order " + t + " is less than 2");
+		this.t = t;
+		FORE = new Node(true);
+		AFT = new Node(true);
+		clear();
+	}
+
+/**
+ * @param tags an array
+ * @param n the number of tags in use
+ * @param tag the target
+ * @return the index of the first of the first n tags that is at least
+ * <code>tag</code>, or n if there is none
+**/
+
+	static int firstAtLeast(long[] tags, int n, long tag) {
+		if (n == 0)
+			return 0;
+		int base = 0;
+		while (n > 1) {     //the answer is between base and base+n
+			int half = n >>> 1;
+			base = (tags[base + half - 1] < tag) ? base + half : base;
+			n -= half;
+		}
+		return (tags[base] < tag) ? base + 1 : base;
+	}
+
+/**
+ * @param tags an array
+ * @param n the number of tags in use
+ * @param tag the target
+ * @return the index of the first of the first n tags that is greater than
+ * <code>tag</code>, or n if there is none
+**/
+
+	static int firstGreater(long[] tags, int n, long tag) {
+		if (n == 0)
+			return 0;
+		int base = 0;
+		while (n > 1) {     //the answer is between base and base+n
+			int half = n >>> 1;
+			base = (tags[base + half - 1] <= tag) ? base + half : base;
+			n -= half;
+		}
+		return (tags[base] <= tag) ? base + 1 : base;
+	}
+
+/**
+ * This method sets <code>curIndex</code> to the index of the position in the
+ * returned leaf.
+ * @param tag the target
+ * @param after true if the position is to follow the tagged elements with tag
+ * <code>tag</code>, and false if it is to precede them
+ * @return the leaf of the first position whose tag is greater than
+ * <code>tag</code> (or at least <code>tag</code>), or AFT if there is none
+**/
+
+	Node position(long tag, boolean after) {
+		Node x = root;
+		while (!x.isLeaf())
+			x = x.children[after ? firstGreater(x.tags, x.size, tag) : firstAtLeast(x.tags, x.size, tag)];
+		int i = after ? firstGreater(x.tags, x.size, tag) : firstAtLeast(x.tags, x.size, tag);
+		if (i == x.size) {      //the position is at the start of the next leaf
+			x = x.next;
+			i = 0;
+		}
+		curIndex = i;
+		return x;
+	}
+
+/**
+ * This method sets <code>curIndex</code> to the index of the
+ * previous position in the returned leaf.
+ * @param x a leaf
+ * @param i an index in x
+ * @return the leaf holding the position before index i of x,
+ * which is FORE (with index -1) if there is none
+**/
+
+	Node back(Node x, int i) {
+		while (i == 0 && x != FORE) {   //only an empty root is skipped
+			x = x.prev;
+			i = x.size;
+		}
+		curIndex = i - 1;
+		return x;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+/**
+ * Since nodes are allocated as needed, this method does nothing.
+ * @param capacity the desired capacity
+**/
+
+	public void ensureCapacity(int capacity) { }
+
+/**
+ * Since nodes are allocated as needed, this method does nothing.
+**/
+
+	public void trimToSize() { }
+
+/**
+ * @param tag the target tag
+ * @return true  if and only if there is some tagged element in this
+ * collection with the given tag
+**/
+
+	public boolean contains(long tag) {
+		Node x = position(tag, false);
+		return x != AFT && x.tags[curIndex] == tag;
+	}
+
+	public boolean contains(Long tag) {
+		return contains(tag.longValue());
+	}
+
+/**
+ * @param tag the target tag
+ * @return the element of the first tagged element with the given tag
+ * @throws NoSuchElementException there is no element
+ * with the given tag
+**/
+
+	public V get(long tag) {
+		Node x = position(tag, false);
+		if (x == AFT || x.tags[curIndex] != tag)
+			throw new NoSuchElementException();
+		return x.element(curIndex);
+	}
+
+	public V get(Long tag) {
+		return get(tag.longValue());
+	}
+
+/**
+ * @param tag the target tag
+ * @return a locator that has been placed at the first tagged element
+ * with the given tag
+ * @throws NoSuchElementException there is no element
+ * with the given tag
+**/
+
+	public Locator<TaggedElement<Long,V>> getLocator(long tag) {
+		Node x = position(tag, false);
+		if (x == AFT || x.tags[curIndex] != tag)
+			throw new NoSuchElementException();
+		return new Marker(x, curIndex);
+	}
+
+	public Locator<TaggedElement<Long,V>> getLocator(Long tag) {
+		return getLocator(tag.longValue());
+	}
+
+/**
+ * @return the least tag in the collection
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public long minTag() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return FORE.next.tags[0];
+	}
+
+/**
+ * @return the greatest tag in the collection
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public long maxTag() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return AFT.prev.tags[AFT.prev.size-1];
+	}
+
+/**
+ * @return the first tagged element in the iteration order
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public TaggedElement<Long,V> min() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return new TaggedElement<Long,V>(FORE.next.tags[0], FORE.next.element(0));
+	}
+
+/**
+ * @return the last tagged element in the iteration order
+ * @throws NoSuchElementException the collection is empty.
+**/
+
+	public TaggedElement<Long,V> max() {
+		Node x = AFT.prev;
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return new TaggedElement<Long,V>(x.tags[x.size-1], x.element(x.size-1));
+	}
+
+/**
+ * This method does not require that <code>tag</code> is in use.
+ * @param tag the tag for which to find the predecessor
+ * @return the largest tag in the collection that is less than <code>tag</code>
+ * @throws NoSuchElementException there is no tag in the collection
+ * less than <code>tag</code>
+**/
+
+	public long predecessor(long tag) {
+		Node x = position(tag, false);
+		x = back(x, curIndex);
+		if (x == FORE)
+			throw new NoSuchElementException();
+		return x.tags[curIndex];
+	}
+
+	public Long predecessor(Long tag) {
+		return predecessor(tag.longValue());
+	}
+
+/**
+ * This method does not require that <code>tag</code> is in use.
+ * @param tag the tag for which to find the successor
+ * @return the smallest tag in the collection that is greater than <code>tag</code>
+ * @throws NoSuchElementException there is no tag in the collection
+ * greater than <code>tag</code>
+**/
+
+	public long successor(long tag) {
+		Node x = position(tag, true);
+		if (x == AFT)
+			throw new NoSuchElementException();
+		return x.tags[curIndex];
+	}
+
+	public Long successor(Long tag) {
+		return successor(tag.longValue());
+	}
+
+/**
+ * This method does not require that <code>tag</code> is in use.
+ * @param tag the target tag
+ * @return the largest tag in the collection that is at most <code>tag</code>
+ * @throws NoSuchElementException every tag in the collection is greater
+ * than <code>tag</code>
+**/
+
+	public long floor(long tag) {
+		Node x = position(tag, true);
+		x = back(x, curIndex);
+		if (x == FORE)
+			throw new NoSuchElementException();
+		return x.tags[curIndex];
+	}
+
+/**
+ * This method does not require that <code>tag</code> is in use.
+ * @param tag the target tag
+ * @return the smallest tag in the collection that is at least <code>tag</code>
+ * @throws NoSuchElementException every tag in the collection is less
+ * than <code>tag</code>
+**/
+
+	public long ceiling(long tag) {
+		Node x = position(tag, false);
+		if (x == AFT)
+			throw new NoSuchElementException();
+		return x.tags[curIndex];
+	}
+
+/**
+ * Inserts a new tagged element, which follows any tagged elements with the same tag
+ * in the iteration order.
+ * @param tag the tag for the tagged element to add
+ * @param element the associated data
+**/
+
+	public void putLong(long tag, V element) {
+		Node right = insert(root, tag, element);
+		if (right != null) {        //the root split, so create a new root
+			Node newRoot = new Node(false);
+			newRoot.tags[0] = splitTag;
+			newRoot.children[0] = root;
+			newRoot.children[1] = right;
+			newRoot.size = 1;
+			root = newRoot;
+		}
+		size++;
+		version.increment();   //invalidate all markers for iteration
+	}
+
+	public void put(Long tag, V element) {
+		putLong(tag.longValue(), element);
+	}
+
+/**
+ * @param tc the tagged collection to be added to this
+ * collection
+**/
+
+	public void putAll(TaggedCollection<Long,V> tc) {
+		for (TaggedElement<Long,V> te : tc)
+			putLong(te.getTag().longValue(), te.getElement());
+	}
+
+/**
+ * Inserts a tagged element into the subtree rooted at x.  When x is full, it
+ * is split, and the tag that separates the two halves is placed
+ * in <code>splitTag</code>.
+ * @param x the root of a subtree
+ * @param tag the tag to add
+ * @param element the associated data
+ * @return the new right sibling of x if x was split, and otherwise null
+**/
+
+	Node insert(Node x, long tag, Object element) {
+		int i = firstGreater(x.tags, x.size, tag);
+		if (x.isLeaf()) {
+			Node right = null;
+			if (x.size == 2*t-1) {              //split before adding
+				right = new Node(true);
+				moveTail(x, t, right);
+				right.setNext(x.next);          //preserve the leaf chain
+				x.setNext(right);
+				splitTag = right.tags[0];
+				if (i > t) {
+					x = right;
+					i -= t;
+				}
+			}
+			System.arraycopy(x.tags, i, x.tags, i+1, x.size-i);
+			System.arraycopy(x.elements, i, x.elements, i+1, x.size-i);
+			x.tags[i] = tag;
+			x.elements[i] = element;
+			x.size++;
+			return right;
+		}
+		Node child = insert(x.children[i], tag, element);
+		if (child == null)
+			return null;
+		long separator = splitTag;
+		Node right = null;
+		if (x.size == 2*t-1) {                  //split, moving the median tag up
+			right = new Node(false);
+			moveTail(x, t, right);
+			x.size--;                           //remove the median from x
+			long median = x.tags[t-1];
+			if (i >= t) {
+				x = right;
+				i -= t;
+			}
+			splitTag = median;
+		}
+		System.arraycopy(x.tags, i, x.tags, i+1, x.size-i);
+		System.arraycopy(x.children, i+1, x.children, i+2, x.size-i);
+		x.tags[i] = separator;
+		x.children[i+1] = child;
+		x.size++;
+		return right;
+	}
+
+/**
+ * Moves the tags (and elements or children) from index <code>from</code> on
+ * in x to the empty node <code>right</code>.  For an internal node, the child
+ * that precedes index <code>from</code> moves with them, so the caller removes
+ * the tag at index <code>from</code>-1 from x.
+ * @param x a node
+ * @param from the index of the first tag to move
+ * @param right an empty node
+**/
+
+	void moveTail(Node x, int from, Node right) {
+		int num = x.size - from;
+		System.arraycopy(x.tags, from, right.tags, 0, num);
+		if (x.isLeaf()) {
+			System.arraycopy(x.elements, from, right.elements, 0, num);
+			Arrays.fill(x.elements, from, x.size, null);
+		} else {
+			System.arraycopy(x.children, from, right.children, 0, num+1);
+			Arrays.fill(x.children, from, x.size+1, null);
+		}
+		right.size = num;
+		x.size = from;
+	}
+
+/**
+ * Removes the first tagged element with the given tag.
+ * @param tag the target tag
+ * @return the removed element
+ * @throws NoSuchElementException there is no element
+ * with the given tag
+**/
+
+	@SuppressWarnings("unchecked")
+	public V remove(long tag) {
+		if (!remove(root, tag))
+			throw new NoSuchElementException();
+		if (!root.isLeaf() && root.size == 0)   //the root has a single child
+			root = root.children[0];
+		size--;
+		version.increment();   //invalidate all markers for iteration
+		V element = (V) removed;
+		removed = null;
+		return element;
+	}
+
+	public V remove(Long tag) {
+		return remove(tag.longValue());
+	}
+
+/**
+ * Removes the first tagged element with the given tag from the subtree rooted
+ * at x, and places its element in <code>removed</code>.  Since the tags in
+ * a child are at most the tag that follows it in x, the element is in the
+ * child reached by the search unless that tag is the target, in which case
+ * the element may be in the next child.
+ * @param x the root of a subtree
+ * @param tag the target tag
+ * @return true  if and only if an element was removed
+**/
+
+	boolean remove(Node x, long tag) {
+		int i = firstAtLeast(x.tags, x.size, tag);
+		if (x.isLeaf()) {
+			if (i == x.size || x.tags[i] != tag)
+				return false;
+			removed = x.elements[i];
+			System.arraycopy(x.tags, i+1, x.tags, i, x.size-i-1);
+			System.arraycopy(x.elements, i+1, x.elements, i, x.size-i-1);
+			x.elements[--x.size] = null;
+			return true;
+		}
+		boolean found = remove(x.children[i], tag);
+		if (!found && i < x.size && x.tags[i] == tag)
+			found = remove(x.children[++i], tag);
+		if (found && x.children[i].size < t-1)
+			rebalance(x, i);
+		return found;
+	}
+
+/**
+ * Restores the minimum size of child i of x by moving a tag from a sibling
+ * that is above the minimum size, or otherwise by merging it with a sibling.
+ * @param x an internal node
+ * @param i the index of a child that has t-2 tags
+**/
+
+	void rebalance(Node x, int i) {
+		if (i > 0 && x.children[i-1].size > t-1)
+			shiftRight(x, i-1);
+		else if (i < x.size && x.children[i+1].size > t-1)
+			shiftLeft(x, i);
+		else if (i > 0)
+			merge(x, i-1);
+		else
+			merge(x, i);
+	}
+
+/**
+ * Moves the last tag of child i of x to child i+1.
+ * @param x an internal node
+ * @param i the index of the left child
+**/
+
+	void shiftRight(Node x, int i) {
+		Node left = x.children[i];
+		Node right = x.children[i+1];
+		System.arraycopy(right.tags, 0, right.tags, 1, right.size);
+		if (left.isLeaf()) {
+			System.arraycopy(right.elements, 0, right.elements, 1, right.size);
+			right.tags[0] = left.tags[left.size-1];
+			right.elements[0] = left.elements[left.size-1];
+			left.elements[left.size-1] = null;
+			x.tags[i] = right.tags[0];
+		} else {
+			System.arraycopy(right.children, 0, right.children, 1, right.size+1);
+			right.tags[0] = x.tags[i];
+			right.children[0] = left.children[left.size];
+			left.children[left.size] = null;
+			x.tags[i] = left.tags[left.size-1];
+		}
+		left.size--;
+		right.size++;
+	}
+
+/**
+ * Moves the first tag of child i+1 of x to child i.
+ * @param x an internal node
+ * @param i the index of the left child
+**/
+
+	void shiftLeft(Node x, int i) {
+		Node left = x.children[i];
+		Node right = x.children[i+1];
+		if (left.isLeaf()) {
+			left.tags[left.size] = right.tags[0];
+			left.elements[left.size] = right.elements[0];
+			System.arraycopy(right.elements, 1, right.elements, 0, right.size-1);
+			right.elements[right.size-1] = null;
+			System.arraycopy(right.tags, 1, right.tags, 0, right.size-1);
+			x.tags[i] = right.tags[0];
+		} else {
+			left.tags[left.size] = x.tags[i];
+			left.children[left.size+1] = right.children[0];
+			x.tags[i] = right.tags[0];
+			System.arraycopy(right.tags, 1, right.tags, 0, right.size-1);
+			System.arraycopy(right.children, 1, right.children, 0, right.size);
+			right.children[right.size] = null;
+		}
+		left.size++;
+		right.size--;
+	}
+
+/**
+ * Merges child i+1 of x into child i, and removes the tag that separated them
+ * from x.
+ * @param x an internal node
+ * @param i the index of the left child
+**/
+
+	void merge(Node x, int i) {
+		Node left = x.children[i];
+		Node right = x.children[i+1];
+		if (left.isLeaf()) {
+			System.arraycopy(right.tags, 0, left.tags, left.size, right.size);
+			System.arraycopy(right.elements, 0, left.elements, left.size, right.size);
+			left.size += right.size;
+			left.setNext(right.next);        //preserve the leaf chain
+		} else {
+			left.tags[left.size] = x.tags[i];
+			System.arraycopy(right.tags, 0, left.tags, left.size+1, right.size);
+			System.arraycopy(right.children, 0, left.children, left.size+1, right.size+1);
+			left.size += right.size + 1;
+		}
+		System.arraycopy(x.tags, i+1, x.tags, i, x.size-i-1);
+		System.arraycopy(x.children, i+2, x.children, i+1, x.size-i-1);
+		x.children[x.size--] = null;
+	}
+
+/**
+ * Removes all elements from this collection.
+**/
+
+	public void clear() {
+		root = new Node(true);
+		FORE.setNext(root);
+		root.setNext(AFT);
+		size = 0;
+		version.increment();   //invalidate all markers for iteration
+	}
+
+/**
+ * @param tag a tag
+ * @param hi the upper end of a range
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return true  if and only if <code>tag</code> is within the upper end of the range
+**/
+
+	static boolean below(long tag, long hi, boolean hiInclusive) {
+		return tag < hi || (hiInclusive && tag == hi);
+	}
+
+/**
+ * A range cursor visits the tagged elements in a range, in sorted order
+ * or in reverse sorted order, without boxing the tags.  Since it holds the
+ * positions of both ends of the range, it compares no tags once it is placed,
+ * and it does not allocate.  Calling <code>seek</code> places it at another range.
+**/
+
+	public class RangeCursor {
+
+		final boolean reverse;  //true to visit the elements in reverse sorted order
+		Node leaf;              //leaf of the next tagged element to visit
+		int index;              //index of that tagged element in leaf
+		Node stopLeaf;          //leaf of the position just past the range
+		int stopIndex;          //index of that position in stopLeaf
+		V element;              //the element of the tag most recently returned
+		int versionNumber;      //modification count when placed
+
+		RangeCursor(boolean reverse) {
+			this.reverse = reverse;
+		}
+
+/**
+ * Places this cursor at the start of a range, which is the low end when moving
+ * forward and the high end when moving in reverse.
+ * @param lo the lower end of the range
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return this cursor
+**/
+
+		public RangeCursor seek(long lo, boolean loInclusive, long hi, boolean hiInclusive) {
+			versionNumber = version.getCount();
+			element = null;
+			leaf = position(lo, !loInclusive);
+			index = curIndex;
+			boolean empty = (leaf == AFT || !below(leaf.tags[index], hi, hiInclusive));
+			stopLeaf = empty ? leaf : position(hi, hiInclusive);
+			stopIndex = empty ? index : curIndex;
+			if (reverse) {                      //both positions move back by one
+				Node first = leaf;
+				int firstIndex = index;
+				leaf = back(stopLeaf, stopIndex);
+				index = curIndex;
+				stopLeaf = back(first, firstIndex);
+				stopIndex = curIndex;
+			}
+			return this;
+		}
+
+/**
+ * @return true  if there is another tagged element in the range
+ * @throws ConcurrentModificationException the tree was modified after this
+ * cursor was placed
+**/
+
+		public boolean hasNext() {
+			version.check(versionNumber);
+			return leaf != stopLeaf || index != stopIndex;
+		}
+
+/**
+ * Moves to the next tagged element in the range.
+ * @return the tag of the next tagged element in the range
+ * @throws NoSuchElementException there are no more tagged elements in the range
+ * @throws ConcurrentModificationException the tree was modified after this
+ * cursor was placed
+**/
+
+		public long nextTag() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			long tag = leaf.tags[index];
+			element = leaf.element(index);
+			if (reverse) {
+				if (--index < 0) {
+					leaf = leaf.prev;
+					index = leaf.size - 1;
+				}
+			} else if (++index == leaf.size) {
+				leaf = leaf.next;
+				index = 0;
+			}
+			return tag;
+		}
+
+/**
+ * @return the element of the tagged element whose tag was returned by
+ * the most recent call to <code>nextTag</code>
+**/
+
+		public V element() {
+			return element;
+		}
+	}
+
+/**
+ * @param lo the lower end of the range
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return a cursor over the tagged elements in the range, in sorted order
+**/
+
+	public RangeCursor rangeCursor(long lo, boolean loInclusive, long hi, boolean hiInclusive) {
+		return new RangeCursor(false).seek(lo, loInclusive, hi, hiInclusive);
+	}
+
+/**
+ * @param lo the lower end of the range
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return a cursor over the tagged elements in the range, in reverse sorted order
+**/
+
+	public RangeCursor reverseRangeCursor(long lo, boolean loInclusive, long hi, boolean hiInclusive) {
+		return new RangeCursor(true).seek(lo, loInclusive, hi, hiInclusive);
+	}
+
+/**
+ * Finds both ends of the range, and then adds the sizes of the leaves
+ * between them, so it takes O(log n + k/t) time for a range of k tagged elements.
+ * @param lo the lower end of the range
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @return the number of tagged elements in the range
+**/
+
+	public int countRange(long lo, boolean loInclusive, long hi, boolean hiInclusive) {
+		Node x = position(lo, !loInclusive);
+		int i = curIndex;
+		if (x == AFT || !below(x.tags[i], hi, hiInclusive))
+			return 0;
+		Node end = position(hi, hiInclusive);
+		int count = 0;
+		for (; x != end; x = x.next, i = 0)
+			count += x.size - i;
+		return count + curIndex - i;
+	}
+
+/**
+ * Applies the visitor to the tagged elements in the range in sorted order.
+ * @param lo the lower end of the range
+ * @param loInclusive true if <code>lo</code> is in the range
+ * @param hi the upper end of the range
+ * @param hiInclusive true if <code>hi</code> is in the range
+ * @param v a visitor
+ * @throws VisitAbortedException the traversal is aborted due to an
+ * exception raised by the visitor
+**/
+
+	public void forEachInRange(long lo, boolean loInclusive, long hi, boolean hiInclusive,
+			EntryVisitor<? super V> v) {
+		RangeCursor cursor = new RangeCursor(false).seek(lo, loInclusive, hi, hiInclusive);
+		try {
+			while (cursor.leaf != cursor.stopLeaf || cursor.index != cursor.stopIndex) {
+				long tag = cursor.nextTag();
+				v.visit(tag, cursor.element);
+			}
+		} catch (Throwable cause) {
+			throw new VisitAbortedException(cause);
+		}
+	}
+
+/**
+ * Traverses the entire collection on behalf of a visitor.
+ * @param v a visitor
+ * @throws VisitAbortedException the traversal is aborted due to an
+ * exception raised by the visitor,
+ * in which case the cause held by the VisitAbortedException is the
+ * exception thrown by the visitor.
+**/
+
+	public void accept(Visitor<? super TaggedElement<Long,V>> v) {
+		try {
+			for (Node x = FORE.next; x != AFT; x = x.next)
+				for (int i = 0; i < x.size; i++)
+					v.visit(new TaggedElement<Long,V>(x.tags[i], x.element(i)));
+		} catch (Throwable cause) {
+			throw new VisitAbortedException(cause);
+		}
+	}
+
+/**
+ * The elements are placed in an array in the iteration order.
+ * @return a collection of all elements
+ * in this tagged collection.
+**/
+
+	public Collection<V> values() {
+		Collection<V> coll = new Array<V>(getSize());
+		for (Node x = FORE.next; x != AFT; x = x.next)
+			for (int i = 0; i < x.size; i++)
+				coll.add(x.element(i));
+		return coll;
+	}
+
+/**
+ * @return a string that describes each tagged element in
+ * the collection
+**/
+
+	public String toString() {
+		StringBuilder s = new StringBuilder("{");
+		for (Node x = FORE.next; x != AFT; x = x.next)
+			for (int i = 0; i < x.size; i++) {
+				if (s.length() > 1)
+					s.append(", ");
+				s.append(x.tags[i]).append(" --> ").append(x.elements[i]);
+			}
+		return s.append("}").toString();
+	}
+
+/**
+ * Verifies that every node other than the root holds between t-1 and 2t-1
+ * tags, that every leaf is at the same depth, that each tag of an internal
+ * node is at least as large as every tag to its left and no larger than any
+ * tag to its right, that the leaf chain reaches every leaf in order, and that
+ * the size is the number of tagged elements.
+ * @throws IllegalStateException the tree is inconsistent
+**/
+
+	public void checkRep() {
+		int[] leafDepth = {-1};
+		@SuppressWarnings("unchecked")  //a generic array must be created from its erasure
+		Node[] lastLeaf = (Node[]) new LongBPlusTree<?>.Node[] {FORE};
+		int n = checkSubtree(root, 0, Long.MIN_VALUE, Long.MAX_VALUE, leafDepth, lastLeaf);
+		if (lastLeaf[0].next != AFT || AFT.prev != lastLeaf[0])
+			throw new IllegalStateException("leaf chain does not end at AFT");
+		if (n != size)
+			throw new IllegalStateException("size is " + size + " but the tree holds " + n + " elements");
+	}
+
+/**
+ * @param x the root of a subtree
+ * @param depth the depth of x
+ * @param lo a lower bound on the tags in the subtree
+ * @param hi an upper bound on the tags in the subtree
+ * @param leafDepth a one element array holding the depth of the leaves,
+ * or -1 if no leaf has been reached
+ * @param lastLeaf a one element array holding the last leaf reached
+ * @return the number of tagged elements in the subtree
+**/
+
+	int checkSubtree(Node x, int depth, long lo, long hi, int[] leafDepth, Node[] lastLeaf) {
+		if (x.size > 2*t-1 || (x != root && x.size < t-1) || (!x.isLeaf() && x.size == 0))
+			throw new IllegalStateException("node with " + x.size + " tags");
+		for (int i = 0; i < x.size; i++)
+			if (x.tags[i] < lo || x.tags[i] > hi || (i > 0 && x.tags[i-1] > x.tags[i]))
+				throw new IllegalStateException("tag " + x.tags[i] + " is out of order");
+		if (x.isLeaf()) {
+			if (leafDepth[0] == -1)
+				leafDepth[0] = depth;
+			else if (leafDepth[0] != depth)
+				throw new IllegalStateException("leaves at depths " + depth + " and " + leafDepth[0]);
+			if (lastLeaf[0].next != x || x.prev != lastLeaf[0])
+				throw new IllegalStateException("leaf chain is not linked correctly");
+			lastLeaf[0] = x;
+			return x.size;
+		}
+		int n = 0;
+		for (int i = 0; i <= x.size; i++)
+			n += checkSubtree(x.children[i], depth + 1, (i == 0) ? lo : x.tags[i-1],
+					(i == x.size) ? hi : x.tags[i], leafDepth, lastLeaf);
+		return n;
+	}
+
+/**
+ * Creates a new locator that is at FORE.
+**/
+
+	public Locator<TaggedElement<Long,V>> iterator() {
+		return new Marker(FORE, -1);
+	}
+
+/**
+ * Creates a new locator that is at AFT.
+**/
+
+	public Locator<TaggedElement<Long,V>> iteratorAtEnd() {
+		return new Marker(AFT, 0);
+	}
+
+	public Iterator<Long> tags() {
+		return new Iterator<Long>() {
+			Iterator<TaggedElement<Long,V>> wrapped = iterator();
+			public boolean hasNext() { return wrapped.hasNext(); }
+			public Long next() { return wrapped.next().getTag(); }
+			public void remove() { wrapped.remove(); }
+		};
+	}
+
+	public Iterator<V> elements() {
+		return new Iterator<V>() {
+			Iterator<TaggedElement<Long,V>> wrapped = iterator();
+			public boolean hasNext() { return wrapped.hasNext(); }
+			public V next() { return wrapped.next().getElement(); }
+			public void remove() { wrapped.remove(); }
+		};
+	}
+
+
+	protected class Marker implements Locator<TaggedElement<Long,V>> {
+
+		Node leaf;
+		int index;
+		int versionNumber; //version number for locator
+
+/**
+ * @param leaf the leaf holding the tracked position
+ * @param index the index of the tracked position in the leaf
+**/
+
+		Marker(Node leaf, int index) {
+			this.leaf = leaf;
+			this.index = index;
+			versionNumber = version.getCount();
+		}
+
+/**
+ * @return true  if and only if the tracked element is
+ * currently in the collection.
+**/
+
+		public boolean inCollection() {
+			version.check(versionNumber);
+			return leaf != FORE && leaf != AFT;
+		}
+
+/**
+ * @return a tagged element holding the tag and element at the marker
+ * @throws NoSuchElementException marker is not at an element in
+ * the collection.
+**/
+
+		public TaggedElement<Long,V> get() {
+			if (!inCollection())
+				throw new NoSuchElementException();
+			return new TaggedElement<Long,V>(leaf.tags[index], leaf.element(index));
+		}
+
+/**
+ * Moves the tracker to the next element in the iteration order,
+ * or AFT if the last element is currently tracked.
+ * @return true  if and only if after the update, the tracker is at
+ * an element of the collection.
+ * @throws AtBoundaryException the tracker is at AFT since there is
+ * no place to advance.
+**/
+
+		public boolean advance() {
+			version.check(versionNumber);
+			if (leaf == AFT)
+				throw new AtBoundaryException();
+			index++;
+			while (leaf != AFT && index >= leaf.size) {   //only an empty root is skipped
+				leaf = leaf.next;
+				index = 0;
+			}
+			return leaf != AFT;
+		}
+
+/**
+ * Moves the tracker to the previous element in the iteration order, or FORE if the
+ * first element is currently tracked.
+ * @return true  if and only if after the update, the tracker is at an element of the collection.
+ * @throws AtBoundaryException the tracker is at FORE since then there is
+ * no place to retreat.
+**/
+
+		public boolean retreat() {
+			version.check(versionNumber);
+			if (leaf == FORE)
+				throw new AtBoundaryException();
+			leaf = back(leaf, index);
+			index = curIndex;
+			return leaf != FORE;
+		}
+
+/**
+ * @return true  if there is some element after the current locator position.
+**/
+
+		public boolean hasNext() {
+			version.check(versionNumber);
+			return !isEmpty() && leaf != AFT && (index + 1 < leaf.size || leaf.next != AFT);
+		}
+
+/**
+ * Advances the tracker and returns the element at its new position.
+ * @throws NoSuchElementException the tracker is at the last element or AFT
+**/
+
+		public TaggedElement<Long,V> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			advance();
+			return get();
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void ignoreConcurrentModifications(boolean ignore) {
+			if (ignore)
+				versionNumber = Integer.MAX_VALUE;
+			else
+				versionNumber = Math.min(versionNumber, version.getCount());
+		}
+
+		public void ignorePriorConcurrentModifications() {
+			versionNumber = Math.max(versionNumber, version.getCount());
+		}
+	}
+}
@@ -0,0 +1,33 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.tagged.ordered;
+import goldman.collection.ordered.IntervalComparator;
+import goldman.collection.tagged.TaggedElement;
+/**
+ * The TaggedElementIntervalComparator used by the tagged interval tree
+ * is defined over tags that are intervals.
+**/
+
+public class TaggedElementIntervalComparator<T> implements IntervalComparator<TaggedElement<T,?>> {
+
+	IntervalComparator<? super T> comp;
+
+	public TaggedElementIntervalComparator(IntervalComparator<? super T> comp) {
+		this.comp = comp;
+	}
+
+	public int compareMinToMax(TaggedElement<T,?> a, TaggedElement<T,?> b) {
+		return comp.compareMinToMax(a.getTag(), b.getTag());
+	}
+
+	public int compareMax(TaggedElement<T,?> a, TaggedElement<T,?> b) {
+		return comp.compareMax(a.getTag(), b.getTag());
+	}
+
+	public int compare(TaggedElement<T,?> a, TaggedElement<T,?> b) {
+		return comp.compare(a.getTag(), b.getTag());
+	}
+}
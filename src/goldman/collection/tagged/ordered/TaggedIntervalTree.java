@@ -0,0 +1,79 @@
+// Copyright Sally A. Goldman and Kenneth J. Goldman, 2007
+// Absolutely no warranty.
+// Unauthorized distribution of this source code is prohibited.
+// Use subject to license agreement.
+
+package goldman.collection.tagged.ordered;
+import goldman.collection.Collection;
+import goldman.collection.VisitAbortedException;
+import goldman.collection.Visitor;
+import goldman.collection.ordered.DefaultIntervalComparator;
+import goldman.collection.ordered.IntervalComparator;
+import goldman.collection.ordered.IntervalTree;
+import goldman.collection.tagged.MutableTaggedElement;
+import goldman.collection.tagged.TaggedElement;
+/**
+ * A tagged version of an interval tree, in which each tag is an interval and
+ * the associated data is its payload.
+**/
+
+public class TaggedIntervalTree<T,E> extends TaggedOrderedCollectionWrapper<T,E> {
+
+/**
+ * Since a range is specified by two tags, we use a second mutable tagged
+ * element <code>anchor</code> for the upper end of the range, where
+ * <code>target</code> specifies the lower end.
+**/
+
+	protected MutableTaggedElement<T,E> anchor = new MutableTaggedElement<T,E>();
+
+
+	public TaggedIntervalTree(IntervalComparator<? super T> comp) {
+		super(new IntervalTree<TaggedElement<T,E>>(new TaggedElementIntervalComparator<T>(comp)));
+	}
+
+/**
+ * Creates an empty tagged interval tree for tags that implement
+ * <code>Interval</code>, whose endpoints are compared with the default
+ * comparator.
+**/
+
+	@SuppressWarnings("unchecked")
+	public TaggedIntervalTree() {
+		this((IntervalComparator<? super T>) new DefaultIntervalComparator<Object>());
+	}
+
+/**
+ * @param point a tag whose endpoints are equal, or any interval
+ * @return a collection of the tagged elements whose tags overlap
+ * <code>point</code>, in sorted order
+**/
+
+	public Collection<TaggedElement<T,E>> overlapping(T point) {
+		return overlapping(point, point);
+	}
+
+/**
+ * @param lo a tag whose minimum endpoint is the lower end of the range
+ * @param hi a tag whose maximum endpoint is the upper end of the range
+ * @return a collection of the tagged elements whose tags overlap the range,
+ * in sorted order
+**/
+
+	public Collection<TaggedElement<T,E>> overlapping(T lo, T hi) {
+		return ((IntervalTree<TaggedElement<T,E>>) pairs).overlapping(target.setTag(lo), anchor.setTag(hi));
+	}
+
+/**
+ * Applies a visitor, in sorted order, to each tagged element whose tag
+ * overlaps the range.
+ * @param lo a tag whose minimum endpoint is the lower end of the range
+ * @param hi a tag whose maximum endpoint is the upper end of the range
+ * @param v the visitor to apply
+ * @throws VisitAbortedException the visitor threw an exception
+**/
+
+	public void overlapping(T lo, T hi, Visitor<? super TaggedElement<T,E>> v) {
+		((IntervalTree<TaggedElement<T,E>>) pairs).overlapping(target.setTag(lo), anchor.setTag(hi), v);
+	}
+}
@@ -0,0 +1,197 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import goldman.Objects;
+import goldman.collection.ordered.AbstractSearchTree;
+import goldman.collection.ordered.Aggregator;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.BTree;
+import goldman.collection.ordered.BinarySearchTree;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SplayTree;
+import goldman.collection.ordered.TopDownBTree;
+
+public class AggregatorTest {
+
+	static final Aggregator<Integer,Long> SUM = new Aggregator<Integer,Long>() {
+		public Long identity() {
+			return 0L;
+		}
+		public Long lift(Integer x) {
+			return (long) x;
+		}
+		public Long combine(Long left, Long right) {
+			return left + right;
+		}
+	};
+
+	//not commutative, so it checks that the elements are combined in sorted order
+	static final Aggregator<Integer,String> LIST = new Aggregator<Integer,String>() {
+		public String identity() {
+			return "";
+		}
+		public String lift(Integer x) {
+			return x.toString();
+		}
+		public String combine(String left, String right) {
+			if (left.isEmpty())
+				return right;
+			if (right.isEmpty())
+				return left;
+			return left + "," + right;
+		}
+	};
+
+	@SuppressWarnings("unchecked")
+	AbstractSearchTree<Integer>[] trees() {
+		return (AbstractSearchTree<Integer>[]) new AbstractSearchTree<?>[] {
+				new BinarySearchTree<Integer>(), new RedBlackTree<Integer>(),
+				new SplayTree<Integer>(), new BTree<Integer>(2), new BTree<Integer>(4),
+				new TopDownBTree<Integer>(2), new TopDownBTree<Integer>(3),
+				new BPlusTree<Integer>(2), new BPlusTree<Integer>(5)};
+	}
+
+	String expected(ArrayList<Integer> model, int lo, int hi) {
+		StringBuilder sb = new StringBuilder();
+		for (int x : model)
+			if (lo <= x && x <= hi)
+				sb.append(sb.length() == 0 ? "" : ",").append(x);
+		return sb.toString();
+	}
+
+	void check(AbstractSearchTree<Integer> tree, ArrayList<Integer> model, Random random, int range) {
+		tree.checkRep();
+		assertEquals(expected(model, Integer.MIN_VALUE, Integer.MAX_VALUE),
+				tree.aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		for (int i = 0; i < 20; i++) {
+			int lo = random.nextInt(range + 2) - 1;
+			int hi = lo + random.nextInt(range / 2 + 1) - 2;
+			String name = tree.getClass().getSimpleName() + " [" + lo + "," + hi + "]";
+			assertEquals(name, expected(model, lo, hi), tree.aggregate(lo, hi));
+		}
+	}
+
+	void add(ArrayList<Integer> model, int x) {
+		int i = Collections.binarySearch(model, x);
+		model.add(i < 0 ? -i-1 : i, x);
+	}
+
+	@Test
+	public void testRandomUpdates() {
+		Random random = new Random(7);
+		for (AbstractSearchTree<Integer> tree : trees())
+			for (int range : new int[] {20, 5000}) {
+				tree.clear();
+				tree.setAggregator(LIST);
+				ArrayList<Integer> model = new ArrayList<Integer>();
+				for (int op = 0; op < 3000; op++) {
+					int x = random.nextInt(range);
+					if (random.nextInt(5) < 3 || model.isEmpty()) {
+						tree.add(x);
+						add(model, x);
+					} else {
+						if (random.nextBoolean())
+							x = model.get(random.nextInt(model.size()));
+						assertEquals(model.remove((Integer) x), tree.remove(x));
+					}
+					if (op % 50 == 0)
+						check(tree, model, random, range);
+				}
+				check(tree, model, random, range);
+				while (!model.isEmpty()) {
+					int x = model.remove(random.nextInt(model.size()));
+					assertTrue(tree.remove(x));
+				}
+				check(tree, model, random, range);
+			}
+	}
+
+	@Test
+	public void testSetAggregatorOnExistingTree() {
+		for (AbstractSearchTree<Integer> tree : trees()) {
+			for (int i = 1; i <= 1000; i++)
+				tree.add(i);
+			tree.setAggregator(SUM);
+			assertEquals(Long.valueOf(500500L), tree.aggregate(1, 1000));
+			assertEquals(Long.valueOf(55L), tree.aggregate(-5, 10));
+			assertEquals(Long.valueOf(1000L), tree.aggregate(1000, 2000));
+			assertEquals(Long.valueOf(0L), tree.aggregate(2000, 3000));
+			assertEquals(Long.valueOf(0L), tree.aggregate(10, 9));
+			tree.remove(500);
+			tree.add(500);
+			tree.add(500);
+			tree.add(500);
+			tree.remove(500);
+			assertEquals(Long.valueOf(1000L), tree.aggregate(500, 500));
+			tree.setAggregator(LIST);
+			assertEquals("499,500,500,501", tree.aggregate(499, 501));
+			tree.setAggregator(null);
+			try {
+				tree.aggregate(1, 2);
+				fail();
+			} catch (IllegalStateException e) {}
+		}
+	}
+
+	@Test
+	public void testBulkOperations() {
+		Random random = new Random(11);
+		Integer[] sorted = new Integer[2000];
+		for (int i = 0; i < sorted.length; i++)
+			sorted[i] = 2*i;
+		ArrayList<Integer> model = new ArrayList<Integer>();
+		for (int i = 0; i < sorted.length; i++)
+			model.add(sorted[i]);
+		BTree<Integer> b = BTree.bulkLoad(Objects.DEFAULT_COMPARATOR, 3, sorted, 0.8);
+		BPlusTree<Integer> bp = BPlusTree.bulkLoad(Objects.DEFAULT_COMPARATOR, 3, sorted, 0.8);
+		@SuppressWarnings("unchecked")  //there is no generic array creation
+		BTree<Integer>[] loaded = (BTree<Integer>[]) new BTree<?>[] {b, bp};
+		for (BTree<Integer> tree : loaded) {
+			ArrayList<Integer> m = new ArrayList<Integer>(model);
+			tree.setAggregator(LIST);
+			check(tree, m, random, 8000);
+			ArrayList<Integer> batch = new ArrayList<Integer>();
+			for (int i = 4000; i < 6000; i += 3)
+				batch.add(i);
+			tree.append(batch.iterator(), 0.7);
+			m.addAll(batch);
+			check(tree, m, random, 8000);
+		}
+		RedBlackTree<Integer> r1 = new RedBlackTree<Integer>();
+		RedBlackTree<Integer> r2 = new RedBlackTree<Integer>();
+		BTree<Integer> b1 = new BTree<Integer>(3);
+		BTree<Integer> b2 = new BTree<Integer>(3);
+		ArrayList<Integer> m1 = new ArrayList<Integer>();
+		ArrayList<Integer> m2 = new ArrayList<Integer>();
+		for (int i = 0; i < 3000; i++) {
+			int x = random.nextInt(4000);
+			r1.add(x);
+			b1.add(x);
+			add(m1, x);
+			x = random.nextInt(4000);
+			r2.add(x);
+			b2.add(x);
+			add(m2, x);
+		}
+		r1.setAggregator(LIST);
+		b1.setAggregator(LIST);
+		r1.union(r2);
+		b1.union(b2);
+		ArrayList<Integer> before = new ArrayList<Integer>(m1);
+		for (int x : m2)
+			if (Collections.binarySearch(before, x) < 0)  //union adds every copy of a new element
+				add(m1, x);
+		check(r1, m1, random, 4000);
+		check(b1, m1, random, 4000);
+		r1.difference(r2);
+		b1.difference(b2);
+		m1.removeAll(m2);
+		check(r1, m1, random, 4000);
+		check(b1, m1, random, 4000);
+	}
+}
@@ -0,0 +1,134 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import goldman.Objects;
+import goldman.collection.Collection;
+import goldman.collection.Locator;
+import goldman.collection.ordered.BEpsilonTree;
+
+public class BEpsilonTreeTest extends OrderedCollectionTest {
+
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection() {
+		return new BEpsilonTree<Comparable>(Objects.DEFAULT_COMPARATOR, 4, 0.5);
+	}
+
+	@Test
+	public void initializationTest() {
+		assertEquals(0, createCollection().getSize());
+	}
+
+	void checkAgainstSortedList(BEpsilonTree<Integer> t, Random random, int ops, int range) {
+		ArrayList<Integer> expected = new ArrayList<Integer>();
+		for (int op = 0; op < ops; op++) {
+			Integer x = random.nextInt(range);
+			if (random.nextInt(3) > 0) {
+				t.add(x);
+				int i = Collections.binarySearch(expected, x);
+				expected.add(i < 0 ? -i - 1 : i, x);
+			} else
+				assertEquals(expected.remove(x), t.remove(x));
+			if (op % 500 == 0)
+				t.checkRep();
+		}
+		t.checkRep();
+		assertEquals(expected.size(), t.getSize());
+		assertEquals(expected.toString().replace('[', '{').replace(']', '}'), t.toString());
+		for (int x = -1; x <= range; x++) {
+			assertEquals(expected.contains(x), t.contains(x));
+			int lo = Collections.binarySearch(expected, x);
+			int hi = lo;
+			if (lo < 0)
+				lo = hi = -lo - 1;
+			else {
+				while (lo > 0 && expected.get(lo - 1) == x)
+					lo--;
+				while (hi < expected.size() && expected.get(hi) == x)
+					hi++;
+			}
+			if (lo > 0)
+				assertEquals(expected.get(lo - 1), t.predecessor(x));
+			if (hi < expected.size())
+				assertEquals(expected.get(hi), t.successor(x));
+		}
+		assertEquals(expected.get(0), t.min());
+		assertEquals(expected.get(expected.size() - 1), t.max());
+		assertEquals(expected.get(expected.size() / 3), t.get(expected.size() / 3));
+		t.flushAll();
+		t.checkRep();
+		assertEquals(expected.toString().replace('[', '{').replace(']', '}'), t.toString());
+	}
+
+	@Test
+	public void testAgainstSortedList() {
+		checkAgainstSortedList(new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 4, 0.5),
+				new Random(2), 20000, 300);
+		checkAgainstSortedList(new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 16, 0.5),
+				new Random(3), 20000, 3000);
+		checkAgainstSortedList(new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 64, 0.25),
+				new Random(4), 20000, 100000);
+		checkAgainstSortedList(new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 8, 1.0),
+				new Random(5), 20000, 1000);
+	}
+
+	@Test
+	public void testPendingElementsAreFound() {
+		BEpsilonTree<Integer> t = new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 16, 0.5);
+		assertEquals(4, t.getFanout());
+		assertEquals(12, t.getBufferCapacity());
+		for (int i = 0; i < 200; i++)
+			t.add(2 * i);
+		assertTrue(t.getHeight() > 2);
+		for (int i = 0; i < 5; i++)
+			t.add(2 * i + 1);  //stays in the buffer of the root
+		t.checkRep();
+		assertEquals(Integer.valueOf(3), t.getEquivalentElement(3));
+		assertEquals(Integer.valueOf(3), t.successor(2));
+		assertEquals(Integer.valueOf(3), t.predecessor(4));
+		assertTrue(t.remove(3));
+		assertFalse(t.contains(3));
+		assertFalse(t.remove(3));
+		t.checkRep();
+	}
+
+	@Test
+	public void testManyDuplicates() {
+		BEpsilonTree<Integer> t = new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 4, 0.5);
+		for (int i = 0; i < 100; i++)
+			t.add(7);
+		t.add(3);
+		t.add(9);
+		t.checkRep();
+		assertEquals(102, t.getSize());
+		assertEquals(Integer.valueOf(7), t.successor(3));
+		assertEquals(Integer.valueOf(9), t.successor(7));
+		assertEquals(Integer.valueOf(7), t.predecessor(9));
+		int count = 0;
+		for (Locator<Integer> loc = t.iterator(); loc.advance(); )
+			if (loc.get() == 7)
+				count++;
+		assertEquals(100, count);
+		for (int i = 0; i < 100; i++)
+			assertTrue(t.remove(7));
+		assertFalse(t.contains(7));
+		assertEquals(Integer.valueOf(9), t.successor(3));
+		t.checkRep();
+	}
+
+	@Test
+	public void testIllegalParameters() {
+		try {
+			new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 1, 0.5);
+			fail();
+		} catch (IllegalArgumentException e) {}
+		try {
+			new BEpsilonTree<Integer>(Objects.DEFAULT_COMPARATOR, 16, 0);
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+}
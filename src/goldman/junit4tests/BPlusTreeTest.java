@@ -1,8 +1,17 @@
 package goldman.junit4tests;
 import static org.junit.Assert.*;
 import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Random;
+
+import goldman.Objects;
 import goldman.collection.*;
 import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.BTree;
 
 public class BPlusTreeTest extends BTreeTest {
 
@@ -10,10 +19,96 @@ public class BPlusTreeTest extends BTreeTest {
 	public Collection<Comparable> createCollection() {
 		return new BPlusTree<Comparable>();
 	}
+
+	@Override
+	BTree<Integer> bulkLoad(int t, Integer[] sorted, double fillFactor, boolean parallel) {
+		if (parallel)
+			return BPlusTree.parallelBulkLoad(Objects.DEFAULT_COMPARATOR, t, sorted, fillFactor);
+		return BPlusTree.bulkLoad(Objects.DEFAULT_COMPARATOR, t, Arrays.asList(sorted).iterator(), fillFactor);
+	}
 	
 	@Test
 	public void initializationTest() {
 		assertEquals(0, createCollection().getSize());
 	}
+
+	boolean inRange(int x, Integer lo, boolean loInclusive, Integer hi, boolean hiInclusive) {
+		return (lo == null || x > lo || (loInclusive && x == lo)) &&
+				(hi == null || x < hi || (hiInclusive && x == hi));
+	}
+
+	@Test
+	public void testRangeCursor() {
+		Random random = new Random(11);
+		for (int t : new int[] {2, 3, 8}) {
+			BPlusTree<Integer> tree = new BPlusTree<Integer>(t);
+			ArrayList<Integer> sorted = new ArrayList<Integer>();
+			Integer[] bounds = {null, -1, 0, 5, 17, 18, 40, 41};
+			BPlusTree<Integer>.RangeCursor reused = tree.rangeCursor(null, true, null, true);
+			for (int n = 0; n < 300; n++) {
+				for (Integer lo : bounds)
+					for (Integer hi : bounds)
+						for (int inclusive = 0; inclusive < 4; inclusive++) {
+							boolean loInclusive = (inclusive & 1) != 0;
+							boolean hiInclusive = (inclusive & 2) != 0;
+							ArrayList<Integer> expected = new ArrayList<Integer>();
+							for (int x : sorted)
+								if (inRange(x, lo, loInclusive, hi, hiInclusive))
+									expected.add(x);
+							ArrayList<Integer> forward = new ArrayList<Integer>();
+							reused.seek(lo, loInclusive, hi, hiInclusive);
+							while (reused.hasNext())
+								forward.add(reused.next());
+							assertEquals(expected, forward);
+							ArrayList<Integer> backward = new ArrayList<Integer>();
+							BPlusTree<Integer>.RangeCursor reverse =
+									tree.reverseRangeCursor(lo, loInclusive, hi, hiInclusive);
+							while (reverse.hasNext())
+								backward.add(reverse.next());
+							Collections.reverse(backward);
+							assertEquals(expected, backward);
+							assertEquals(expected.size(), tree.countRange(lo, loInclusive, hi, hiInclusive));
+						}
+				int x = random.nextInt(41);   //many duplicates
+				tree.add(x);
+				sorted.add(x);
+				Collections.sort(sorted);
+				if (n % 3 == 2) {
+					x = sorted.get(random.nextInt(sorted.size()));
+					tree.remove(x);
+					sorted.remove((Integer) x);
+				}
+				reused = tree.rangeCursor(null, true, null, true);
+			}
+		}
+	}
+
+	@Test
+	public void testForEachInRange() {
+		BPlusTree<Integer> tree = new BPlusTree<Integer>(3);
+		for (int i = 0; i < 100; i++)
+			tree.add(i);
+		final StringBuilder s = new StringBuilder();
+		Visitor<Integer> append = new Visitor<Integer>() {
+			public void visit(Integer x) {
+				s.append(x).append(' ');
+			}
+		};
+		tree.forEachInRange(10, true, 15, false, append);
+		assertEquals("10 11 12 13 14 ", s.toString());
+		s.setLength(0);
+		tree.forEachInRangeReverse(95, false, null, true, append);
+		assertEquals("99 98 97 96 ", s.toString());
+		s.setLength(0);
+		tree.forEachInRange(50, true, 40, true, append);
+		assertEquals("", s.toString());
+		BPlusTree<Integer>.RangeCursor cursor = tree.rangeCursor(0, true, 10, true);
+		cursor.next();
+		tree.add(5);
+		try {
+			cursor.next();
+			fail("expected ConcurrentModificationException");
+		} catch (ConcurrentModificationException cme) { }
+	}
 	
 }
@@ -2,9 +2,17 @@ package goldman.junit4tests;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import goldman.Objects;
 import goldman.collection.Collection;
 import goldman.collection.Locator;
+import goldman.collection.ordered.BPlusTree;
 import goldman.collection.ordered.BTree;
+import goldman.collection.ordered.TopDownBTree;
 
 public class BTreeTest extends OrderedCollectionTest {
 	
@@ -61,5 +69,202 @@ public class BTreeTest extends OrderedCollectionTest {
 		}
 	}
 
+	BTree<Integer> bulkLoad(int t, Integer[] sorted, double fillFactor, boolean parallel) {
+		if (parallel)
+			return BTree.parallelBulkLoad(Objects.DEFAULT_COMPARATOR, t, sorted, fillFactor);
+		return BTree.bulkLoad(Objects.DEFAULT_COMPARATOR, t, Arrays.asList(sorted).iterator(), fillFactor);
+	}
+
+	static Integer[] sortedWithDuplicates(int n, Random random) {
+		Integer[] a = new Integer[n];
+		for (int i = 0; i < n; i++)
+			a[i] = random.nextInt(Math.max(1, n/2));
+		Arrays.sort(a);
+		return a;
+	}
+
+	static void checkContents(BTree<Integer> tree, ArrayList<Integer> expected) {
+		tree.checkRep();
+		assertEquals(expected.size(), tree.getSize());
+		int i = 0;
+		for (Integer x : tree)
+			assertEquals(expected.get(i++), x);
+	}
+
+	@Test
+	public void testBulkLoad() {
+		Random random = new Random(4);
+		for (int t : new int[] {2, 3, 5, 16})
+			for (int n : new int[] {0, 1, 2, 3, 5, 10, 33, 100, 1000})
+				for (double fill : new double[] {0.01, 0.5, 0.7, 1.0}) {
+					Integer[] a = sortedWithDuplicates(n, random);
+					BTree<Integer> tree = bulkLoad(t, a, fill, n % 2 == 0);
+					ArrayList<Integer> expected = new ArrayList<Integer>(Arrays.asList(a));
+					checkContents(tree, expected);
+					for (int i = 0; i < n; i++)
+						assertEquals(true, tree.contains(a[i]));
+					for (int i = 0; i < 50; i++) {  //the loaded tree supports updates
+						int x = random.nextInt(n + 1);
+						if (random.nextBoolean()) {
+							tree.add(x);
+							expected.add(x);
+						} else if (tree.remove(x))
+							expected.remove((Integer) x);
+					}
+					java.util.Collections.sort(expected);
+					checkContents(tree, expected);
+				}
+	}
+
+	@Test
+	public void testBulkLoadPacksNodes() {
+		Integer[] a = new Integer[10000];
+		for (int i = 0; i < a.length; i++)
+			a[i] = i;
+		BTree<Integer> full = bulkLoad(8, a, 1.0, false);
+		BTree<Integer> half = bulkLoad(8, a, 0.5, true);
+		@SuppressWarnings("unchecked")  //the harness creates collections of raw Comparable
+		BTree<Integer> added = (BTree<Integer>) (Collection<?>) createCollection();
+		for (Integer x : a)
+			added.add(x);
+		full.checkRep();
+		half.checkRep();
+		assertEquals(true, full.toString().equals(added.toString()));
+		assertEquals(true, half.toString().equals(added.toString()));
+	}
+
+	@Test
+	public void testAppend() {
+		Random random = new Random(6);
+		for (int t : new int[] {2, 3, 8}) {
+			BTree<Integer> tree = bulkLoad(t, new Integer[0], 1.0, false);
+			ArrayList<Integer> expected = new ArrayList<Integer>();
+			int next = 0;
+			for (int batch = 0; batch < 40; batch++) {
+				int n = (batch % 4 == 0) ? random.nextInt(3) : random.nextInt(200);
+				ArrayList<Integer> elements = new ArrayList<Integer>();
+				for (int i = 0; i < n; i++) {
+					next += random.nextInt(2);  //some duplicates, including of the maximum
+					elements.add(next);
+				}
+				tree.append(elements.iterator(), batch % 3 == 0 ? 1.0 : 0.75);
+				expected.addAll(elements);
+				checkContents(tree, expected);
+			}
+			tree.add(-1);
+			tree.remove(next);
+			expected.add(0, -1);
+			expected.remove(expected.size()-1);
+			checkContents(tree, expected);
+		}
+	}
+
+	@Test
+	public void testBulkLoadRejectsBadInput() {
+		try {
+			bulkLoad(2, new Integer[] {1, 3, 2}, 1.0, false);
+			fail();
+		} catch (IllegalArgumentException e) {}
+		try {
+			bulkLoad(2, new Integer[] {1, 2, 3}, 0, false);
+			fail();
+		} catch (IllegalArgumentException e) {}
+		BTree<Integer> tree = bulkLoad(2, new Integer[] {1, 2, 3}, 1.0, false);
+		try {
+			tree.append(Arrays.asList(0, 5).iterator(), 1.0);
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	BTree<Integer> randomTree(Random random, int t, boolean topDown, int n, int range, ArrayList<Integer> model) {
+		BTree<Integer> tree = topDown ? new TopDownBTree<Integer>(t) : new BTree<Integer>(t);
+		for (int i = 0; i < n; i++) {
+			int x = random.nextInt(range);
+			tree.add(x);
+			model.add(x);
+		}
+		Collections.sort(model);
+		return tree;
+	}
+
+	ArrayList<Integer> expected(int op, ArrayList<Integer> a, ArrayList<Integer> b) {
+		ArrayList<Integer> result = new ArrayList<Integer>();
+		for (Integer x : a)
+			if (op == 0 || b.contains(x) == (op == 1))
+				result.add(x);
+		if (op == 0)
+			for (Integer x : b)
+				if (!a.contains(x))
+					result.add(x);
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testSetOperations() {
+		Random random = new Random(17);
+		int[][] sizes = {{0, 0}, {0, 10}, {10, 0}, {1, 1}, {5, 200}, {200, 5}, {100, 100}, {2000, 40}, {40, 2000}};
+		for (int op = 0; op < 3; op++)
+			for (int[] size : sizes)
+				for (int range : new int[] {10, 100000})
+					for (int t = 2; t <= 5; t += 3) {
+						ArrayList<Integer> ma = new ArrayList<Integer>();
+						ArrayList<Integer> mb = new ArrayList<Integer>();
+						BTree<Integer> a = randomTree(random, t, false, size[0], range, ma);
+						BTree<Integer> b = randomTree(random, 7 - t, t == 5, size[1], range, mb);
+						String before = b.toString();
+						if (op == 0)
+							a.union(b);
+						else if (op == 1)
+							a.intersect(b);
+						else
+							a.difference(b);
+						a.checkRep();
+						ArrayList<Integer> expected = expected(op, ma, mb);
+						assertEquals(expected.size(), a.getSize());
+						assertEquals(expected.toString().replace('[', '{').replace(']', '}'), a.toString());
+						assertEquals(before, b.toString());
+					}
+	}
 
+	@Test
+	public void testLargeParallelSetOperations() {
+		BTree<Integer> evens = new BTree<Integer>(3);
+		BTree<Integer> triples = new BTree<Integer>(3);
+		for (int i = 0; i < 60000; i += 2)
+			evens.add(i);
+		for (int i = 0; i < 60000; i += 3)
+			triples.add(i);
+		BTree<Integer> union = new BTree<Integer>(3);
+		union.union(evens);
+		union.union(triples);
+		union.checkRep();
+		assertEquals(40000, union.getSize());
+		evens.intersect(triples);
+		evens.checkRep();
+		assertEquals(10000, evens.getSize());
+		int expected = 0;
+		for (Integer x : evens) {
+			assertEquals(expected, x.intValue());
+			expected += 6;
+		}
+		union.difference(evens);
+		union.checkRep();
+		assertEquals(30000, union.getSize());
+		assertEquals(false, union.contains(6));
+		assertEquals(true, union.contains(9));
+		union.difference(union);
+		assertEquals(0, union.getSize());
+		union.checkRep();
+	}
+
+	@Test
+	public void testSetOperationsNeedElementsInInternalNodes() {
+		BTree<Integer> b = new BTree<Integer>();
+		b.add(1);
+		try {
+			new BPlusTree<Integer>().union(b);
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException uoe) { }
+	}
 }
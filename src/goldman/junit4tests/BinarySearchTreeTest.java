@@ -4,6 +4,10 @@ import org.junit.Test;
 import goldman.collection.Collection;
 import goldman.collection.ordered.BinarySearchTree;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
 public class BinarySearchTreeTest extends OrderedCollectionTest {
 		
 	public Collection<Comparable> createCollection() {
@@ -18,6 +22,56 @@ public class BinarySearchTreeTest extends OrderedCollectionTest {
 		assertEquals(1, a.length);
 	}
 	
+	// Compares get, rankOf and countInRange with a sorted list through random adds and removes,
+	// including duplicates, checking the subtree sizes along the way.
+	static void checkOrderStatistics(BinarySearchTree<Integer> t) {
+		ArrayList<Integer> sorted = new ArrayList<Integer>();
+		Random random = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			Integer x = random.nextInt(300);
+			if (random.nextInt(3) == 0 && !sorted.isEmpty()) {
+				Integer y = sorted.get(random.nextInt(sorted.size()));
+				assertEquals(true, t.remove(y));
+				sorted.remove(y);
+			} else {
+				t.add(x);
+				sorted.add(x);
+			}
+			if (i % 100 == 0) {
+				t.checkRep();
+				Collections.sort(sorted);
+				for (int r = 0; r < sorted.size(); r++)
+					assertEquals(sorted.get(r), t.get(r));
+				for (int v = -1; v <= 300; v += 7) {
+					int below = 0;
+					while (below < sorted.size() && sorted.get(below) < v)
+						below++;
+					assertEquals(below, t.rankOf(v));
+					int count = 0;
+					for (Integer y : sorted)
+						if (y >= v && y <= v + 20)
+							count++;
+					assertEquals(count, t.countInRange(v, v + 20));
+				}
+				assertEquals(0, t.countInRange(10, 5));
+			}
+		}
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")  //the harness creates collections of raw Comparable
+	public void testOrderStatistics() {
+		checkOrderStatistics((BinarySearchTree<Integer>) (Collection<?>) createCollection());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	@SuppressWarnings("unchecked")  //the harness creates collections of raw Comparable
+	public void testGetOutOfRange() {
+		BinarySearchTree<Integer> t = (BinarySearchTree<Integer>) (Collection<?>) createCollection();
+		t.add(1);
+		t.get(1);
+	}
+	
 	// Most tests are inherited
 
 }
@@ -27,4 +27,15 @@ public class CircularArrayTest extends ArrayTest {
 		assertEquals(0, createCollection().getSize());
 	}
 
+	@Test
+	public void testRemoveWhenFrontPortionWraps() {
+		CircularArray<Integer> a = new CircularArray<Integer>(8);
+		for (int i = 2; i < 8; i++)
+			a.add(i);
+		a.addFirst(1);
+		a.addFirst(0);    //positions 0, 1, 2 are at indices 6, 7, 0
+		a.remove(3);      //shifts the wrapped front portion right
+		assertEquals("<0, 1, 2, 4, 5, 6, 7>", a.toString());
+	}
+
 }
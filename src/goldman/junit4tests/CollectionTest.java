@@ -19,6 +19,8 @@ import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 /**
  * An abstract JUnit test written in terms of the collection interface,
@@ -728,6 +730,87 @@ public abstract class CollectionTest {
 	}
 	
 	
+	// Fills a collection with 0, ..., n-1 in a scrambled order.
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	private Collection<Comparable> createScrambled(int n) {
+		Collection<Comparable> t = createCollection(Math.max(n, AbstractCollection.DEFAULT_CAPACITY));
+		for (int i = 0; i < n; i++)
+			t.add((i * 37) % n);
+		return t;
+	}
+	
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	private java.util.List<Comparable> iterationOrder(Collection<Comparable> t) {
+		java.util.List<Comparable> order = new ArrayList<Comparable>();
+		for (Comparable c : t)
+			order.add(c);
+		return order;
+	}
+	
+	// Splits recursively to the given depth, and then traverses each piece in order.
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	private void splitAndTraverse(Spliterator<Comparable> s, int depth, java.util.List<Comparable> out) {
+		long estimate = s.estimateSize();
+		Spliterator<Comparable> prefix = (depth > 0) ? s.trySplit() : null;
+		if (prefix != null) {
+			if (s.hasCharacteristics(Spliterator.SUBSIZED))
+				assertEquals(estimate, prefix.estimateSize() + s.estimateSize());
+			splitAndTraverse(prefix, depth - 1, out);
+			splitAndTraverse(s, depth - 1, out);
+		} else if (depth % 2 == 0) {
+			s.forEachRemaining(out::add);
+		} else {
+			while (s.tryAdvance(out::add));
+		}
+	}
+	
+	@Test
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public void testStream() {
+		Collection<Comparable> t = createScrambled(200);
+		java.util.List<Comparable> order = iterationOrder(t);
+		assertEquals(order, t.stream().collect(Collectors.toList()));
+		assertEquals(200L, t.stream().count());
+		java.util.List<Comparable> parallel = t.parallelStream().collect(Collectors.toList());
+		if (!t.spliterator().hasCharacteristics(Spliterator.ORDERED)) {
+			parallel.sort(null);
+			order.sort(null);
+		}
+		assertEquals(order, parallel);
+		assertEquals(199*200/2, t.parallelStream().mapToInt(c -> (Integer) c).sum());
+	}
+	
+	@Test
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public void testSpliteratorCoversEachElementOnce() {
+		for (int n : new int[] {0, 1, 2, 17, 500}) {
+			Collection<Comparable> t = createScrambled(n);
+			Spliterator<Comparable> s = t.spliterator();
+			if (s.hasCharacteristics(Spliterator.SIZED))
+				assertEquals((long) n, s.estimateSize());
+			java.util.List<Comparable> order = iterationOrder(t);
+			java.util.List<Comparable> pieces = new ArrayList<Comparable>();
+			splitAndTraverse(s, 6, pieces);
+			if (!s.hasCharacteristics(Spliterator.ORDERED)) {
+				pieces.sort(null);
+				order.sort(null);
+			}
+			assertEquals(order, pieces);
+		}
+	}
+	
+	@Test
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public void testSortedSpliterator() {
+		Collection<Comparable> t = createScrambled(100);
+		Spliterator<Comparable> s = t.spliterator();
+		if (s.hasCharacteristics(Spliterator.SORTED)) {
+			assertEquals(null, s.getComparator());
+			assertEquals(t.stream().sorted().collect(Collectors.toList()),
+						 t.stream().collect(Collectors.toList()));
+		}
+	}
+	
 	@Test(expected=AtBoundaryException.class)
 	public void testBoundaryWithOneAft() {
 		Collection<Comparable> t = createCollection();
@@ -0,0 +1,233 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import goldman.Objects;
+import goldman.collection.Collection;
+import goldman.collection.Locator;
+import goldman.collection.Visitor;
+import goldman.collection.ordered.ConcurrentBPlusTree;
+
+public class ConcurrentBPlusTreeTest extends OrderedCollectionTest {
+
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection() {
+		return new ConcurrentBPlusTree<Comparable>(Objects.DEFAULT_COMPARATOR, 2);
+	}
+
+	@Test
+	public void initializationTest() {
+		assertEquals(0, createCollection().getSize());
+	}
+
+	@Test
+	public void testAgainstSortedList() {
+		for (int order : new int[] {2, 3, 8}) {
+			ConcurrentBPlusTree<Integer> s =
+				new ConcurrentBPlusTree<Integer>(Objects.DEFAULT_COMPARATOR, order);
+			ArrayList<Integer> expected = new ArrayList<Integer>();
+			Random random = new Random(order);
+			for (int op = 0; op < 20000; op++) {
+				Integer x = random.nextInt(200);
+				if (random.nextInt(3) > 0) {
+					s.add(x);
+					int i = Collections.binarySearch(expected, x);
+					expected.add(i < 0 ? -i - 1 : i, x);
+				} else
+					assertEquals(expected.remove(x), s.remove(x));
+				if (op % 1000 == 0)
+					s.checkRep();
+			}
+			s.checkRep();
+			assertEquals(expected.size(), s.getSize());
+			assertEquals(expected.toString().replace('[', '{').replace(']', '}'), s.toString());
+			for (int x = -1; x <= 200; x++) {
+				assertEquals(expected.contains(x), s.contains(x));
+				ArrayList<Integer> less = new ArrayList<Integer>();
+				ArrayList<Integer> greater = new ArrayList<Integer>();
+				for (Integer e : expected) {
+					if (e < x)
+						less.add(e);
+					else if (e > x)
+						greater.add(e);
+				}
+				if (!less.isEmpty())
+					assertEquals(less.get(less.size() - 1), s.predecessor(x));
+				if (!greater.isEmpty())
+					assertEquals(greater.get(0), s.successor(x));
+			}
+			assertEquals(expected.get(0), s.min());
+			assertEquals(expected.get(expected.size() - 1), s.max());
+			assertEquals(expected.get(expected.size() / 2), s.get(expected.size() / 2));
+		}
+	}
+
+	@Test
+	public void testRanges() {
+		ConcurrentBPlusTree<Integer> s = new ConcurrentBPlusTree<Integer>(Objects.DEFAULT_COMPARATOR, 2);
+		ArrayList<Integer> elements = new ArrayList<Integer>();
+		Random random = new Random(5);
+		for (int i = 0; i < 300; i++) {
+			int x = random.nextInt(100);
+			s.add(x);
+			elements.add(x);
+		}
+		Collections.sort(elements);
+		for (int lo = -1; lo <= 101; lo += 3)
+			for (int hi = lo - 2; hi <= 101; hi += 5)
+				for (int inclusive = 0; inclusive < 4; inclusive++) {
+					boolean loInclusive = (inclusive & 1) != 0;
+					boolean hiInclusive = (inclusive & 2) != 0;
+					final ArrayList<Integer> range = new ArrayList<Integer>();
+					for (int x : elements)
+						if ((x > lo || (loInclusive && x == lo)) && (x < hi || (hiInclusive && x == hi)))
+							range.add(x);
+					assertEquals(range.size(), s.countRange(lo, loInclusive, hi, hiInclusive));
+					final ArrayList<Integer> visited = new ArrayList<Integer>();
+					s.forEachInRange(lo, loInclusive, hi, hiInclusive, new Visitor<Integer>() {
+						public void visit(Integer x) {
+							visited.add(x);
+						}
+					});
+					assertEquals(range, visited);
+				}
+		assertEquals(elements.size(), s.countRange(null, true, null, true));
+	}
+
+	@Test
+	public void testDuplicatesWithLocators() {
+		ConcurrentBPlusTree<Integer> s = new ConcurrentBPlusTree<Integer>(Objects.DEFAULT_COMPARATOR, 2);
+		for (int i = 0; i < 5; i++) {
+			s.add(1);
+			s.add(2);
+			s.add(3);
+		}
+		Locator<Integer> loc = s.iteratorAtEnd();
+		int n = 0;
+		while (loc.retreat())
+			n++;
+		assertEquals(15, n);
+		n = 0;
+		while (loc.advance())
+			n++;
+		assertEquals(15, n);
+		loc = s.getLocator(2);
+		int removed = 0;
+		while (loc.advance() && loc.get() == 2) {
+			loc.remove();
+			removed++;
+		}
+		assertEquals(4, removed);  //the first 2 is skipped by the first advance
+		assertEquals("{1, 1, 1, 1, 1, 2, 3, 3, 3, 3, 3}", s.toString());
+		s.checkRep();
+	}
+
+	@Test
+	public void testConcurrentAddAndRemove() throws InterruptedException {
+		final int threads = 4;
+		final int perThread = 5000;
+		final ConcurrentBPlusTree<Integer> s = new ConcurrentBPlusTree<Integer>(Objects.DEFAULT_COMPARATOR, 3);
+		final AtomicInteger failedRemovals = new AtomicInteger();
+		Thread[] t = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final int id = i;
+			t[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < perThread; j++)
+						s.add(j * threads + id);
+					for (int j = 0; j < perThread; j += 2)  //remove the even multiples
+						if (!s.remove(j * threads + id))
+							failedRemovals.incrementAndGet();
+				}
+			};
+			t[i].start();
+		}
+		for (int i = 0; i < threads; i++)
+			t[i].join();
+		assertEquals(0, failedRemovals.get());
+		s.checkRep();
+		assertEquals(threads * perThread / 2, s.getSize());
+		int expected = 0;
+		for (Integer x : s.toArray(new Integer[0])) {
+			while ((expected / threads) % 2 == 0)
+				expected++;
+			assertEquals(expected++, x.intValue());
+		}
+	}
+
+	/*
+	 * Each writer owns a token that it moves to a smaller key by first adding the
+	 * new key and then removing the old one, so at every instant each writer has
+	 * one or two keys in the collection.  A linearizable scan of the whole
+	 * collection must therefore see one or two keys of each writer, in sorted
+	 * order and without duplicates, while filler elements that are added and
+	 * removed force splits throughout.
+	 */
+	@Test
+	public void testLinearizableScans() throws InterruptedException {
+		final int writers = 6;
+		final int moves = 3000;
+		final ConcurrentBPlusTree<Integer> s = new ConcurrentBPlusTree<Integer>(Objects.DEFAULT_COMPARATOR, 2);
+		for (int w = 0; w < writers; w++)
+			s.add(key(writers, w, moves));
+		final AtomicInteger done = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] t = new Thread[writers + 2];
+		for (int i = 0; i < writers; i++) {
+			final int w = i;
+			t[i] = new Thread() {
+				public void run() {
+					for (int m = moves - 1; m >= 0; m--) {
+						s.add(key(writers, w, m));
+						if (!s.remove(key(writers, w, m + 1)))
+							failures.incrementAndGet();
+						s.add(-1 - key(writers, w, m));  //a filler, which is not a token
+						if (m % 2 == 0 && !s.remove(-1 - key(writers, w, m)))
+							failures.incrementAndGet();
+					}
+					done.incrementAndGet();
+				}
+			};
+		}
+		for (int i = writers; i < t.length; i++) {
+			t[i] = new Thread() {
+				public void run() {
+					while (done.get() < writers) {
+						int[] tokens = new int[writers];
+						int previous = Integer.MIN_VALUE;
+						for (Object x : s.toArray()) {
+							int k = (Integer) x;
+							if (k <= previous)  //out of order or duplicated
+								failures.incrementAndGet();
+							previous = k;
+							if (k >= 0)
+								tokens[k % writers]++;
+						}
+						for (int w = 0; w < writers; w++)
+							if (tokens[w] < 1 || tokens[w] > 2)
+								failures.incrementAndGet();
+						int inRange = s.countRange(0, true, null, true);
+						if (inRange < writers || inRange > 2 * writers)
+							failures.incrementAndGet();
+					}
+				}
+			};
+		}
+		for (Thread thread : t)
+			thread.start();
+		for (Thread thread : t)
+			thread.join();
+		assertEquals(0, failures.get());
+		s.checkRep();
+		assertEquals(writers + writers * moves / 2, s.getSize());
+	}
+
+	static int key(int writers, int writer, int move) {
+		return writers * move + writer;
+	}
+}
@@ -0,0 +1,249 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import goldman.collection.Collection;
+import goldman.collection.Locator;
+import goldman.collection.ordered.ConcurrentSkipList;
+
+public class ConcurrentSkipListTest extends OrderedCollectionTest {
+
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection() {
+		return new ConcurrentSkipList<Comparable>();
+	}
+
+	@Test
+	public void initializationTest() {
+		assertEquals(0, createCollection().getSize());
+	}
+
+	@Test
+	public void testConcurrentAddAndRemove() throws InterruptedException {
+		final int threads = 4;
+		final int perThread = 5000;
+		final ConcurrentSkipList<Integer> s = new ConcurrentSkipList<Integer>();
+		final AtomicInteger failedRemovals = new AtomicInteger();
+		Thread[] t = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final int id = i;
+			t[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < perThread; j++)
+						s.add(j * threads + id);
+					for (int j = 0; j < perThread; j += 2)  //remove the even multiples
+						if (!s.remove(j * threads + id))
+							failedRemovals.incrementAndGet();
+				}
+			};
+			t[i].start();
+		}
+		for (int i = 0; i < threads; i++)
+			t[i].join();
+		assertEquals(0, failedRemovals.get());
+		s.checkRep();
+		assertEquals(threads * perThread / 2, s.getSize());
+		int expected = 0;
+		for (Integer x : s) {
+			while ((expected / threads) % 2 == 0)
+				expected++;
+			assertEquals(expected++, x.intValue());
+		}
+	}
+
+	@Test
+	public void testConcurrentRemovalOfDuplicates() throws InterruptedException {
+		final int threads = 4;
+		final int copies = 2000;
+		final ConcurrentSkipList<Integer> s = new ConcurrentSkipList<Integer>();
+		for (int i = 0; i < copies * threads; i++)
+			s.add(i % 10);
+		final int[] removed = new int[threads];
+		Thread[] t = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final int id = i;
+			t[i] = new Thread() {
+				public void run() {
+					Random random = new Random(id);
+					for (int j = 0; j < copies; j++)
+						if (s.remove(random.nextInt(10)))
+							removed[id]++;
+				}
+			};
+			t[i].start();
+		}
+		for (int i = 0; i < threads; i++)
+			t[i].join();
+		s.checkRep();
+		int total = 0;
+		for (int r : removed)
+			total += r;
+		assertEquals(copies * threads - total, s.getSize());
+		assertEquals(s.getSize(), s.toArray().length);
+	}
+
+	@Test
+	public void testWeaklyConsistentIteration() throws InterruptedException {
+		final ConcurrentSkipList<Integer> s = new ConcurrentSkipList<Integer>();
+		for (int i = 0; i < 1000; i++)
+			s.add(2 * i);  //even elements stay throughout
+		Thread writer = new Thread() {
+			public void run() {
+				for (int round = 0; round < 20; round++)
+					for (int i = 0; i < 1000; i++) {
+						s.add(2 * i + 1);
+						s.remove(2 * i + 1);
+					}
+			}
+		};
+		writer.start();
+		for (int round = 0; round < 20; round++) {
+			ArrayList<Integer> evens = new ArrayList<Integer>();
+			int last = -1;
+			for (Integer x : s) {
+				assertEquals(true, x > last);  //sorted, and no element is reached twice
+				last = x;
+				if (x % 2 == 0)
+					evens.add(x);
+			}
+			assertEquals(1000, evens.size());
+		}
+		writer.join();
+		s.checkRep();
+		assertEquals(1000, s.getSize());
+	}
+
+	// A comparator that, each time the searching thread compares stop with the target,
+	// waits while another thread inserts the next key, which lands just before stop.
+	static class InsertingComparator implements Comparator<Integer> {
+		ConcurrentSkipList<Integer> list;
+		Thread searcher;
+		Integer target, stop;
+		int next;  //the next key to insert
+		int inserted = 0;
+
+		public int compare(Integer a, Integer b) {
+			if (Thread.currentThread() == searcher && a.equals(stop) && b.equals(target)) {
+				final Integer key = next++;
+				Thread writer = new Thread() {
+					public void run() {
+						list.add(key);
+					}
+				};
+				writer.start();
+				try {
+					writer.join();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				inserted++;
+			}
+			return a.compareTo(b);
+		}
+
+		void watch(Integer target, Integer stop, int next) {
+			this.target = target;
+			this.stop = stop;
+			this.next = next;
+		}
+	}
+
+	@Test
+	public void testSearchesAcrossNewNeighbors() {
+		InsertingComparator comp = new InsertingComparator();
+		ConcurrentSkipList<Integer> s = new ConcurrentSkipList<Integer>(comp);
+		comp.list = s;
+		for (int i = 0; i <= 10; i++)
+			s.add(100 * i);
+		comp.searcher = Thread.currentThread();
+		comp.watch(500, 500, 401);
+		assertTrue(s.contains(500));
+		assertEquals(Integer.valueOf(500), s.getEquivalentElement(500));
+		assertEquals(Integer.valueOf(500), s.getLocator(500).get());
+		comp.watch(650, 700, 601);
+		assertEquals(Integer.valueOf(700), s.successor(650));
+		comp.watch(300, 300, 201);
+		assertTrue(s.remove(300));
+		assertFalse(s.contains(300));
+		comp.searcher = null;
+		assertTrue(comp.inserted > 0);
+		s.checkRep();
+		assertEquals(10 + comp.inserted, s.getSize());
+	}
+
+	@Test
+	public void testSearchesWhileNeighborsAreAdded() throws InterruptedException {
+		final int gaps = 200;
+		final int gap = 1000;
+		final int writers = 4;
+		final ConcurrentSkipList<Integer> s = new ConcurrentSkipList<Integer>();
+		for (int i = 1; i <= gaps; i++)
+			s.add(gap * i);  //present throughout
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicInteger current = new AtomicInteger(1);  //the gap being filled by writer 0
+		final AtomicInteger running = new AtomicInteger(writers);
+		Thread[] t = new Thread[writers + 1];
+		for (int w = 0; w < writers; w++) {
+			final int id = w;
+			t[w] = new Thread() {
+				public void run() {
+					for (int i = 1; i <= gaps; i++) {
+						if (id == 0)
+							current.set(i);
+						for (int k = 1 + id; k < gap; k += writers)  //each key lands between its
+							s.add(gap * (i - 1) + k);  //predecessors and gap * i
+					}
+					running.decrementAndGet();
+				}
+			};
+		}
+		t[writers] = new Thread() {
+			public void run() {
+				while (running.get() > 0) {
+					Integer x = gap * current.get();
+					if (!s.contains(x) || !x.equals(s.getEquivalentElement(x)) ||
+							!x.equals(s.getLocator(x).get()) || !x.equals(s.successor(x - 1)))
+						failures.incrementAndGet();
+					if (s.successor(x) <= x || s.predecessor(x + 1) < x)
+						failures.incrementAndGet();
+					if (s.remove(x))  //and put it back
+						s.add(x);
+					else
+						failures.incrementAndGet();
+				}
+			}
+		};
+		for (Thread thread : t)
+			thread.start();
+		for (Thread thread : t)
+			thread.join();
+		assertEquals(0, failures.get());
+		s.checkRep();
+		assertEquals(gap * gaps, s.getSize());
+	}
+
+	@Test
+	public void testRetreatOverDuplicates() {
+		ConcurrentSkipList<Integer> s = new ConcurrentSkipList<Integer>();
+		for (int i = 0; i < 3; i++) {
+			s.add(1);
+			s.add(2);
+			s.add(3);
+		}
+		Locator<Integer> loc = s.iteratorAtEnd();
+		int n = 0;
+		while (loc.retreat())
+			n++;
+		assertEquals(9, n);
+		assertEquals(Integer.valueOf(1), s.min());
+		assertEquals(Integer.valueOf(3), s.max());
+		assertEquals(Integer.valueOf(1), s.predecessor(2));
+		assertEquals(Integer.valueOf(3), s.successor(2));
+		assertEquals(Integer.valueOf(2), s.get(5));
+	}
+}
@@ -0,0 +1,209 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import goldman.Codec;
+import goldman.Objects;
+import goldman.collection.Locator;
+import goldman.collection.Visitor;
+import goldman.collection.ordered.DiskBPlusTree;
+
+public class DiskBPlusTreeTest {
+
+	File tempFile() throws IOException {
+		File f = File.createTempFile("bplustree", ".db");
+		f.delete();
+		f.deleteOnExit();
+		DiskBPlusTree.journalFile(f).deleteOnExit();
+		return f;
+	}
+
+	DiskBPlusTree<Integer> open(File f, int poolSize) throws IOException {
+		return new DiskBPlusTree<Integer>(f, Codec.INTEGER, Objects.DEFAULT_COMPARATOR, 128, poolSize);
+	}
+
+	void checkContents(ArrayList<Integer> expected, DiskBPlusTree<Integer> t) {
+		t.checkRep();
+		assertEquals(expected.size(), t.getSize());
+		int i = 0;
+		for (Integer x : t)
+			assertEquals(expected.get(i++), x);
+		assertEquals(expected.size(), i);
+	}
+
+	@Test
+	public void testAgainstSortedList() throws IOException {
+		DiskBPlusTree<Integer> t = open(tempFile(), 16);   //small pages and pool force evictions
+		ArrayList<Integer> expected = new ArrayList<Integer>();
+		Random random = new Random(3);
+		for (int op = 0; op < 20000; op++) {
+			int x = random.nextInt(500);
+			if (random.nextInt(3) > 0 || expected.isEmpty()) {
+				t.add(x);
+				int i = Collections.binarySearch(expected, x);
+				expected.add(i < 0 ? -i-1 : i, x);
+			} else
+				assertEquals(expected.remove((Integer) x), t.remove(x));
+			if (op % 2000 == 0)
+				checkContents(expected, t);
+		}
+		checkContents(expected, t);
+		for (int x = -1; x <= 500; x += 7) {
+			assertEquals(expected.contains(x), t.contains(x));
+			int i = Collections.binarySearch(expected, x);
+			int lower = (i < 0) ? -i-2 : expected.indexOf(x) - 1;
+			int upper = (i < 0) ? -i-1 : expected.lastIndexOf(x) + 1;
+			if (lower >= 0)
+				assertEquals(expected.get(lower), t.predecessor(x));
+			if (upper < expected.size())
+				assertEquals(expected.get(upper), t.successor(x));
+		}
+		assertEquals(expected.get(0), t.min());
+		assertEquals(expected.get(expected.size()-1), t.max());
+		assertEquals(expected.get(expected.size()/2), t.get(expected.size()/2));
+		while (!expected.isEmpty())
+			assertTrue(t.remove(expected.remove(expected.size()-1)));
+		checkContents(expected, t);
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		File f = tempFile();
+		DiskBPlusTree<Integer> t = open(f, 16);
+		ArrayList<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 3000; i++) {
+			t.add(i * 3 % 3001);
+			expected.add(i * 3 % 3001);
+		}
+		Collections.sort(expected);
+		t.close();
+		DiskBPlusTree<Integer> reopened = open(f, 16);
+		checkContents(expected, reopened);
+		reopened.remove(0);
+		reopened.add(5000);
+		reopened.close();
+		expected.remove(0);
+		expected.add(5000);
+		checkContents(expected, open(f, 16));
+	}
+
+	@Test
+	public void testChangesAfterCheckpointAreLost() throws IOException {
+		File f = tempFile();
+		DiskBPlusTree<Integer> t = open(f, 1000);   //large enough that no checkpoint is automatic
+		for (int i = 0; i < 500; i++)
+			t.add(i);
+		t.checkpoint();
+		for (int i = 0; i < 250; i++)
+			t.remove(i);
+		t.add(1000);
+		DiskBPlusTree<Integer> crashed = open(f, 16);
+		assertEquals(500, crashed.getSize());
+		crashed.checkRep();
+		assertEquals(Integer.valueOf(499), crashed.max());
+		assertEquals(251, t.getSize());
+	}
+
+	@Test
+	public void testTornJournalIsIgnored() throws IOException {
+		File f = tempFile();
+		DiskBPlusTree<Integer> t = open(f, 16);
+		for (int i = 0; i < 100; i++)
+			t.add(i);
+		t.close();
+		RandomAccessFile journal = new RandomAccessFile(DiskBPlusTree.journalFile(f), "rw");
+		journal.writeInt(0x4A524E4C);   //a journal whose checksum was never written
+		journal.writeInt(128);
+		journal.writeInt(1);
+		journal.close();
+		DiskBPlusTree<Integer> recovered = open(f, 16);
+		assertEquals(100, recovered.getSize());
+		recovered.checkRep();
+		assertEquals(0L, DiskBPlusTree.journalFile(f).length());
+	}
+
+	@Test
+	public void testVariableSizeElements() throws IOException {
+		File f = tempFile();
+		DiskBPlusTree<String> t = new DiskBPlusTree<String>(f, Codec.STRING,
+				Objects.DEFAULT_COMPARATOR, 256, 16);
+		ArrayList<String> expected = new ArrayList<String>();
+		Random random = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder s = new StringBuilder();
+			for (int j = random.nextInt(t.getMaxElementSize()); j >= 0; j--)
+				s.append((char) ('a' + random.nextInt(26)));
+			t.add(s.toString());
+			expected.add(s.toString());
+		}
+		Collections.sort(expected);
+		t.checkRep();
+		for (int i = 0; i < 2000; i += 2)
+			assertTrue(t.remove(expected.get(i)));
+		t.close();
+		t = new DiskBPlusTree<String>(f, Codec.STRING, Objects.DEFAULT_COMPARATOR, 256, 16);
+		t.checkRep();
+		int i = 1;
+		for (String s : t) {
+			assertEquals(expected.get(i), s);
+			i += 2;
+		}
+		try {
+			t.add(new String(new char[t.getMaxElementSize() + 1]));
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException iae) { }
+	}
+
+	@Test
+	public void testRangeScan() throws IOException {
+		DiskBPlusTree<Integer> t = open(tempFile(), 16);
+		for (int i = 0; i < 1000; i++)
+			t.add(i / 2);                 //each value twice
+		final ArrayList<Integer> visited = new ArrayList<Integer>();
+		t.forEachInRange(100, 104, new Visitor<Integer>() {
+			public void visit(Integer x) {
+				visited.add(x);
+			}
+		});
+		assertEquals("[100, 100, 101, 101, 102, 102, 103, 103, 104, 104]", visited.toString());
+		assertEquals(10, t.countInRange(100, 104));
+		assertEquals(1000, t.countInRange(-5, 600));
+		assertEquals(0, t.countInRange(600, 700));
+		assertEquals(2, t.countInRange(499, 499));
+	}
+
+	@Test
+	public void testMarkers() throws IOException {
+		DiskBPlusTree<Integer> t = open(tempFile(), 16);
+		for (int i = 0; i < 200; i++)
+			t.add(i);
+		Locator<Integer> loc = t.getLocator(150);
+		assertEquals(Integer.valueOf(150), loc.get());
+		assertTrue(loc.retreat());
+		assertEquals(Integer.valueOf(149), loc.get());
+		Locator<Integer> end = t.iteratorAtEnd();
+		assertTrue(end.retreat());
+		assertEquals(Integer.valueOf(199), end.get());
+		assertFalse(end.hasNext());
+		assertFalse(end.advance());
+		try {
+			t.getLocator(500);
+			fail("NoSuchElementException expected");
+		} catch (NoSuchElementException nsee) { }
+		try {
+			t.predecessor(0);
+			fail("NoSuchElementException expected");
+		} catch (NoSuchElementException nsee) { }
+		t.clear();
+		assertEquals("{}", t.toString());
+		t.checkRep();
+	}
+}
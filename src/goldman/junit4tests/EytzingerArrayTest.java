@@ -0,0 +1,173 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import goldman.collection.Locator;
+import goldman.collection.ordered.EytzingerArray;
+import goldman.collection.ordered.LongEytzingerArray;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SortedArray;
+
+public class EytzingerArrayTest {
+
+	Integer predecessor(ArrayList<Integer> model, int x) {
+		Integer result = null;
+		for (int y : model)
+			if (y < x)
+				result = y;
+		return result;
+	}
+
+	Integer successor(ArrayList<Integer> model, int x) {
+		for (int y : model)
+			if (y > x)
+				return y;
+		return null;
+	}
+
+	void check(EytzingerArray<Integer> e, ArrayList<Integer> model) {
+		e.checkRep();
+		assertEquals(model.size(), e.getSize());
+		for (int r = 0; r < model.size(); r++)
+			assertEquals(model.get(r), e.get(r));
+		ArrayList<Integer> forward = new ArrayList<Integer>();
+		for (Integer x : e)
+			forward.add(x);
+		assertEquals(model, forward);
+		ArrayList<Integer> backward = new ArrayList<Integer>();
+		Locator<Integer> loc = e.iteratorAtEnd();
+		while (loc.retreat())
+			backward.add(0, loc.get());
+		assertEquals(model, backward);
+		for (int x = -2; x <= 2 * model.size() + 2; x++) {
+			assertEquals(model.contains(x), e.contains(x));
+			Integer p = predecessor(model, x);
+			Integer s = successor(model, x);
+			try {
+				assertEquals(p, e.predecessor(x));
+			} catch (NoSuchElementException ex) {
+				assertEquals(null, p);
+			}
+			try {
+				assertEquals(s, e.successor(x));
+			} catch (NoSuchElementException ex) {
+				assertEquals(null, s);
+			}
+			if (model.contains(x)) {
+				loc = e.getLocator(x);
+				assertEquals((Integer) x, loc.get());
+				if (loc.retreat())
+					assertTrue(loc.get() < x);
+			}
+		}
+		if (model.isEmpty()) {
+			try {
+				e.min();
+				fail();
+			} catch (NoSuchElementException ex) {}
+		} else {
+			assertEquals(model.get(0), e.min());
+			assertEquals(model.get(model.size() - 1), e.max());
+		}
+		try {
+			e.get(model.size());
+			fail();
+		} catch (IllegalArgumentException ex) {}
+	}
+
+	@Test
+	public void testAllSmallSizes() {
+		Random random = new Random(3);
+		for (int n = 0; n <= 100; n++) {
+			SortedArray<Integer> s = new SortedArray<Integer>();
+			RedBlackTree<Integer> t = new RedBlackTree<Integer>();
+			for (int i = 0; i < n; i++) {
+				int x = random.nextInt(2 * n);
+				s.add(x);
+				t.add(x);
+			}
+			ArrayList<Integer> model = new ArrayList<Integer>();
+			for (Integer x : s)
+				model.add(x);
+			check(EytzingerArray.freeze(s), model);
+			check(EytzingerArray.freeze(t), model);
+		}
+	}
+
+	@Test
+	public void testLongVariant() {
+		Random random = new Random(5);
+		for (int n = 0; n <= 70; n++) {
+			long[] values = new long[n];
+			ArrayList<Integer> model = new ArrayList<Integer>();
+			SortedArray<Long> s = new SortedArray<Long>();
+			for (int i = 0; i < n; i++) {
+				int x = random.nextInt(2 * n);
+				values[i] = x;
+				s.add((long) x);
+				int j = 0;
+				while (j < model.size() && model.get(j) <= x)
+					j++;
+				model.add(j, x);
+			}
+			LongEytzingerArray e = new LongEytzingerArray(values);
+			assertEquals(e.toString(), new LongEytzingerArray(s).toString());
+			for (int r = 0; r < n; r++) {
+				assertEquals((long) model.get(r), e.getLong(r));
+				assertEquals((long) model.get(r), (long) e.get(r));
+			}
+			for (long x = -2; x <= 2 * n + 2; x++) {
+				assertEquals(model.contains((int) x), e.contains(x));
+				assertEquals(model.contains((int) x), e.contains((Long) x));
+				Integer p = predecessor(model, (int) x);
+				Integer q = successor(model, (int) x);
+				try {
+					assertEquals(p, (Integer) (int) e.predecessor(x));
+				} catch (NoSuchElementException ex) {
+					assertEquals(null, p);
+				}
+				try {
+					assertEquals(q, (Integer) (int) (long) e.successor((Long) x));
+				} catch (NoSuchElementException ex) {
+					assertEquals(null, q);
+				}
+			}
+		}
+		LongEytzingerArray e = new LongEytzingerArray(new long[] {Long.MIN_VALUE, Long.MAX_VALUE, 0});
+		assertEquals(0L, e.successor(Long.MIN_VALUE));
+		assertEquals(Long.MAX_VALUE, e.successor(0L));
+		assertEquals(0L, e.predecessor(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testReadOnly() {
+		SortedArray<Integer> s = new SortedArray<Integer>();
+		for (int i = 0; i < 10; i++)
+			s.add(i);
+		EytzingerArray<Integer> e = EytzingerArray.freeze(s);
+		s.add(20);
+		assertEquals(10, e.getSize());
+		try {
+			e.add(3);
+			fail();
+		} catch (UnsupportedOperationException ex) {}
+		try {
+			e.remove(3);
+			fail();
+		} catch (UnsupportedOperationException ex) {}
+		try {
+			e.clear();
+			fail();
+		} catch (UnsupportedOperationException ex) {}
+		Locator<Integer> loc = e.getLocator(4);
+		try {
+			loc.remove();
+			fail();
+		} catch (UnsupportedOperationException ex) {}
+		assertEquals(10, e.getSize());
+	}
+}
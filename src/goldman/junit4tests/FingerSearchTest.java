@@ -0,0 +1,132 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import goldman.collection.Locator;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.BinarySearchTree;
+import goldman.collection.ordered.OrderedCollection;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SkipList;
+
+public class FingerSearchTest {
+
+	@SuppressWarnings("unchecked")
+	OrderedCollection<Integer>[] collections() {
+		return (OrderedCollection<Integer>[]) new OrderedCollection<?>[] {
+				new SkipList<Integer>(), new BinarySearchTree<Integer>(), new RedBlackTree<Integer>(),
+				new BPlusTree<Integer>(2), new BPlusTree<Integer>(4)};
+	}
+
+	Locator<Integer> searchFrom(OrderedCollection<Integer> c, Locator<Integer> finger, int target) {
+		if (c instanceof SkipList)
+			return ((SkipList<Integer>) c).searchFrom(finger, target);
+		else if (c instanceof BPlusTree)
+			return ((BPlusTree<Integer>) c).searchFrom(finger, target);
+		else
+			return ((BinarySearchTree<Integer>) c).searchFrom(finger, target);
+	}
+
+	//checks that loc is at the first element that is at least target
+	void check(OrderedCollection<Integer> c, ArrayList<Integer> model, Locator<Integer> loc, int target) {
+		int i = Collections.binarySearch(model, target);
+		if (i < 0)
+			i = -i - 1;
+		else
+			while (i > 0 && model.get(i - 1) == target)
+				i--;
+		String name = c.getClass().getSimpleName() + " target " + target;
+		if (i == model.size()) {
+			assertEquals(name, !model.isEmpty(), loc.retreat());  //the tracker is at AFT
+			if (!model.isEmpty())
+				assertEquals(name, model.get(i - 1), loc.get());
+		} else {
+			assertEquals(name, model.get(i), loc.get());
+			if (loc.retreat())                 //the tracker is at the first of any equivalent elements
+				assertEquals(name, model.get(i - 1), loc.get());
+			else
+				assertEquals(name, 0, i);
+		}
+	}
+
+	@Test
+	public void testNearbyAndDistantTargets() {
+		Random random = new Random(9);
+		for (OrderedCollection<Integer> c : collections()) {
+			ArrayList<Integer> model = new ArrayList<Integer>();
+			for (int i = 0; i < 2000; i++) {
+				int x = random.nextInt(3000);
+				c.add(x);
+				model.add(x);
+			}
+			Collections.sort(model);
+			Locator<Integer> finger = c.iterator();
+			int target = 1500;
+			for (int step = 0; step < 3000; step++) {
+				int move = (step % 10 == 0) ? random.nextInt(4000) - 2000 : random.nextInt(41) - 20;
+				target = Math.max(-100, Math.min(3100, target + move));
+				Locator<Integer> loc = searchFrom(c, finger, target);
+				check(c, model, loc, target);
+				finger = searchFrom(c, finger, target);
+				if (step % 7 == 0)
+					finger = (random.nextBoolean()) ? c.iterator() : c.iteratorAtEnd();
+			}
+		}
+	}
+
+	@Test
+	public void testSmallCollections() {
+		for (OrderedCollection<Integer> c : collections()) {
+			ArrayList<Integer> model = new ArrayList<Integer>();
+			check(c, model, searchFrom(c, c.iterator(), 5), 5);
+			for (int x : new int[] {10, 20, 20, 30}) {
+				c.add(x);
+				model.add(x);
+			}
+			for (int from = 0; from <= 4; from++)
+				for (int target = 5; target <= 35; target += 5) {
+					Locator<Integer> finger = c.iterator();
+					for (int i = 0; i < from; i++)
+						finger.advance();
+					check(c, model, searchFrom(c, finger, target), target);
+				}
+		}
+	}
+
+	@Test
+	public void testRemovedFingers() {
+		for (OrderedCollection<Integer> c : collections()) {
+			if (c instanceof BPlusTree)
+				continue;  //its markers do not survive changes
+			ArrayList<Integer> model = new ArrayList<Integer>();
+			for (int x = 0; x < 100; x++) {
+				c.add(x);
+				model.add(x);
+			}
+			Locator<Integer> finger = c.getLocator(50);
+			finger.remove();
+			model.remove((Integer) 50);
+			check(c, model, searchFrom(c, finger, 49), 49);
+			check(c, model, searchFrom(c, finger, 50), 50);
+			check(c, model, searchFrom(c, finger, 70), 70);
+		}
+	}
+
+	@Test
+	public void testForeignFinger() {
+		OrderedCollection<Integer>[] a = collections();
+		OrderedCollection<Integer>[] b = collections();
+		for (int i = 0; i < a.length; i++) {
+			a[i].add(1);
+			b[i].add(1);
+			try {
+				searchFrom(a[i], b[i].iterator(), 1);
+				fail();
+			} catch (IllegalArgumentException e) {}
+		}
+	}
+}
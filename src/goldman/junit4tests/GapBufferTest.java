@@ -0,0 +1,92 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import goldman.collection.*;
+import goldman.collection.positional.*;
+
+public class GapBufferTest extends PositionalCollectionTest {
+
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection() {
+		return new GapBuffer<Comparable>();
+	}
+	
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection(int size) {
+		return new GapBuffer<Comparable>(size);
+	}
+
+	protected PositionalCollection<IndexedNumber> createRadixCollection() {
+		return new GapBuffer<IndexedNumber>();
+	}
+	
+	protected PositionalCollection<IndexedNumber> createRadixCollection(int capacity) {
+		return new GapBuffer<IndexedNumber>(capacity);
+	}
+	
+	@Test
+	public void initializationTest() {
+		assertEquals(0, createCollection().getSize());
+	}
+
+	@Test
+	public void testEditsAtCursor() {
+		GapBuffer<Character> text = new GapBuffer<Character>(0);
+		for (char c : "hello world".toCharArray())
+			text.add(c);
+		PositionalCollectionLocator<Character> cursor = text.iteratorAt(5);
+		assertEquals(Character.valueOf(' '), cursor.get());
+		text.add(5, ',');
+		text.add(0, '>');
+		assertEquals(Character.valueOf(' '), cursor.get());
+		assertEquals(7, cursor.getCurrentPosition());
+		text.removeRange(8, 12);
+		text.add(8, 'y');
+		text.add(9, 'o');
+		text.add(10, 'u');
+		assertEquals("<>, h, e, l, l, o, ,,  , y, o, u>", text.toString());
+		PositionalCollectionLocator<Character> next = text.iteratorAt(8);
+		cursor.remove();
+		assertEquals(Character.valueOf(','), cursor.get());
+		assertEquals(Character.valueOf('y'), next.get());
+		text.remove(next.getCurrentPosition());
+		assertFalse(next.inCollection());
+		assertTrue(next.advance());
+		assertEquals(Character.valueOf('o'), next.get());
+		next.retreat();
+		assertEquals(Character.valueOf(','), next.get());
+		assertTrue(cursor.advance());
+		assertEquals(Character.valueOf('o'), cursor.get());
+		assertEquals("<>, h, e, l, l, o, ,, o, u>", text.toString());
+		text.trimToSize();
+		assertEquals(Character.valueOf('o'), cursor.get());
+		assertEquals(Character.valueOf('>'), text.get(0));
+	}
+
+	@Test
+	public void testRandomEditsMatchArray() {
+		java.util.Random random = new java.util.Random(7);
+		GapBuffer<Integer> buffer = new GapBuffer<Integer>();
+		DynamicArray<Integer> expected = new DynamicArray<Integer>();
+		for (int i = 0; i < 2000; i++) {
+			int op = random.nextInt(4);
+			if (op < 2 || expected.isEmpty()) {
+				int p = random.nextInt(expected.getSize() + 1);
+				buffer.add(p, i);
+				expected.add(p, i);
+			} else if (op == 2) {
+				int p = random.nextInt(expected.getSize());
+				assertEquals(expected.remove(p), buffer.remove(p));
+			} else {
+				int from = random.nextInt(expected.getSize());
+				int to = Math.min(expected.getSize() - 1, from + random.nextInt(5));
+				buffer.removeRange(from, to);
+				expected.removeRange(from, to);
+			}
+		}
+		assertEquals(expected.toString(), buffer.toString());
+		for (int p = 0; p < expected.getSize(); p++)
+			assertEquals(expected.get(p), buffer.get(p));
+	}
+}
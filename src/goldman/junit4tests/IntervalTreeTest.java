@@ -0,0 +1,200 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import goldman.collection.Interval;
+import goldman.collection.Locator;
+import goldman.collection.VisitAbortedException;
+import goldman.collection.Visitor;
+import goldman.collection.ordered.Aggregator;
+import goldman.collection.ordered.DefaultIntervalComparator;
+import goldman.collection.ordered.IntervalTree;
+import goldman.collection.tagged.TaggedElement;
+import goldman.collection.tagged.ordered.TaggedIntervalTree;
+
+public class IntervalTreeTest {
+
+	static class Span implements Interval<Integer>, Comparable<Span> {
+		final int min, max;
+
+		Span(int min, int max) {
+			this.min = min;
+			this.max = max;
+		}
+
+		public Integer getMin() {
+			return min;
+		}
+
+		public Integer getMax() {
+			return max;
+		}
+
+		public int compareTo(Span other) {
+			return (min != other.min) ? Integer.compare(min, other.min) : Integer.compare(max, other.max);
+		}
+
+		public String toString() {
+			return "[" + min + "," + max + "]";
+		}
+	}
+
+	//the spans in sorted order that overlap [lo, hi]
+	ArrayList<Span> expected(ArrayList<Span> model, int lo, int hi) {
+		ArrayList<Span> result = new ArrayList<Span>();
+		for (Span s : model)
+			if (s.min <= hi && s.max >= lo)
+				result.add(s);
+		Collections.sort(result);
+		return result;
+	}
+
+	ArrayList<Span> found(IntervalTree<Span> t, int lo, int hi) {
+		final ArrayList<Span> result = new ArrayList<Span>();
+		t.overlapping(new Span(lo, lo), new Span(hi, hi), new Visitor<Span>() {
+			public void visit(Span s) {
+				result.add(s);
+			}
+		});
+		return result;
+	}
+
+	void check(IntervalTree<Span> t, ArrayList<Span> model, Random random) {
+		for (int q = 0; q < 100; q++) {
+			int lo = random.nextInt(1100) - 50;
+			int hi = lo + random.nextInt(3) * random.nextInt(60);
+			assertEquals(expected(model, lo, hi).toString(), found(t, lo, hi).toString());
+		}
+		int p = random.nextInt(1000);
+		ArrayList<Span> atPoint = expected(model, p, p);
+		assertEquals(atPoint.size(), t.overlapping(new Span(p, p)).getSize());
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		Random random = new Random(8);
+		IntervalTree<Span> t = new IntervalTree<Span>();
+		ArrayList<Span> model = new ArrayList<Span>();
+		for (int op = 0; op < 3000; op++) {
+			if (model.isEmpty() || random.nextInt(4) > 0) {
+				int min = random.nextInt(1000);
+				Span s = new Span(min, min + random.nextInt(random.nextBoolean() ? 10 : 200));
+				if (random.nextInt(10) == 0) {
+					Locator<Span> loc = t.addTracked(s);
+					assertEquals(s, loc.get());
+				} else
+					t.add(s);
+				model.add(s);
+			} else {
+				Span s = model.remove(random.nextInt(model.size()));
+				assertTrue(t.remove(s));
+			}
+			if (op % 100 == 0)
+				check(t, model, random);
+		}
+		check(t, model, random);
+		t.checkRep();
+	}
+
+	@Test
+	public void testUnion() {
+		Random random = new Random(9);
+		IntervalTree<Span> a = new IntervalTree<Span>();
+		IntervalTree<Span> b = new IntervalTree<Span>();
+		ArrayList<Span> model = new ArrayList<Span>();
+		for (int i = 0; i < 2000; i++) {
+			Span s = new Span(i / 2, i / 2 + random.nextInt(100));
+			((i % 3 == 0) ? b : a).add(s);
+			if (!a.contains(s) || !b.contains(s))  //union keeps one of two equivalent elements
+				model.add(s);
+		}
+		a.union(b);
+		check(a, model, random);
+	}
+
+	@Test
+	public void testEndpointsAreClosed() {
+		IntervalTree<Span> t = new IntervalTree<Span>();
+		t.add(new Span(10, 20));
+		t.add(new Span(20, 30));
+		t.add(new Span(5, 5));
+		assertEquals("<[10,20], [20,30]>", t.overlapping(new Span(20, 20)).toString());
+		assertEquals("<[5,5]>", t.overlapping(new Span(5, 5)).toString());
+		assertEquals("<>", t.overlapping(new Span(6, 9)).toString());
+		assertEquals("<[5,5], [10,20]>", t.overlapping(new Span(0, 0), new Span(10, 10)).toString());
+		assertEquals("<[20,30]>", t.overlapping(new Span(25, 31)).toString());
+		assertEquals("<>", new IntervalTree<Span>().overlapping(new Span(1, 1)).toString());
+	}
+
+	@Test
+	public void testVisitorAborts() {
+		IntervalTree<Span> t = new IntervalTree<Span>();
+		for (int i = 0; i < 10; i++)
+			t.add(new Span(i, i + 5));
+		final int[] visited = new int[1];
+		try {
+			t.overlapping(new Span(0, 0), new Span(20, 20), new Visitor<Span>() {
+				public void visit(Span s) throws Exception {
+					if (++visited[0] == 3)
+						throw new Exception("stop");
+				}
+			});
+			fail();
+		} catch (VisitAbortedException e) {}
+		assertEquals(3, visited[0]);
+	}
+
+	@Test
+	public void testFixedAggregator() {
+		IntervalTree<Span> t = new IntervalTree<Span>();
+		try {
+			t.setAggregator(new Aggregator<Span,Integer>() {
+				public Integer identity() {
+					return 0;
+				}
+				public Integer lift(Span s) {
+					return 1;
+				}
+				public Integer combine(Integer a, Integer b) {
+					return a + b;
+				}
+			});
+			fail();
+		} catch (UnsupportedOperationException e) {}
+	}
+
+	@Test
+	public void testTaggedPayloads() {
+		TaggedIntervalTree<Span,String> leases = new TaggedIntervalTree<Span,String>();
+		leases.put(new Span(0, 100), "a");
+		leases.put(new Span(50, 60), "b");
+		leases.put(new Span(70, 200), "c");
+		leases.put(new Span(300, 400), "d");
+		StringBuilder names = new StringBuilder();
+		for (TaggedElement<Span,String> e : leases.overlapping(new Span(55, 75)))
+			names.append(e.getElement());
+		assertEquals("abc", names.toString());
+		assertEquals(0, leases.overlapping(new Span(250, 250)).getSize());
+		final StringBuilder visited = new StringBuilder();
+		leases.overlapping(new Span(150, 150), new Span(350, 350), new Visitor<TaggedElement<Span,String>>() {
+			public void visit(TaggedElement<Span,String> e) {
+				visited.append(e.getElement());
+			}
+		});
+		assertEquals("cd", visited.toString());
+		assertEquals("d", leases.max().getElement());
+	}
+
+	@Test
+	public void testEndpointComparator() {
+		IntervalTree<Interval<Integer>> t = new IntervalTree<Interval<Integer>>(
+				new DefaultIntervalComparator<Integer>(Collections.reverseOrder()));
+		t.add(new Span(10, 0));  //with the order reversed, 10 precedes 0
+		assertEquals(1, t.overlapping(new Span(5, 5)).getSize());
+		assertEquals(0, t.overlapping(new Span(11, 11)).getSize());
+	}
+}
@@ -0,0 +1,128 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import goldman.Objects;
+import goldman.collection.Collection;
+import goldman.collection.ordered.LogStructuredMergeTree;
+import goldman.collection.ordered.SortedArray;
+import goldman.collection.positional.Array;
+
+public class LogStructuredMergeTreeTest extends OrderedCollectionTest {
+
+	static final Executor SAME_THREAD = new Executor() {
+		public void execute(Runnable r) {
+			r.run();
+		}
+	};
+
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection() {
+		return new LogStructuredMergeTree<Comparable>(Objects.DEFAULT_COMPARATOR, 3, SAME_THREAD);
+	}
+
+	@Test
+	public void initializationTest() {
+		assertEquals(0, createCollection().getSize());
+	}
+
+	void checkAgainstSortedList(LogStructuredMergeTree<Integer> t, Random random, int ops) throws InterruptedException {
+		ArrayList<Integer> expected = new ArrayList<Integer>();
+		for (int op = 0; op < ops; op++) {
+			Integer x = random.nextInt(300);
+			if (random.nextInt(3) > 0) {
+				t.add(x);
+				int i = Collections.binarySearch(expected, x);
+				expected.add(i < 0 ? -i - 1 : i, x);
+			} else
+				assertEquals(expected.remove(x), t.remove(x));
+			if (op % 1000 == 0)
+				t.checkRep();
+			if (op % 5000 == 0)
+				t.compactFully();
+		}
+		t.awaitCompaction();
+		t.checkRep();
+		assertEquals(expected.size(), t.getSize());
+		assertEquals(expected.toString().replace('[', '{').replace(']', '}'), t.toString());
+		for (int x = -1; x <= 300; x++) {
+			assertEquals(expected.contains(x), t.contains(x));
+			ArrayList<Integer> less = new ArrayList<Integer>();
+			ArrayList<Integer> greater = new ArrayList<Integer>();
+			for (Integer e : expected)
+				if (e < x)
+					less.add(e);
+				else if (e > x)
+					greater.add(e);
+			if (!less.isEmpty())
+				assertEquals(less.get(less.size() - 1), t.predecessor(x));
+			if (!greater.isEmpty())
+				assertEquals(greater.get(0), t.successor(x));
+		}
+		assertEquals(expected.get(0), t.min());
+		assertEquals(expected.get(expected.size() - 1), t.max());
+		assertEquals(expected.get(expected.size() / 3), t.get(expected.size() / 3));
+	}
+
+	@Test
+	public void testAgainstSortedList() throws InterruptedException {
+		checkAgainstSortedList(new LogStructuredMergeTree<Integer>(Objects.DEFAULT_COMPARATOR, 16, SAME_THREAD),
+				new Random(2), 20000);
+	}
+
+	@Test
+	public void testBackgroundCompaction() throws InterruptedException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		LogStructuredMergeTree<Integer> t = new LogStructuredMergeTree<Integer>(Objects.DEFAULT_COMPARATOR, 8,
+				executor);
+		checkAgainstSortedList(t, new Random(3), 20000);
+		assertTrue(t.getNumRuns() <= 16);
+		executor.shutdown();
+	}
+
+	@Test
+	public void testTombstonesAreDropped() {
+		LogStructuredMergeTree<Integer> t = new LogStructuredMergeTree<Integer>(Objects.DEFAULT_COMPARATOR, 4, SAME_THREAD);
+		for (int i = 0; i < 100; i++)
+			t.add(i);
+		for (int i = 0; i < 100; i += 2)
+			t.remove(i);
+		t.compactFully();
+		assertEquals(1, t.getNumRuns());
+		assertEquals(50, t.getSize());
+		assertEquals(Integer.valueOf(1), t.min());
+		t.checkRep();
+	}
+
+	@Test
+	public void testSortedArrayAddAll() {
+		Random random = new Random(4);
+		for (int n : new int[] {0, 1, 10, 1000}) {
+			for (int m : new int[] {0, 1, 7, 500}) {
+				SortedArray<Integer> s = new SortedArray<Integer>();
+				Array<Integer> batch = new Array<Integer>(m);
+				ArrayList<Integer> expected = new ArrayList<Integer>();
+				for (int i = 0; i < n; i++) {
+					int x = random.nextInt(100);
+					s.add(x);
+					expected.add(x);
+				}
+				for (int i = 0; i < m; i++) {
+					int x = random.nextInt(100);
+					batch.add(x);
+					expected.add(x);
+				}
+				s.addAll(batch);
+				Collections.sort(expected);
+				assertEquals(expected.toString().replace('[', '{').replace(']', '}'), s.toString());
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import goldman.collection.Locator;
+import goldman.collection.tagged.TaggedElement;
+import goldman.collection.tagged.ordered.LongBPlusTree;
+import goldman.collection.tagged.ordered.TaggedBPlusTree;
+
+public class LongBPlusTreeTest {
+
+	void checkSame(TaggedBPlusTree<Long,String> expected, LongBPlusTree<String> t) {
+		t.checkRep();
+		assertEquals(expected.getSize(), t.getSize());
+		assertEquals(expected.toString(), t.toString());
+	}
+
+	@Test
+	public void testAgainstTaggedBPlusTree() {
+		for (int order : new int[] {2, 3, 8}) {
+			TaggedBPlusTree<Long,String> expected = new TaggedBPlusTree<Long,String>();
+			LongBPlusTree<String> t = new LongBPlusTree<String>(order);
+			Random random = new Random(order);
+			for (int op = 0; op < 20000; op++) {
+				long tag = random.nextInt(300) - 150;
+				if (random.nextInt(3) > 0 || expected.getSize() == 0) {
+					expected.put(tag, "e" + tag);
+					t.putLong(tag, "e" + tag);
+				} else {
+					assertEquals(expected.contains(tag), t.contains(tag));
+					if (expected.contains(tag))
+						assertEquals(expected.remove(tag), t.remove(tag));
+				}
+				if (op % 1000 == 0)
+					checkSame(expected, t);
+			}
+			checkSame(expected, t);
+			for (long tag = -160; tag <= 160; tag++) {
+				assertEquals(expected.contains(tag), t.contains(tag));
+				if (expected.contains(tag))
+					assertEquals(expected.get(tag), t.get(tag));
+				try {
+					assertEquals(expected.predecessor(tag), Long.valueOf(t.predecessor(tag)));
+				} catch (NoSuchElementException nsee) {
+					assertTrue(tag <= t.minTag());
+				}
+				try {
+					assertEquals(expected.successor(tag), Long.valueOf(t.successor(tag)));
+				} catch (NoSuchElementException nsee) {
+					assertTrue(tag >= t.maxTag());
+				}
+			}
+			assertEquals(expected.min().getTag(), t.min().getTag());
+			assertEquals(expected.max().getTag(), t.max().getTag());
+			while (expected.getSize() > 0) {
+				long tag = expected.max().getTag();
+				assertEquals(expected.remove(tag), t.remove(tag));
+			}
+			checkSame(expected, t);
+		}
+	}
+
+	@Test
+	public void testFloorAndCeiling() {
+		LongBPlusTree<String> t = new LongBPlusTree<String>(2);
+		for (long tag = 0; tag < 100; tag += 10)
+			t.putLong(tag, "" + tag);
+		assertEquals(20L, t.floor(20));
+		assertEquals(20L, t.floor(29));
+		assertEquals(20L, t.ceiling(20));
+		assertEquals(30L, t.ceiling(21));
+		assertEquals(90L, t.floor(Long.MAX_VALUE));
+		assertEquals(0L, t.ceiling(Long.MIN_VALUE));
+		try {
+			t.floor(-1);
+			fail("NoSuchElementException expected");
+		} catch (NoSuchElementException nsee) { }
+		try {
+			t.ceiling(91);
+			fail("NoSuchElementException expected");
+		} catch (NoSuchElementException nsee) { }
+	}
+
+	@Test
+	public void testRanges() {
+		for (int order : new int[] {2, 3, 8}) {
+			LongBPlusTree<String> t = new LongBPlusTree<String>(order);
+			ArrayList<Long> tags = new ArrayList<Long>();
+			Random random = new Random(order);
+			for (int i = 0; i < 300; i++) {
+				long tag = random.nextInt(100);
+				t.putLong(tag, "" + tag);
+				tags.add(tag);
+			}
+			Collections.sort(tags);
+			LongBPlusTree<String>.RangeCursor cursor = t.rangeCursor(0, true, 0, true);
+			LongBPlusTree<String>.RangeCursor reverse = t.reverseRangeCursor(0, true, 0, true);
+			for (long lo = -1; lo <= 101; lo += 3)
+				for (long hi = lo - 2; hi <= 101; hi += 5)
+					for (int inclusive = 0; inclusive < 4; inclusive++) {
+						boolean loInclusive = (inclusive & 1) != 0;
+						boolean hiInclusive = (inclusive & 2) != 0;
+						ArrayList<Long> range = new ArrayList<Long>();
+						for (long tag : tags)
+							if ((tag > lo || (loInclusive && tag == lo)) &&
+									(tag < hi || (hiInclusive && tag == hi)))
+								range.add(tag);
+						assertEquals(range.size(), t.countRange(lo, loInclusive, hi, hiInclusive));
+						cursor.seek(lo, loInclusive, hi, hiInclusive);
+						for (long tag : range) {
+							assertEquals(tag, cursor.nextTag());
+							assertEquals("" + tag, cursor.element());
+						}
+						assertFalse(cursor.hasNext());
+						reverse.seek(lo, loInclusive, hi, hiInclusive);
+						for (int i = range.size() - 1; i >= 0; i--)
+							assertEquals(range.get(i).longValue(), reverse.nextTag());
+						assertFalse(reverse.hasNext());
+					}
+			final ArrayList<Long> visited = new ArrayList<Long>();
+			t.forEachInRange(Long.MIN_VALUE, true, Long.MAX_VALUE, true,
+					new LongBPlusTree.EntryVisitor<String>() {
+						public void visit(long tag, String element) {
+							visited.add(tag);
+						}
+					});
+			assertEquals(tags, visited);
+		}
+	}
+
+	@Test
+	public void testLocators() {
+		LongBPlusTree<String> t = new LongBPlusTree<String>(2);
+		Locator<TaggedElement<Long,String>> loc = t.iterator();
+		assertFalse(loc.hasNext());
+		assertFalse(loc.advance());
+		assertFalse(t.iteratorAtEnd().retreat());
+		for (long tag = 0; tag < 50; tag++)
+			t.putLong(tag, "" + tag);
+		loc = t.getLocator(20L);
+		assertEquals("20 --> 20", loc.get().toString());
+		assertTrue(loc.retreat());
+		assertEquals(Long.valueOf(19), loc.get().getTag());
+		Locator<TaggedElement<Long,String>> end = t.iteratorAtEnd();
+		assertTrue(end.retreat());
+		assertEquals(Long.valueOf(49), end.get().getTag());
+		assertFalse(end.hasNext());
+		long expected = 0;
+		for (TaggedElement<Long,String> te : t)
+			assertEquals(Long.valueOf(expected++), te.getTag());
+		assertEquals(50L, expected);
+		t.clear();
+		assertEquals("{}", t.toString());
+		try {
+			t.get(3);
+			fail("NoSuchElementException expected");
+		} catch (NoSuchElementException nsee) { }
+	}
+}
@@ -0,0 +1,153 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+import goldman.collection.positional.DynamicArray;
+import goldman.collection.positional.LongSegmentTree;
+import goldman.collection.positional.PositionOutOfBoundsException;
+import goldman.collection.positional.PositionalCollectionLocator;
+
+public class LongSegmentTreeTest {
+
+	void checkRanges(DynamicArray<Long> expected, LongSegmentTree t, Random random) {
+		t.checkRep();
+		assertEquals(expected.getSize(), t.getSize());
+		for (int q = 0; q < 20 && !expected.isEmpty(); q++) {
+			int lo = random.nextInt(expected.getSize());
+			int hi = lo + random.nextInt(expected.getSize() - lo);
+			long sum = 0, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+			for (int p = lo; p <= hi; p++) {
+				long x = expected.get(p);
+				sum += x;
+				min = Math.min(min, x);
+				max = Math.max(max, x);
+			}
+			assertEquals(sum, t.rangeSum(lo, hi));
+			assertEquals(min, t.rangeMin(lo, hi));
+			assertEquals(max, t.rangeMax(lo, hi));
+		}
+	}
+
+	@Test
+	public void testAgainstArray() {
+		Random random = new Random(17);
+		LongSegmentTree t = new LongSegmentTree(1);
+		DynamicArray<Long> expected = new DynamicArray<Long>();
+		for (int op = 0; op < 5000; op++) {
+			int kind = random.nextInt(10);
+			long value = random.nextInt(2000) - 1000;
+			if (kind < 3 || expected.isEmpty()) {
+				expected.add(value);
+				t.add(value);
+			} else if (kind == 3) {
+				int p = random.nextInt(expected.getSize() + 1);
+				expected.add(p, value);
+				t.add(p, value);
+			} else if (kind == 4) {
+				int p = random.nextInt(expected.getSize());
+				assertEquals(expected.remove(p), t.remove(p));
+			} else if (kind == 5) {
+				assertEquals(expected.removeLast(), t.removeLast());
+			} else if (kind == 6) {
+				int p = random.nextInt(expected.getSize());
+				assertEquals(expected.set(p, value), Long.valueOf(t.set(p, value)));
+			} else {
+				int lo = random.nextInt(expected.getSize());
+				int hi = lo + random.nextInt(Math.min(expected.getSize() - lo, 50));
+				for (int p = lo; p <= hi; p++)
+					expected.set(p, expected.get(p) + value);
+				t.rangeAdd(lo, hi, value);
+			}
+			if (op % 50 == 0)
+				checkRanges(expected, t, random);
+		}
+		checkRanges(expected, t, random);
+		for (int p = 0; p < expected.getSize(); p++)
+			assertEquals(expected.get(p), t.get(p));
+		assertEquals(expected.toString().replace('{', '<').replace('}', '>'), t.toString());
+		int size = expected.getSize();
+		expected.removeRange(size/4, size/2);
+		t.removeRange(size/4, size/2);
+		checkRanges(expected, t, random);
+		t.clear();
+		assertTrue(t.isEmpty());
+		t.checkRep();
+	}
+
+	@Test
+	public void testBulkLoad() {
+		for (int n : new int[] {0, 1, 7, 8, 1000, 50000}) {
+			long[] values = new long[n];
+			Random random = new Random(n);
+			for (int i = 0; i < n; i++)
+				values[i] = random.nextLong() >> 20;
+			LongSegmentTree serial = LongSegmentTree.bulkLoad(values);
+			LongSegmentTree parallel = LongSegmentTree.parallelBulkLoad(values);
+			serial.checkRep();
+			parallel.checkRep();
+			assertArrayEquals(values, serial.toLongArray());
+			assertArrayEquals(values, parallel.toLongArray());
+			if (n > 0) {
+				assertEquals(serial.rangeSum(0, n-1), parallel.rangeSum(0, n-1));
+				assertEquals(serial.rangeMin(0, n-1), parallel.rangeMin(0, n-1));
+				assertEquals(serial.rangeMax(n/2, n-1), parallel.rangeMax(n/2, n-1));
+			}
+			parallel.add(5L);
+			assertEquals(5L, parallel.getLong(n));
+			parallel.checkRep();
+		}
+	}
+
+	@Test
+	public void testLazyAddsReachLaterEdits() {
+		LongSegmentTree t = LongSegmentTree.bulkLoad(new long[] {1, 2, 3, 4, 5, 6, 7, 8});
+		t.rangeAdd(0, 7, 10);
+		t.rangeAdd(2, 5, -1);
+		assertEquals(112L, t.rangeSum(0, 7));
+		assertEquals(12L, t.rangeMin(2, 3));
+		assertEquals(18L, t.rangeMax(0, 7));
+		assertEquals(13L, t.set(3, 0));
+		assertEquals(99L, t.rangeSum(0, 7));
+		assertEquals(0L, t.rangeMin(0, 7));
+		t.add(1, 100L);  //rebuilds the tree
+		assertEquals("<11, 100, 12, 12, 0, 14, 15, 17, 18>", t.toString());
+		t.swap(0, 1);
+		t.rangeAdd(8, 8, 1);
+		assertEquals(Long.valueOf(19), t.removeLast());
+		t.add(-5L);
+		assertEquals(-5L, t.rangeMin(0, 8));
+		t.quicksort();
+		assertEquals("<-5, 0, 11, 12, 12, 14, 15, 17, 100>", t.toString());
+		t.checkRep();
+	}
+
+	@Test
+	public void testCursorsSurviveEdits() {
+		LongSegmentTree t = LongSegmentTree.bulkLoad(new long[] {10, 20, 30, 40, 50});
+		PositionalCollectionLocator<Long> cursor = t.iteratorAt(3);
+		t.add(0, 5L);
+		t.remove(2);
+		assertEquals(Long.valueOf(40), cursor.get());
+		assertEquals(3, cursor.getCurrentPosition());
+		t.rangeAdd(0, 4, 1);
+		assertEquals(Long.valueOf(41), cursor.get());
+		t.removeRange(2, 3);
+		assertFalse(cursor.inCollection());
+		assertTrue(cursor.advance());
+		assertEquals(Long.valueOf(51), cursor.get());
+	}
+
+	@Test(expected = PositionOutOfBoundsException.class)
+	public void testRangeBeyondEnd() {
+		LongSegmentTree t = LongSegmentTree.bulkLoad(new long[] {1, 2, 3});
+		t.rangeSum(1, 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyRange() {
+		LongSegmentTree t = LongSegmentTree.bulkLoad(new long[] {1, 2, 3});
+		t.rangeAdd(2, 1, 5);
+	}
+}
@@ -0,0 +1,160 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import goldman.collection.Collection;
+import goldman.collection.Locator;
+import goldman.collection.ordered.PersistentRedBlackTree;
+
+public class PersistentRedBlackTreeTest extends OrderedCollectionTest {
+
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection() {
+		return new PersistentRedBlackTree<Comparable>();
+	}
+
+	@Test
+	public void initializationTest() {
+		assertEquals(0, createCollection().getSize());
+	}
+
+	String asString(ArrayList<Integer> list) {
+		return list.toString().replace('[', '{').replace(']', '}');
+	}
+
+	@Test
+	public void testSnapshotsAreUnaffected() {
+		PersistentRedBlackTree<Integer> t = new PersistentRedBlackTree<Integer>();
+		ArrayList<Integer> expected = new ArrayList<Integer>();
+		ArrayList<PersistentRedBlackTree<Integer>> snapshots = new ArrayList<PersistentRedBlackTree<Integer>>();
+		ArrayList<String> contents = new ArrayList<String>();
+		Random random = new Random(7);
+		for (int op = 0; op < 20000; op++) {
+			Integer x = random.nextInt(500);
+			if (random.nextInt(3) > 0) {
+				t.add(x);
+				int i = Collections.binarySearch(expected, x);
+				expected.add(i < 0 ? -i - 1 : i, x);
+			} else
+				assertEquals(expected.remove(x), t.remove(x));
+			if (op % 1000 == 0) {
+				t.checkRep();
+				snapshots.add(t.snapshot());
+				contents.add(asString(expected));
+			}
+		}
+		t.checkRep();
+		assertEquals(asString(expected), t.toString());
+		for (int i = 0; i < snapshots.size(); i++) {
+			PersistentRedBlackTree<Integer> s = snapshots.get(i);
+			s.checkRep();
+			assertEquals(contents.get(i), s.toString());
+			assertEquals(true, s.isSnapshot());
+		}
+		PersistentRedBlackTree<Integer> s = snapshots.get(snapshots.size() - 1);
+		assertEquals(s, s.snapshot());
+		t.clear();
+		assertEquals(0, t.getSize());
+		assertEquals(contents.get(contents.size() - 1), s.toString());
+	}
+
+	@Test
+	public void testOrderStatistics() {
+		PersistentRedBlackTree<Integer> t = new PersistentRedBlackTree<Integer>();
+		for (int i = 0; i < 100; i++)
+			t.add(i / 2);
+		for (int i = 0; i < 100; i++)
+			assertEquals(Integer.valueOf(i / 2), t.get(i));
+		assertEquals(20, t.lowerRank(10));
+		assertEquals(22, t.upperRank(10));
+		assertEquals(Integer.valueOf(9), t.predecessor(10));
+		assertEquals(Integer.valueOf(11), t.successor(10));
+		assertEquals(Integer.valueOf(0), t.min());
+		assertEquals(Integer.valueOf(49), t.max());
+	}
+
+	@Test
+	public void testSnapshotIsReadOnly() {
+		PersistentRedBlackTree<Integer> t = new PersistentRedBlackTree<Integer>();
+		t.add(1);
+		t.add(2);
+		PersistentRedBlackTree<Integer> s = t.snapshot();
+		try {
+			s.add(3);
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException uoe) { }
+		try {
+			s.remove(1);
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException uoe) { }
+		Locator<Integer> loc = s.iterator();
+		assertEquals(Integer.valueOf(1), loc.next());
+		try {
+			loc.remove();
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException uoe) { }
+		t.remove(1);
+		assertEquals(Integer.valueOf(2), loc.next());
+		assertEquals("{1, 2}", s.toString());
+		assertEquals("{2}", t.toString());
+	}
+
+	@Test
+	public void testConcurrentReadersOfSnapshots() throws InterruptedException {
+		final PersistentRedBlackTree<Integer> t = new PersistentRedBlackTree<Integer>();
+		for (int i = 0; i < 1000; i++)
+			t.add(i);
+		final AtomicInteger failures = new AtomicInteger();
+		final java.util.concurrent.ArrayBlockingQueue<PersistentRedBlackTree<Integer>> queue =
+			new java.util.concurrent.ArrayBlockingQueue<PersistentRedBlackTree<Integer>>(10);
+		Thread[] readers = new Thread[3];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread() {
+				public void run() {
+					try {
+						while (true) {
+							PersistentRedBlackTree<Integer> s = queue.take();
+							if (s.getSize() == 0)
+								return;
+							int last = -1;
+							int n = 0;
+							for (Integer x : s) {
+								if (x <= last)
+									failures.incrementAndGet();
+								last = x;
+								n++;
+							}
+							if (n != 1000 || s.get(999) != last)
+								failures.incrementAndGet();
+							s.checkRep();
+						}
+					} catch (Exception e) {
+						failures.incrementAndGet();
+					}
+				}
+			};
+			readers[i].start();
+		}
+		Random random = new Random(1);
+		for (int round = 0; round < 300; round++) {
+			for (int j = 0; j < 50; j++) {  //keep the size at 1000
+				int x = t.get(random.nextInt(t.getSize()));
+				t.remove(x);
+				t.add(x + 1000 * (round + 1));
+			}
+			queue.put(t.snapshot());
+		}
+		PersistentRedBlackTree<Integer> empty = new PersistentRedBlackTree<Integer>().snapshot();
+		for (int i = 0; i < readers.length; i++)
+			queue.put(empty);
+		for (Thread reader : readers)
+			reader.join();
+		assertEquals(0, failures.get());
+		t.checkRep();
+	}
+}
@@ -0,0 +1,197 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import goldman.Pool;
+import goldman.collection.Locator;
+import goldman.collection.positional.DoublyLinkedList;
+import goldman.collection.positional.SinglyLinkedList;
+import goldman.collection.priority.FibonacciHeap;
+import goldman.collection.priority.PairingHeap;
+import goldman.collection.set.SeparateChaining;
+
+public class PoolTest {
+
+	static class CountingPool extends Pool<int[]> {
+		AtomicInteger resets = new AtomicInteger();
+
+		CountingPool(int maxRetained, int localCapacity) {
+			super(maxRetained, localCapacity);
+		}
+
+		protected int[] create() {
+			return new int[1];
+		}
+
+		protected void reset(int[] x) {
+			x[0] = 0;
+			resets.incrementAndGet();
+		}
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		CountingPool pool = new CountingPool(100, 4);
+		int[] a = pool.allocate();
+		assertEquals(1L, pool.getMissCount());
+		assertEquals(1L, pool.getCreateCount());
+		a[0] = 17;
+		pool.release(a);
+		assertEquals(1, pool.resets.get());
+		int[] b = pool.allocate();
+		assertSame(a, b);
+		assertEquals(0, b[0]);
+		assertEquals(1L, pool.getHitCount());
+		assertEquals(1L, pool.getCreateCount());
+	}
+
+	@Test
+	public void testSpillToSharedStripes() {
+		CountingPool pool = new CountingPool(100, 4);
+		int[][] objects = new int[10][];
+		for (int i = 0; i < objects.length; i++)
+			objects[i] = pool.allocate();
+		for (int[] x : objects)
+			pool.release(x);
+		assertEquals(6, pool.getSharedCount());
+		for (int i = 0; i < objects.length; i++)
+			pool.allocate();
+		assertEquals(10L, pool.getHitCount());
+		assertEquals(10L, pool.getCreateCount());
+		assertEquals(0, pool.getSharedCount());
+	}
+
+	@Test
+	public void testMaxRetained() {
+		CountingPool pool = new CountingPool(2, 2);
+		int[][] objects = new int[10][];
+		for (int i = 0; i < objects.length; i++)
+			objects[i] = pool.allocate();
+		for (int[] x : objects)
+			pool.release(x);
+		assertEquals(2, pool.getSharedCount());
+		assertEquals(6L, pool.getDiscardCount());
+	}
+
+	@Test
+	public void testNoLocalCache() {
+		CountingPool pool = new CountingPool(4, 0);
+		int[] a = pool.allocate();
+		pool.release(a);
+		assertEquals(1, pool.getSharedCount());
+		assertSame(a, pool.allocate());
+	}
+
+	@Test
+	public void testReserve() {
+		CountingPool pool = new CountingPool(100, 4);
+		pool.reserve(10);
+		assertEquals(10L, pool.getCreateCount());
+		for (int i = 0; i < 10; i++)
+			pool.allocate();
+		assertEquals(10L, pool.getHitCount());
+		assertEquals(0L, pool.getMissCount());
+	}
+
+	@Test
+	public void testConcurrentUse() throws InterruptedException {
+		final CountingPool pool = new CountingPool(64, 8);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					int[][] held = new int[20][];
+					for (int round = 0; round < 1000; round++) {
+						for (int i = 0; i < held.length; i++) {
+							held[i] = pool.allocate();
+							if (held[i][0] != 0)
+								throw new IllegalStateException("object shared by two threads");
+							held[i][0] = 1;
+						}
+						for (int i = 0; i < held.length; i++)
+							pool.release(held[i]);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		assertEquals(4L * 20 * 1000, pool.getHitCount() + pool.getMissCount());
+		assertEquals(pool.getMissCount(), pool.getCreateCount());
+		assertTrue(pool.getSharedCount() <= 64);
+	}
+
+	@Test
+	public void testPooledLists() {
+		Pool<SinglyLinkedList.ListItem<Integer>> pool = SinglyLinkedList.createNodePool(100);
+		SinglyLinkedList<Integer> list = new SinglyLinkedList<Integer>();
+		list.setNodePool(pool);
+		for (int i = 0; i < 20; i++)
+			list.add(i);
+		Locator<Integer> loc = list.iterator();
+		while (loc.advance())
+			if (loc.get() % 2 == 0)
+				loc.remove();
+		assertEquals("<1, 3, 5, 7, 9, 11, 13, 15, 17, 19>", list.toString());
+		for (int i = 0; i < 5; i++)
+			list.add(100 + i);
+		assertEquals("<1, 3, 5, 7, 9, 11, 13, 15, 17, 19, 100, 101, 102, 103, 104>", list.toString());
+		assertEquals(5L, pool.getHitCount());
+
+		Pool<SinglyLinkedList.ListItem<Integer>> dlPool = DoublyLinkedList.createNodePool(100);
+		DoublyLinkedList<Integer> dl = new DoublyLinkedList<Integer>();
+		dl.setNodePool(dlPool);
+		for (int i = 0; i < 10; i++)
+			dl.add(i);
+		dl.removeRange(2, 7);
+		dl.add(1, 42);
+		dl.add(43);
+		assertEquals("<0, 42, 1, 8, 9, 43>", dl.toString());
+		assertEquals(Integer.valueOf(43), dl.get(5));
+		assertEquals(2L, dlPool.getHitCount());
+	}
+
+	@Test
+	public void testPooledSeparateChaining() {
+		Pool<SeparateChaining.ChainItem<Integer>> pool = SeparateChaining.createNodePool(100);
+		SeparateChaining<Integer> set = new SeparateChaining<Integer>();
+		set.setNodePool(pool);
+		for (int i = 0; i < 100; i++)
+			set.add(i);
+		for (int i = 0; i < 100; i += 2)
+			set.remove(i);
+		for (int i = 200; i < 210; i++)
+			set.add(i);
+		assertEquals(60, set.getSize());
+		for (int i = 0; i < 100; i++)
+			assertEquals(i % 2 == 1, set.contains(i));
+		for (int i = 200; i < 210; i++)
+			assertTrue(set.contains(i));
+		assertTrue(pool.getHitCount() >= 10);
+	}
+
+	@Test
+	public void testPooledHeaps() {
+		Pool<PairingHeap.HeapNode<Integer>> pool = PairingHeap.createNodePool(100);
+		PairingHeap<Integer> heap = new PairingHeap<Integer>();
+		heap.setNodePool(pool);
+		Pool<PairingHeap.HeapNode<Integer>> fibPool = FibonacciHeap.createNodePool(100);
+		FibonacciHeap<Integer> fib = new FibonacciHeap<Integer>();
+		fib.setNodePool(fibPool);
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 50; i++) {
+				heap.add((i * 37) % 50);
+				fib.add((i * 37) % 50);
+			}
+			for (int i = 49; i >= 0; i--) {
+				assertEquals(Integer.valueOf(i), heap.extractMax());
+				assertEquals(Integer.valueOf(i), fib.extractMax());
+			}
+		}
+		assertTrue(pool.getHitCount() > 0);
+		assertTrue(fibPool.getHitCount() > 0);
+	}
+}
@@ -2,7 +2,12 @@ package goldman.junit4tests;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
 import goldman.collection.Collection;
+import goldman.collection.Locator;
 import goldman.collection.ordered.RedBlackTree;
 
 public class RedBlackTreeTest extends BinarySearchTreeTest {
@@ -19,6 +24,102 @@ public class RedBlackTreeTest extends BinarySearchTreeTest {
 	public void initializationTest() {
 		assertEquals(0, createCollection().getSize());
 	}
-	
 
+	RedBlackTree<Integer> randomTree(Random random, int n, int range, ArrayList<Integer> model) {
+		RedBlackTree<Integer> t = new RedBlackTree<Integer>();
+		for (int i = 0; i < n; i++) {
+			int x = random.nextInt(range);
+			t.add(x);
+			model.add(x);
+		}
+		Collections.sort(model);
+		return t;
+	}
+
+	ArrayList<Integer> expected(int op, ArrayList<Integer> a, ArrayList<Integer> b) {
+		ArrayList<Integer> result = new ArrayList<Integer>();
+		for (Integer x : a)
+			if (op == 0 || b.contains(x) == (op == 1))
+				result.add(x);
+		if (op == 0)
+			for (Integer x : b)
+				if (!a.contains(x))
+					result.add(x);
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testSetOperations() {
+		Random random = new Random(42);
+		int[][] sizes = {{0, 0}, {0, 10}, {10, 0}, {1, 1}, {5, 200}, {200, 5}, {100, 100}, {3000, 40}, {40, 3000}};
+		for (int op = 0; op < 3; op++)
+			for (int[] size : sizes)
+				for (int range : new int[] {10, 100000}) {
+					ArrayList<Integer> ma = new ArrayList<Integer>();
+					ArrayList<Integer> mb = new ArrayList<Integer>();
+					RedBlackTree<Integer> a = randomTree(random, size[0], range, ma);
+					RedBlackTree<Integer> b = randomTree(random, size[1], range, mb);
+					String before = b.toString();
+					if (op == 0)
+						a.union(b);
+					else if (op == 1)
+						a.intersect(b);
+					else
+						a.difference(b);
+					a.checkRep();
+					ArrayList<Integer> expected = expected(op, ma, mb);
+					assertEquals(expected.size(), a.getSize());
+					assertEquals(expected.toString().replace('[', '{').replace(']', '}'), a.toString());
+					assertEquals(before, b.toString());
+					for (int i = 0; i < expected.size(); i += 7)
+						assertEquals(expected.get(i), a.get(i));
+				}
+	}
+
+	@Test
+	public void testLargeParallelSetOperations() {
+		RedBlackTree<Integer> evens = new RedBlackTree<Integer>();
+		RedBlackTree<Integer> triples = new RedBlackTree<Integer>();
+		for (int i = 0; i < 60000; i += 2)
+			evens.add(i);
+		for (int i = 0; i < 60000; i += 3)
+			triples.add(i);
+		RedBlackTree<Integer> union = new RedBlackTree<Integer>();
+		union.union(evens);
+		union.union(triples);
+		union.checkRep();
+		assertEquals(40000, union.getSize());
+		evens.intersect(triples);
+		evens.checkRep();
+		assertEquals(10000, evens.getSize());
+		for (int i = 0; i < 10000; i++)
+			assertEquals(Integer.valueOf(6 * i), evens.get(i));
+		union.difference(evens);
+		union.checkRep();
+		assertEquals(30000, union.getSize());
+		assertEquals(false, union.contains(6));
+		assertEquals(true, union.contains(9));
+		union.difference(union);
+		assertEquals(0, union.getSize());
+	}
+
+	@Test
+	public void testTrackersAfterSetOperations() {
+		RedBlackTree<Integer> a = new RedBlackTree<Integer>();
+		RedBlackTree<Integer> b = new RedBlackTree<Integer>();
+		for (int i = 0; i < 100; i++)
+			a.add(i);
+		for (int i = 0; i < 100; i += 2)
+			b.add(i);
+		Locator<Integer> kept = a.getLocator(51);
+		Locator<Integer> removed = a.getLocator(50);
+		a.difference(b);
+		a.checkRep();
+		assertEquals(true, kept.inCollection());
+		assertEquals(Integer.valueOf(51), kept.get());
+		assertEquals(true, kept.advance());
+		assertEquals(Integer.valueOf(53), kept.get());
+		assertEquals(false, removed.inCollection());
+	}
 }
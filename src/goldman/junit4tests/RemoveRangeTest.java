@@ -0,0 +1,235 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import goldman.collection.Locator;
+import goldman.collection.Tracked;
+import goldman.collection.ordered.AbstractSearchTree;
+import goldman.collection.ordered.BPlusTree;
+import goldman.collection.ordered.BTree;
+import goldman.collection.ordered.BinarySearchTree;
+import goldman.collection.ordered.OrderedCollection;
+import goldman.collection.ordered.RedBlackTree;
+import goldman.collection.ordered.SkipList;
+import goldman.collection.ordered.SortedArray;
+import goldman.collection.ordered.SplayTree;
+import goldman.collection.ordered.TopDownBTree;
+
+public class RemoveRangeTest {
+
+	static final int RANGE = 0, LESS = 1, GREATER = 2;
+
+	@SuppressWarnings("unchecked")
+	OrderedCollection<Integer>[] collections() {
+		return (OrderedCollection<Integer>[]) new OrderedCollection<?>[] {
+				new BinarySearchTree<Integer>(), new SplayTree<Integer>(), new RedBlackTree<Integer>(),
+				new BTree<Integer>(2), new BTree<Integer>(5), new TopDownBTree<Integer>(3),
+				new BPlusTree<Integer>(2), new BPlusTree<Integer>(3), new BPlusTree<Integer>(6),
+				new SkipList<Integer>(), new SortedArray<Integer>()};
+	}
+
+	@SuppressWarnings("unchecked")
+	int remove(OrderedCollection<Integer> c, int op, Integer x, Integer y) {
+		if (c instanceof BinarySearchTree) {
+			BinarySearchTree<Integer> t = (BinarySearchTree<Integer>) c;
+			return (op == RANGE) ? t.removeRange(x, y) : (op == LESS) ? t.removeLessThan(x) : t.removeGreaterThan(x);
+		} else if (c instanceof BTree) {
+			BTree<Integer> t = (BTree<Integer>) c;
+			return (op == RANGE) ? t.removeRange(x, y) : (op == LESS) ? t.removeLessThan(x) : t.removeGreaterThan(x);
+		} else if (c instanceof SkipList) {
+			SkipList<Integer> t = (SkipList<Integer>) c;
+			return (op == RANGE) ? t.removeRange(x, y) : (op == LESS) ? t.removeLessThan(x) : t.removeGreaterThan(x);
+		} else {
+			SortedArray<Integer> t = (SortedArray<Integer>) c;
+			return (op == RANGE) ? t.removeRange(x, y) : (op == LESS) ? t.removeLessThan(x) : t.removeGreaterThan(x);
+		}
+	}
+
+	void checkRep(OrderedCollection<Integer> c) {
+		if (c instanceof BinarySearchTree)
+			((BinarySearchTree<Integer>) c).checkRep();
+		else if (c instanceof BTree)
+			((BTree<Integer>) c).checkRep();
+		else if (c instanceof SkipList)
+			((SkipList<Integer>) c).checkRep();
+	}
+
+	String sorted(ArrayList<Integer> model) {
+		return model.toString().replace('[', '{').replace(']', '}');
+	}
+
+	void checkAgainstModel(OrderedCollection<Integer> c, Random random, int values) {
+		String name = c.getClass().getSimpleName();
+		ArrayList<Integer> model = new ArrayList<Integer>();
+		for (int op = 0; op < 400; op++) {
+			int adds = random.nextInt(4) == 0 ? 200 : random.nextInt(20);
+			for (int i = 0; i < adds; i++) {
+				Integer x = random.nextInt(values);
+				c.add(x);
+				model.add(x);
+			}
+			Collections.sort(model);
+			int kind = random.nextInt(5);
+			int op2 = kind < 3 ? RANGE : kind == 3 ? LESS : GREATER;
+			int lo = random.nextInt(values + 20) - 10;
+			int hi = lo + random.nextInt(random.nextBoolean() ? 5 : values / 2);
+			if (random.nextInt(20) == 0)
+				hi = lo - 1;  //an empty range
+			int expected = 0;
+			for (int i = model.size() - 1; i >= 0; i--) {
+				int e = model.get(i);
+				if (op2 == RANGE ? (lo <= e && e <= hi) : op2 == LESS ? e < lo : e > lo) {
+					model.remove(i);
+					expected++;
+				}
+			}
+			assertEquals(name, expected, remove(c, op2, lo, hi));
+			assertEquals(name, model.size(), c.getSize());
+			if (op % 20 == 0) {
+				checkRep(c);
+				assertEquals(name, sorted(model), c.toString());
+			}
+		}
+		checkRep(c);
+		assertEquals(name, sorted(model), c.toString());
+		for (int x = -1; x <= values; x++) {  //the separators of a B+-tree must still guide searches
+			c.add(x);
+			assertTrue(name, c.contains(x));
+			assertTrue(name, c.remove(x));
+			assertEquals(name, model.contains(x), c.contains(x));
+		}
+		checkRep(c);
+	}
+
+	@Test
+	public void testAgainstModel() {
+		Random random = new Random(21);
+		for (OrderedCollection<Integer> c : collections())
+			checkAgainstModel(c, random, 300);
+		for (OrderedCollection<Integer> c : collections())
+			checkAgainstModel(c, random, 3000);
+	}
+
+	@Test
+	public void testPrefixAndSuffix() {
+		for (OrderedCollection<Integer> c : collections()) {
+			String name = c.getClass().getSimpleName();
+			for (int i = 0; i < 1000; i++)
+				c.add(i / 2);
+			assertEquals(name, 200, remove(c, LESS, 100, null));
+			assertEquals(name, 100, c.min().intValue());
+			assertEquals(name, 198, remove(c, GREATER, 400, null));
+			assertEquals(name, 400, c.max().intValue());
+			assertEquals(name, 0, remove(c, LESS, 100, null));
+			assertEquals(name, 0, remove(c, RANGE, 1000, 2000));
+			assertEquals(name, 602, c.getSize());
+			checkRep(c);
+			assertEquals(name, 602, remove(c, RANGE, 0, 1000));
+			assertTrue(name, c.isEmpty());
+			assertEquals(name, 0, remove(c, RANGE, 0, 1000));
+			c.add(5);
+			assertEquals(name, "{5}", c.toString());
+		}
+	}
+
+	@Test
+	public void testNewCollections() {
+		for (OrderedCollection<Integer> c : collections()) {
+			String name = c.getClass().getSimpleName();
+			assertEquals(name, 0, remove(c, RANGE, 0, 10));
+			assertEquals(name, 0, remove(c, LESS, 5, null));
+			assertEquals(name, 0, remove(c, GREATER, 5, null));
+			assertTrue(name, c.isEmpty());
+			c.add(5);
+			assertEquals(name, "{5}", c.toString());
+		}
+	}
+
+	@Test
+	public void testSearchesAfterEmptying() {
+		for (OrderedCollection<Integer> c : collections()) {
+			String name = c.getClass().getSimpleName();
+			for (int i = 0; i < 10; i++)
+				c.add(i);
+			assertEquals(name, 10, remove(c, LESS, 100, null));
+			assertTrue(name, c.isEmpty());
+			try {
+				c.successor(-1);
+				fail(name + " found a successor in an empty collection");
+			} catch (NoSuchElementException e) { }
+			try {
+				c.predecessor(50);
+				fail(name + " found a predecessor in an empty collection");
+			} catch (NoSuchElementException e) { }
+			assertFalse(name, c.contains(3));
+			c.add(3);
+			checkRep(c);
+			assertEquals(name, 3, c.successor(-1).intValue());
+			assertEquals(name, 3, c.predecessor(50).intValue());
+			assertEquals(name, "{3}", c.toString());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testTrackersAreRedirected() {
+		BinarySearchTree<Integer> bst = new BinarySearchTree<Integer>();
+		RedBlackTree<Integer> rbt = new RedBlackTree<Integer>();
+		SkipList<Integer> skipList = new SkipList<Integer>();
+		for (OrderedCollection<Integer> c : (OrderedCollection<Integer>[]) new OrderedCollection<?>[] {bst, rbt, skipList}) {
+			String name = c.getClass().getSimpleName();
+			ArrayList<Locator<Integer>> trackers = new ArrayList<Locator<Integer>>();
+			for (int i = 0; i < 100; i++)
+				trackers.add(((Tracked<Integer>) c).addTracked(i));
+			assertEquals(name, 50, remove(c, RANGE, 20, 69));
+			for (int i = 0; i < 100; i++)
+				assertEquals(name, i < 20 || i >= 70, trackers.get(i).inCollection());
+			Locator<Integer> loc = trackers.get(35);
+			assertTrue(name, loc.advance());
+			assertEquals(name, 70, loc.get().intValue());
+			loc = trackers.get(69);
+			assertTrue(name, loc.retreat());
+			assertEquals(name, 19, loc.get().intValue());
+			assertEquals(name, 30, remove(c, GREATER, 69, null));
+			loc = trackers.get(80);
+			assertFalse(name, loc.advance());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testAggregatesAreKept() {
+		AbstractSearchTree<Integer>[] trees = (AbstractSearchTree<Integer>[]) new AbstractSearchTree<?>[] {
+				new BinarySearchTree<Integer>(), new RedBlackTree<Integer>(), new BTree<Integer>(3),
+				new BPlusTree<Integer>(2), new BPlusTree<Integer>(4)};
+		Random random = new Random(22);
+		for (AbstractSearchTree<Integer> t : trees) {
+			String name = t.getClass().getSimpleName();
+			t.setAggregator(AggregatorTest.LIST);
+			ArrayList<Integer> model = new ArrayList<Integer>();
+			for (int op = 0; op < 200; op++) {
+				for (int i = 0; i < 30; i++) {
+					Integer x = random.nextInt(1000);
+					t.add(x);
+					model.add(x);
+				}
+				int lo = random.nextInt(1000);
+				int hi = lo + random.nextInt(100);
+				for (int i = model.size() - 1; i >= 0; i--)
+					if (lo <= model.get(i) && model.get(i) <= hi)
+						model.remove(i);
+				remove((OrderedCollection<Integer>) t, RANGE, lo, hi);
+				Collections.sort(model);
+				StringBuilder all = new StringBuilder();
+				for (Integer x : model)
+					all.append(all.length() == 0 ? "" : ",").append(x);
+				assertEquals(name, all.toString(), t.aggregate(-1, 1000));
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import goldman.Codec;
+import goldman.collection.AtCapacityException;
+import goldman.collection.positional.RingLog;
+
+public class RingLogTest {
+
+	File tempFile() throws IOException {
+		File f = File.createTempFile("ringlog", ".log");
+		f.delete();
+		f.deleteOnExit();
+		return f;
+	}
+
+	@Test
+	public void testFixedRecords() throws IOException {
+		File f = tempFile();
+		RingLog<Long> log = new RingLog<Long>(f, 80, 8, Codec.LONG);
+		for (long i = 0; i < 10; i++)
+			log.addLast(i);
+		try {
+			log.addLast(10L);
+			fail("AtCapacityException expected");
+		} catch (AtCapacityException ace) { }
+		assertEquals(Long.valueOf(0), log.removeFirst());
+		assertEquals(Long.valueOf(1), log.removeFirst());
+		log.addLast(10L);
+		log.addLast(11L);   //wraps around
+		assertEquals("<2, 3, 4, 5, 6, 7, 8, 9, 10, 11>", log.toString());
+		assertEquals(Long.valueOf(7), log.get(5));
+		log.close();
+		RingLog<Long> reopened = new RingLog<Long>(f, 80, 8, Codec.LONG);
+		assertEquals("<2, 3, 4, 5, 6, 7, 8, 9, 10, 11>", reopened.toString());
+		assertEquals(Long.valueOf(11), reopened.getLast());
+		reopened.close();
+	}
+
+	@Test
+	public void testVariableRecordsWrap() throws IOException {
+		File f = tempFile();
+		RingLog<String> log = new RingLog<String>(f, 64, RingLog.VARIABLE_LENGTH, Codec.STRING, true);
+		for (int i = 0; i < 20; i++)
+			log.addLast("event-" + i);
+		assertEquals("event-19", log.getLast());
+		int size = log.getSize();
+		for (int p = 0; p < size; p++)
+			assertEquals("event-" + (20 - size + p), log.get(p));
+		log.commit();
+		RingLog<String> reopened = new RingLog<String>(f, 64, RingLog.VARIABLE_LENGTH, Codec.STRING, true);
+		assertEquals(log.toString(), reopened.toString());
+		assertEquals("event-" + (20 - size), reopened.removeFirst());
+		reopened.close();
+		log.close();
+	}
+
+	@Test
+	public void testLargeRecordAtMisalignedTail() throws IOException {
+		File f = tempFile();
+		RingLog<String> log = new RingLog<String>(f, 22, RingLog.VARIABLE_LENGTH, Codec.STRING, true);
+		log.addLast("abcdef");
+		log.addLast("abcdefghi");   //only fits at the start of the ring
+		assertEquals("<abcdefghi>", log.toString());
+		log.addLast("xy");
+		assertEquals("<abcdefghi, xy>", log.toString());
+		log.close();
+		RingLog<String> reopened = new RingLog<String>(f, 22, RingLog.VARIABLE_LENGTH, Codec.STRING, true);
+		assertEquals("<abcdefghi, xy>", reopened.toString());
+		reopened.close();
+
+		File g = tempFile();
+		RingLog<String> bounded = new RingLog<String>(g, 22, RingLog.VARIABLE_LENGTH, Codec.STRING, false);
+		bounded.addLast("abcdef");
+		try {
+			bounded.addLast("abcdefghi");
+			fail("AtCapacityException expected");
+		} catch (AtCapacityException e) { }
+		assertEquals("<abcdef>", bounded.toString());
+		bounded.commit();
+		bounded.removeFirst();
+		bounded.addLast("abcdefghi");  //the log is empty, so the record moves to the start
+		assertEquals("<abcdefghi>", bounded.toString());
+		bounded.close();
+		reopened = new RingLog<String>(g, 22, RingLog.VARIABLE_LENGTH, Codec.STRING, false);
+		assertEquals("<abcdefghi>", reopened.toString());
+		reopened.close();
+	}
+
+	@Test
+	public void testUncommittedChangesAreLost() throws IOException {
+		File f = tempFile();
+		RingLog<Integer> log = new RingLog<Integer>(f, 40, 4, Codec.INTEGER);
+		for (int i = 0; i < 6; i++)
+			log.addLast(i);
+		log.commit();
+		log.removeFirst();
+		log.removeFirst();
+		log.addLast(6);
+		log.addLast(7);
+		log.addLast(8);
+		log.addLast(9);
+		log.addLast(10);    //reuses space freed since the commit, so commits first
+		log.addLast(11);
+		RingLog<Integer> crashed = new RingLog<Integer>(f, 40, 4, Codec.INTEGER);
+		assertEquals("<2, 3, 4, 5, 6, 7, 8, 9>", crashed.toString());
+		assertEquals("<2, 3, 4, 5, 6, 7, 8, 9, 10, 11>", log.toString());
+		log.close();
+		crashed = new RingLog<Integer>(f, 40, 4, Codec.INTEGER);
+		assertEquals("<2, 3, 4, 5, 6, 7, 8, 9, 10, 11>", crashed.toString());
+	}
+
+	@Test
+	public void testTornHeaderFallsBack() throws IOException {
+		File f = tempFile();
+		RingLog<Integer> log = new RingLog<Integer>(f, 40, 4, Codec.INTEGER);
+		log.addLast(1);
+		log.commit();
+		log.addLast(2);
+		log.close();
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		raf.seek(512 + 28);   //third commit (by close) went to the second copy
+		raf.writeInt(12345);
+		raf.close();
+		RingLog<Integer> recovered = new RingLog<Integer>(f, 40, 4, Codec.INTEGER);
+		assertEquals("<1>", recovered.toString());
+		recovered.close();
+	}
+
+	@Test
+	public void testMismatchedReopenLeavesFileUnchanged() throws IOException {
+		File f = tempFile();
+		RingLog<Integer> log = new RingLog<Integer>(f, 40, 4, Codec.INTEGER);
+		log.addLast(1);
+		log.close();
+		long length = f.length();
+		try {
+			new RingLog<Integer>(f, 4000, 4, Codec.INTEGER);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) { }
+		assertEquals(length, f.length());
+		RingLog<Integer> reopened = new RingLog<Integer>(f, 40, 4, Codec.INTEGER);
+		assertEquals("<1>", reopened.toString());
+		reopened.close();
+	}
+}
@@ -2,6 +2,11 @@ package goldman.junit4tests;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import goldman.Objects;
 import goldman.collection.Collection;
 import goldman.collection.ordered.SkipList;
 
@@ -15,4 +20,96 @@ public class SkipListTest extends OrderedCollectionTest {
 	public void initializationTest() {
 		assertEquals(0, createCollection().getSize());
 	}
+
+	static void checkIndex(SkipList<Integer> s, ArrayList<Integer> sorted) {
+		s.checkRep();
+		assertEquals(sorted.size(), s.getSize());
+		for (int r = 0; r < sorted.size(); r++) {
+			assertEquals(sorted.get(r), s.get(r));
+			assertEquals(Collections.binarySearch(sorted, sorted.get(r)) >= 0, true);
+		}
+		for (int r = 0; r < sorted.size(); r++)
+			if (r == 0 || !sorted.get(r).equals(sorted.get(r-1)))
+				assertEquals(r, s.rankOf(sorted.get(r)));
+		for (int k = 0; k <= sorted.size() + 1; k += 3) {
+			SkipList<Integer>.Tracker t = s.iterator();
+			boolean inCollection = t.skip(k);
+			assertEquals(k > 0 && k <= sorted.size(), inCollection);
+			if (inCollection)
+				assertEquals(sorted.get(k-1), t.get());
+		}
+	}
+
+	@Test
+	public void testIndexing() {
+		Random random = new Random(3);
+		SkipList<Integer> s = new SkipList<Integer>(2, Objects.DEFAULT_COMPARATOR,
+				new SkipList.XorShiftRandom(7));
+		ArrayList<Integer> sorted = new ArrayList<Integer>();
+		checkIndex(s, sorted);
+		for (int round = 0; round < 6; round++) {
+			for (int i = 0; i < 200; i++) {
+				int x = random.nextInt(300);
+				s.add(x);
+				sorted.add(x);
+			}
+			Collections.sort(sorted);
+			checkIndex(s, sorted);
+			for (int i = 0; i < 150; i++) {
+				int x = random.nextInt(300);
+				if (s.remove(x))
+					sorted.remove((Integer) x);
+			}
+			checkIndex(s, sorted);
+			SkipList<Integer> other = new SkipList<Integer>();
+			for (int i = 0; i < 50; i++) {
+				int x = random.nextInt(300);
+				other.add(x);
+				sorted.add(x);
+			}
+			s.addAll(other);
+			Collections.sort(sorted);
+			checkIndex(s, sorted);
+		}
+		while (s.getSize() > 0) {
+			s.remove(s.get(random.nextInt(s.getSize())));
+		}
+		s.checkRep();
+	}
+
+	@Test
+	public void testSkipFromTracker() {
+		SkipList<Integer> s = new SkipList<Integer>();
+		for (int i = 0; i < 100; i++)
+			s.add(i);
+		SkipList<Integer>.Tracker t = s.getLocator(10);
+		assertEquals(true, t.skip(0));
+		assertEquals(true, t.skip(25));
+		assertEquals(Integer.valueOf(35), t.get());
+		t.remove();
+		assertEquals(true, t.skip(1));
+		assertEquals(Integer.valueOf(36), t.get());
+		t.remove();
+		assertEquals(true, t.skip(2));
+		assertEquals(Integer.valueOf(38), t.get());
+		assertEquals(false, t.skip(1000));
+		try {
+			t.skip(1);
+			fail();
+		} catch (goldman.collection.AtBoundaryException e) {}
+		try {
+			s.iterator().skip(-1);
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	@Test
+	public void testSeededHeightsAreReproducible() {
+		SkipList.XorShiftRandom a = new SkipList.XorShiftRandom(42);
+		SkipList.XorShiftRandom b = new SkipList.XorShiftRandom(42);
+		for (int i = 0; i < 100; i++)
+			assertEquals(a.nextInt(), b.nextInt());
+		SkipList.XorShiftRandom zero = new SkipList.XorShiftRandom(0);
+		assertEquals(false, zero.nextLong() == 0 && zero.nextLong() == 0);
+	}
 }
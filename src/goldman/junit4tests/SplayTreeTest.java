@@ -17,4 +17,9 @@ public class SplayTreeTest extends OrderedCollectionTest {
 		assertEquals(0, createCollection().getSize());
 	}
 
+	@Test
+	public void testOrderStatistics() {
+		BinarySearchTreeTest.checkOrderStatistics(new SplayTree<Integer>());
+	}
+
 }
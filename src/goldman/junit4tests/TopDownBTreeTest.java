@@ -2,8 +2,12 @@ package goldman.junit4tests;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.Arrays;
+
+import goldman.Objects;
 import goldman.collection.Collection;
 import goldman.collection.Locator;
+import goldman.collection.ordered.BTree;
 import goldman.collection.ordered.TopDownBTree;
 
 public class TopDownBTreeTest extends BTreeTest {
@@ -12,6 +16,13 @@ public class TopDownBTreeTest extends BTreeTest {
 	public Collection<Comparable> createCollection() {
 		return new TopDownBTree<Comparable>();
 	}
+
+	@Override
+	BTree<Integer> bulkLoad(int t, Integer[] sorted, double fillFactor, boolean parallel) {
+		if (parallel)
+			return TopDownBTree.parallelBulkLoad(Objects.DEFAULT_COMPARATOR, t, sorted, fillFactor);
+		return TopDownBTree.bulkLoad(Objects.DEFAULT_COMPARATOR, t, Arrays.asList(sorted).iterator(), fillFactor);
+	}
 	
 	@Test
 	public void testSuccPred() {
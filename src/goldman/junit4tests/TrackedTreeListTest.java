@@ -0,0 +1,89 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import goldman.collection.*;
+import goldman.collection.positional.*;
+
+public class TrackedTreeListTest extends PositionalCollectionTest {
+
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection() {
+		return new TrackedTreeList<Comparable>();
+	}
+	
+	@SuppressWarnings("rawtypes")  //the harness creates collections of raw Comparable
+	public Collection<Comparable> createCollection(int size) {
+		return new TrackedTreeList<Comparable>();
+	}
+
+	protected PositionalCollection<IndexedNumber> createRadixCollection() {
+		return new TrackedTreeList<IndexedNumber>();
+	}
+	
+	protected PositionalCollection<IndexedNumber> createRadixCollection(int capacity) {
+		return new TrackedTreeList<IndexedNumber>();
+	}
+	
+	@Test
+	public void initializationTest() {
+		assertEquals(0, createCollection().getSize());
+	}
+
+	@Test
+	public void testTrackersFollowElements() {
+		java.util.Random random = new java.util.Random(11);
+		TrackedTreeList<Integer> list = new TrackedTreeList<Integer>();
+		DynamicArray<Integer> expected = new DynamicArray<Integer>();
+		@SuppressWarnings("unchecked")  //there is no generic array creation
+		PositionalCollectionLocator<Integer>[] trackers =
+			(PositionalCollectionLocator<Integer>[]) new PositionalCollectionLocator<?>[3000];
+		for (int i = 0; i < trackers.length; i++) {
+			if (random.nextInt(3) > 0 || expected.isEmpty()) {
+				int p = random.nextInt(expected.getSize() + 1);
+				trackers[i] = list.addTracked(p, i);
+				expected.add(p, i);
+			} else {
+				int p = random.nextInt(expected.getSize());
+				assertEquals(expected.remove(p), list.remove(p));
+			}
+		}
+		assertEquals(expected.toString(), list.toString());
+		for (int i = 0; i < trackers.length; i++) {
+			if (trackers[i] == null)
+				continue;
+			assertEquals(expected.contains(i), trackers[i].inCollection());
+			if (trackers[i].inCollection())
+				assertEquals(expected.positionOf(i), trackers[i].getCurrentPosition());
+		}
+	}
+
+	@Test
+	public void testRemovedTrackerAdvances() {
+		TrackedTreeList<Integer> list = new TrackedTreeList<Integer>();
+		for (int i = 0; i < 10; i++)
+			list.add(i);
+		PositionalCollectionLocator<Integer> t = list.iteratorAt(4);
+		list.removeRange(3, 6);
+		assertFalse(t.inCollection());
+		assertTrue(t.advance());
+		assertEquals(Integer.valueOf(7), t.get());
+		assertEquals(3, t.getCurrentPosition());
+		list.swap(0, 3);
+		assertEquals(Integer.valueOf(7), t.get());
+		assertEquals(0, list.iteratorAt(0).getCurrentPosition());
+		assertEquals("<7, 1, 2, 0, 8, 9>", list.toString());
+	}
+
+	@Test
+	public void testEqualTrackersHashAlike() {
+		TrackedTreeList<Integer> list = new TrackedTreeList<Integer>();
+		for (int i = 0; i < 10; i++)
+			list.add(i);
+		PositionalCollectionLocator<Integer> a = list.iteratorAt(4);
+		PositionalCollectionLocator<Integer> b = list.iteratorAt(4);
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertFalse(a.equals(list.iteratorAt(5)));
+	}
+}
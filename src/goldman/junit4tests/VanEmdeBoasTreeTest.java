@@ -0,0 +1,170 @@
+package goldman.junit4tests;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import goldman.collection.Locator;
+import goldman.collection.ordered.VanEmdeBoasTree;
+
+public class VanEmdeBoasTreeTest {
+
+	ArrayList<Integer> elements(TreeMap<Integer,Integer> model) {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		for (int x : model.keySet())
+			for (int i = 0; i < model.get(x); i++)
+				list.add(x);
+		return list;
+	}
+
+	void check(VanEmdeBoasTree t, TreeMap<Integer,Integer> model, int[] probes) {
+		ArrayList<Integer> expected = elements(model);
+		assertEquals(expected.size(), t.getSize());
+		ArrayList<Integer> forward = new ArrayList<Integer>();
+		for (Integer x : t)
+			forward.add(x);
+		assertEquals(expected, forward);
+		ArrayList<Integer> backward = new ArrayList<Integer>();
+		Locator<Integer> loc = t.iteratorAtEnd();
+		while (loc.retreat())
+			backward.add(0, loc.get());
+		assertEquals(expected, backward);
+		if (model.isEmpty()) {
+			try {
+				t.min();
+				fail();
+			} catch (NoSuchElementException e) {}
+		} else {
+			assertEquals(model.firstKey(), t.min());
+			assertEquals(model.lastKey(), t.max());
+		}
+		for (int x : probes) {
+			assertEquals(model.containsKey(x), t.contains(x));
+			assertEquals(model.containsKey(x) ? model.get(x) : 0, t.count(x));
+			Integer p = model.lowerKey(x);
+			Integer s = model.higherKey(x);
+			try {
+				assertEquals("predecessor of " + x, p, t.predecessor((Integer) x));
+			} catch (NoSuchElementException e) {
+				assertEquals(null, p);
+			}
+			try {
+				assertEquals("successor of " + x, s, (Integer) t.successor(x));
+			} catch (NoSuchElementException e) {
+				assertEquals(null, s);
+			}
+		}
+	}
+
+	void randomOperations(int[] pool, long seed) {
+		Random random = new Random(seed);
+		VanEmdeBoasTree t = new VanEmdeBoasTree();
+		TreeMap<Integer,Integer> model = new TreeMap<Integer,Integer>();
+		for (int op = 0; op < 4000; op++) {
+			int x = pool[random.nextInt(pool.length)];
+			if (random.nextInt(3) < 2) {
+				t.add(x);
+				model.put(x, model.containsKey(x) ? model.get(x) + 1 : 1);
+			} else {
+				boolean present = model.containsKey(x);
+				assertEquals(present, t.remove(x));
+				if (present) {
+					if (model.get(x) == 1)
+						model.remove(x);
+					else
+						model.put(x, model.get(x) - 1);
+				}
+			}
+			if (op % 400 == 0)
+				check(t, model, pool);
+		}
+		check(t, model, pool);
+		while (!model.isEmpty()) {
+			int x = model.firstKey();
+			if (random.nextBoolean())
+				x = model.lastKey();
+			assertTrue(t.remove(x));
+			if (model.get(x) == 1)
+				model.remove(x);
+			else
+				model.put(x, model.get(x) - 1);
+		}
+		check(t, model, pool);
+	}
+
+	@Test
+	public void testDenseKeys() {
+		int[] pool = new int[700];
+		for (int i = 0; i < pool.length; i++)
+			pool[i] = i - 350;
+		randomOperations(pool, 1);
+	}
+
+	@Test
+	public void testSparseKeys() {
+		Random random = new Random(2);
+		int[] pool = new int[500];
+		for (int i = 0; i < pool.length; i++)
+			pool[i] = random.nextInt();
+		pool[0] = Integer.MIN_VALUE;
+		pool[1] = Integer.MAX_VALUE;
+		pool[2] = 0;
+		pool[3] = -1;
+		pool[4] = 65535;
+		pool[5] = 65536;
+		randomOperations(pool, 3);
+	}
+
+	@Test
+	public void testClusterBoundaries() {
+		//keys that share high-order bits at each level, to exercise the cluster tables
+		int[] pool = new int[600];
+		for (int i = 0; i < pool.length; i++)
+			pool[i] = ((i % 40) << 16) | ((i % 7) << 8) | (i % 13) * 19;
+		randomOperations(pool, 4);
+	}
+
+	@Test
+	public void testMarkers() {
+		VanEmdeBoasTree t = new VanEmdeBoasTree();
+		int[] values = {5, 3, 5, 9, -2, 5, 9};
+		for (int x : values)
+			t.add(x);
+		assertEquals("{-2, 3, 5, 5, 5, 9, 9}", t.toString());
+		assertEquals((Integer) 5, t.get(3));
+		assertEquals((Integer) 9, t.get(6));
+		Locator<Integer> loc = t.getLocator(5);
+		assertEquals((Integer) 5, loc.get());
+		loc.advance();
+		loc.remove();
+		assertFalse(loc.inCollection());
+		assertTrue(loc.advance());
+		assertEquals((Integer) 5, loc.get());
+		assertTrue(loc.advance());
+		assertEquals((Integer) 9, loc.get());
+		loc.retreat();
+		loc.remove();
+		assertTrue(loc.retreat());
+		assertEquals((Integer) 5, loc.get());
+		assertTrue(loc.retreat());
+		assertEquals((Integer) 3, loc.get());
+		assertEquals("{-2, 3, 5, 9, 9}", t.toString());
+		loc = t.iterator();
+		while (loc.hasNext()) {
+			loc.advance();
+			if (loc.get() == 9)
+				loc.remove();
+		}
+		assertEquals("{-2, 3, 5}", t.toString());
+		try {
+			t.getLocator(9);
+			fail();
+		} catch (NoSuchElementException e) {}
+		t.clear();
+		assertTrue(t.isEmpty());
+		assertFalse(t.iterator().hasNext());
+	}
+}